@@ -0,0 +1,70 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.analytics;
+
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.Status;
+
+/**
+ * The dimensions of an {@link EnterpriseCube}. Hierarchical dimensions have
+ * several levels, from coarse to fine; the others have a single level.
+ */
+public enum Dimension {
+
+	/**
+	 * The {@link Status} of the enterprise.
+	 */
+	STATUS(1),
+
+	/**
+	 * The {@link JuridicalForm} of the enterprise, if any.
+	 */
+	JURIDICAL_FORM(1),
+
+	/**
+	 * The main {@link Nace2008} activity of the enterprise, if any. Level 1
+	 * is the section, such as {@code I}; levels 2 to 5 are the division,
+	 * group, class and subclass, such as {@code 56}, {@code 561},
+	 * {@code 5610} and {@code 56101}.
+	 */
+	NACE(5),
+
+	/**
+	 * The Belgian postcode of the registered office, if any. Levels 1 to 4
+	 * are its leading digits, such as {@code 9} or {@code 9000}.
+	 */
+	POSTCODE(4),
+
+	/**
+	 * The year of the start date of the enterprise.
+	 */
+	START_YEAR(1);
+
+	private final int levels;
+
+	private Dimension(int levels) {
+		this.levels = levels;
+	}
+
+	/**
+	 * @return the number of levels of this dimension, at least 1
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+}
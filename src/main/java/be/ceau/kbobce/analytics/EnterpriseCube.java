@@ -0,0 +1,535 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.analytics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * Sparse count cube of enterprises by {@link Dimension}: status, juridical
+ * form, main NACE 2008 activity, postcode of the registered office and start
+ * year. The cube is built once per snapshot of the register; queries never
+ * revisit the enterprises.
+ * <p>
+ * The base cube holds one count per distinct combination of the finest
+ * level of every dimension. A query is answered from the coarsest roll-up
+ * that can answer it: dimensions the query neither filters nor groups by are
+ * summed out, and the NACE and postcode hierarchies are rolled up to the
+ * finest level the query needs. Roll-ups are built on first use and cached,
+ * as are query results, so repeated dashboard queries take a map lookup.
+ * <p>
+ * The main activity of an enterprise is its {@link Nace2008} activity with
+ * classification {@code MAIN}, or else its lowest {@link Nace2008} code; if
+ * the enterprise has no such activity, those of its establishments are used.
+ * The postcode is the four digit Belgian zip code of the {@code REGO}
+ * address, or else of any address of the enterprise.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class EnterpriseCube {
+
+	private static final Dimension[] DIMENSIONS = Dimension.values();
+
+	private static final int[] BITS = { 8, 10, 17, 14, 10 };
+
+	private static final int[] SHIFTS = { 51, 41, 24, 10, 0 };
+
+	private static final int FIRST_YEAR = 1800;
+
+	private static final int MAX_CACHED_RESULTS = 10_000;
+
+	/**
+	 * First NACE division of each section, from {@code A} to {@code U}.
+	 */
+	private static final int[] SECTION_STARTS = { 1, 5, 10, 35, 36, 41, 45, 49, 55, 58, 64, 68, 69, 77, 84, 85, 86, 90, 94, 97, 99 };
+
+	private static final int[] POWERS = { 1, 10, 100, 1000, 10000 };
+
+	/**
+	 * @param enterprises
+	 *            the enterprises of a snapshot, not {@code null}
+	 * @return a new {@link EnterpriseCube} counting the given enterprises
+	 */
+	public static EnterpriseCube of(Iterable<Enterprise> enterprises) {
+		if (enterprises == null) {
+			throw new IllegalArgumentException("enterprises is null");
+		}
+		Map<Long, long[]> cells = new HashMap<>();
+		long total = 0;
+		for (Enterprise enterprise : enterprises) {
+			int[] coordinates = new int[DIMENSIONS.length];
+			coordinates[Dimension.STATUS.ordinal()] = CodeTable.of(Status.class).ordinal(enterprise.getStatus());
+			coordinates[Dimension.JURIDICAL_FORM.ordinal()] = enterprise.getJuridicalForm() == null ? 0 : CodeTable.of(JuridicalForm.class).ordinal(enterprise.getJuridicalForm()) + 1;
+			coordinates[Dimension.NACE.ordinal()] = nace(enterprise);
+			coordinates[Dimension.POSTCODE.ordinal()] = postcode(enterprise);
+			int year = enterprise.getStartDate().getYear() - FIRST_YEAR + 1;
+			coordinates[Dimension.START_YEAR.ordinal()] = year > 0 && year < 1 << BITS[Dimension.START_YEAR.ordinal()] ? year : 0;
+			cells.computeIfAbsent(pack(coordinates), key -> new long[1])[0]++;
+			total++;
+		}
+		int[] levels = new int[DIMENSIONS.length];
+		for (Dimension dimension : DIMENSIONS) {
+			levels[dimension.ordinal()] = dimension.getLevels();
+		}
+		return new EnterpriseCube(new Cuboid(levels, cells), total);
+	}
+
+	private final Cuboid base;
+	private final long total;
+	private final ConcurrentHashMap<Integer, Cuboid> cuboids = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Object> results = new ConcurrentHashMap<>();
+
+	private EnterpriseCube(Cuboid base, long total) {
+		this.base = base;
+		this.total = total;
+	}
+
+	/**
+	 * @return a new {@link Query} on this cube, without filters
+	 */
+	public Query query() {
+		return new Query();
+	}
+
+	/**
+	 * @return the number of enterprises counted
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * @return the number of non-empty cells of the base cube
+	 */
+	public int cellCount() {
+		return base.keys.length;
+	}
+
+	/**
+	 * @return the number of roll-ups built so far
+	 */
+	public int rollUpCount() {
+		return cuboids.size();
+	}
+
+	private Cuboid cuboid(int[] levels) {
+		int key = 0;
+		for (int level : levels) {
+			key = key * 8 + level;
+		}
+		return cuboids.computeIfAbsent(key, k -> {
+			Map<Long, long[]> cells = new HashMap<>();
+			int[] coordinates = new int[DIMENSIONS.length];
+			for (int i = 0; i < base.keys.length; i++) {
+				unpack(base.keys[i], coordinates);
+				for (Dimension dimension : DIMENSIONS) {
+					int d = dimension.ordinal();
+					coordinates[d] = levels[d] == 0 ? 0 : roll(dimension, coordinates[d], base.levels[d], levels[d]);
+				}
+				cells.computeIfAbsent(pack(coordinates), c -> new long[1])[0] += base.counts[i];
+			}
+			return new Cuboid(levels.clone(), cells);
+		});
+	}
+
+	/**
+	 * Filters and grouping of a query on an {@link EnterpriseCube}. Instances
+	 * are not thread-safe; results are cached by the cube.
+	 */
+	public final class Query {
+
+		private final Set<Integer>[] included;
+		private final int[] filterLevels = new int[DIMENSIONS.length];
+		private final int[] filterValues = new int[DIMENSIONS.length];
+		private int fromYear = Integer.MIN_VALUE;
+		private int toYear = Integer.MAX_VALUE;
+
+		@SuppressWarnings("unchecked")
+		private Query() {
+			this.included = (Set<Integer>[]) new Set<?>[DIMENSIONS.length];
+		}
+
+		/**
+		 * @param codes
+		 *            the {@link Status} codes to count, such as {@code AC}
+		 * @return this {@link Query}
+		 */
+		public Query withStatus(String... codes) {
+			included[Dimension.STATUS.ordinal()] = coordinates(CodeTable.of(Status.class), codes, 0);
+			return this;
+		}
+
+		/**
+		 * @param codes
+		 *            the {@link JuridicalForm} codes to count, such as
+		 *            {@code 014}
+		 * @return this {@link Query}
+		 */
+		public Query withJuridicalForm(String... codes) {
+			included[Dimension.JURIDICAL_FORM.ordinal()] = coordinates(CodeTable.of(JuridicalForm.class), codes, 1);
+			return this;
+		}
+
+		/**
+		 * @param nace
+		 *            a NACE section letter, such as {@code I}, or the 2 to 5
+		 *            leading digits of a NACE 2008 code, such as {@code 56}
+		 * @return this {@link Query}
+		 */
+		public Query withNace(String nace) {
+			if (nace == null) {
+				throw new IllegalArgumentException("nace is null");
+			}
+			int d = Dimension.NACE.ordinal();
+			if (nace.length() == 1 && nace.charAt(0) >= 'A' && nace.charAt(0) < 'A' + SECTION_STARTS.length) {
+				filterLevels[d] = 1;
+				filterValues[d] = nace.charAt(0) - 'A' + 1;
+			} else if (nace.length() >= 2 && nace.length() <= 5 && isDigits(nace)) {
+				filterLevels[d] = nace.length();
+				filterValues[d] = Integer.parseInt(nace) + 1;
+			} else {
+				throw new IllegalArgumentException("nace must be a section letter or 2 to 5 digits");
+			}
+			return this;
+		}
+
+		/**
+		 * @param prefix
+		 *            the 1 to 4 leading digits of a postcode, such as
+		 *            {@code 9} or {@code 9000}
+		 * @return this {@link Query}
+		 */
+		public Query withPostcode(String prefix) {
+			if (prefix == null || prefix.isEmpty() || prefix.length() > 4 || !isDigits(prefix)) {
+				throw new IllegalArgumentException("prefix must be 1 to 4 digits");
+			}
+			int d = Dimension.POSTCODE.ordinal();
+			filterLevels[d] = prefix.length();
+			filterValues[d] = Integer.parseInt(prefix) + 1;
+			return this;
+		}
+
+		/**
+		 * @param from
+		 *            the first start year to count
+		 * @param to
+		 *            the last start year to count, inclusive
+		 * @return this {@link Query}
+		 */
+		public Query withStartYears(int from, int to) {
+			if (from > to) {
+				throw new IllegalArgumentException("from must not be after to");
+			}
+			this.fromYear = from;
+			this.toYear = to;
+			filterLevels[Dimension.START_YEAR.ordinal()] = 1;
+			return this;
+		}
+
+		/**
+		 * @return the number of enterprises matching the filters
+		 */
+		public long count() {
+			return (Long) results.computeIfAbsent(key(null, 0), k -> compute(null, 0).getOrDefault("", 0L));
+		}
+
+		/**
+		 * Counts the enterprises matching the filters per value of a
+		 * dimension. Grouping by a finer level of a dimension than its filter
+		 * drills down into the filtered value.
+		 * 
+		 * @param dimension
+		 *            the {@link Dimension} to group by, not {@code null}
+		 * @param level
+		 *            the level of the dimension to group by, from 1 up to
+		 *            {@link Dimension#getLevels()}
+		 * @return an unmodifiable {@link Map} of counts by value, sorted by
+		 *         value; enterprises without a value for the dimension are
+		 *         counted under the empty {@link String}
+		 */
+		@SuppressWarnings("unchecked")
+		public Map<String, Long> groupBy(Dimension dimension, int level) {
+			if (dimension == null) {
+				throw new IllegalArgumentException("dimension is null");
+			}
+			if (level < 1 || level > dimension.getLevels()) {
+				throw new IllegalArgumentException("level must be between 1 and " + dimension.getLevels());
+			}
+			return (Map<String, Long>) results.computeIfAbsent(key(dimension, level), k -> Collections.unmodifiableMap(compute(dimension, level)));
+		}
+
+		private String key(Dimension group, int groupLevel) {
+			if (results.size() > MAX_CACHED_RESULTS) {
+				results.clear();
+			}
+			StringBuilder sb = new StringBuilder();
+			for (int d = 0; d < DIMENSIONS.length; d++) {
+				sb.append(filterLevels[d]).append(':').append(filterValues[d]).append(':');
+				if (included[d] != null) {
+					int[] sorted = included[d].stream().mapToInt(Integer::intValue).sorted().toArray();
+					sb.append(Arrays.toString(sorted));
+				}
+				sb.append('|');
+			}
+			return sb.append(fromYear).append('|').append(toYear).append('|').append(group).append(':').append(groupLevel).toString();
+		}
+
+		private Map<String, Long> compute(Dimension group, int groupLevel) {
+			int[] levels = new int[DIMENSIONS.length];
+			for (int d = 0; d < DIMENSIONS.length; d++) {
+				levels[d] = Math.max(filterLevels[d], included[d] != null ? 1 : 0);
+			}
+			if (group != null) {
+				levels[group.ordinal()] = Math.max(levels[group.ordinal()], groupLevel);
+			}
+			Cuboid cuboid = cuboid(levels);
+			Map<String, Long> counts = new TreeMap<>();
+			int[] coordinates = new int[DIMENSIONS.length];
+			for (int i = 0; i < cuboid.keys.length; i++) {
+				unpack(cuboid.keys[i], coordinates);
+				if (matches(coordinates, levels)) {
+					String label = group == null ? "" : label(group, roll(group, coordinates[group.ordinal()], levels[group.ordinal()], groupLevel), groupLevel);
+					counts.merge(label, cuboid.counts[i], Long::sum);
+				}
+			}
+			return counts;
+		}
+
+		private boolean matches(int[] coordinates, int[] levels) {
+			for (Dimension dimension : DIMENSIONS) {
+				int d = dimension.ordinal();
+				if (included[d] != null && !included[d].contains(coordinates[d])) {
+					return false;
+				}
+				if (dimension == Dimension.START_YEAR) {
+					if (filterLevels[d] != 0) {
+						int year = coordinates[d] + FIRST_YEAR - 1;
+						if (coordinates[d] == 0 || year < fromYear || year > toYear) {
+							return false;
+						}
+					}
+				} else if (filterLevels[d] != 0 && roll(dimension, coordinates[d], levels[d], filterLevels[d]) != filterValues[d]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * Cells of the cube at given levels, sorted by packed coordinates.
+	 */
+	private static final class Cuboid {
+
+		private final int[] levels;
+		private final long[] keys;
+		private final long[] counts;
+
+		private Cuboid(int[] levels, Map<Long, long[]> cells) {
+			this.levels = levels;
+			this.keys = new long[cells.size()];
+			int i = 0;
+			for (Long key : cells.keySet()) {
+				keys[i++] = key;
+			}
+			Arrays.sort(keys);
+			this.counts = new long[keys.length];
+			for (i = 0; i < keys.length; i++) {
+				counts[i] = cells.get(keys[i])[0];
+			}
+		}
+
+	}
+
+	private static <T extends Code> Set<Integer> coordinates(CodeTable<T> table, String[] codes, int offset) {
+		if (codes == null) {
+			throw new IllegalArgumentException("codes is null");
+		}
+		Set<Integer> coordinates = new HashSet<>();
+		for (String code : codes) {
+			T canonical = table.get(code);
+			if (canonical != null) {
+				coordinates.add(table.ordinal(canonical) + offset);
+			}
+		}
+		return coordinates;
+	}
+
+	private static long pack(int[] coordinates) {
+		long key = 0L;
+		for (int d = 0; d < coordinates.length; d++) {
+			if (coordinates[d] >>> BITS[d] != 0) {
+				throw new IllegalStateException("too many values for " + DIMENSIONS[d]);
+			}
+			key |= (long) coordinates[d] << SHIFTS[d];
+		}
+		return key;
+	}
+
+	private static void unpack(long key, int[] coordinates) {
+		for (int d = 0; d < coordinates.length; d++) {
+			coordinates[d] = (int) (key >>> SHIFTS[d]) & (1 << BITS[d]) - 1;
+		}
+	}
+
+	/**
+	 * @return the coordinate at a coarser level of the same dimension; 0
+	 *         stays 0
+	 */
+	private static int roll(Dimension dimension, int coordinate, int from, int to) {
+		if (coordinate == 0 || from == to) {
+			return coordinate;
+		}
+		int value = coordinate - 1;
+		switch (dimension) {
+		case NACE:
+			if (to == 1) {
+				return section(value / POWERS[from - 2]);
+			}
+			return value / POWERS[from - to] + 1;
+		case POSTCODE:
+			return value / POWERS[from - to] + 1;
+		default:
+			return coordinate;
+		}
+	}
+
+	/**
+	 * @return the coordinate of the section of a NACE division, 0 if unknown
+	 */
+	private static int section(int division) {
+		for (int s = SECTION_STARTS.length - 1; s >= 0; s--) {
+			if (division >= SECTION_STARTS[s]) {
+				return s + 1;
+			}
+		}
+		return 0;
+	}
+
+	private static String label(Dimension dimension, int coordinate, int level) {
+		if (coordinate == 0 && dimension != Dimension.STATUS) {
+			return "";
+		}
+		switch (dimension) {
+		case STATUS:
+			return CodeTable.of(Status.class).get(coordinate).getCode();
+		case JURIDICAL_FORM:
+			return CodeTable.of(JuridicalForm.class).get(coordinate - 1).getCode();
+		case NACE:
+			if (level == 1) {
+				return String.valueOf((char) ('A' + coordinate - 1));
+			}
+			return pad(coordinate - 1, level);
+		case POSTCODE:
+			return pad(coordinate - 1, level);
+		default:
+			return String.valueOf(coordinate + FIRST_YEAR - 1);
+		}
+	}
+
+	private static String pad(int value, int digits) {
+		String text = String.valueOf(value);
+		StringBuilder sb = new StringBuilder(digits);
+		for (int i = text.length(); i < digits; i++) {
+			sb.append('0');
+		}
+		return sb.append(text).toString();
+	}
+
+	private static boolean isDigits(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the coordinate of the main NACE 2008 subclass of an enterprise
+	 */
+	private static int nace(Enterprise enterprise) {
+		int coordinate = nace(enterprise.getActivities());
+		if (coordinate == 0) {
+			for (Establishment establishment : enterprise.getEstablishments()) {
+				int candidate = nace(establishment.getActivities());
+				if (candidate != 0 && (coordinate == 0 || candidate < coordinate)) {
+					coordinate = candidate;
+				}
+			}
+		}
+		return coordinate;
+	}
+
+	private static int nace(Iterable<Activity> activities) {
+		int main = 0;
+		int other = 0;
+		for (Activity activity : activities) {
+			if (!(activity.getNace() instanceof Nace2008)) {
+				continue;
+			}
+			String code = activity.getNace().getCode().replaceAll("[^0-9]", "");
+			if (code.length() < 2 || code.length() > 5) {
+				continue;
+			}
+			int coordinate = Integer.parseInt(code) * POWERS[5 - code.length()] + 1;
+			if ("MAIN".equals(activity.getClassification().getCode())) {
+				main = main == 0 ? coordinate : Math.min(main, coordinate);
+			} else {
+				other = other == 0 ? coordinate : Math.min(other, coordinate);
+			}
+		}
+		return main != 0 ? main : other;
+	}
+
+	/**
+	 * @return the coordinate of the postcode of the registered office
+	 */
+	private static int postcode(Enterprise enterprise) {
+		int coordinate = 0;
+		for (Address address : enterprise.getAddresses()) {
+			String zipcode = address.getZipcode();
+			if (zipcode.length() != 4 || !isDigits(zipcode) || zipcode.charAt(0) == '0') {
+				continue;
+			}
+			if ("REGO".equals(address.getTypeOfAddress().getCode())) {
+				return Integer.parseInt(zipcode) + 1;
+			}
+			if (coordinate == 0) {
+				coordinate = Integer.parseInt(zipcode) + 1;
+			}
+		}
+		return coordinate;
+	}
+
+}
@@ -76,7 +76,7 @@ public class ActivityGroup extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		ActivityGroup other = (ActivityGroup) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
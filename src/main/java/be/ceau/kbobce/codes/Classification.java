@@ -76,7 +76,7 @@ public class Classification extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		Classification other = (Classification) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
@@ -15,7 +15,12 @@
 */
 package be.ceau.kbobce.codes;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.io.StreamCorruptedException;
 import java.util.Map;
 
 import be.ceau.kbobce.validate.Validator;
@@ -34,6 +39,12 @@ public abstract class Code implements Serializable {
 	protected final String fr;
 	protected final String de;
 
+	/**
+	 * Description per {@link Translation} ordinal, after applying its fallback
+	 * chain.
+	 */
+	private final String[] resolved;
+
 	/**
 	 * Constructor
 	 * 
@@ -49,6 +60,13 @@ public abstract class Code implements Serializable {
 		this.nl = descriptions.get("NL");
 		this.fr = descriptions.get("FR");
 		this.de = descriptions.get("DE");
+		Translation[] translations = Translation.values();
+		this.resolved = new String[translations.length];
+		for (Translation translation : translations) {
+			for (int i = 0; i < translations.length && resolved[translation.ordinal()] == null; i++) {
+				resolved[translation.ordinal()] = getExactDescription(translation.fallback(i));
+			}
+		}
 	}
 
 	/**
@@ -79,6 +97,96 @@ public abstract class Code implements Serializable {
 		return de;
 	}
 
+	/**
+	 * @param translation
+	 *            the preferred {@link Translation}, not {@code null}
+	 * @return the description in the preferred language or, if there is none,
+	 *         in the first of its {@link Translation#fallbacks() fallbacks}
+	 *         that has one; {@code null} only if this code has no
+	 *         descriptions at all
+	 */
+	public String getDescription(Translation translation) {
+		return resolved[translation.ordinal()];
+	}
+
+	/**
+	 * @param translation
+	 *            a {@link Translation}, not {@code null}
+	 * @return the description in the given language, or {@code null}
+	 */
+	public String getExactDescription(Translation translation) {
+		switch (translation) {
+		case NL:
+			return nl;
+		case FR:
+			return fr;
+		case DE:
+			return de;
+		default:
+			throw new IllegalArgumentException("unknown translation " + translation);
+		}
+	}
+
+	/**
+	 * Writes a code of this package, or {@code null}, in the same compact
+	 * format used for serialization, without any class descriptors.
+	 * 
+	 * @param out
+	 *            the {@link DataOutput} to write to, not {@code null}
+	 * @param code
+	 *            a {@link Code} of this package, or {@code null}
+	 * @throws IOException
+	 *             if writing fails, or the code is of another subclass
+	 */
+	public static void write(DataOutput out, Code code) throws IOException {
+		Ser.write(out, code);
+	}
+
+	/**
+	 * Reads a code written by {@link #write(DataOutput, Code)}, resolved as
+	 * in deserialization.
+	 * 
+	 * @param in
+	 *            the {@link DataInput} to read from, not {@code null}
+	 * @param type
+	 *            the expected type, not {@code null}
+	 * @return an instance of the expected type, or {@code null}
+	 * @throws IOException
+	 *             if reading fails, or the input holds another type
+	 */
+	public static <T extends Code> T read(DataInput in, Class<T> type) throws IOException {
+		Code code = Ser.read(in);
+		if (code != null && !type.isInstance(code)) {
+			throw new StreamCorruptedException("expected " + type.getSimpleName() + " but read " + code.getClass().getSimpleName());
+		}
+		return type.cast(code);
+	}
+
+	/**
+	 * Replaces the codes of this package with a compact serialization
+	 * delegate. Other subclasses use default serialization.
+	 * 
+	 * @return the {@link Object} to serialize in place of this instance
+	 * @throws ObjectStreamException
+	 *             never
+	 */
+	protected Object writeReplace() throws ObjectStreamException {
+		byte type = Ser.typeOf(this);
+		return type == 0 ? this : new Ser(type, this);
+	}
+
+	/**
+	 * Resolves a deserialized instance to the canonical instance in its
+	 * {@link CodeTable}.
+	 * 
+	 * @return the canonical instance equal to this instance
+	 * @throws ObjectStreamException
+	 *             never
+	 */
+	protected Object readResolve() throws ObjectStreamException {
+		return CodeTable.canonical(this);
+	}
+
 	@Override
 	public int hashCode() {
 		return code.hashCode();
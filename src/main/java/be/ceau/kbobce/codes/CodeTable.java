@@ -0,0 +1,312 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.codes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of canonical instances of one concrete {@link Code} type. The first
+ * instance interned for a given code string becomes the canonical instance,
+ * and receives the next dense ordinal, starting at {@code 0}. Ordinals are
+ * stable for the lifetime of the table.
+ * <p>
+ * There is one shared table per {@link Code} type, obtained from
+ * {@link #of(Class)}. Deserialized codes are resolved to the instances in
+ * these tables. Instances are thread-safe.
+ *
+ * @param <T>
+ *            concrete {@link Code} type
+ */
+public final class CodeTable<T extends Code> {
+
+	private static final ConcurrentHashMap<Class<?>, CodeTable<?>> TABLES = new ConcurrentHashMap<>();
+
+	/**
+	 * @param type
+	 *            a concrete {@link Code} class, not {@code null}
+	 * @return the shared {@link CodeTable} for the given type, never
+	 *         {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Code> CodeTable<T> of(Class<T> type) {
+		return (CodeTable<T>) TABLES.computeIfAbsent(type, CodeTable::new);
+	}
+
+	/**
+	 * Shorthand for interning the given {@link Code} in the shared table of its
+	 * type.
+	 * 
+	 * @param code
+	 *            a {@link Code}, can be {@code null}
+	 * @return the canonical instance equal to the argument, or {@code null} if
+	 *         the argument is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Code> T canonical(T code) {
+		if (code == null) {
+			return null;
+		}
+		return of((Class<T>) code.getClass()).intern(code);
+	}
+
+	private final Class<T> type;
+
+	private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+	private volatile Code[] byOrdinal = new Code[0];
+
+	private volatile ByteIndex byteIndex;
+
+	private CodeTable(Class<?> type) {
+		@SuppressWarnings("unchecked")
+		Class<T> cast = (Class<T>) type;
+		this.type = cast;
+	}
+
+	/**
+	 * @param code
+	 *            a {@link Code} of the type of this table, not {@code null}
+	 * @return the canonical instance with the same code string as the
+	 *         argument, which is the argument itself if it is the first of its
+	 *         kind to be interned
+	 */
+	public T intern(T code) {
+		Entry<T> entry = entries.get(code.getCode());
+		if (entry == null) {
+			entry = add(code);
+		}
+		return entry.code;
+	}
+
+	private synchronized Entry<T> add(T code) {
+		Entry<T> entry = entries.get(code.getCode());
+		if (entry == null) {
+			if (!type.isInstance(code)) {
+				throw new IllegalArgumentException(code.getClass().getName() + " can not be added to the table of " + type.getName());
+			}
+			Code[] current = byOrdinal;
+			Code[] next = Arrays.copyOf(current, current.length + 1);
+			next[current.length] = code;
+			entry = new Entry<>(code, current.length);
+			entries.put(code.getCode(), entry);
+			byOrdinal = next;
+		}
+		return entry;
+	}
+
+	/**
+	 * @param code
+	 *            a code {@link String}, can be {@code null}
+	 * @return the canonical instance for the given code string, or
+	 *         {@code null} if no such code was interned
+	 */
+	public T get(String code) {
+		if (code == null) {
+			return null;
+		}
+		Entry<T> entry = entries.get(code);
+		return entry == null ? null : entry.code;
+	}
+
+	/**
+	 * Looks up a canonical instance by the UTF-8 bytes of its code string,
+	 * without decoding them to a {@link String}.
+	 * 
+	 * @param buffer
+	 *            a {@link ByteBuffer}, not {@code null}
+	 * @param offset
+	 *            absolute index of the first byte of the code in the buffer
+	 * @param length
+	 *            number of bytes of the code
+	 * @return the canonical instance for the given code, or {@code null} if no
+	 *         such code was interned
+	 */
+	public T get(ByteBuffer buffer, int offset, int length) {
+		ByteIndex index = byteIndex;
+		if (index == null || index.size != byOrdinal.length) {
+			index = rebuildByteIndex();
+		}
+		int ordinal = index.find(buffer, offset, length);
+		return ordinal < 0 ? null : get(ordinal);
+	}
+
+	private synchronized ByteIndex rebuildByteIndex() {
+		Code[] codes = byOrdinal;
+		ByteIndex index = byteIndex;
+		if (index == null || index.size != codes.length) {
+			index = new ByteIndex(codes);
+			byteIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * @param ordinal
+	 *            an ordinal previously handed out by this table
+	 * @return the canonical instance with the given ordinal, never
+	 *         {@code null}
+	 * @throws IndexOutOfBoundsException
+	 *             if no code with the given ordinal was interned
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int ordinal) {
+		return (T) byOrdinal[ordinal];
+	}
+
+	/**
+	 * Returns the ordinal of the given {@link Code}, interning it first if it
+	 * is not yet part of this table.
+	 * 
+	 * @param code
+	 *            a {@link Code} of the type of this table, not {@code null}
+	 * @return a non-negative {@code int}
+	 */
+	public int ordinal(T code) {
+		Entry<T> entry = entries.get(code.getCode());
+		if (entry == null) {
+			entry = add(code);
+		}
+		return entry.ordinal;
+	}
+
+	/**
+	 * @return the number of codes in this table, which is one more than the
+	 *         highest ordinal
+	 */
+	public int size() {
+		return byOrdinal.length;
+	}
+
+	/**
+	 * @return an unmodifiable snapshot of the canonical instances in this
+	 *         table, in ordinal order
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> values() {
+		List<T> values = new ArrayList<>();
+		for (Code code : byOrdinal) {
+			values.add((T) code);
+		}
+		return Collections.unmodifiableList(values);
+	}
+
+	/**
+	 * @return the type of {@link Code} held by this table
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("CodeTable [type=")
+				.append(type.getSimpleName())
+				.append(", size=")
+				.append(size())
+				.append("]")
+				.toString();
+	}
+
+	/**
+	 * Open addressing hash table from the UTF-8 bytes of code strings to
+	 * ordinals. Immutable once constructed.
+	 */
+	private static final class ByteIndex {
+
+		final int size;
+		final byte[][] keys;
+		final int[] ordinals;
+		final int mask;
+
+		ByteIndex(Code[] codes) {
+			this.size = codes.length;
+			int capacity = Integer.highestOneBit(Math.max(2, codes.length * 2) * 2 - 1);
+			this.keys = new byte[capacity][];
+			this.ordinals = new int[capacity];
+			this.mask = capacity - 1;
+			for (int ordinal = 0; ordinal < codes.length; ordinal++) {
+				byte[] key = codes[ordinal].getCode().getBytes(StandardCharsets.UTF_8);
+				int slot = hash(key, 0, key.length) & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				ordinals[slot] = ordinal;
+			}
+		}
+
+		int find(ByteBuffer buffer, int offset, int length) {
+			int slot = hash(buffer, offset, length) & mask;
+			byte[] key;
+			while ((key = keys[slot]) != null) {
+				if (matches(key, buffer, offset, length)) {
+					return ordinals[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private static boolean matches(byte[] key, ByteBuffer buffer, int offset, int length) {
+			if (key.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (key[i] != buffer.get(offset + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int hash(byte[] bytes, int offset, int length) {
+			int h = 0x811C9DC5;
+			for (int i = offset; i < offset + length; i++) {
+				h = (h ^ (bytes[i] & 0xFF)) * 0x01000193;
+			}
+			return h ^ (h >>> 16);
+		}
+
+		private static int hash(ByteBuffer buffer, int offset, int length) {
+			int h = 0x811C9DC5;
+			for (int i = offset; i < offset + length; i++) {
+				h = (h ^ (buffer.get(i) & 0xFF)) * 0x01000193;
+			}
+			return h ^ (h >>> 16);
+		}
+
+	}
+
+	private static final class Entry<T> {
+
+		final T code;
+		final int ordinal;
+
+		Entry(T code, int ordinal) {
+			this.code = code;
+			this.ordinal = ordinal;
+		}
+
+	}
+
+}
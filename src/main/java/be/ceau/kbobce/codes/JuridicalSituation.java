@@ -73,7 +73,7 @@ public class JuridicalSituation extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		JuridicalSituation other = (JuridicalSituation) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
@@ -73,7 +73,7 @@ public class Language extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		Language other = (Language) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
@@ -70,7 +70,7 @@ public class Nace2003 extends Nace {
 		if (getClass() != obj.getClass())
 			return false;
 		Nace2003 other = (Nace2003) obj;
-		if (code != other.code)
+		if (!code.equals(other.code))
 			return false;
 		return true;
 	}
@@ -50,7 +50,7 @@ public class Nace2008 extends Nace {
 
 	@Override
 	public int getYear() {
-		return 2003;
+		return 2008;
 	}
 
 	@Override
@@ -70,7 +70,7 @@ public class Nace2008 extends Nace {
 		if (getClass() != obj.getClass())
 			return false;
 		Nace2008 other = (Nace2008) obj;
-		if (code != other.code)
+		if (!code.equals(other.code))
 			return false;
 		return true;
 	}
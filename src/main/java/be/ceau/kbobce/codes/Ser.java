@@ -0,0 +1,219 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.codes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Serialization delegate for the {@link Code} types in this package. Writes
+ * a type byte, the code string and only the descriptions that are present.
+ * When read, resolves to the canonical instance from {@link CodeTable} if
+ * that has the same descriptions, and otherwise to the instance read, so the
+ * descriptions written are never lost.
+ */
+final class Ser implements Externalizable {
+
+	private static final long serialVersionUID = -3468104373297245245L;
+
+	static final byte ACTIVITY_GROUP = 1;
+	static final byte CLASSIFICATION = 2;
+	static final byte CONTACT_TYPE = 3;
+	static final byte ENTITY_CONTACT = 4;
+	static final byte JURIDICAL_FORM = 5;
+	static final byte JURIDICAL_SITUATION = 6;
+	static final byte LANGUAGE = 7;
+	static final byte NACE_2003 = 8;
+	static final byte NACE_2008 = 9;
+	static final byte STATUS = 10;
+	static final byte TYPE_OF_ADDRESS = 11;
+	static final byte TYPE_OF_DENOMINATION = 12;
+	static final byte TYPE_OF_ENTERPRISE = 13;
+
+	private static final Map<Class<?>, Byte> TYPES = new HashMap<>();
+	static {
+		TYPES.put(ActivityGroup.class, ACTIVITY_GROUP);
+		TYPES.put(Classification.class, CLASSIFICATION);
+		TYPES.put(ContactType.class, CONTACT_TYPE);
+		TYPES.put(EntityContact.class, ENTITY_CONTACT);
+		TYPES.put(JuridicalForm.class, JURIDICAL_FORM);
+		TYPES.put(JuridicalSituation.class, JURIDICAL_SITUATION);
+		TYPES.put(Language.class, LANGUAGE);
+		TYPES.put(Nace2003.class, NACE_2003);
+		TYPES.put(Nace2008.class, NACE_2008);
+		TYPES.put(Status.class, STATUS);
+		TYPES.put(TypeOfAddress.class, TYPE_OF_ADDRESS);
+		TYPES.put(TypeOfDenomination.class, TYPE_OF_DENOMINATION);
+		TYPES.put(TypeOfEnterprise.class, TYPE_OF_ENTERPRISE);
+	}
+
+	/**
+	 * @return the type byte for the class of the given {@link Code}, or
+	 *         {@code 0} if it is not one of the types in this package
+	 */
+	static byte typeOf(Code code) {
+		Byte type = TYPES.get(code.getClass());
+		return type == null ? 0 : type;
+	}
+
+	private byte type;
+
+	private Code object;
+
+	/**
+	 * Constructor for deserialization.
+	 */
+	public Ser() {
+	}
+
+	Ser(byte type, Code object) {
+		this.type = type;
+		this.object = object;
+	}
+
+	/**
+	 * Writes a type byte, or {@code 0} for {@code null}, followed by the same
+	 * fields as {@link #writeExternal(ObjectOutput)}.
+	 */
+	static void write(DataOutput out, Code code) throws IOException {
+		if (code == null) {
+			out.writeByte(0);
+			return;
+		}
+		byte type = typeOf(code);
+		if (type == 0) {
+			throw new NotSerializableException(code.getClass().getName());
+		}
+		out.writeByte(type);
+		writeBody(out, code);
+	}
+
+	/**
+	 * Reads a {@link Code} written by {@link #write(DataOutput, Code)}.
+	 */
+	static Code read(DataInput in) throws IOException {
+		byte type = in.readByte();
+		return type == 0 ? null : readBody(in, type);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeByte(type);
+		writeBody(out, object);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		type = in.readByte();
+		object = readBody(in, type);
+	}
+
+	private static void writeBody(DataOutput out, Code object) throws IOException {
+		out.writeUTF(object.code);
+		int present = (object.nl != null ? 1 : 0) | (object.fr != null ? 2 : 0) | (object.de != null ? 4 : 0);
+		out.writeByte(present);
+		if (object.nl != null) {
+			out.writeUTF(object.nl);
+		}
+		if (object.fr != null) {
+			out.writeUTF(object.fr);
+		}
+		if (object.de != null) {
+			out.writeUTF(object.de);
+		}
+	}
+
+	private static Code readBody(DataInput in, byte type) throws IOException {
+		String code = in.readUTF();
+		int present = in.readByte();
+		Map<String, String> descriptions = new HashMap<>(4);
+		if ((present & 1) != 0) {
+			descriptions.put("NL", in.readUTF());
+		}
+		if ((present & 2) != 0) {
+			descriptions.put("FR", in.readUTF());
+		}
+		if ((present & 4) != 0) {
+			descriptions.put("DE", in.readUTF());
+		}
+		try {
+			return resolve(type, code, descriptions);
+		} catch (IllegalArgumentException e) {
+			InvalidObjectException exception = new InvalidObjectException(e.getMessage());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	private static Code resolve(byte type, String code, Map<String, String> descriptions) throws StreamCorruptedException {
+		switch (type) {
+		case ACTIVITY_GROUP:
+			return intern(ActivityGroup.class, () -> new ActivityGroup(code, descriptions));
+		case CLASSIFICATION:
+			return intern(Classification.class, () -> new Classification(code, descriptions));
+		case CONTACT_TYPE:
+			return intern(ContactType.class, () -> new ContactType(code, descriptions));
+		case ENTITY_CONTACT:
+			return intern(EntityContact.class, () -> new EntityContact(code, descriptions));
+		case JURIDICAL_FORM:
+			return intern(JuridicalForm.class, () -> new JuridicalForm(code, descriptions));
+		case JURIDICAL_SITUATION:
+			return intern(JuridicalSituation.class, () -> new JuridicalSituation(code, descriptions));
+		case LANGUAGE:
+			return intern(Language.class, () -> new Language(code, descriptions));
+		case NACE_2003:
+			return intern(Nace2003.class, () -> new Nace2003(code, descriptions));
+		case NACE_2008:
+			return intern(Nace2008.class, () -> new Nace2008(code, descriptions));
+		case STATUS:
+			return intern(Status.class, () -> new Status(code, descriptions));
+		case TYPE_OF_ADDRESS:
+			return intern(TypeOfAddress.class, () -> new TypeOfAddress(code, descriptions));
+		case TYPE_OF_DENOMINATION:
+			return intern(TypeOfDenomination.class, () -> new TypeOfDenomination(code, descriptions));
+		case TYPE_OF_ENTERPRISE:
+			return intern(TypeOfEnterprise.class, () -> new TypeOfEnterprise(code, descriptions));
+		default:
+			throw new StreamCorruptedException("unknown Code type " + type);
+		}
+	}
+
+	private static <T extends Code> T intern(Class<T> type, Supplier<T> constructor) {
+		T read = constructor.get();
+		T canonical = CodeTable.of(type).intern(read);
+		return sameDescriptions(canonical, read) ? canonical : read;
+	}
+
+	private static boolean sameDescriptions(Code a, Code b) {
+		return Objects.equals(a.nl, b.nl) && Objects.equals(a.fr, b.fr) && Objects.equals(a.de, b.de);
+	}
+
+	private Object readResolve() {
+		return object;
+	}
+
+}
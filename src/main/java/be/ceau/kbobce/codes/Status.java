@@ -70,7 +70,7 @@ public class Status extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		Status other = (Status) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
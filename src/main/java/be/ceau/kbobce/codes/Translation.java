@@ -0,0 +1,138 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.codes;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The languages in which the KBO/BCE dataset describes its codes. Each
+ * {@code Translation} has a fallback chain, used by
+ * {@link Code#getDescription(Translation)} when a code has no description in
+ * the requested language.
+ */
+public enum Translation {
+
+	/**
+	 * Dutch, falling back to French, then German
+	 */
+	NL,
+
+	/**
+	 * French, falling back to Dutch, then German
+	 */
+	FR,
+
+	/**
+	 * German, falling back to French, then Dutch
+	 */
+	DE;
+
+	private static final Translation[][] FALLBACKS = {
+			{ NL, FR, DE },
+			{ FR, NL, DE },
+			{ DE, FR, NL } };
+
+	/**
+	 * @return this {@code Translation} followed by its fallbacks, in order of
+	 *         preference; a new array on every call
+	 */
+	public Translation[] fallbacks() {
+		return FALLBACKS[ordinal()].clone();
+	}
+
+	Translation fallback(int index) {
+		return FALLBACKS[ordinal()][index];
+	}
+
+	/**
+	 * @param locale
+	 *            a {@link Locale}, can be {@code null}
+	 * @return the {@code Translation} for the language of the given
+	 *         {@link Locale}, or {@code null} if there is none
+	 */
+	public static Translation of(Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		switch (locale.getLanguage()) {
+		case "nl":
+			return NL;
+		case "fr":
+			return FR;
+		case "de":
+			return DE;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @param language
+	 *            the {@link Language} of a denomination, can be {@code null}
+	 * @return the matching {@code Translation}, or {@code null} if the
+	 *         {@link Language} is not Dutch, French or German
+	 */
+	public static Translation of(Language language) {
+		if (language == null) {
+			return null;
+		}
+		switch (language.getCode()) {
+		case "1":
+			return FR;
+		case "2":
+			return NL;
+		case "3":
+			return DE;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Resolves an HTTP {@code Accept-Language} header to a
+	 * {@code Translation}.
+	 * 
+	 * @param acceptLanguage
+	 *            a language priority list, such as {@code fr-BE,fr;q=0.9,en;q=0.5},
+	 *            can be {@code null}
+	 * @param defaultTranslation
+	 *            returned if no acceptable language matches
+	 * @return the first {@code Translation} in order of preference, or
+	 *         {@code defaultTranslation}
+	 */
+	public static Translation resolve(String acceptLanguage, Translation defaultTranslation) {
+		if (acceptLanguage == null || acceptLanguage.isEmpty()) {
+			return defaultTranslation;
+		}
+		List<Locale.LanguageRange> ranges;
+		try {
+			ranges = Locale.LanguageRange.parse(acceptLanguage);
+		} catch (IllegalArgumentException e) {
+			return defaultTranslation;
+		}
+		for (Locale.LanguageRange range : ranges) {
+			if (range.getWeight() > 0) {
+				Translation translation = of(Locale.forLanguageTag(range.getRange()));
+				if (translation != null) {
+					return translation;
+				}
+			}
+		}
+		return defaultTranslation;
+	}
+
+}
@@ -76,7 +76,7 @@ public class TypeOfAddress extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		TypeOfAddress other = (TypeOfAddress) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
@@ -76,7 +76,7 @@ public class TypeOfDenomination extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		TypeOfDenomination other = (TypeOfDenomination) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
@@ -72,7 +72,7 @@ public class TypeOfEnterprise extends Code {
 		if (getClass() != obj.getClass())
 			return false;
 		TypeOfEnterprise other = (TypeOfEnterprise) obj;
-		return !code.equals(other.code);
+		return code.equals(other.code);
 	}
 
 	@Override
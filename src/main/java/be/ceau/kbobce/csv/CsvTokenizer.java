@@ -0,0 +1,497 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+import be.ceau.kbobce.metrics.Instrumentation;
+
+/**
+ * Tokenizer for the comma separated, optionally double quoted, UTF-8 encoded
+ * files of the KBO/BCE open data. Fields are exposed as slices of the
+ * underlying {@link ByteBuffer} and decoded on demand, straight from the
+ * bytes for numbers, dates and codes. A {@link String} is only created when
+ * asked for with {@link #asString()}.
+ * <p>
+ * Typical use:
+ * 
+ * <pre>
+ * try (CsvTokenizer csv = CsvTokenizer.open(path)) {
+ * 	csv.nextRecord(); // header
+ * 	while (csv.nextRecord()) {
+ * 		csv.nextField();
+ * 		long enterpriseNumber = csv.asPackedEnterpriseNumber();
+ * 		csv.nextField();
+ * 		Status status = csv.asCode(CodeTable.of(Status.class));
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ * <p>
+ * Records end with {@code \n} or {@code \r\n}. Quoted fields may contain
+ * commas and doubled quotes, but not line breaks. Instances are not
+ * thread-safe.
+ */
+public class CsvTokenizer implements Closeable {
+
+	private static final int DEFAULT_WINDOW = 1 << 28;
+
+	/**
+	 * Opens a tokenizer over the given file. The file is memory-mapped in
+	 * windows of up to 256MB, each ending on a record boundary, so files of
+	 * any size are supported. The number of records read is reported to
+	 * {@link Instrumentation} when the tokenizer is closed.
+	 * 
+	 * @param path
+	 *            a {@link Path} to a readable file, not {@code null}
+	 * @return a new {@link CsvTokenizer}
+	 * @throws IOException
+	 *             if the file can not be opened or mapped
+	 */
+	public static CsvTokenizer open(Path path) throws IOException {
+		return open(path, DEFAULT_WINDOW);
+	}
+
+	static CsvTokenizer open(Path path, int window) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			CsvTokenizer tokenizer = new CsvTokenizer(channel, window, path.getFileName().toString());
+			tokenizer.mapWindow(0);
+			return tokenizer;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private final FileChannel channel;
+	private final int window;
+	private final String name;
+	private final long start = System.nanoTime();
+
+	private ByteBuffer buffer;
+	private long windowOffset;
+	private int limit;
+	private int pos;
+
+	private boolean inRecord;
+	private boolean recordHasMore;
+	private long records;
+
+	private int fieldStart;
+	private int fieldLength;
+	private boolean fieldEscaped;
+
+	/**
+	 * Construct a new {@link CsvTokenizer} over the remaining bytes of the
+	 * given buffer, from its position to its limit.
+	 * 
+	 * @param buffer
+	 *            a {@link ByteBuffer}, not {@code null}
+	 */
+	public CsvTokenizer(ByteBuffer buffer) {
+		this.channel = null;
+		this.window = 0;
+		this.name = null;
+		this.buffer = buffer;
+		this.pos = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	private CsvTokenizer(FileChannel channel, int window, String name) {
+		this.channel = channel;
+		this.window = window;
+		this.name = name;
+	}
+
+	private boolean mapWindow(long offset) throws IOException {
+		long size = channel.size();
+		if (offset >= size) {
+			return false;
+		}
+		long length = Math.min(window, size - offset);
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		int end = (int) length;
+		if (offset + length < size) {
+			while (end > 0 && mapped.get(end - 1) != '\n') {
+				end--;
+			}
+			if (end == 0) {
+				throw new IOException("record at offset " + offset + " does not fit in a window of " + window + " bytes");
+			}
+		}
+		this.buffer = mapped;
+		this.windowOffset = offset;
+		this.pos = 0;
+		this.limit = end;
+		return true;
+	}
+
+	/**
+	 * Moves to the start of the next record, skipping any fields left in the
+	 * current record. Empty lines are skipped.
+	 * 
+	 * @return {@code true} if there is a next record, {@code false} at the end
+	 *         of the input
+	 * @throws IOException
+	 *             if the next part of a file can not be mapped
+	 */
+	public boolean nextRecord() throws IOException {
+		if (inRecord) {
+			skipRecord();
+		}
+		while (true) {
+			while (pos < limit) {
+				byte b = buffer.get(pos);
+				if (b != '\n' && b != '\r') {
+					inRecord = true;
+					recordHasMore = true;
+					records++;
+					return true;
+				}
+				pos++;
+			}
+			if (channel == null || !mapWindow(windowOffset + limit)) {
+				return false;
+			}
+		}
+	}
+
+	private void skipRecord() {
+		while (recordHasMore) {
+			nextField();
+		}
+		inRecord = false;
+	}
+
+	/**
+	 * Moves to the next field of the current record.
+	 * 
+	 * @return {@code true} if the current record has another field,
+	 *         {@code false} if all its fields were read
+	 */
+	public boolean nextField() {
+		if (!recordHasMore) {
+			return false;
+		}
+		fieldEscaped = false;
+		if (pos < limit && buffer.get(pos) == '"') {
+			int i = pos + 1;
+			fieldStart = i;
+			while (true) {
+				if (i >= limit) {
+					fieldLength = i - fieldStart;
+					pos = i;
+					recordHasMore = false;
+					return true;
+				}
+				if (buffer.get(i) == '"') {
+					if (i + 1 < limit && buffer.get(i + 1) == '"') {
+						fieldEscaped = true;
+						i += 2;
+						continue;
+					}
+					break;
+				}
+				i++;
+			}
+			fieldLength = i - fieldStart;
+			pos = i + 1;
+			// tolerate garbage between the closing quote and the delimiter
+			while (pos < limit && buffer.get(pos) != ',' && buffer.get(pos) != '\n' && buffer.get(pos) != '\r') {
+				pos++;
+			}
+		} else {
+			int i = pos;
+			fieldStart = i;
+			while (i < limit) {
+				byte b = buffer.get(i);
+				if (b == ',' || b == '\n' || b == '\r') {
+					break;
+				}
+				i++;
+			}
+			fieldLength = i - fieldStart;
+			pos = i;
+		}
+		endField();
+		return true;
+	}
+
+	private void endField() {
+		if (pos < limit && buffer.get(pos) == ',') {
+			pos++;
+			return;
+		}
+		recordHasMore = false;
+		if (pos < limit && buffer.get(pos) == '\r') {
+			pos++;
+		}
+		if (pos < limit && buffer.get(pos) == '\n') {
+			pos++;
+		}
+	}
+
+	/**
+	 * Calls {@link #nextField()} the given number of times, so the last of
+	 * those fields becomes the current field.
+	 * 
+	 * @param count
+	 *            number of fields to move forward
+	 * @return {@code true} if the current record had enough fields
+	 */
+	public boolean skipFields(int count) {
+		for (int i = 0; i < count; i++) {
+			if (!nextField()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the {@link ByteBuffer} holding the current field; replaced when
+	 *         a file-backed tokenizer moves to the next window
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return absolute index in {@link #buffer()} of the first byte of the
+	 *         current field, excluding quotes
+	 */
+	public int fieldStart() {
+		return fieldStart;
+	}
+
+	/**
+	 * @return number of bytes of the current field, excluding quotes
+	 */
+	public int fieldLength() {
+		return fieldLength;
+	}
+
+	/**
+	 * @return {@code true} if the current field contains doubled quotes, in
+	 *         which case its raw bytes differ from its value
+	 */
+	public boolean isEscaped() {
+		return fieldEscaped;
+	}
+
+	/**
+	 * @return {@code true} if the current field has no content
+	 */
+	public boolean isEmpty() {
+		return fieldLength == 0;
+	}
+
+	/**
+	 * @return number of records started so far
+	 */
+	public long records() {
+		return records;
+	}
+
+	/**
+	 * @return absolute index in {@link #buffer()} of the next byte to read;
+	 *         the start of the current record right after
+	 *         {@link #nextRecord()}, the end of its line terminator once all
+	 *         of its fields were read
+	 */
+	int position() {
+		return pos;
+	}
+
+	/**
+	 * @return the value of the current field, never {@code null}
+	 */
+	public String asString() {
+		if (fieldLength == 0) {
+			return "";
+		}
+		byte[] bytes;
+		int offset;
+		if (buffer.hasArray()) {
+			bytes = buffer.array();
+			offset = buffer.arrayOffset() + fieldStart;
+		} else {
+			bytes = new byte[fieldLength];
+			for (int i = 0; i < fieldLength; i++) {
+				bytes[i] = buffer.get(fieldStart + i);
+			}
+			offset = 0;
+		}
+		String value = new String(bytes, offset, fieldLength, StandardCharsets.UTF_8);
+		return fieldEscaped ? value.replace("\"\"", "\"") : value;
+	}
+
+	/**
+	 * @return the value of the current field, or {@code null} if it is empty
+	 */
+	public String asNullableString() {
+		return fieldLength == 0 ? null : asString();
+	}
+
+	/**
+	 * Decodes the current field as an enterprise number in the format
+	 * {@code 0123.456.789}.
+	 * 
+	 * @return the packed number as returned by
+	 *         {@link EnterpriseNumber#toLong()}, or {@code -1} if the field is
+	 *         not a valid enterprise number
+	 */
+	public long asPackedEnterpriseNumber() {
+		if (fieldLength != 12 || buffer.get(fieldStart + 4) != '.' || buffer.get(fieldStart + 8) != '.') {
+			return -1;
+		}
+		int a = digits(fieldStart, 4);
+		int b = digits(fieldStart + 5, 3);
+		int c = digits(fieldStart + 9, 3);
+		if ((a | b | c) < 0) {
+			return -1;
+		}
+		long packed = (a * 1000L + b) * 1000L + c;
+		return EnterpriseNumber.isValid(packed) ? packed : -1;
+	}
+
+	/**
+	 * @return the current field as an {@link EnterpriseNumber}, or
+	 *         {@code null} if it is not a valid enterprise number
+	 */
+	public EnterpriseNumber asEnterpriseNumber() {
+		long packed = asPackedEnterpriseNumber();
+		return packed < 0 ? null : EnterpriseNumber.fromLong(packed);
+	}
+
+	/**
+	 * Decodes the current field as an establishment number in the format
+	 * {@code 2.123.456.789}.
+	 * 
+	 * @return the packed number as returned by
+	 *         {@link EstablishmentNumber#toLong()}, or {@code -1} if the field
+	 *         is not a valid establishment number
+	 */
+	public long asPackedEstablishmentNumber() {
+		if (fieldLength != 13 || buffer.get(fieldStart + 1) != '.' || buffer.get(fieldStart + 5) != '.' || buffer.get(fieldStart + 9) != '.') {
+			return -1;
+		}
+		int a = digits(fieldStart, 1);
+		int b = digits(fieldStart + 2, 3);
+		int c = digits(fieldStart + 6, 3);
+		int d = digits(fieldStart + 10, 3);
+		if ((a | b | c | d) < 0) {
+			return -1;
+		}
+		return ((a * 1000L + b) * 1000L + c) * 1000L + d;
+	}
+
+	/**
+	 * @return the current field as an {@link EstablishmentNumber}, or
+	 *         {@code null} if it is not a valid establishment number
+	 */
+	public EstablishmentNumber asEstablishmentNumber() {
+		long packed = asPackedEstablishmentNumber();
+		return packed < 0 ? null : EstablishmentNumber.fromLong(packed);
+	}
+
+	/**
+	 * Decodes the current field as a date in the format {@code dd-MM-yyyy}.
+	 * 
+	 * @return the number of days since 1970-01-01, or {@link Long#MIN_VALUE}
+	 *         if the field is not a valid date
+	 * @see DateCodec
+	 */
+	public long asEpochDay() {
+		return DateCodec.decodeEpochDay(buffer, fieldStart, fieldLength);
+	}
+
+	/**
+	 * @return the current field as a canonical {@link LocalDate} from
+	 *         {@link DateCodec}, or {@code null} if it is not a valid date in
+	 *         the format {@code dd-MM-yyyy}
+	 */
+	public LocalDate asLocalDate() {
+		return DateCodec.decode(buffer, fieldStart, fieldLength);
+	}
+
+	/**
+	 * @param table
+	 *            the {@link CodeTable} to look up the field in, not
+	 *            {@code null}
+	 * @return the canonical {@link Code} for the current field, or
+	 *         {@code null} if the table holds no such code
+	 */
+	public <T extends Code> T asCode(CodeTable<T> table) {
+		if (fieldEscaped) {
+			return table.get(asString());
+		}
+		return table.get(buffer, fieldStart, fieldLength);
+	}
+
+	/**
+	 * @return the value of {@code length} ASCII digits starting at
+	 *         {@code offset}, or a negative number if any byte is not a digit
+	 */
+	private int digits(int offset, int length) {
+		int value = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return Integer.MIN_VALUE;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * Closes the underlying file, if any, and reports the number of records
+	 * read to {@link Instrumentation}.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null && channel.isOpen()) {
+			channel.close();
+			Instrumentation.metrics().rows(name, records, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("CsvTokenizer [name=")
+				.append(name)
+				.append(", records=")
+				.append(records)
+				.append("]")
+				.toString();
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.csv;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Decoder for dates in the {@code dd-MM-yyyy} format of the KBO/BCE open
+ * data. Digits are read at fixed positions, without a
+ * {@link java.time.format.DateTimeFormatter}, and the resulting
+ * {@link LocalDate} instances are taken from a shared cache indexed by epoch
+ * day, so all occurrences of the same date share one instance.
+ * <p>
+ * Dates from 1800-01-01 up to 2199-12-31 are cached; dates outside that range
+ * are decoded but not cached. All methods are thread-safe.
+ */
+public final class DateCodec {
+
+	private static final long DAYS_0000_TO_1970 = 719528L;
+
+	private static final long FIRST_CACHED = epochDay(1800, 1, 1);
+
+	private static final long LAST_CACHED = epochDay(2199, 12, 31);
+
+	/**
+	 * Filled lazily. Racing threads may each create an instance for the same
+	 * day, which is harmless: {@link LocalDate} is immutable and safely
+	 * published through its final fields, and one instance ends up winning.
+	 */
+	private static final LocalDate[] CACHE = new LocalDate[(int) (LAST_CACHED - FIRST_CACHED + 1)];
+
+	private DateCodec() {
+	}
+
+	/**
+	 * @param text
+	 *            a date in the format {@code dd-MM-yyyy}, can be {@code null}
+	 * @return the canonical {@link LocalDate}, or {@code null} if the argument
+	 *         is {@code null} or not a valid date
+	 */
+	public static LocalDate parse(CharSequence text) {
+		long epochDay = parseEpochDay(text);
+		return epochDay == Long.MIN_VALUE ? null : ofEpochDay(epochDay);
+	}
+
+	/**
+	 * @param text
+	 *            a date in the format {@code dd-MM-yyyy}, can be {@code null}
+	 * @return the number of days since 1970-01-01, or {@link Long#MIN_VALUE}
+	 *         if the argument is {@code null} or not a valid date
+	 */
+	public static long parseEpochDay(CharSequence text) {
+		if (text == null || text.length() != 10 || text.charAt(2) != '-' || text.charAt(5) != '-') {
+			return Long.MIN_VALUE;
+		}
+		int day = digit(text.charAt(0)) * 10 + digit(text.charAt(1));
+		int month = digit(text.charAt(3)) * 10 + digit(text.charAt(4));
+		int year = ((digit(text.charAt(6)) * 10 + digit(text.charAt(7))) * 10 + digit(text.charAt(8))) * 10 + digit(text.charAt(9));
+		return toEpochDay(year, month, day);
+	}
+
+	/**
+	 * @param buffer
+	 *            a {@link ByteBuffer} holding ASCII or UTF-8 bytes, not
+	 *            {@code null}
+	 * @param offset
+	 *            absolute index of the first byte of the date
+	 * @param length
+	 *            number of bytes of the date
+	 * @return the canonical {@link LocalDate}, or {@code null} if the bytes
+	 *         are not a valid date in the format {@code dd-MM-yyyy}
+	 */
+	public static LocalDate decode(ByteBuffer buffer, int offset, int length) {
+		long epochDay = decodeEpochDay(buffer, offset, length);
+		return epochDay == Long.MIN_VALUE ? null : ofEpochDay(epochDay);
+	}
+
+	/**
+	 * @param buffer
+	 *            a {@link ByteBuffer} holding ASCII or UTF-8 bytes, not
+	 *            {@code null}
+	 * @param offset
+	 *            absolute index of the first byte of the date
+	 * @param length
+	 *            number of bytes of the date
+	 * @return the number of days since 1970-01-01, or {@link Long#MIN_VALUE}
+	 *         if the bytes are not a valid date in the format
+	 *         {@code dd-MM-yyyy}
+	 */
+	public static long decodeEpochDay(ByteBuffer buffer, int offset, int length) {
+		if (length != 10 || buffer.get(offset + 2) != '-' || buffer.get(offset + 5) != '-') {
+			return Long.MIN_VALUE;
+		}
+		int day = digit(buffer.get(offset)) * 10 + digit(buffer.get(offset + 1));
+		int month = digit(buffer.get(offset + 3)) * 10 + digit(buffer.get(offset + 4));
+		int year = ((digit(buffer.get(offset + 6)) * 10 + digit(buffer.get(offset + 7))) * 10 + digit(buffer.get(offset + 8))) * 10 + digit(buffer.get(offset + 9));
+		return toEpochDay(year, month, day);
+	}
+
+	/**
+	 * @param year
+	 *            a year from 0 up to 9999
+	 * @param month
+	 *            a month from 1 up to 12
+	 * @param day
+	 *            a day of the month
+	 * @return the number of days since 1970-01-01, or {@link Long#MIN_VALUE}
+	 *         if the arguments do not form a valid date
+	 */
+	public static long toEpochDay(int year, int month, int day) {
+		if (year < 0 || year > 9999 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+			return Long.MIN_VALUE;
+		}
+		return epochDay(year, month, day);
+	}
+
+	/**
+	 * @param epochDay
+	 *            number of days since 1970-01-01
+	 * @return the canonical {@link LocalDate} for the given day, never
+	 *         {@code null}
+	 */
+	public static LocalDate ofEpochDay(long epochDay) {
+		if (epochDay < FIRST_CACHED || epochDay > LAST_CACHED) {
+			return LocalDate.ofEpochDay(epochDay);
+		}
+		int index = (int) (epochDay - FIRST_CACHED);
+		LocalDate date = CACHE[index];
+		if (date == null) {
+			date = LocalDate.ofEpochDay(epochDay);
+			CACHE[index] = date;
+		}
+		return date;
+	}
+
+	/**
+	 * @param date
+	 *            a {@link LocalDate}, can be {@code null}
+	 * @return the canonical instance equal to the argument, or {@code null} if
+	 *         the argument is {@code null}
+	 */
+	public static LocalDate canonical(LocalDate date) {
+		return date == null ? null : ofEpochDay(date.toEpochDay());
+	}
+
+	/**
+	 * @param date
+	 *            a {@link LocalDate} with a year from 0 up to 9999, not
+	 *            {@code null}
+	 * @return the date in the format {@code dd-MM-yyyy}
+	 */
+	public static String format(LocalDate date) {
+		int day = date.getDayOfMonth();
+		int month = date.getMonthValue();
+		int year = date.getYear();
+		if (year < 0 || year > 9999) {
+			throw new IllegalArgumentException("year must be between 0 and 9999");
+		}
+		char[] chars = {
+				(char) ('0' + day / 10), (char) ('0' + day % 10), '-',
+				(char) ('0' + month / 10), (char) ('0' + month % 10), '-',
+				(char) ('0' + year / 1000), (char) ('0' + year / 100 % 10), (char) ('0' + year / 10 % 10), (char) ('0' + year % 10) };
+		return new String(chars);
+	}
+
+	/**
+	 * @return the value of the given ASCII digit, or a large negative number
+	 *         that keeps any computation it takes part in out of range
+	 */
+	private static int digit(int c) {
+		int digit = c - '0';
+		return digit >= 0 && digit <= 9 ? digit : -100_000;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 * Same computation as {@link LocalDate#toEpochDay()}, for non-negative
+	 * years, without creating a {@link LocalDate}.
+	 */
+	private static long epochDay(int year, int month, int day) {
+		long y = year;
+		long total = 365 * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+		total += (367 * month - 362) / 12;
+		total += day - 1;
+		if (month > 2) {
+			total--;
+			if (!isLeapYear(year)) {
+				total--;
+			}
+		}
+		return total - DAYS_0000_TO_1970;
+	}
+
+}
@@ -0,0 +1,570 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+/**
+ * External merge sort of KBO/BCE shaped CSV files on the enterprise or
+ * establishment number in one of their fields, so that files received in
+ * arbitrary order can be read one entity at a time, like the sorted files of
+ * the open data.
+ * <p>
+ * The input is read with a {@link CsvTokenizer} into a bounded buffer. Each
+ * full buffer is a run, sorted on its packed keys and spilled to a temporary
+ * file on the configured {@link Executor} while the next run is read. The
+ * runs are then merged with a {@code k}-way merge into the output. The number
+ * of runs merged at once is limited by the memory for their read buffers and
+ * by a maximum fan-in, so no more files are open at once; more runs are first
+ * merged in groups into intermediate runs, in as many passes as needed. Input
+ * that fits in a single run is sorted in memory and never spilled.
+ * <p>
+ * Keys are packed as by {@link EnterpriseNumber#toLong()} and
+ * {@link EstablishmentNumber#toLong()}. Packed enterprise numbers start with
+ * {@code 0} or {@code 1} and establishment numbers with {@code 2} to
+ * {@code 8}, so files mixing both list enterprises first. Records whose key
+ * field is neither come last. The sort is stable: records with the same key
+ * keep their input order.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public class ExternalSorter {
+
+	/**
+	 * Sort key of records without a valid enterprise or establishment number,
+	 * above all packed numbers.
+	 */
+	private static final long UNKEYED = 10_000_000_000L;
+
+	private static final int INDEX_BITS = 29;
+
+	private static final int MIN_READ_BUFFER = 1 << 12;
+	private static final int MAX_READ_BUFFER = 1 << 16;
+
+	/**
+	 * @return a new {@link Builder} instance for construction of an
+	 *         {@link ExternalSorter}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private final long maxMemory;
+	private final int keyField;
+	private final boolean header;
+	private final Path tempDirectory;
+	private final Executor executor;
+	private final int parallelism;
+	private final int maxFanIn;
+
+	private ExternalSorter(Builder builder) {
+		this.maxMemory = builder.maxMemory;
+		this.keyField = builder.keyField;
+		this.header = builder.header;
+		this.tempDirectory = builder.tempDirectory;
+		this.executor = builder.executor;
+		this.parallelism = builder.parallelism;
+		this.maxFanIn = builder.maxFanIn;
+	}
+
+	/**
+	 * Sorts a file. Line terminators are written as {@code \n}, empty lines are
+	 * dropped.
+	 * 
+	 * @param input
+	 *            a {@link Path} to a readable CSV file, not {@code null}
+	 * @param output
+	 *            a {@link Path} to write the sorted file to, created or
+	 *            replaced, not {@code null}, not the same file as
+	 *            {@code input}
+	 * @return the number of records written, excluding the header
+	 * @throws IOException
+	 *             if the input can not be read, or the runs or output can not
+	 *             be written
+	 */
+	public long sort(Path input, Path output) throws IOException {
+		if (input == null) {
+			throw new IllegalArgumentException("input is null");
+		}
+		if (output == null) {
+			throw new IllegalArgumentException("output is null");
+		}
+		// one run being filled, and at most parallelism runs being sorted and spilled
+		int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1024, maxMemory / (parallelism + 1)));
+		Semaphore permits = new Semaphore(parallelism);
+		List<Path> spilled = new ArrayList<>();
+		List<CompletableFuture<Void>> pending = new ArrayList<>();
+		AtomicBoolean aborted = new AtomicBoolean();
+		try (CsvTokenizer csv = CsvTokenizer.open(input)) {
+			byte[] headerLine = null;
+			if (header && csv.nextRecord()) {
+				int start = csv.position();
+				while (csv.nextField()) {
+				}
+				headerLine = line(csv, start);
+			}
+			Run run = new Run(capacity);
+			while (csv.nextRecord()) {
+				int start = csv.position();
+				long key = csv.skipFields(keyField + 1) ? key(csv) : UNKEYED;
+				while (csv.nextField()) {
+				}
+				int end = end(csv, start);
+				if (!run.fits(end - start)) {
+					if (run.count > 0) {
+						spilled.add(spill(run, permits, pending, aborted));
+					}
+					run = new Run(Math.max(capacity, end - start));
+				}
+				run.add(key, csv.buffer(), start, end);
+			}
+			if (spilled.isEmpty()) {
+				try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 16)) {
+					if (headerLine != null) {
+						out.write(headerLine);
+						out.write('\n');
+					}
+					run.sort();
+					for (int i = 0; i < run.count; i++) {
+						int index = run.index(i);
+						out.write(run.data, run.offsets[index], run.offsets[index + 1] - run.offsets[index]);
+						out.write('\n');
+					}
+				}
+				return run.count;
+			}
+			if (run.count > 0) {
+				spilled.add(spill(run, permits, pending, aborted));
+			}
+			await(pending);
+			return merge(spilled, headerLine, output);
+		} finally {
+			// runs not yet started are skipped, but those being written must finish before their files can be deleted
+			aborted.set(true);
+			for (CompletableFuture<Void> future : pending) {
+				try {
+					future.join();
+				} catch (CompletionException e) {
+					// already thrown by await, or superseded by the exception in flight
+				}
+			}
+			for (Path path : spilled) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	private long key(CsvTokenizer csv) {
+		long packed = csv.asPackedEnterpriseNumber();
+		if (packed < 0) {
+			packed = csv.asPackedEstablishmentNumber();
+		}
+		return packed < 0 ? UNKEYED : packed;
+	}
+
+	/**
+	 * @return the end of the current record in the buffer of the tokenizer,
+	 *         excluding its line terminator
+	 */
+	private static int end(CsvTokenizer csv, int start) {
+		ByteBuffer buffer = csv.buffer();
+		int end = csv.position();
+		while (end > start && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')) {
+			end--;
+		}
+		return end;
+	}
+
+	private static byte[] line(CsvTokenizer csv, int start) {
+		int end = end(csv, start);
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = csv.buffer().get(start + i);
+		}
+		return bytes;
+	}
+
+	private Path spill(Run run, Semaphore permits, List<CompletableFuture<Void>> pending, AtomicBoolean aborted) throws IOException {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while waiting to spill a run", e);
+		}
+		Path path;
+		try {
+			path = createRunFile();
+		} catch (IOException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		try {
+			pending.add(CompletableFuture.runAsync(() -> {
+				try {
+					if (aborted.get()) {
+						return;
+					}
+					run.sort();
+					run.write(path);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				} finally {
+					permits.release();
+				}
+			}, executor));
+		} catch (RuntimeException e) {
+			permits.release();
+			Files.deleteIfExists(path);
+			throw e;
+		}
+		return path;
+	}
+
+	private static void await(List<CompletableFuture<Void>> pending) throws IOException {
+		try {
+			CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()])).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw e;
+		}
+	}
+
+	private Path createRunFile() throws IOException {
+		return tempDirectory == null ? Files.createTempFile("kbobce-run-", ".bin") : Files.createTempFile(tempDirectory, "kbobce-run-", ".bin");
+	}
+
+	/**
+	 * Merges the spilled runs into the output. While there are more runs than
+	 * can be merged at once, consecutive groups of runs are merged into
+	 * intermediate runs, which keeps the merge stable. Intermediate runs are
+	 * added to {@code spilled}, so they are deleted with the others.
+	 */
+	private long merge(List<Path> spilled, byte[] headerLine, Path output) throws IOException {
+		// one read buffer per run, and one for the output
+		int fanIn = (int) Math.min(maxFanIn, Math.max(2, maxMemory / MIN_READ_BUFFER - 1));
+		int bufferSize = (int) Math.max(MIN_READ_BUFFER, Math.min(MAX_READ_BUFFER, maxMemory / (fanIn + 1)));
+		List<Path> runs = new ArrayList<>(spilled);
+		while (runs.size() > fanIn) {
+			List<Path> merged = new ArrayList<>((runs.size() + fanIn - 1) / fanIn);
+			for (int from = 0; from < runs.size(); from += fanIn) {
+				List<Path> group = runs.subList(from, Math.min(runs.size(), from + fanIn));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+				Path path = createRunFile();
+				spilled.add(path);
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), bufferSize))) {
+					merge(group, bufferSize, out, true);
+				}
+				for (Path run : group) {
+					Files.delete(run);
+				}
+				merged.add(path);
+			}
+			runs = merged;
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))) {
+			if (headerLine != null) {
+				out.write(headerLine);
+				out.write('\n');
+			}
+			return merge(runs, bufferSize, out, false);
+		}
+	}
+
+	/**
+	 * @param keyed
+	 *            whether to write records in the format of a run, rather than
+	 *            as lines of the output
+	 * @return the number of records written
+	 */
+	private static long merge(List<Path> runs, int bufferSize, DataOutputStream out, boolean keyed) throws IOException {
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(), (a, b) -> {
+			int c = Long.compare(a.key, b.key);
+			// runs hold consecutive parts of the input, which keeps the merge stable
+			return c != 0 ? c : Integer.compare(a.run, b.run);
+		});
+		List<RunReader> readers = new ArrayList<>(runs.size());
+		long written = 0;
+		try {
+			for (int r = 0; r < runs.size(); r++) {
+				RunReader reader = new RunReader(runs.get(r), r, bufferSize);
+				readers.add(reader);
+				if (reader.next()) {
+					queue.add(reader);
+				}
+			}
+			while (!queue.isEmpty()) {
+				RunReader reader = queue.poll();
+				if (keyed) {
+					out.writeLong(reader.key);
+					out.writeInt(reader.length);
+					out.write(reader.record, 0, reader.length);
+				} else {
+					out.write(reader.record, 0, reader.length);
+					out.write('\n');
+				}
+				written++;
+				if (reader.next()) {
+					queue.add(reader);
+				}
+			}
+		} finally {
+			for (RunReader reader : readers) {
+				reader.in.close();
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Records of one run, stored back to back in a single array.
+	 */
+	private static final class Run {
+
+		private final byte[] data;
+		private long[] keys = new long[1024];
+		private int[] offsets = new int[1025];
+		private long[] order;
+		private int count;
+
+		private Run(int capacity) {
+			this.data = new byte[capacity];
+		}
+
+		private boolean fits(int length) {
+			return offsets[count] + length <= data.length && count < (1 << INDEX_BITS) - 1;
+		}
+
+		private void add(long key, ByteBuffer buffer, int start, int end) {
+			if (count == keys.length) {
+				keys = Arrays.copyOf(keys, count * 2);
+				offsets = Arrays.copyOf(offsets, count * 2 + 1);
+			}
+			int offset = offsets[count];
+			for (int i = start; i < end; i++) {
+				data[offset++] = buffer.get(i);
+			}
+			keys[count] = key;
+			offsets[++count] = offset;
+		}
+
+		/**
+		 * Sorts the records on key and input position at once, packed in a
+		 * single {@code long} each.
+		 */
+		private void sort() {
+			order = new long[count];
+			for (int i = 0; i < count; i++) {
+				order[i] = keys[i] << INDEX_BITS | i;
+			}
+			Arrays.sort(order);
+		}
+
+		private int index(int i) {
+			return (int) (order[i] & ((1 << INDEX_BITS) - 1));
+		}
+
+		private void write(Path path) throws IOException {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+				for (int i = 0; i < count; i++) {
+					int index = index(i);
+					out.writeLong(keys[index]);
+					out.writeInt(offsets[index + 1] - offsets[index]);
+					out.write(data, offsets[index], offsets[index + 1] - offsets[index]);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Reads the records of a spilled run one at a time.
+	 */
+	private static final class RunReader {
+
+		private final DataInputStream in;
+		private final int run;
+		private long key;
+		private byte[] record = new byte[256];
+		private int length;
+
+		private RunReader(Path path, int run, int bufferSize) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), bufferSize));
+			this.run = run;
+		}
+
+		private boolean next() throws IOException {
+			try {
+				key = in.readLong();
+			} catch (EOFException e) {
+				return false;
+			}
+			length = in.readInt();
+			if (length > record.length) {
+				record = new byte[Math.max(length, record.length * 2)];
+			}
+			in.readFully(record, 0, length);
+			return true;
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link ExternalSorter} instances.
+	 */
+	public static class Builder {
+
+		private long maxMemory = 64L << 20;
+		private int keyField;
+		private boolean header = true;
+		private Path tempDirectory;
+		private Executor executor = ForkJoinPool.commonPool();
+		private int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		private int maxFanIn = 128;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param maxMemory
+		 *            the number of bytes of records held in memory at once,
+		 *            shared by the run being read and the runs being sorted,
+		 *            positive, defaults to 64MB
+		 * @return this {@link Builder}
+		 */
+		public Builder withMaxMemory(long maxMemory) {
+			if (maxMemory < 1) {
+				throw new IllegalArgumentException("maxMemory must be positive");
+			}
+			this.maxMemory = maxMemory;
+			return this;
+		}
+
+		/**
+		 * @param keyField
+		 *            the zero-based index of the field holding the enterprise
+		 *            or establishment number to sort on, defaults to 0
+		 * @return this {@link Builder}
+		 */
+		public Builder withKeyField(int keyField) {
+			if (keyField < 0) {
+				throw new IllegalArgumentException("keyField must not be negative");
+			}
+			this.keyField = keyField;
+			return this;
+		}
+
+		/**
+		 * @param header
+		 *            whether the first record is a header, written first and
+		 *            left out of the sort; defaults to {@code true}
+		 * @return this {@link Builder}
+		 */
+		public Builder withHeader(boolean header) {
+			this.header = header;
+			return this;
+		}
+
+		/**
+		 * @param tempDirectory
+		 *            the directory to spill runs to, defaults to the default
+		 *            temporary-file directory
+		 * @return this {@link Builder}
+		 */
+		public Builder withTempDirectory(Path tempDirectory) {
+			if (tempDirectory == null) {
+				throw new IllegalArgumentException("tempDirectory is null");
+			}
+			this.tempDirectory = tempDirectory;
+			return this;
+		}
+
+		/**
+		 * @param executor
+		 *            the {@link Executor} to sort and spill runs on, defaults
+		 *            to the common {@link ForkJoinPool}
+		 * @return this {@link Builder}
+		 */
+		public Builder withExecutor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("executor is null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param parallelism
+		 *            the maximum number of runs sorted and spilled at once,
+		 *            positive, defaults to the number of processors minus one
+		 * @return this {@link Builder}
+		 */
+		public Builder withParallelism(int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("parallelism must be positive");
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * @param maxFanIn
+		 *            the maximum number of runs merged at once, and so of run
+		 *            files open at once, at least 2, defaults to 128
+		 * @return this {@link Builder}
+		 */
+		public Builder withMaxFanIn(int maxFanIn) {
+			if (maxFanIn < 2) {
+				throw new IllegalArgumentException("maxFanIn must be at least 2");
+			}
+			this.maxFanIn = maxFanIn;
+			return this;
+		}
+
+		public ExternalSorter build() {
+			return new ExternalSorter(this);
+		}
+
+	}
+
+}
@@ -15,6 +15,8 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import be.ceau.kbobce.codes.ActivityGroup;
@@ -73,6 +75,14 @@ public class Activity implements Serializable {
 		return classification;
 	}
 
+	private Object writeReplace() {
+		return new Ser(Ser.ACTIVITY, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
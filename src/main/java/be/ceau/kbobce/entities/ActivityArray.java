@@ -0,0 +1,159 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Unmodifiable {@link java.util.Set} of {@link Activity} instances, held as
+ * a sorted array of distinct {@link PackedActivity} values. Elements are
+ * decoded to new {@link Activity} instances on iteration, and membership is
+ * tested by binary search on the packed form. Activities with codes whose
+ * descriptions differ from those of the canonical instances are also kept
+ * as given, so iteration never loses descriptions.
+ * <p>
+ * {@link Enterprise} and {@link Establishment} hold their activities in this
+ * form, which takes 4 bytes per activity instead of an object with three
+ * references.
+ */
+public final class ActivityArray extends AbstractSet<Activity> {
+
+	private static final ActivityArray EMPTY = new ActivityArray(new int[0], null);
+
+	/**
+	 * @param activities
+	 *            a {@link Collection} of {@link Activity} instances, can be
+	 *            {@code null} or empty; {@code null} elements are ignored
+	 * @return an {@link ActivityArray} with the distinct activities of the
+	 *         argument
+	 */
+	public static ActivityArray of(Collection<Activity> activities) {
+		if (activities == null || activities.isEmpty()) {
+			return EMPTY;
+		}
+		if (activities instanceof ActivityArray) {
+			return (ActivityArray) activities;
+		}
+		long[] keys = new long[activities.size()];
+		Activity[] given = new Activity[keys.length];
+		int size = 0;
+		for (Activity activity : activities) {
+			if (activity != null) {
+				keys[size] = (long) PackedActivity.pack(activity) << 32 | size;
+				given[size++] = activity;
+			}
+		}
+		Arrays.sort(keys, 0, size);
+		int[] packed = new int[size];
+		Activity[] originals = null;
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			int value = (int) (keys[i] >> 32);
+			if (distinct == 0 || value != packed[distinct - 1]) {
+				Activity activity = given[(int) keys[i]];
+				if (!PackedActivity.isCanonical(activity, value)) {
+					if (originals == null) {
+						originals = new Activity[size];
+					}
+					originals[distinct] = activity;
+				}
+				packed[distinct++] = value;
+			}
+		}
+		if (distinct == 0) {
+			return EMPTY;
+		}
+		return new ActivityArray(distinct == size ? packed : Arrays.copyOf(packed, distinct), originals == null || distinct == size ? originals : Arrays.copyOf(originals, distinct));
+	}
+
+	private final int[] packed;
+
+	/**
+	 * Activities to return instead of the decoded packed value at the same
+	 * index, or {@code null} if there are none.
+	 */
+	private final Activity[] originals;
+
+	private ActivityArray(int[] packed, Activity[] originals) {
+		this.packed = packed;
+		this.originals = originals;
+	}
+
+	/**
+	 * @param index
+	 *            an index from 0 up to {@link #size()} exclusive
+	 * @return the packed form of the activity at the given index, in
+	 *         ascending order
+	 */
+	public int getPacked(int index) {
+		if (index < 0 || index >= packed.length) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return packed[index];
+	}
+
+	/**
+	 * @return a copy of the sorted packed values
+	 */
+	public int[] toPackedArray() {
+		return packed.clone();
+	}
+
+	@Override
+	public int size() {
+		return packed.length;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Activity)) {
+			return false;
+		}
+		long key = PackedActivity.find((Activity) o);
+		return key >= 0 && Arrays.binarySearch(packed, (int) key) >= 0;
+	}
+
+	@Override
+	public Iterator<Activity> iterator() {
+		return new Iterator<Activity>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < packed.length;
+			}
+
+			@Override
+			public Activity next() {
+				if (next >= packed.length) {
+					throw new NoSuchElementException();
+				}
+				int index = next++;
+				if (originals != null && originals[index] != null) {
+					return originals[index];
+				}
+				return PackedActivity.unpack(packed[index]);
+			}
+
+		};
+	}
+
+}
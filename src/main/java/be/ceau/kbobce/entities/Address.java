@@ -15,10 +15,13 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 
 import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.metrics.Instrumentation;
 import be.ceau.kbobce.validate.Validator;
 
 /**
@@ -85,57 +88,29 @@ public class Address implements Serializable {
 		Validator.isNotNull(typeOfAddress);
 		this.typeOfAddress = typeOfAddress;
 
-		if (countryNL != null) {
-			Validator.isMaxLength(100, countryNL);
-		}
-		this.countryNL = countryNL != null ? countryNL : "";
-
-		if (countryFR != null) {
-			Validator.isMaxLength(100, countryFR);
-		}
-		this.countryFR = countryFR != null ? countryFR : "";
-
-		if (zipcode != null) {
-			Validator.isMaxLength(20, zipcode);
-		}
-		this.zipcode = zipcode != null ? zipcode : "";
-
-		if (municipalityNL != null) {
-			Validator.isMaxLength(200, municipalityNL);
-		}
-		this.municipalityNL = municipalityNL != null ? municipalityNL : "";
-
-		if (municipalityFR != null) {
-			Validator.isMaxLength(200, municipalityFR);
-		}
-		this.municipalityFR = municipalityFR != null ? municipalityFR : "";
+		this.countryNL = text("countryNL", 100, countryNL);
+		this.countryFR = text("countryFR", 100, countryFR);
+		this.zipcode = text("zipcode", 20, zipcode);
+		this.municipalityNL = text("municipalityNL", 200, municipalityNL);
+		this.municipalityFR = text("municipalityFR", 200, municipalityFR);
+		this.streetNL = text("streetNL", 200, streetNL);
+		this.streetFR = text("streetFR", 200, streetFR);
+		this.houseNumber = text("houseNumber", 22, houseNumber);
+		this.box = text("box", 20, box);
+		this.extraAddressInfo = text("extraAddressInfo", 80, extraAddressInfo);
 
-		if (streetNL != null) {
-			Validator.isMaxLength(200, streetNL);
-		}
-		this.streetNL = streetNL != null ? streetNL : "";
-
-		if (streetFR != null) {
-			Validator.isMaxLength(200, streetFR);
-		}
-		this.streetFR = streetFR != null ? streetFR : "";
-
-		if (houseNumber != null) {
-			Validator.isMaxLength(22, houseNumber);
-		}
-		this.houseNumber = houseNumber != null ? houseNumber : "";
+		this.dateStrikingOff = dateStrikingOff;
+	}
 
-		if (box != null) {
-			Validator.isMaxLength(20, box);
+	private static String text(String field, int maxLength, String value) {
+		if (value == null) {
+			return "";
 		}
-		this.box = box != null ? box : "";
-
-		if (extraAddressInfo != null) {
-			Validator.isMaxLength(80, extraAddressInfo);
+		if (value.length() > maxLength) {
+			Instrumentation.metrics().rejected("Address", field);
 		}
-		this.extraAddressInfo = extraAddressInfo != null ? extraAddressInfo : "";
-
-		this.dateStrikingOff = dateStrikingOff;
+		Validator.isMaxLength(maxLength, value);
+		return value;
 	}
 
 	/**
@@ -241,6 +216,14 @@ public class Address implements Serializable {
 		return dateStrikingOff;
 	}
 
+	private Object writeReplace() {
+		return new Ser(Ser.ADDRESS, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,221 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import be.ceau.kbobce.codes.Code;
+
+/**
+ * Content-addressed table of canonical instances of an immutable value type.
+ * Values are keyed on a 64-bit fingerprint of their content; the first value
+ * interned for a given content becomes the canonical instance, and equal
+ * values interned later resolve to it. Values whose fingerprint collides
+ * with that of an unequal value are kept in a secondary table keyed on the
+ * values themselves.
+ * <p>
+ * Canonicalization is opt-in and scoped: create a table for a load with
+ * {@link #forAddresses()} or {@link #forContacts()}, pass it to the builders
+ * of {@link Enterprise} and {@link Establishment}, and drop it when the load
+ * is done. An address shared by an enterprise, its establishments and other
+ * enterprises in the same building is then held once, and the table is
+ * reclaimed along with the last reference to it. A table grows with the
+ * number of distinct values and is never trimmed, unless {@link #clear()} is
+ * called. Instances are thread-safe.
+ *
+ * @param <T>
+ *            immutable value type, with {@code equals} based on content
+ */
+public final class Canonicalizer<T> {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * @return a new, empty {@link Canonicalizer} for {@link Address}
+	 *         instances
+	 */
+	public static Canonicalizer<Address> forAddresses() {
+		return new Canonicalizer<>(Canonicalizer::fingerprint);
+	}
+
+	/**
+	 * @return a new, empty {@link Canonicalizer} for {@link Contact}
+	 *         instances
+	 */
+	public static Canonicalizer<Contact> forContacts() {
+		return new Canonicalizer<>(Canonicalizer::fingerprint);
+	}
+
+	private final ToLongFunction<T> fingerprint;
+
+	private final ConcurrentHashMap<Long, T> byFingerprint = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<T, T> collisions = new ConcurrentHashMap<>();
+
+	private final LongAdder requests = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * @param fingerprint
+	 *            computes a 64-bit fingerprint of the content of a value,
+	 *            equal for equal values, not {@code null}
+	 */
+	public Canonicalizer(ToLongFunction<T> fingerprint) {
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("fingerprint is null");
+		}
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * @param value
+	 *            a value, can be {@code null}
+	 * @return the canonical instance equal to the argument, which is the
+	 *         argument itself if it is the first of its kind to be interned, or
+	 *         {@code null} if the argument is {@code null}
+	 */
+	public T canonical(T value) {
+		if (value == null) {
+			return null;
+		}
+		requests.increment();
+		Long key = fingerprint.applyAsLong(value);
+		T canonical = byFingerprint.putIfAbsent(key, value);
+		if (canonical == null) {
+			return value;
+		}
+		if (canonical != value && !canonical.equals(value)) {
+			canonical = collisions.putIfAbsent(value, value);
+			if (canonical == null) {
+				return value;
+			}
+		}
+		hits.increment();
+		return canonical;
+	}
+
+	/**
+	 * @return the number of distinct values interned
+	 */
+	public int size() {
+		return byFingerprint.size() + collisions.size();
+	}
+
+	/**
+	 * @return the number of non-{@code null} values passed to
+	 *         {@link #canonical(Object)}
+	 */
+	public long requests() {
+		return requests.sum();
+	}
+
+	/**
+	 * @return the share of values passed to {@link #canonical(Object)} that
+	 *         resolved to an instance interned earlier, between 0 and 1; 0 if
+	 *         no values were passed
+	 */
+	public double dedupRatio() {
+		long total = requests.sum();
+		return total == 0 ? 0d : (double) hits.sum() / total;
+	}
+
+	/**
+	 * Forgets all canonical instances and resets the counters. Instances
+	 * handed out earlier remain valid, but are no longer shared with values
+	 * interned afterwards.
+	 */
+	public void clear() {
+		byFingerprint.clear();
+		collisions.clear();
+		requests.reset();
+		hits.reset();
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("Canonicalizer [size=")
+				.append(size())
+				.append(", requests=")
+				.append(requests())
+				.append(", dedupRatio=")
+				.append(dedupRatio())
+				.append("]")
+				.toString();
+	}
+
+	static long fingerprint(Address address) {
+		long hash = FNV_OFFSET;
+		hash = mix(hash, address.getTypeOfAddress());
+		hash = mix(hash, address.getCountryNL());
+		hash = mix(hash, address.getCountryFR());
+		hash = mix(hash, address.getZipcode());
+		hash = mix(hash, address.getMunicipalityNL());
+		hash = mix(hash, address.getMunicipalityFR());
+		hash = mix(hash, address.getStreetNL());
+		hash = mix(hash, address.getStreetFR());
+		hash = mix(hash, address.getHouseNumber());
+		hash = mix(hash, address.getBox());
+		hash = mix(hash, address.getExtraAddressInfo());
+		LocalDate dateStrikingOff = address.getDateStrikingOff();
+		return finish(mix(hash, dateStrikingOff == null ? Long.MIN_VALUE : dateStrikingOff.toEpochDay()));
+	}
+
+	static long fingerprint(Contact contact) {
+		long hash = FNV_OFFSET;
+		hash = mix(hash, contact.getEntityContact());
+		hash = mix(hash, contact.getContactType());
+		return finish(mix(hash, contact.getValue()));
+	}
+
+	private static long mix(long hash, Code code) {
+		return mix(hash, code == null ? null : code.getCode());
+	}
+
+	/**
+	 * FNV-1a over the chars of the value, followed by a separator, so that
+	 * adjacent fields can not shift into each other.
+	 */
+	private static long mix(long hash, String value) {
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+			}
+		}
+		return (hash ^ (value == null ? 0x10000 : 0x10001)) * FNV_PRIME;
+	}
+
+	private static long mix(long hash, long value) {
+		return (hash ^ value) * FNV_PRIME;
+	}
+
+	/**
+	 * Final avalanche step of SplitMix64, spreading FNV-1a output over all
+	 * bits.
+	 */
+	private static long finish(long hash) {
+		hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+		return hash ^ (hash >>> 31);
+	}
+
+}
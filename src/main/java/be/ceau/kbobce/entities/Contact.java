@@ -15,6 +15,8 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import be.ceau.kbobce.codes.ContactType;
@@ -75,6 +77,14 @@ public class Contact implements Serializable {
 		return value;
 	}
 
+	private Object writeReplace() {
+		return new Ser(Ser.CONTACT, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -15,6 +15,8 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import be.ceau.kbobce.codes.Language;
@@ -75,6 +77,14 @@ public class Denomination implements Serializable {
 		return value;
 	}
 
+	private Object writeReplace() {
+		return new Ser(Ser.DENOMINATION, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -99,7 +109,7 @@ public class Denomination implements Serializable {
 		} else if (!language.equals(other.language)) {
 			return false;
 		}
-		return !typeOfDenomination.equals(other.typeOfDenomination);
+		return typeOfDenomination.equals(other.typeOfDenomination);
 	}
 
 	@Override
@@ -15,10 +15,14 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -28,6 +32,8 @@ import be.ceau.kbobce.codes.JuridicalForm;
 import be.ceau.kbobce.codes.JuridicalSituation;
 import be.ceau.kbobce.codes.Status;
 import be.ceau.kbobce.codes.TypeOfEnterprise;
+import be.ceau.kbobce.metrics.Instrumentation;
+import be.ceau.kbobce.metrics.Metrics;
 
 /**
  * Main model for this library. Create new instances using by obtaining a
@@ -45,6 +51,22 @@ public class Enterprise implements Serializable {
 		return new Enterprise.Builder();
 	}
 
+	private static final ThreadLocal<Builder> LOCAL_BUILDER = ThreadLocal.withInitial(Builder::new);
+
+	/**
+	 * Returns the {@link Builder} owned by the calling thread, after
+	 * {@link Builder#reset() resetting} it. Loaders building many instances can
+	 * use this instead of {@link #builder()} to avoid allocating a new
+	 * {@link Builder} and its collections per {@link Enterprise}. Each call
+	 * resets the same instance, so a thread must call {@link Builder#build()}
+	 * before calling this method again.
+	 * 
+	 * @return a reset {@link Builder}, confined to the calling thread
+	 */
+	public static Builder localBuilder() {
+		return LOCAL_BUILDER.get().reset();
+	}
+
 	private final EnterpriseNumber enterpriseNumber;
 
 	private final Status status;
@@ -115,36 +137,11 @@ public class Enterprise implements Serializable {
 		this.juridicalForm = juridicalForm;
 		this.startDate = startDate;
 
-		if (denominations == null || denominations.isEmpty()) {
-			this.denominations = Collections.emptySet();
-		} else {
-			this.denominations = Collections.unmodifiableSet(new HashSet<>(denominations));
-		}
-
-		if (establishments == null || establishments.isEmpty()) {
-			this.establishments = Collections.emptySet();
-		} else {
-			this.establishments = Collections.unmodifiableSet(new HashSet<>(establishments));
-		}
-
-		if (addresses == null || addresses.isEmpty()) {
-			this.addresses = Collections.emptySet();
-		} else {
-			this.addresses = Collections.unmodifiableSet(new HashSet<>(addresses));
-		}
-
-		if (contacts == null || contacts.isEmpty()) {
-			this.contacts = Collections.emptySet();
-		} else {
-			this.contacts = Collections.unmodifiableSet(new HashSet<>(contacts));
-		}
-
-		if (activities == null || activities.isEmpty()) {
-			this.activities = Collections.emptySet();
-		} else {
-			this.activities = Collections.unmodifiableSet(new HashSet<>(activities));
-		}
-
+		this.denominations = Sets.copyOf(denominations);
+		this.establishments = Sets.copyOf(establishments);
+		this.addresses = Sets.copyOf(addresses);
+		this.contacts = Sets.copyOf(contacts);
+		this.activities = ActivityArray.of(activities);
 	}
 
 	public static boolean isValid(EnterpriseNumber enterpriseNumber, Status status, JuridicalSituation juridicalSituation, TypeOfEnterprise typeOfEnterprise, LocalDate startDate) {
@@ -195,6 +192,49 @@ public class Enterprise implements Serializable {
 		return activities;
 	}
 
+	/**
+	 * Writes an enterprise in the compact format used for serialization,
+	 * with codes inline and without any class descriptors.
+	 * 
+	 * @param out
+	 *            the {@link DataOutput} to write to, not {@code null}
+	 * @param enterprise
+	 *            the {@link Enterprise} to write, not {@code null}
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public static void write(DataOutput out, Enterprise enterprise) throws IOException {
+		Ser.writeEnterprise(out, enterprise);
+	}
+
+	/**
+	 * Reads an enterprise written by {@link #write(DataOutput, Enterprise)}.
+	 * Only the types of this library are ever instantiated.
+	 * 
+	 * @param in
+	 *            the {@link DataInput} to read from, not {@code null}
+	 * @return a new {@link Enterprise}
+	 * @throws IOException
+	 *             if reading fails or the input is not a valid enterprise
+	 */
+	public static Enterprise read(DataInput in) throws IOException {
+		try {
+			return Ser.readEnterprise(in);
+		} catch (IllegalArgumentException e) {
+			InvalidObjectException exception = new InvalidObjectException(e.getMessage());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	private Object writeReplace() {
+		return new Ser(Ser.ENTERPRISE, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		return 31 * enterpriseNumber.hashCode();
@@ -232,11 +272,13 @@ public class Enterprise implements Serializable {
 		private TypeOfEnterprise typeOfEnterprise;
 		private JuridicalForm juridicalForm;
 		private LocalDate startDate;
-		private Set<Denomination> denominations = new HashSet<>();
-		private Map<EstablishmentNumber, Establishment> establishments = new HashMap<>();
-		private Set<Address> addresses = new HashSet<>();
-		private Set<Contact> contacts = new HashSet<>();
-		private Set<Activity> activities = new HashSet<>();
+		private final Set<Denomination> denominations = new HashSet<>();
+		private final Map<EstablishmentNumber, Establishment> establishments = new HashMap<>();
+		private final Set<Address> addresses = new HashSet<>();
+		private final Set<Contact> contacts = new HashSet<>();
+		private final Set<Activity> activities = new HashSet<>();
+		private transient Canonicalizer<Address> addressCanonicalizer;
+		private transient Canonicalizer<Contact> contactCanonicalizer;
 
 		private Builder() {
 		}
@@ -299,23 +341,53 @@ public class Enterprise implements Serializable {
 			return establishments.values();
 		}
 
+		/**
+		 * Resolves addresses added after this call to canonical instances, so
+		 * equal addresses are held once across the instances built with the
+		 * same {@link Canonicalizer}. Cleared on {@link #reset()}.
+		 * 
+		 * @param addressCanonicalizer
+		 *            a {@link Canonicalizer}, or {@code null} to keep
+		 *            addresses as given
+		 * @return this {@link Builder}
+		 */
+		public Builder withAddressCanonicalizer(Canonicalizer<Address> addressCanonicalizer) {
+			this.addressCanonicalizer = addressCanonicalizer;
+			return this;
+		}
+
+		/**
+		 * Resolves contacts added after this call to canonical instances, so
+		 * equal contacts are held once across the instances built with the
+		 * same {@link Canonicalizer}. Cleared on {@link #reset()}.
+		 * 
+		 * @param contactCanonicalizer
+		 *            a {@link Canonicalizer}, or {@code null} to keep
+		 *            contacts as given
+		 * @return this {@link Builder}
+		 */
+		public Builder withContactCanonicalizer(Canonicalizer<Contact> contactCanonicalizer) {
+			this.contactCanonicalizer = contactCanonicalizer;
+			return this;
+		}
+
 		public Builder addAddress(Address address) {
-			this.addresses.add(address);
+			this.addresses.add(addressCanonicalizer == null ? address : addressCanonicalizer.canonical(address));
 			return this;
 		}
 
 		public Builder addAddresses(Collection<Address> addresses) {
-			this.addresses.addAll(addresses);
+			addresses.forEach(a -> addAddress(a));
 			return this;
 		}
 
 		public Builder addContact(Contact contact) {
-			this.contacts.add(contact);
+			this.contacts.add(contactCanonicalizer == null ? contact : contactCanonicalizer.canonical(contact));
 			return this;
 		}
 
 		public Builder addContacts(Collection<Contact> contacts) {
-			this.contacts.addAll(contacts);
+			contacts.forEach(c -> addContact(c));
 			return this;
 		}
 
@@ -329,8 +401,54 @@ public class Enterprise implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Clears all state of this {@link Builder}, so it can be reused for
+		 * another {@link Enterprise}. The internal collections are emptied
+		 * rather than replaced, keeping their capacity. Canonicalizers are
+		 * cleared as well, so none outlives the instance it was set for.
+		 * 
+		 * @return this {@link Builder}
+		 */
+		public Builder reset() {
+			this.enterpriseNumber = null;
+			this.status = null;
+			this.juridicalSituation = null;
+			this.typeOfEnterprise = null;
+			this.juridicalForm = null;
+			this.startDate = null;
+			this.denominations.clear();
+			this.establishments.clear();
+			this.addresses.clear();
+			this.contacts.clear();
+			this.activities.clear();
+			this.addressCanonicalizer = null;
+			this.contactCanonicalizer = null;
+			return this;
+		}
+
+		/**
+		 * Builds a new {@link Enterprise} from the current state. The
+		 * {@link Enterprise} holds its own copies of all collections, so this
+		 * {@link Builder} can be {@link #reset()} and reused afterwards.
+		 * 
+		 * @return a new {@link Enterprise}
+		 * @throws IllegalArgumentException
+		 *             if a required field is not set
+		 */
 		public Enterprise build() {
-			return new Enterprise(enterpriseNumber, status, juridicalSituation, typeOfEnterprise, juridicalForm, startDate, denominations, getEstablishments(), addresses, contacts, activities);
+			Metrics metrics = Instrumentation.metrics();
+			if (!metrics.isEnabled()) {
+				return new Enterprise(enterpriseNumber, status, juridicalSituation, typeOfEnterprise, juridicalForm, startDate, denominations, getEstablishments(), addresses, contacts, activities);
+			}
+			long start = System.nanoTime();
+			Enterprise enterprise = new Enterprise(enterpriseNumber, status, juridicalSituation, typeOfEnterprise, juridicalForm, startDate, denominations, getEstablishments(), addresses, contacts, activities);
+			metrics.built("Enterprise", System.nanoTime() - start);
+			metrics.collectionSize("Enterprise.denominations", denominations.size());
+			metrics.collectionSize("Enterprise.establishments", establishments.size());
+			metrics.collectionSize("Enterprise.addresses", addresses.size());
+			metrics.collectionSize("Enterprise.contacts", contacts.size());
+			metrics.collectionSize("Enterprise.activities", activities.size());
+			return enterprise;
 		}
 
 		@Override
@@ -0,0 +1,110 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.util.function.BiConsumer;
+
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.Translation;
+
+/**
+ * Renders the descriptions of the code fields of {@link Enterprise} instances
+ * in a single {@link Translation}, into a positional array rather than a
+ * {@code Map}.
+ */
+public final class EnterpriseDescriptions {
+
+	/**
+	 * Index of the {@link Enterprise#getStatus()} description
+	 */
+	public static final int STATUS = 0;
+
+	/**
+	 * Index of the {@link Enterprise#getJuridicalSituation()} description
+	 */
+	public static final int JURIDICAL_SITUATION = 1;
+
+	/**
+	 * Index of the {@link Enterprise#getTypeOfEnterprise()} description
+	 */
+	public static final int TYPE_OF_ENTERPRISE = 2;
+
+	/**
+	 * Index of the {@link Enterprise#getJuridicalForm()} description
+	 */
+	public static final int JURIDICAL_FORM = 3;
+
+	/**
+	 * Length of the arrays filled by this class
+	 */
+	public static final int FIELD_COUNT = 4;
+
+	private EnterpriseDescriptions() {
+	}
+
+	/**
+	 * @param enterprise
+	 *            an {@link Enterprise}, not {@code null}
+	 * @param translation
+	 *            the preferred {@link Translation}, not {@code null}
+	 * @return a new array of {@link #FIELD_COUNT} descriptions, {@code null}
+	 *         for absent codes
+	 */
+	public static String[] describe(Enterprise enterprise, Translation translation) {
+		String[] target = new String[FIELD_COUNT];
+		describe(enterprise, translation, target);
+		return target;
+	}
+
+	/**
+	 * @param enterprise
+	 *            an {@link Enterprise}, not {@code null}
+	 * @param translation
+	 *            the preferred {@link Translation}, not {@code null}
+	 * @param target
+	 *            array of at least {@link #FIELD_COUNT} elements to fill
+	 */
+	public static void describe(Enterprise enterprise, Translation translation, String[] target) {
+		target[STATUS] = describe(enterprise.getStatus(), translation);
+		target[JURIDICAL_SITUATION] = describe(enterprise.getJuridicalSituation(), translation);
+		target[TYPE_OF_ENTERPRISE] = describe(enterprise.getTypeOfEnterprise(), translation);
+		target[JURIDICAL_FORM] = describe(enterprise.getJuridicalForm(), translation);
+	}
+
+	/**
+	 * Renders every {@link Enterprise} in turn. The array passed to the
+	 * consumer is reused between calls and must not be retained.
+	 * 
+	 * @param enterprises
+	 *            the {@link Enterprise} instances to render, not {@code null}
+	 * @param translation
+	 *            the preferred {@link Translation}, not {@code null}
+	 * @param consumer
+	 *            receives each {@link Enterprise} with its descriptions
+	 */
+	public static void describeAll(Iterable<Enterprise> enterprises, Translation translation, BiConsumer<Enterprise, String[]> consumer) {
+		String[] target = new String[FIELD_COUNT];
+		for (Enterprise enterprise : enterprises) {
+			describe(enterprise, translation, target);
+			consumer.accept(enterprise, target);
+		}
+	}
+
+	private static String describe(Code code, Translation translation) {
+		return code == null ? null : code.getDescription(translation);
+	}
+
+}
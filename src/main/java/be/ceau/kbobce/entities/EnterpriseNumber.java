@@ -15,9 +15,13 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.regex.Pattern;
 
+import be.ceau.kbobce.metrics.Instrumentation;
+
 /**
  * The nationally unique identifying number of a Belgian {@link Enterprise}. An
  * {@link EnterpriseNumber} is the id field of an {@link Enterprise}.
@@ -39,6 +43,16 @@ public class EnterpriseNumber implements Serializable {
 	 * @return an {@link EnterpriseNumber} or {@code null}
 	 */
 	public static EnterpriseNumber parse(String enterpriseNumber) {
+		EnterpriseNumber parsed = normalize(enterpriseNumber);
+		if (parsed != null) {
+			Instrumentation.metrics().parsed("EnterpriseNumber");
+		} else {
+			Instrumentation.metrics().rejected("EnterpriseNumber", enterpriseNumber == null ? "null" : "parse");
+		}
+		return parsed;
+	}
+
+	private static EnterpriseNumber normalize(String enterpriseNumber) {
 		if (enterpriseNumber == null) {
 			return null;
 		}
@@ -67,6 +81,33 @@ public class EnterpriseNumber implements Serializable {
 		return null;
 	}
 
+	/**
+	 * Construct a new {@link EnterpriseNumber} from its packed numeric form, as
+	 * returned by {@link #toLong()}.
+	 * 
+	 * @param packed
+	 *            the ten digits of an enterprise number as a {@code long}
+	 * @return an {@link EnterpriseNumber}, never {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument is not the packed form of a valid enterprise
+	 *             number
+	 */
+	public static EnterpriseNumber fromLong(long packed) {
+		if (!isValid(packed)) {
+			throw new IllegalArgumentException("argument is not a packed EnterpriseNumber");
+		}
+		char[] chars = new char[12];
+		for (int i = chars.length - 1; i >= 0; i--) {
+			if (i == 4 || i == 8) {
+				chars[i] = '.';
+			} else {
+				chars[i] = (char) ('0' + packed % 10);
+				packed /= 10;
+			}
+		}
+		return new EnterpriseNumber(new String(chars));
+	}
+
 	/**
 	 * Validate the given {@link String} as a possible {@code EnterpriseNumber}
 	 * 
@@ -83,6 +124,22 @@ public class EnterpriseNumber implements Serializable {
 		return matchesPattern(candidate) && passesChecksum(candidate);
  	}
 
+	/**
+	 * Validate the given {@code long} as the packed form of a possible
+	 * {@code EnterpriseNumber}, as returned by {@link #toLong()}.
+	 * 
+	 * @param packed
+	 *            a {@code long} to validate
+	 * @return true if the given argument is in range and passes the checksum
+	 */
+	public static boolean isValid(long packed) {
+		if (packed < 0 || packed > 999_999_999L) {
+			return false;
+		}
+		long part = packed / 100;
+		return packed % 100 == 97 - part % 97;
+	}
+
 	private static boolean matchesPattern(String candidate) {
 		return PATTERN.matcher(candidate).matches();
 	}
@@ -124,6 +181,32 @@ public class EnterpriseNumber implements Serializable {
 		return value;
 	}
 
+	/**
+	 * Packs the ten digits of this number into a {@code long}. Packed values
+	 * sort in the same order as the formatted {@link String} values, and can be
+	 * turned back into an {@link EnterpriseNumber} with {@link #fromLong(long)}.
+	 * 
+	 * @return a non-negative {@code long}
+	 */
+	public long toLong() {
+		long packed = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c != '.') {
+				packed = packed * 10 + (c - '0');
+			}
+		}
+		return packed;
+	}
+
+	private Object writeReplace() {
+		return new Ser(Ser.ENTERPRISE_NUMBER, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		return value.hashCode();
@@ -15,13 +15,16 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import be.ceau.kbobce.metrics.Instrumentation;
+import be.ceau.kbobce.metrics.Metrics;
 import be.ceau.kbobce.validate.Validator;
 
 /**
@@ -40,6 +43,20 @@ public class Establishment implements Serializable {
 		return new Builder();
 	}
 
+	private static final ThreadLocal<Builder> LOCAL_BUILDER = ThreadLocal.withInitial(Builder::new);
+
+	/**
+	 * Returns the {@link Builder} owned by the calling thread, after
+	 * {@link Builder#reset() resetting} it. Each call resets the same
+	 * instance, so a thread must call {@link Builder#build()} before calling
+	 * this method again.
+	 * 
+	 * @return a reset {@link Builder}, confined to the calling thread
+	 */
+	public static Builder localBuilder() {
+		return LOCAL_BUILDER.get().reset();
+	}
+
 	private final EstablishmentNumber establishmentNumber;
 
 	private final Set<Denomination> denominations;
@@ -80,10 +97,10 @@ public class Establishment implements Serializable {
 			LocalDate startDate) {
 		Validator.isNotNull(establishmentNumber, denominations, addresses, contacts, activities, startDate);
 		this.establishmentNumber = establishmentNumber;
-		this.denominations = Collections.unmodifiableSet(new HashSet<>(denominations));
-		this.addresses = Collections.unmodifiableSet(new HashSet<>(addresses));
-		this.contacts = Collections.unmodifiableSet(new HashSet<>(contacts));
-		this.activities = Collections.unmodifiableSet(new HashSet<>(activities));
+		this.denominations = Sets.copyOf(denominations);
+		this.addresses = Sets.copyOf(addresses);
+		this.contacts = Sets.copyOf(contacts);
+		this.activities = ActivityArray.of(activities);
 		this.startDate = startDate;
 	}
 
@@ -134,6 +151,14 @@ public class Establishment implements Serializable {
 		return startDate;
 	}
 
+	private Object writeReplace() {
+		return new Ser(Ser.ESTABLISHMENT, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -185,13 +210,17 @@ public class Establishment implements Serializable {
 
 		private EstablishmentNumber establishmentNumber;
 
-		private Set<Denomination> denominations = new HashSet<>();
+		private final Set<Denomination> denominations = new HashSet<>();
+
+		private final Set<Address> addresses = new HashSet<>();
 
-		private Set<Address> addresses = new HashSet<>();
+		private final Set<Contact> contacts = new HashSet<>();
 
-		private Set<Contact> contacts = new HashSet<>();
+		private final Set<Activity> activities = new HashSet<>();
 
-		private Set<Activity> activities = new HashSet<>();
+		private transient Canonicalizer<Address> addressCanonicalizer;
+
+		private transient Canonicalizer<Contact> contactCanonicalizer;
 
 		private LocalDate startDate;
 
@@ -217,23 +246,53 @@ public class Establishment implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Resolves addresses added after this call to canonical instances, so
+		 * equal addresses are held once across the instances built with the
+		 * same {@link Canonicalizer}. Cleared on {@link #reset()}.
+		 * 
+		 * @param addressCanonicalizer
+		 *            a {@link Canonicalizer}, or {@code null} to keep
+		 *            addresses as given
+		 * @return this {@link Builder}
+		 */
+		public Builder withAddressCanonicalizer(Canonicalizer<Address> addressCanonicalizer) {
+			this.addressCanonicalizer = addressCanonicalizer;
+			return this;
+		}
+
+		/**
+		 * Resolves contacts added after this call to canonical instances, so
+		 * equal contacts are held once across the instances built with the
+		 * same {@link Canonicalizer}. Cleared on {@link #reset()}.
+		 * 
+		 * @param contactCanonicalizer
+		 *            a {@link Canonicalizer}, or {@code null} to keep
+		 *            contacts as given
+		 * @return this {@link Builder}
+		 */
+		public Builder withContactCanonicalizer(Canonicalizer<Contact> contactCanonicalizer) {
+			this.contactCanonicalizer = contactCanonicalizer;
+			return this;
+		}
+
 		public Builder addAddress(Address address) {
-			this.addresses.add(address);
+			this.addresses.add(addressCanonicalizer == null ? address : addressCanonicalizer.canonical(address));
 			return this;
 		}
 
 		public Builder addAddresses(Collection<Address> addresses) {
-			this.addresses.addAll(addresses);
+			addresses.forEach(a -> addAddress(a));
 			return this;
 		}
 
 		public Builder addContact(Contact contact) {
-			this.contacts.add(contact);
+			this.contacts.add(contactCanonicalizer == null ? contact : contactCanonicalizer.canonical(contact));
 			return this;
 		}
 
 		public Builder addContacts(Collection<Contact> contacts) {
-			this.contacts.addAll(contacts);
+			contacts.forEach(c -> addContact(c));
 			return this;
 		}
 
@@ -252,8 +311,48 @@ public class Establishment implements Serializable {
 			return this;
 		}
 
+		/**
+		 * Clears all state of this {@link Builder}, so it can be reused for
+		 * another {@link Establishment}. The internal collections are emptied
+		 * rather than replaced, keeping their capacity. Canonicalizers are
+		 * cleared as well, so none outlives the instance it was set for.
+		 * 
+		 * @return this {@link Builder}
+		 */
+		public Builder reset() {
+			this.establishmentNumber = null;
+			this.denominations.clear();
+			this.addresses.clear();
+			this.contacts.clear();
+			this.activities.clear();
+			this.startDate = null;
+			this.addressCanonicalizer = null;
+			this.contactCanonicalizer = null;
+			return this;
+		}
+
+		/**
+		 * Builds a new {@link Establishment} from the current state. The
+		 * {@link Establishment} holds its own copies of all collections, so
+		 * this {@link Builder} can be {@link #reset()} and reused afterwards.
+		 * 
+		 * @return a new {@link Establishment}
+		 * @throws IllegalArgumentException
+		 *             if a required field is not set
+		 */
 		public Establishment build() {
-			return new Establishment(establishmentNumber, denominations, addresses, contacts, activities, startDate);
+			Metrics metrics = Instrumentation.metrics();
+			if (!metrics.isEnabled()) {
+				return new Establishment(establishmentNumber, denominations, addresses, contacts, activities, startDate);
+			}
+			long start = System.nanoTime();
+			Establishment establishment = new Establishment(establishmentNumber, denominations, addresses, contacts, activities, startDate);
+			metrics.built("Establishment", System.nanoTime() - start);
+			metrics.collectionSize("Establishment.denominations", denominations.size());
+			metrics.collectionSize("Establishment.addresses", addresses.size());
+			metrics.collectionSize("Establishment.contacts", contacts.size());
+			metrics.collectionSize("Establishment.activities", activities.size());
+			return establishment;
 		}
 
 	}
@@ -15,9 +15,13 @@
 */
 package be.ceau.kbobce.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.regex.Pattern;
 
+import be.ceau.kbobce.metrics.Instrumentation;
+
 /**
  * The identifying number of an {@link Establishment}. An
  * {@link EstablishmentNumber} is the id field of an {@link Establishment}.
@@ -57,10 +61,39 @@ public class EstablishmentNumber implements Serializable {
 	 */
 	public static EstablishmentNumber parse(String establishmentNumber) {
 		if (isValid(establishmentNumber)) {
+			Instrumentation.metrics().parsed("EstablishmentNumber");
 			return new EstablishmentNumber(establishmentNumber);
 		}
+		Instrumentation.metrics().rejected("EstablishmentNumber", establishmentNumber == null ? "null" : "parse");
 		return null;
 	}
+
+	/**
+	 * Construct a new {@link EstablishmentNumber} from its packed numeric form,
+	 * as returned by {@link #toLong()}.
+	 * 
+	 * @param packed
+	 *            the ten digits of an establishment number as a {@code long}
+	 * @return an {@link EstablishmentNumber}, never {@code null}
+	 * @throws IllegalArgumentException
+	 *             if argument is not the packed form of a valid establishment
+	 *             number
+	 */
+	public static EstablishmentNumber fromLong(long packed) {
+		if (packed < 0 || packed > 9_999_999_999L) {
+			throw new IllegalArgumentException("argument is not a packed EstablishmentNumber");
+		}
+		char[] chars = new char[13];
+		for (int i = chars.length - 1; i >= 0; i--) {
+			if (i == 1 || i == 5 || i == 9) {
+				chars[i] = '.';
+			} else {
+				chars[i] = (char) ('0' + packed % 10);
+				packed /= 10;
+			}
+		}
+		return new EstablishmentNumber(new String(chars));
+	}
 	
 	private final String value;
 
@@ -89,6 +122,33 @@ public class EstablishmentNumber implements Serializable {
 		return value;
 	}
 
+	/**
+	 * Packs the ten digits of this number into a {@code long}. Packed values
+	 * sort in the same order as the formatted {@link String} values, and can be
+	 * turned back into an {@link EstablishmentNumber} with
+	 * {@link #fromLong(long)}.
+	 * 
+	 * @return a non-negative {@code long}
+	 */
+	public long toLong() {
+		long packed = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c != '.') {
+				packed = packed * 10 + (c - '0');
+			}
+		}
+		return packed;
+	}
+
+	private Object writeReplace() {
+		return new Ser(Ser.ESTABLISHMENT_NUMBER, this);
+	}
+
+	private void readObject(ObjectInputStream s) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialization via serialization delegate");
+	}
+
 	@Override
 	public int hashCode() {
 		return value.hashCode();
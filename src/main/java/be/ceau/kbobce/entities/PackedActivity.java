@@ -0,0 +1,194 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.util.Objects;
+
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.Nace;
+import be.ceau.kbobce.codes.Nace2003;
+import be.ceau.kbobce.codes.Nace2008;
+
+/**
+ * Encodes an {@link Activity} in a single {@code int}, using the ordinals the
+ * shared {@link CodeTable} instances hand out for its codes:
+ * <ul>
+ * <li>bits 0 to 19: ordinal of the {@link Nace} code in the table of its
+ * version</li>
+ * <li>bit 20: set for {@link Nace2008}, clear for {@link Nace2003}</li>
+ * <li>bits 21 to 26: ordinal of the {@link ActivityGroup}</li>
+ * <li>bits 27 to 31: ordinal of the {@link Classification}</li>
+ * </ul>
+ * Packed values are only meaningful within one JVM, as ordinals depend on
+ * the order in which codes were interned.
+ */
+public final class PackedActivity {
+
+	private static final int NACE_BITS = 20;
+
+	private static final int VERSION_BIT = 1 << NACE_BITS;
+
+	private static final int GROUP_SHIFT = NACE_BITS + 1;
+
+	private static final int GROUP_BITS = 6;
+
+	private static final int CLASSIFICATION_SHIFT = GROUP_SHIFT + GROUP_BITS;
+
+	private static final int CLASSIFICATION_BITS = 32 - CLASSIFICATION_SHIFT;
+
+	private PackedActivity() {
+	}
+
+	/**
+	 * @param activity
+	 *            an {@link Activity}, not {@code null}
+	 * @return the packed form of the activity
+	 * @throws IllegalArgumentException
+	 *             if an ordinal does not fit its field
+	 */
+	public static int pack(Activity activity) {
+		Nace nace = activity.getNace();
+		int naceOrdinal;
+		int version;
+		if (nace instanceof Nace2008) {
+			naceOrdinal = CodeTable.of(Nace2008.class).ordinal((Nace2008) nace);
+			version = VERSION_BIT;
+		} else {
+			naceOrdinal = CodeTable.of(Nace2003.class).ordinal((Nace2003) nace);
+			version = 0;
+		}
+		int group = CodeTable.of(ActivityGroup.class).ordinal(activity.getActivityGroup());
+		int classification = CodeTable.of(Classification.class).ordinal(activity.getClassification());
+		if (naceOrdinal >>> NACE_BITS != 0) {
+			throw new IllegalArgumentException("too many Nace codes to pack");
+		}
+		if (group >>> GROUP_BITS != 0) {
+			throw new IllegalArgumentException("too many ActivityGroup codes to pack");
+		}
+		if (classification >>> CLASSIFICATION_BITS != 0) {
+			throw new IllegalArgumentException("too many Classification codes to pack");
+		}
+		return naceOrdinal | version | group << GROUP_SHIFT | classification << CLASSIFICATION_SHIFT;
+	}
+
+	/**
+	 * Looks up the packed form of an activity without interning any of its
+	 * codes.
+	 * 
+	 * @param activity
+	 *            an {@link Activity}, not {@code null}
+	 * @return the packed form of the activity as an unsigned {@code int}, or
+	 *         {@code -1} if one of its codes was never packed
+	 */
+	static long find(Activity activity) {
+		Nace nace = activity.getNace();
+		int naceOrdinal;
+		int version;
+		if (nace instanceof Nace2008) {
+			naceOrdinal = find(CodeTable.of(Nace2008.class), nace.getCode());
+			version = VERSION_BIT;
+		} else {
+			naceOrdinal = find(CodeTable.of(Nace2003.class), nace.getCode());
+			version = 0;
+		}
+		int group = find(CodeTable.of(ActivityGroup.class), activity.getActivityGroup().getCode());
+		int classification = find(CodeTable.of(Classification.class), activity.getClassification().getCode());
+		if (naceOrdinal < 0 || group < 0 || classification < 0) {
+			return -1;
+		}
+		if (naceOrdinal >>> NACE_BITS != 0 || group >>> GROUP_BITS != 0 || classification >>> CLASSIFICATION_BITS != 0) {
+			return -1;
+		}
+		return (naceOrdinal | version | group << GROUP_SHIFT | classification << CLASSIFICATION_SHIFT) & 0xFFFFFFFFL;
+	}
+
+	private static <T extends Code> int find(CodeTable<T> table, String code) {
+		T canonical = table.get(code);
+		return canonical == null ? -1 : table.ordinal(canonical);
+	}
+
+	/**
+	 * @param activity
+	 *            an {@link Activity}, not {@code null}
+	 * @param packed
+	 *            the packed form of the activity
+	 * @return {@code true} if {@link #unpack(int)} returns codes with the same
+	 *         descriptions as those of the activity
+	 */
+	static boolean isCanonical(Activity activity, int packed) {
+		return sameDescriptions(activity.getActivityGroup(), activityGroup(packed))
+				&& sameDescriptions(activity.getNace(), nace(packed))
+				&& sameDescriptions(activity.getClassification(), classification(packed));
+	}
+
+	private static boolean sameDescriptions(Code a, Code b) {
+		return a == b || Objects.equals(a.getNl(), b.getNl()) && Objects.equals(a.getFr(), b.getFr()) && Objects.equals(a.getDe(), b.getDe());
+	}
+
+	/**
+	 * @param packed
+	 *            a value returned by {@link #pack(Activity)}
+	 * @return a new {@link Activity} with the canonical codes of the packed
+	 *         value
+	 */
+	public static Activity unpack(int packed) {
+		return new Activity(activityGroup(packed), nace(packed), classification(packed));
+	}
+
+	/**
+	 * @param packed
+	 *            a value returned by {@link #pack(Activity)}
+	 * @return the canonical {@link ActivityGroup} of the packed value
+	 */
+	public static ActivityGroup activityGroup(int packed) {
+		return CodeTable.of(ActivityGroup.class).get(packed >>> GROUP_SHIFT & (1 << GROUP_BITS) - 1);
+	}
+
+	/**
+	 * @param packed
+	 *            a value returned by {@link #pack(Activity)}
+	 * @return the canonical {@link Nace} of the packed value
+	 */
+	public static Nace nace(int packed) {
+		int ordinal = packed & VERSION_BIT - 1;
+		if (isNace2008(packed)) {
+			return CodeTable.of(Nace2008.class).get(ordinal);
+		}
+		return CodeTable.of(Nace2003.class).get(ordinal);
+	}
+
+	/**
+	 * @param packed
+	 *            a value returned by {@link #pack(Activity)}
+	 * @return the canonical {@link Classification} of the packed value
+	 */
+	public static Classification classification(int packed) {
+		return CodeTable.of(Classification.class).get(packed >>> CLASSIFICATION_SHIFT);
+	}
+
+	/**
+	 * @param packed
+	 *            a value returned by {@link #pack(Activity)}
+	 * @return {@code true} if the packed value holds a {@link Nace2008} code
+	 */
+	public static boolean isNace2008(int packed) {
+		return (packed & VERSION_BIT) != 0;
+	}
+
+}
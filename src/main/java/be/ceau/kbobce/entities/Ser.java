@@ -0,0 +1,400 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.ContactType;
+import be.ceau.kbobce.codes.EntityContact;
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.JuridicalSituation;
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.Nace;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.codes.TypeOfDenomination;
+import be.ceau.kbobce.codes.TypeOfEnterprise;
+
+/**
+ * Serialization delegate for the entities in this package. Numbers and dates
+ * are written as variable length integers, child entities are written inline
+ * rather than as separate objects, and empty strings in an {@link Address}
+ * take no space at all. {@code Code} instances are written as objects, so a
+ * stream holds each distinct code only once, and resolve to their canonical
+ * instances when read. The same format, with codes written inline, is
+ * available over plain data streams through
+ * {@link Enterprise#write(DataOutput, Enterprise)}.
+ */
+final class Ser implements Externalizable {
+
+	private static final long serialVersionUID = 6216476512426366539L;
+
+	static final byte ENTERPRISE_NUMBER = 1;
+	static final byte ESTABLISHMENT_NUMBER = 2;
+	static final byte ACTIVITY = 3;
+	static final byte ADDRESS = 4;
+	static final byte CONTACT = 5;
+	static final byte DENOMINATION = 6;
+	static final byte ESTABLISHMENT = 7;
+	static final byte ENTERPRISE = 8;
+
+	private byte type;
+
+	private Object object;
+
+	/**
+	 * Constructor for deserialization.
+	 */
+	public Ser() {
+	}
+
+	Ser(byte type, Object object) {
+		this.type = type;
+		this.object = object;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeByte(type);
+		switch (type) {
+		case ENTERPRISE_NUMBER:
+			writeVarLong(out, ((EnterpriseNumber) object).toLong());
+			break;
+		case ESTABLISHMENT_NUMBER:
+			writeVarLong(out, ((EstablishmentNumber) object).toLong());
+			break;
+		case ACTIVITY:
+			writeActivity(out, (Activity) object);
+			break;
+		case ADDRESS:
+			writeAddress(out, (Address) object);
+			break;
+		case CONTACT:
+			writeContact(out, (Contact) object);
+			break;
+		case DENOMINATION:
+			writeDenomination(out, (Denomination) object);
+			break;
+		case ESTABLISHMENT:
+			writeEstablishment(out, (Establishment) object);
+			break;
+		case ENTERPRISE:
+			writeEnterprise(out, (Enterprise) object);
+			break;
+		default:
+			throw new InvalidObjectException("unknown type " + type);
+		}
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		type = in.readByte();
+		try {
+			switch (type) {
+			case ENTERPRISE_NUMBER:
+				object = EnterpriseNumber.fromLong(readVarLong(in));
+				break;
+			case ESTABLISHMENT_NUMBER:
+				object = EstablishmentNumber.fromLong(readVarLong(in));
+				break;
+			case ACTIVITY:
+				object = readActivity(in);
+				break;
+			case ADDRESS:
+				object = readAddress(in);
+				break;
+			case CONTACT:
+				object = readContact(in);
+				break;
+			case DENOMINATION:
+				object = readDenomination(in);
+				break;
+			case ESTABLISHMENT:
+				object = readEstablishment(in);
+				break;
+			case ENTERPRISE:
+				object = readEnterprise(in);
+				break;
+			default:
+				throw new StreamCorruptedException("unknown type " + type);
+			}
+		} catch (IllegalArgumentException | ClassCastException e) {
+			InvalidObjectException exception = new InvalidObjectException(e.getMessage());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	private Object readResolve() {
+		return object;
+	}
+
+	static void writeActivity(DataOutput out, Activity activity) throws IOException {
+		writeCode(out, activity.getActivityGroup());
+		writeCode(out, activity.getNace());
+		writeCode(out, activity.getClassification());
+	}
+
+	static Activity readActivity(DataInput in) throws IOException {
+		return new Activity(readCode(in, ActivityGroup.class), readCode(in, Nace.class), readCode(in, Classification.class));
+	}
+
+	static void writeAddress(DataOutput out, Address address) throws IOException {
+		String[] values = {
+				address.getCountryNL(),
+				address.getCountryFR(),
+				address.getZipcode(),
+				address.getMunicipalityNL(),
+				address.getMunicipalityFR(),
+				address.getStreetNL(),
+				address.getStreetFR(),
+				address.getHouseNumber(),
+				address.getBox(),
+				address.getExtraAddressInfo() };
+		int present = address.getDateStrikingOff() != null ? 1 << values.length : 0;
+		for (int i = 0; i < values.length; i++) {
+			if (!values[i].isEmpty()) {
+				present |= 1 << i;
+			}
+		}
+		writeCode(out, address.getTypeOfAddress());
+		out.writeShort(present);
+		for (String value : values) {
+			if (!value.isEmpty()) {
+				out.writeUTF(value);
+			}
+		}
+		if (address.getDateStrikingOff() != null) {
+			writeDate(out, address.getDateStrikingOff());
+		}
+	}
+
+	static Address readAddress(DataInput in) throws IOException {
+		TypeOfAddress typeOfAddress = readCode(in, TypeOfAddress.class);
+		int present = in.readUnsignedShort();
+		String[] values = new String[10];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (present & (1 << i)) != 0 ? in.readUTF() : null;
+		}
+		LocalDate dateStrikingOff = (present & (1 << values.length)) != 0 ? readDate(in) : null;
+		return new Address(typeOfAddress, values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7], values[8], values[9], dateStrikingOff);
+	}
+
+	static void writeContact(DataOutput out, Contact contact) throws IOException {
+		writeCode(out, contact.getEntityContact());
+		writeCode(out, contact.getContactType());
+		out.writeUTF(contact.getValue());
+	}
+
+	static Contact readContact(DataInput in) throws IOException {
+		return new Contact(readCode(in, EntityContact.class), readCode(in, ContactType.class), in.readUTF());
+	}
+
+	static void writeDenomination(DataOutput out, Denomination denomination) throws IOException {
+		writeCode(out, denomination.getLanguage());
+		writeCode(out, denomination.getTypeOfDenomination());
+		out.writeUTF(denomination.getValue());
+	}
+
+	static Denomination readDenomination(DataInput in) throws IOException {
+		return new Denomination(readCode(in, Language.class), readCode(in, TypeOfDenomination.class), in.readUTF());
+	}
+
+	static void writeEstablishment(DataOutput out, Establishment establishment) throws IOException {
+		writeVarLong(out, establishment.getEstablishmentNumber().toLong());
+		writeDate(out, establishment.getStartDate());
+		writeVarInt(out, establishment.getDenominations().size());
+		for (Denomination denomination : establishment.getDenominations()) {
+			writeDenomination(out, denomination);
+		}
+		writeVarInt(out, establishment.getAddresses().size());
+		for (Address address : establishment.getAddresses()) {
+			writeAddress(out, address);
+		}
+		writeVarInt(out, establishment.getContacts().size());
+		for (Contact contact : establishment.getContacts()) {
+			writeContact(out, contact);
+		}
+		writeVarInt(out, establishment.getActivities().size());
+		for (Activity activity : establishment.getActivities()) {
+			writeActivity(out, activity);
+		}
+	}
+
+	static Establishment readEstablishment(DataInput in) throws IOException {
+		EstablishmentNumber establishmentNumber = EstablishmentNumber.fromLong(readVarLong(in));
+		LocalDate startDate = readDate(in);
+		List<Denomination> denominations = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			denominations.add(readDenomination(in));
+		}
+		List<Address> addresses = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			addresses.add(readAddress(in));
+		}
+		List<Contact> contacts = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			contacts.add(readContact(in));
+		}
+		List<Activity> activities = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			activities.add(readActivity(in));
+		}
+		return new Establishment(establishmentNumber, denominations, addresses, contacts, activities, startDate);
+	}
+
+	static void writeEnterprise(DataOutput out, Enterprise enterprise) throws IOException {
+		writeVarLong(out, enterprise.getEnterpriseNumber().toLong());
+		writeCode(out, enterprise.getStatus());
+		writeCode(out, enterprise.getJuridicalSituation());
+		writeCode(out, enterprise.getTypeOfEnterprise());
+		writeCode(out, enterprise.getJuridicalForm());
+		writeDate(out, enterprise.getStartDate());
+		writeVarInt(out, enterprise.getDenominations().size());
+		for (Denomination denomination : enterprise.getDenominations()) {
+			writeDenomination(out, denomination);
+		}
+		writeVarInt(out, enterprise.getEstablishments().size());
+		for (Establishment establishment : enterprise.getEstablishments()) {
+			writeEstablishment(out, establishment);
+		}
+		writeVarInt(out, enterprise.getAddresses().size());
+		for (Address address : enterprise.getAddresses()) {
+			writeAddress(out, address);
+		}
+		writeVarInt(out, enterprise.getContacts().size());
+		for (Contact contact : enterprise.getContacts()) {
+			writeContact(out, contact);
+		}
+		writeVarInt(out, enterprise.getActivities().size());
+		for (Activity activity : enterprise.getActivities()) {
+			writeActivity(out, activity);
+		}
+	}
+
+	static Enterprise readEnterprise(DataInput in) throws IOException {
+		EnterpriseNumber enterpriseNumber = EnterpriseNumber.fromLong(readVarLong(in));
+		Status status = readCode(in, Status.class);
+		JuridicalSituation juridicalSituation = readCode(in, JuridicalSituation.class);
+		TypeOfEnterprise typeOfEnterprise = readCode(in, TypeOfEnterprise.class);
+		JuridicalForm juridicalForm = readCode(in, JuridicalForm.class);
+		LocalDate startDate = readDate(in);
+		List<Denomination> denominations = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			denominations.add(readDenomination(in));
+		}
+		List<Establishment> establishments = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			establishments.add(readEstablishment(in));
+		}
+		List<Address> addresses = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			addresses.add(readAddress(in));
+		}
+		List<Contact> contacts = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			contacts.add(readContact(in));
+		}
+		List<Activity> activities = new ArrayList<>();
+		for (int i = 0, n = readVarInt(in); i < n; i++) {
+			activities.add(readActivity(in));
+		}
+		return new Enterprise(enterpriseNumber, status, juridicalSituation, typeOfEnterprise, juridicalForm, startDate, denominations, establishments, addresses, contacts, activities);
+	}
+
+	/**
+	 * Writes a {@link Code} as an object to an {@link ObjectOutput}, so a
+	 * stream holds each distinct code only once, and in the format of
+	 * {@link Code#write(DataOutput, Code)} otherwise.
+	 */
+	static void writeCode(DataOutput out, Code code) throws IOException {
+		if (out instanceof ObjectOutput) {
+			((ObjectOutput) out).writeObject(code);
+		} else {
+			Code.write(out, code);
+		}
+	}
+
+	static <T extends Code> T readCode(DataInput in, Class<T> type) throws IOException {
+		if (!(in instanceof ObjectInput)) {
+			return Code.read(in, type);
+		}
+		try {
+			return type.cast(((ObjectInput) in).readObject());
+		} catch (ClassNotFoundException e) {
+			InvalidClassException exception = new InvalidClassException(e.getMessage());
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	static void writeDate(DataOutput out, LocalDate date) throws IOException {
+		long epochDay = date.toEpochDay();
+		writeVarLong(out, (epochDay << 1) ^ (epochDay >> 63));
+	}
+
+	static LocalDate readDate(DataInput in) throws IOException {
+		long zigzag = readVarLong(in);
+		return LocalDate.ofEpochDay((zigzag >>> 1) ^ -(zigzag & 1));
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		long value = readVarLong(in);
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new StreamCorruptedException("invalid count " + value);
+		}
+		return (int) value;
+	}
+
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("malformed variable length integer");
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Utility methods for the immutable sets held by the entities in this
+ * package.
+ */
+final class Sets {
+
+	private Sets() {
+	}
+
+	/**
+	 * Copies the given elements into an unmodifiable {@link Set}, sized for
+	 * the number of elements rather than for further growth.
+	 * 
+	 * @param elements
+	 *            a {@link Collection}, can be {@code null} or empty
+	 * @return an unmodifiable {@link Set}, never {@code null}
+	 */
+	static <T> Set<T> copyOf(Collection<? extends T> elements) {
+		if (elements == null || elements.isEmpty()) {
+			return Collections.emptySet();
+		}
+		if (elements.size() == 1) {
+			return Collections.singleton(elements.iterator().next());
+		}
+		Set<T> set = new HashSet<>((int) (elements.size() / 0.75f) + 1);
+		set.addAll(elements);
+		return Collections.unmodifiableSet(set);
+	}
+
+}
@@ -0,0 +1,246 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import be.ceau.kbobce.codes.Code;
+
+/**
+ * One column of an Arrow record batch under construction, with its validity
+ * bitmap and value buffers.
+ */
+final class ArrowColumn {
+
+	enum Kind {
+		UTF8, INT32, DATE32, DICTIONARY
+	}
+
+	private static final int TYPE_INT = 2;
+	private static final int TYPE_UTF8 = 5;
+	private static final int TYPE_DATE = 8;
+	private static final int DATE_UNIT_DAY = 0;
+
+	private final String name;
+	private final Kind kind;
+	private final ArrowDictionary dictionary;
+
+	/**
+	 * If set, values are not stored and only dictionary keys are collected.
+	 */
+	boolean collecting;
+
+	private int length;
+	private int nullCount;
+	private byte[] validity = new byte[64];
+	private int[] values = new int[512];
+	private byte[] data = new byte[4096];
+	private int dataLength;
+
+	ArrowColumn(String name, Kind kind, long dictionaryId) {
+		this.name = name;
+		this.kind = kind;
+		this.dictionary = kind == Kind.DICTIONARY ? new ArrowDictionary(dictionaryId) : null;
+	}
+
+	ArrowColumn(String name, Kind kind) {
+		this(name, kind, -1);
+	}
+
+	ArrowDictionary getDictionary() {
+		return dictionary;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	void addString(String value) {
+		if (collecting) {
+			return;
+		}
+		if (value == null) {
+			addNull();
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (dataLength + bytes.length > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + bytes.length));
+		}
+		System.arraycopy(bytes, 0, data, dataLength, bytes.length);
+		dataLength += bytes.length;
+		add(dataLength, true);
+	}
+
+	void addInt(Integer value) {
+		if (collecting) {
+			return;
+		}
+		if (value == null) {
+			addNull();
+		} else {
+			add(value, true);
+		}
+	}
+
+	void addDate(LocalDate date) {
+		if (collecting) {
+			return;
+		}
+		if (date == null) {
+			addNull();
+		} else {
+			add(Math.toIntExact(date.toEpochDay()), true);
+		}
+	}
+
+	void addCode(Code code) {
+		if (code == null) {
+			if (!collecting) {
+				addNull();
+			}
+		} else if (collecting) {
+			dictionary.collect(code.getCode());
+		} else {
+			add(dictionary.indexOf(code.getCode()), true);
+		}
+	}
+
+	private void addNull() {
+		nullCount++;
+		add(kind == Kind.UTF8 ? dataLength : 0, false);
+	}
+
+	/**
+	 * @param value
+	 *            the value, or for {@link Kind#UTF8} the end offset of the
+	 *            value in the data buffer
+	 */
+	private void add(int value, boolean valid) {
+		if (length == values.length - 1) {
+			values = Arrays.copyOf(values, values.length * 2);
+		}
+		if (length >> 3 == validity.length) {
+			validity = Arrays.copyOf(validity, validity.length * 2);
+		}
+		if (valid) {
+			validity[length >> 3] |= 1 << (length & 7);
+		}
+		if (kind == Kind.UTF8) {
+			values[length + 1] = value;
+		} else {
+			values[length] = value;
+		}
+		length++;
+	}
+
+	/**
+	 * Clears all values, for the next record batch.
+	 */
+	void reset() {
+		Arrays.fill(validity, 0, (length + 7) >> 3, (byte) 0);
+		length = 0;
+		nullCount = 0;
+		dataLength = 0;
+	}
+
+	/**
+	 * @return the {@code Field} of this column in the Arrow schema
+	 */
+	FlatBuffers.Table field() {
+		FlatBuffers.Table field = new FlatBuffers.Table()
+				.addOffset(0, name)
+				.addBoolean(1, true)
+				.addOffset(5, new FlatBuffers.TableVector(Collections.emptyList()));
+		switch (kind) {
+		case INT32:
+			field.addUnion(2, TYPE_INT, intType());
+			break;
+		case DATE32:
+			field.addUnion(2, TYPE_DATE, new FlatBuffers.Table().addShort(0, DATE_UNIT_DAY));
+			break;
+		case DICTIONARY:
+			field.addUnion(2, TYPE_UTF8, new FlatBuffers.Table());
+			field.addOffset(4, new FlatBuffers.Table()
+					.addLong(0, dictionary.getId())
+					.addOffset(1, intType())
+					.addBoolean(2, false));
+			break;
+		default:
+			field.addUnion(2, TYPE_UTF8, new FlatBuffers.Table());
+			break;
+		}
+		return field;
+	}
+
+	private static FlatBuffers.Table intType() {
+		return new FlatBuffers.Table().addInt(0, 32).addBoolean(1, true);
+	}
+
+	/**
+	 * Appends the {@code FieldNode} of this column.
+	 */
+	void node(ByteBuffer nodes) {
+		nodes.putLong(length);
+		nodes.putLong(nullCount);
+	}
+
+	/**
+	 * Appends the buffers of this column, in Arrow layout order.
+	 */
+	void buffers(List<ByteBuffer> buffers) {
+		buffers.add(ByteBuffer.wrap(validity, 0, (length + 7) >> 3));
+		if (kind == Kind.UTF8) {
+			buffers.add(ints(values, length + 1));
+			buffers.add(ByteBuffer.wrap(data, 0, dataLength));
+		} else {
+			buffers.add(ints(values, length));
+		}
+	}
+
+	/**
+	 * Appends the buffers of a {@link Kind#UTF8} column without nulls.
+	 */
+	static void buffers(List<String> strings, List<ByteBuffer> buffers) {
+		int[] offsets = new int[strings.size() + 1];
+		byte[][] bytes = new byte[strings.size()][];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			offsets[i + 1] = offsets[i] + bytes[i].length;
+		}
+		ByteBuffer data = ByteBuffer.allocate(offsets[bytes.length]);
+		for (byte[] value : bytes) {
+			data.put(value);
+		}
+		data.flip();
+		buffers.add(ByteBuffer.allocate(0));
+		buffers.add(ints(offsets, offsets.length));
+		buffers.add(data);
+	}
+
+	private static ByteBuffer ints(int[] values, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(length * 4).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asIntBuffer().put(values, 0, length);
+		return buffer;
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of a dictionary-encoded Arrow column. Values are collected in a
+ * first pass over the data, after which the dictionary is frozen and only
+ * resolves indices.
+ */
+final class ArrowDictionary {
+
+	private final long id;
+	private final Map<String, Integer> indices = new HashMap<>();
+	private final List<String> values = new ArrayList<>();
+	private boolean frozen;
+
+	ArrowDictionary(long id) {
+		this.id = id;
+	}
+
+	long getId() {
+		return id;
+	}
+
+	void collect(String value) {
+		if (frozen) {
+			throw new IllegalStateException("dictionary " + id + " is frozen");
+		}
+		if (!indices.containsKey(value)) {
+			indices.put(value, values.size());
+			values.add(value);
+		}
+	}
+
+	void freeze() {
+		frozen = true;
+	}
+
+	int indexOf(String value) {
+		Integer index = indices.get(value);
+		if (index == null) {
+			throw new IllegalStateException("value " + value + " was not collected for dictionary " + id);
+		}
+		return index;
+	}
+
+	List<String> getValues() {
+		return Collections.unmodifiableList(values);
+	}
+
+}
@@ -0,0 +1,284 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * Exports enterprises as a set of Arrow IPC files, one per table, that
+ * analytics engines can memory-map directly.
+ * <p>
+ * All {@code Code} fields are dictionary-encoded with 32-bit indices, dates
+ * are {@code date32} and all other fields {@code utf8}. Child tables refer
+ * to their enterprise or establishment through the {@code entityNumber}
+ * column.
+ * <p>
+ * The enterprises are iterated twice: once to collect the dictionaries and
+ * once to write the record batches. Memory use is bounded by the batch size.
+ */
+public class ArrowExporter {
+
+	/**
+	 * Table with one row per {@link Enterprise}
+	 */
+	public static final String ENTERPRISE = "enterprise";
+
+	/**
+	 * Table with one row per {@link Establishment}
+	 */
+	public static final String ESTABLISHMENT = "establishment";
+
+	/**
+	 * Table with one row per {@link Address} of an enterprise or establishment
+	 */
+	public static final String ADDRESS = "address";
+
+	/**
+	 * Table with one row per {@link Denomination} of an enterprise or
+	 * establishment
+	 */
+	public static final String DENOMINATION = "denomination";
+
+	/**
+	 * Table with one row per {@link Activity} of an enterprise or
+	 * establishment
+	 */
+	public static final String ACTIVITY = "activity";
+
+	/**
+	 * File name extension of the written files
+	 */
+	public static final String EXTENSION = ".arrow";
+
+	/**
+	 * @return a new {@link Builder} instance for construction of an
+	 *         {@link ArrowExporter}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private final int batchSize;
+
+	private ArrowExporter(Builder builder) {
+		this.batchSize = builder.batchSize;
+	}
+
+	/**
+	 * Writes one file per table to the given directory, replacing existing
+	 * files.
+	 * 
+	 * @param enterprises
+	 *            the {@link Enterprise} instances to export, iterated twice,
+	 *            not {@code null}
+	 * @param directory
+	 *            an existing directory, not {@code null}
+	 * @return the number of rows written per table name
+	 * @throws IOException
+	 *             if a file can not be written
+	 */
+	public Map<String, Long> export(Iterable<Enterprise> enterprises, Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			throw new IllegalArgumentException(directory + " is not a directory");
+		}
+		Tables tables = new Tables(batchSize);
+		for (Enterprise enterprise : enterprises) {
+			tables.append(enterprise);
+		}
+		try {
+			for (ArrowTable table : tables.all) {
+				table.open(directory.resolve(table.getName() + EXTENSION));
+			}
+			for (Enterprise enterprise : enterprises) {
+				tables.append(enterprise);
+			}
+		} finally {
+			IOException exception = null;
+			for (ArrowTable table : tables.all) {
+				try {
+					table.close();
+				} catch (IOException e) {
+					if (exception == null) {
+						exception = e;
+					}
+				}
+			}
+			if (exception != null) {
+				throw exception;
+			}
+		}
+		Map<String, Long> rows = new LinkedHashMap<>();
+		for (ArrowTable table : tables.all) {
+			rows.put(table.getName(), table.getRows());
+		}
+		return rows;
+	}
+
+	/**
+	 * The tables of one export with their columns.
+	 */
+	private static final class Tables {
+
+		private final ArrowColumn enterpriseNumber = new ArrowColumn("enterpriseNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn status = new ArrowColumn("status", ArrowColumn.Kind.DICTIONARY, 0);
+		private final ArrowColumn juridicalSituation = new ArrowColumn("juridicalSituation", ArrowColumn.Kind.DICTIONARY, 1);
+		private final ArrowColumn typeOfEnterprise = new ArrowColumn("typeOfEnterprise", ArrowColumn.Kind.DICTIONARY, 2);
+		private final ArrowColumn juridicalForm = new ArrowColumn("juridicalForm", ArrowColumn.Kind.DICTIONARY, 3);
+		private final ArrowColumn enterpriseStartDate = new ArrowColumn("startDate", ArrowColumn.Kind.DATE32);
+		private final ArrowTable enterprise;
+
+		private final ArrowColumn establishmentNumber = new ArrowColumn("establishmentNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn establishmentEnterpriseNumber = new ArrowColumn("enterpriseNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn establishmentStartDate = new ArrowColumn("startDate", ArrowColumn.Kind.DATE32);
+		private final ArrowTable establishment;
+
+		private final ArrowColumn addressEntityNumber = new ArrowColumn("entityNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn typeOfAddress = new ArrowColumn("typeOfAddress", ArrowColumn.Kind.DICTIONARY, 0);
+		private final ArrowColumn countryNL = new ArrowColumn("countryNL", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn countryFR = new ArrowColumn("countryFR", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn zipcode = new ArrowColumn("zipcode", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn municipalityNL = new ArrowColumn("municipalityNL", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn municipalityFR = new ArrowColumn("municipalityFR", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn streetNL = new ArrowColumn("streetNL", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn streetFR = new ArrowColumn("streetFR", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn houseNumber = new ArrowColumn("houseNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn box = new ArrowColumn("box", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn extraAddressInfo = new ArrowColumn("extraAddressInfo", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn dateStrikingOff = new ArrowColumn("dateStrikingOff", ArrowColumn.Kind.DATE32);
+		private final ArrowTable address;
+
+		private final ArrowColumn denominationEntityNumber = new ArrowColumn("entityNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn language = new ArrowColumn("language", ArrowColumn.Kind.DICTIONARY, 0);
+		private final ArrowColumn typeOfDenomination = new ArrowColumn("typeOfDenomination", ArrowColumn.Kind.DICTIONARY, 1);
+		private final ArrowColumn denominationValue = new ArrowColumn("value", ArrowColumn.Kind.UTF8);
+		private final ArrowTable denomination;
+
+		private final ArrowColumn activityEntityNumber = new ArrowColumn("entityNumber", ArrowColumn.Kind.UTF8);
+		private final ArrowColumn activityGroup = new ArrowColumn("activityGroup", ArrowColumn.Kind.DICTIONARY, 0);
+		private final ArrowColumn naceVersion = new ArrowColumn("naceVersion", ArrowColumn.Kind.INT32);
+		private final ArrowColumn nace = new ArrowColumn("nace", ArrowColumn.Kind.DICTIONARY, 1);
+		private final ArrowColumn classification = new ArrowColumn("classification", ArrowColumn.Kind.DICTIONARY, 2);
+		private final ArrowTable activity;
+
+		private final List<ArrowTable> all;
+
+		private Tables(int batchSize) {
+			enterprise = new ArrowTable(ENTERPRISE, batchSize, Arrays.asList(enterpriseNumber, status, juridicalSituation, typeOfEnterprise, juridicalForm, enterpriseStartDate));
+			establishment = new ArrowTable(ESTABLISHMENT, batchSize, Arrays.asList(establishmentNumber, establishmentEnterpriseNumber, establishmentStartDate));
+			address = new ArrowTable(ADDRESS, batchSize, Arrays.asList(addressEntityNumber, typeOfAddress, countryNL, countryFR, zipcode, municipalityNL, municipalityFR, streetNL, streetFR, houseNumber, box, extraAddressInfo, dateStrikingOff));
+			denomination = new ArrowTable(DENOMINATION, batchSize, Arrays.asList(denominationEntityNumber, language, typeOfDenomination, denominationValue));
+			activity = new ArrowTable(ACTIVITY, batchSize, Arrays.asList(activityEntityNumber, activityGroup, naceVersion, nace, classification));
+			all = Arrays.asList(enterprise, establishment, address, denomination, activity);
+		}
+
+		private void append(Enterprise e) throws IOException {
+			String number = e.getEnterpriseNumber().getValue();
+			enterpriseNumber.addString(number);
+			status.addCode(e.getStatus());
+			juridicalSituation.addCode(e.getJuridicalSituation());
+			typeOfEnterprise.addCode(e.getTypeOfEnterprise());
+			juridicalForm.addCode(e.getJuridicalForm());
+			enterpriseStartDate.addDate(e.getStartDate());
+			enterprise.endRow();
+			appendChildren(number, e.getAddresses(), e.getDenominations(), e.getActivities());
+			for (Establishment child : e.getEstablishments()) {
+				String childNumber = child.getEstablishmentNumber().getValue();
+				establishmentNumber.addString(childNumber);
+				establishmentEnterpriseNumber.addString(number);
+				establishmentStartDate.addDate(child.getStartDate());
+				establishment.endRow();
+				appendChildren(childNumber, child.getAddresses(), child.getDenominations(), child.getActivities());
+			}
+		}
+
+		private void appendChildren(String entityNumber, Iterable<Address> addresses, Iterable<Denomination> denominations, Iterable<Activity> activities) throws IOException {
+			for (Address a : addresses) {
+				addressEntityNumber.addString(entityNumber);
+				typeOfAddress.addCode(a.getTypeOfAddress());
+				countryNL.addString(a.getCountryNL());
+				countryFR.addString(a.getCountryFR());
+				zipcode.addString(a.getZipcode());
+				municipalityNL.addString(a.getMunicipalityNL());
+				municipalityFR.addString(a.getMunicipalityFR());
+				streetNL.addString(a.getStreetNL());
+				streetFR.addString(a.getStreetFR());
+				houseNumber.addString(a.getHouseNumber());
+				box.addString(a.getBox());
+				extraAddressInfo.addString(a.getExtraAddressInfo());
+				dateStrikingOff.addDate(a.getDateStrikingOff());
+				address.endRow();
+			}
+			for (Denomination d : denominations) {
+				denominationEntityNumber.addString(entityNumber);
+				language.addCode(d.getLanguage());
+				typeOfDenomination.addCode(d.getTypeOfDenomination());
+				denominationValue.addString(d.getValue());
+				denomination.endRow();
+			}
+			for (Activity a : activities) {
+				activityEntityNumber.addString(entityNumber);
+				activityGroup.addCode(a.getActivityGroup());
+				naceVersion.addInt(a.getNace() == null ? null : a.getNace().getYear());
+				nace.addCode(a.getNace());
+				classification.addCode(a.getClassification());
+				activity.endRow();
+			}
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link ArrowExporter} instances.
+	 */
+	public static class Builder {
+
+		private int batchSize = 1 << 16;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param batchSize
+		 *            the maximum number of rows per record batch, positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withBatchSize(int batchSize) {
+			if (batchSize < 1) {
+				throw new IllegalArgumentException("batchSize must be positive");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		public ArrowExporter build() {
+			return new ArrowExporter(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes one table as an Arrow IPC file: the schema, one dictionary batch per
+ * dictionary-encoded column, record batches of at most {@code batchSize}
+ * rows, and the footer.
+ */
+final class ArrowTable implements Closeable {
+
+	private static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+	private static final short METADATA_V5 = 4;
+	private static final int HEADER_SCHEMA = 1;
+	private static final int HEADER_DICTIONARY_BATCH = 2;
+	private static final int HEADER_RECORD_BATCH = 3;
+
+	private final String name;
+	private final int batchSize;
+	private final List<ArrowColumn> columns;
+	private final List<long[]> dictionaryBlocks = new ArrayList<>();
+	private final List<long[]> recordBatchBlocks = new ArrayList<>();
+
+	private OutputStream out;
+	private long position;
+	private long rows;
+	private boolean collecting = true;
+
+	ArrowTable(String name, int batchSize, List<ArrowColumn> columns) {
+		this.name = name;
+		this.batchSize = batchSize;
+		this.columns = columns;
+		for (ArrowColumn column : columns) {
+			column.collecting = true;
+		}
+	}
+
+	String getName() {
+		return name;
+	}
+
+	long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Ends the dictionary collection pass and starts writing the file.
+	 * 
+	 * @param file
+	 *            the file to write
+	 */
+	void open(Path file) throws IOException {
+		collecting = false;
+		for (ArrowColumn column : columns) {
+			column.collecting = false;
+			if (column.getDictionary() != null) {
+				column.getDictionary().freeze();
+			}
+		}
+		out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+		write(MAGIC);
+		write(new byte[2]);
+		writeMessage(HEADER_SCHEMA, schema(), Collections.emptyList());
+		for (ArrowColumn column : columns) {
+			ArrowDictionary dictionary = column.getDictionary();
+			if (dictionary != null) {
+				List<String> values = dictionary.getValues();
+				List<ByteBuffer> buffers = new ArrayList<>();
+				ArrowColumn.buffers(values, buffers);
+				ByteBuffer node = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+				node.putLong(values.size()).putLong(0);
+				FlatBuffers.Table batch = recordBatch(values.size(), node.array(), buffers);
+				FlatBuffers.Table header = new FlatBuffers.Table()
+						.addLong(0, dictionary.getId())
+						.addOffset(1, batch)
+						.addBoolean(2, false);
+				dictionaryBlocks.add(writeMessage(HEADER_DICTIONARY_BATCH, header, buffers));
+			}
+		}
+	}
+
+	/**
+	 * Completes the current row, writing a record batch if it is full.
+	 */
+	void endRow() throws IOException {
+		if (collecting) {
+			return;
+		}
+		rows++;
+		if (columns.get(0).getLength() == batchSize) {
+			flushBatch();
+		}
+	}
+
+	private void flushBatch() throws IOException {
+		int length = columns.get(0).getLength();
+		ByteBuffer nodes = ByteBuffer.allocate(16 * columns.size()).order(ByteOrder.LITTLE_ENDIAN);
+		List<ByteBuffer> buffers = new ArrayList<>();
+		for (ArrowColumn column : columns) {
+			if (column.getLength() != length) {
+				throw new IllegalStateException("column lengths differ in table " + name);
+			}
+			column.node(nodes);
+			column.buffers(buffers);
+		}
+		recordBatchBlocks.add(writeMessage(HEADER_RECORD_BATCH, recordBatch(length, nodes.array(), buffers), buffers));
+		for (ArrowColumn column : columns) {
+			column.reset();
+		}
+	}
+
+	/**
+	 * Writes the last record batch and the footer, and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (out == null) {
+			return;
+		}
+		try {
+			if (columns.get(0).getLength() > 0 || recordBatchBlocks.isEmpty()) {
+				flushBatch();
+			}
+			ByteBuffer eos = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			eos.putInt(-1).putInt(0);
+			write(eos.array());
+			FlatBuffers.Table footer = new FlatBuffers.Table()
+					.addShort(0, METADATA_V5)
+					.addOffset(1, schema())
+					.addOffset(2, blocks(dictionaryBlocks))
+					.addOffset(3, blocks(recordBatchBlocks));
+			byte[] bytes = FlatBuffers.serialize(footer);
+			write(bytes);
+			ByteBuffer length = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			length.putInt(bytes.length);
+			write(length.array());
+			write(MAGIC);
+		} finally {
+			out.close();
+			out = null;
+		}
+	}
+
+	private FlatBuffers.Table schema() {
+		List<FlatBuffers.Table> fields = new ArrayList<>();
+		for (ArrowColumn column : columns) {
+			fields.add(column.field());
+		}
+		return new FlatBuffers.Table()
+				.addShort(0, 0)
+				.addOffset(1, new FlatBuffers.TableVector(fields));
+	}
+
+	private static FlatBuffers.Table recordBatch(long length, byte[] nodes, List<ByteBuffer> buffers) {
+		ByteBuffer layout = ByteBuffer.allocate(16 * buffers.size()).order(ByteOrder.LITTLE_ENDIAN);
+		long offset = 0;
+		for (ByteBuffer buffer : buffers) {
+			layout.putLong(offset).putLong(buffer.remaining());
+			offset += FlatBuffers.align(buffer.remaining(), 8);
+		}
+		return new FlatBuffers.Table()
+				.addLong(0, length)
+				.addOffset(1, new FlatBuffers.StructVector(nodes.length / 16, 8, nodes))
+				.addOffset(2, new FlatBuffers.StructVector(buffers.size(), 8, layout.array()));
+	}
+
+	private static FlatBuffers.StructVector blocks(List<long[]> blocks) {
+		ByteBuffer bytes = ByteBuffer.allocate(24 * blocks.size()).order(ByteOrder.LITTLE_ENDIAN);
+		for (long[] block : blocks) {
+			bytes.putLong(block[0]).putInt((int) block[1]).putInt(0).putLong(block[2]);
+		}
+		return new FlatBuffers.StructVector(blocks.size(), 8, bytes.array());
+	}
+
+	/**
+	 * @return the {@code Block} of the message: its offset, metadata length
+	 *         and body length
+	 */
+	private long[] writeMessage(int headerType, FlatBuffers.Table header, List<ByteBuffer> body) throws IOException {
+		long bodyLength = 0;
+		for (ByteBuffer buffer : body) {
+			bodyLength += FlatBuffers.align(buffer.remaining(), 8);
+		}
+		FlatBuffers.Table message = new FlatBuffers.Table()
+				.addShort(0, METADATA_V5)
+				.addUnion(1, headerType, header)
+				.addLong(3, bodyLength);
+		byte[] metadata = FlatBuffers.serialize(message);
+		long offset = position;
+		ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		prefix.putInt(-1).putInt(metadata.length);
+		write(prefix.array());
+		write(metadata);
+		for (ByteBuffer buffer : body) {
+			int length = buffer.remaining();
+			write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+			write(new byte[FlatBuffers.align(length, 8) - length]);
+		}
+		return new long[] { offset, 8 + metadata.length, bodyLength };
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		write(bytes, 0, bytes.length);
+	}
+
+	private void write(byte[] bytes, int offset, int length) throws IOException {
+		out.write(bytes, offset, length);
+		position += length;
+	}
+
+}
@@ -0,0 +1,365 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * Exports enterprises as denormalized rows, one per combination of
+ * {@link Address} and {@link Activity} of each enterprise and of each of its
+ * {@link Establishment} instances. An enterprise or establishment without
+ * addresses or activities still gets a row, with those columns empty.
+ * <p>
+ * Enterprises are read in chunks on the calling thread. Chunks are encoded,
+ * and optionally compressed, in parallel on an {@link Executor}, then written
+ * to the output channel in input order. With gzip, each chunk is a separate
+ * gzip member; standard tools decompress the concatenation as a whole.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public class BulkExporter {
+
+	/**
+	 * @return a new {@link Builder} instance for construction of a
+	 *         {@link BulkExporter}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private static final Collection<Address> NO_ADDRESS = Collections.singletonList(null);
+	private static final Collection<Activity> NO_ACTIVITY = Collections.singletonList(null);
+
+	private final List<Column> columns;
+	private final Format format;
+	private final boolean gzip;
+	private final int chunkSize;
+	private final int maxPendingChunks;
+	private final Executor executor;
+
+	private BulkExporter(Builder builder) {
+		this.columns = Collections.unmodifiableList(new ArrayList<>(builder.columns));
+		this.format = builder.format;
+		this.gzip = builder.gzip;
+		this.chunkSize = builder.chunkSize;
+		this.maxPendingChunks = builder.maxPendingChunks;
+		this.executor = builder.executor;
+	}
+
+	/**
+	 * @return the exported {@link Column} instances, in order
+	 */
+	public List<Column> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the output {@link Format}
+	 */
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Exports to a file, replacing any existing content.
+	 * 
+	 * @param enterprises
+	 *            the {@link Enterprise} instances to export, not {@code null}
+	 * @param path
+	 *            the {@link Path} of the file to write, not {@code null}
+	 * @return the number of rows written
+	 * @throws IOException
+	 *             if the file can not be written
+	 */
+	public long export(Iterable<Enterprise> enterprises, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			return export(enterprises.iterator(), channel);
+		}
+	}
+
+	/**
+	 * Exports to a channel, which is left open.
+	 * 
+	 * @param enterprises
+	 *            the {@link Enterprise} instances to export, not {@code null}
+	 * @param channel
+	 *            the {@link WritableByteChannel} to write to, not
+	 *            {@code null}
+	 * @return the number of rows written
+	 * @throws IOException
+	 *             if the channel can not be written to
+	 */
+	public long export(Iterator<Enterprise> enterprises, WritableByteChannel channel) throws IOException {
+		Deque<CompletableFuture<Chunk>> pending = new ArrayDeque<>(maxPendingChunks);
+		long rows = 0;
+		boolean written = false;
+		try {
+			ChunkBuffer header = new ChunkBuffer(1024);
+			format.encoder(columns, header).header();
+			if (header.size() > 0) {
+				write(channel, compress(header).toByteBuffer());
+				written = true;
+			}
+			while (enterprises.hasNext()) {
+				List<Enterprise> batch = new ArrayList<>(chunkSize);
+				while (batch.size() < chunkSize && enterprises.hasNext()) {
+					batch.add(enterprises.next());
+				}
+				pending.add(CompletableFuture.supplyAsync(() -> encode(batch), executor));
+				if (pending.size() >= maxPendingChunks) {
+					rows += write(channel, pending.poll());
+					written = true;
+				}
+			}
+			while (!pending.isEmpty()) {
+				rows += write(channel, pending.poll());
+				written = true;
+			}
+			if (gzip && !written) {
+				write(channel, compress(new ChunkBuffer(0)).toByteBuffer());
+			}
+			return rows;
+		} finally {
+			for (CompletableFuture<Chunk> future : pending) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private long write(WritableByteChannel channel, CompletableFuture<Chunk> future) throws IOException {
+		Chunk chunk;
+		try {
+			chunk = future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		write(channel, chunk.bytes);
+		return chunk.rows;
+	}
+
+	private static void write(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	private Chunk encode(List<Enterprise> batch) {
+		try {
+			ChunkBuffer buffer = new ChunkBuffer(batch.size() * 256);
+			Format.RowEncoder encoder = format.encoder(columns, buffer);
+			Row row = new Row();
+			long rows = 0;
+			for (Enterprise enterprise : batch) {
+				row.enterprise = enterprise;
+				row.establishment = null;
+				rows += encode(encoder, row, enterprise.getAddresses(), enterprise.getActivities());
+				for (Establishment establishment : enterprise.getEstablishments()) {
+					row.establishment = establishment;
+					rows += encode(encoder, row, establishment.getAddresses(), establishment.getActivities());
+				}
+			}
+			encoder.finish();
+			return new Chunk(compress(buffer).toByteBuffer(), rows);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static long encode(Format.RowEncoder encoder, Row row, Collection<Address> addresses, Collection<Activity> activities) throws IOException {
+		if (addresses.isEmpty()) {
+			addresses = NO_ADDRESS;
+		}
+		if (activities.isEmpty()) {
+			activities = NO_ACTIVITY;
+		}
+		long rows = 0;
+		for (Address address : addresses) {
+			row.address = address;
+			for (Activity activity : activities) {
+				row.activity = activity;
+				encoder.row(row);
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	private ChunkBuffer compress(ChunkBuffer buffer) throws IOException {
+		if (!gzip) {
+			return buffer;
+		}
+		ChunkBuffer compressed = new ChunkBuffer(Math.max(64, buffer.size() / 4));
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed, 1 << 16)) {
+			buffer.writeTo(out);
+		}
+		return compressed;
+	}
+
+	private static final class Chunk {
+
+		private final ByteBuffer bytes;
+		private final long rows;
+
+		private Chunk(ByteBuffer bytes, long rows) {
+			this.bytes = bytes;
+			this.rows = rows;
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link BulkExporter} instances.
+	 */
+	public static class Builder {
+
+		private List<Column> columns = Arrays.<Column> asList(StandardColumn.values());
+		private Format format = Format.CSV;
+		private boolean gzip;
+		private int chunkSize = 1024;
+		private int maxPendingChunks = Runtime.getRuntime().availableProcessors() * 2;
+		private Executor executor = ForkJoinPool.commonPool();
+
+		private Builder() {
+		}
+
+		/**
+		 * @param columns
+		 *            the {@link Column} instances to export, in order, not
+		 *            empty; defaults to all {@link StandardColumn} values
+		 * @return this {@link Builder}
+		 */
+		public Builder withColumns(List<? extends Column> columns) {
+			if (columns == null || columns.isEmpty()) {
+				throw new IllegalArgumentException("columns can not be empty");
+			}
+			if (columns.contains(null)) {
+				throw new IllegalArgumentException("columns can not contain null");
+			}
+			this.columns = new ArrayList<>(columns);
+			return this;
+		}
+
+		/**
+		 * @param columns
+		 *            the {@link Column} instances to export, in order, not
+		 *            empty
+		 * @return this {@link Builder}
+		 */
+		public Builder withColumns(Column... columns) {
+			return withColumns(columns == null ? null : Arrays.asList(columns));
+		}
+
+		/**
+		 * @param format
+		 *            the output {@link Format}, defaults to {@link Format#CSV}
+		 * @return this {@link Builder}
+		 */
+		public Builder withFormat(Format format) {
+			if (format == null) {
+				throw new IllegalArgumentException("format is null");
+			}
+			this.format = format;
+			return this;
+		}
+
+		/**
+		 * @param gzip
+		 *            whether to gzip the output, defaults to {@code false}
+		 * @return this {@link Builder}
+		 */
+		public Builder withGzip(boolean gzip) {
+			this.gzip = gzip;
+			return this;
+		}
+
+		/**
+		 * @param chunkSize
+		 *            the number of enterprises encoded per task, positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withChunkSize(int chunkSize) {
+			if (chunkSize < 1) {
+				throw new IllegalArgumentException("chunkSize must be positive");
+			}
+			this.chunkSize = chunkSize;
+			return this;
+		}
+
+		/**
+		 * @param maxPendingChunks
+		 *            the maximum number of chunks being encoded or waiting to
+		 *            be written, bounding memory use; positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withMaxPendingChunks(int maxPendingChunks) {
+			if (maxPendingChunks < 1) {
+				throw new IllegalArgumentException("maxPendingChunks must be positive");
+			}
+			this.maxPendingChunks = maxPendingChunks;
+			return this;
+		}
+
+		/**
+		 * @param executor
+		 *            the {@link Executor} to encode chunks on, defaults to
+		 *            the common {@link ForkJoinPool}
+		 * @return this {@link Builder}
+		 */
+		public Builder withExecutor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("executor is null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		public BulkExporter build() {
+			return new BulkExporter(this);
+		}
+
+	}
+
+}
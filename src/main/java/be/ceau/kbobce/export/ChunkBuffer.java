@@ -0,0 +1,91 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer holding one encoded chunk of a bulk export. Unlike
+ * {@link java.io.ByteArrayOutputStream}, its methods are not synchronized,
+ * as each chunk is encoded by a single thread.
+ */
+final class ChunkBuffer extends OutputStream {
+
+	private byte[] buf;
+
+	private int count;
+
+	ChunkBuffer(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative");
+		}
+		this.buf = new byte[size];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity < 0) {
+			throw new OutOfMemoryError("chunk too large");
+		}
+		if (capacity > buf.length) {
+			int grown = buf.length << 1;
+			if (grown < 0) {
+				grown = Integer.MAX_VALUE - 8;
+			}
+			buf = Arrays.copyOf(buf, Math.max(capacity, Math.max(64, grown)));
+		}
+	}
+
+	@Override
+	public void write(int b) {
+		ensureCapacity(count + 1);
+		buf[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureCapacity(count + len);
+		System.arraycopy(b, off, buf, count, len);
+		count += len;
+	}
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Writes the bytes written so far to the given {@link OutputStream}.
+	 */
+	void writeTo(OutputStream out) throws IOException {
+		out.write(buf, 0, count);
+	}
+
+	/**
+	 * @return a {@link ByteBuffer} view of the bytes written so far
+	 */
+	ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(buf, 0, count);
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.util.function.Function;
+
+/**
+ * A named column of a bulk export, projecting a {@link Row} to a
+ * {@link String} value.
+ * 
+ * @see StandardColumn
+ */
+public interface Column {
+
+	/**
+	 * @return the name of this column, used as CSV header or JSON key
+	 */
+	String getName();
+
+	/**
+	 * @param row
+	 *            the current {@link Row}, not {@code null}
+	 * @return the value of this column for the given {@link Row}, or
+	 *         {@code null}
+	 */
+	String getValue(Row row);
+
+	/**
+	 * @param name
+	 *            name of the column, not blank
+	 * @param value
+	 *            function computing the value of the column, not {@code null}
+	 * @return a new {@link Column}
+	 */
+	static Column of(String name, Function<Row, String> value) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("name can not be blank");
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("value is null");
+		}
+		return new Column() {
+
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public String getValue(Row row) {
+				return value.apply(row);
+			}
+
+		};
+	}
+
+}
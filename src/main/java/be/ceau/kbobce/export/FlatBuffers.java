@@ -0,0 +1,289 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal FlatBuffers encoder, sufficient for Arrow IPC metadata. Objects are
+ * assembled as a tree of {@link Table} instances and serialized in one go,
+ * each object before the objects it refers to, so that all offsets point
+ * forward as required by the format.
+ */
+final class FlatBuffers {
+
+	private ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+	private FlatBuffers() {
+	}
+
+	/**
+	 * @param root
+	 *            the root {@link Table}, not {@code null}
+	 * @return the serialized buffer, a multiple of 8 bytes long
+	 */
+	static byte[] serialize(Table root) {
+		FlatBuffers flatBuffers = new FlatBuffers();
+		flatBuffers.ensure(4);
+		flatBuffers.buffer.putInt(0);
+		int position = flatBuffers.write(root);
+		flatBuffers.buffer.putInt(0, position);
+		flatBuffers.pad(8);
+		return Arrays.copyOf(flatBuffers.buffer.array(), flatBuffers.buffer.position());
+	}
+
+	/**
+	 * A table under construction. Fields are identified by their slot, the
+	 * zero-based declaration order in the schema.
+	 */
+	static final class Table {
+
+		private final List<Field> fields = new ArrayList<>();
+
+		Table addByte(int slot, int value) {
+			fields.add(new Field(slot, 1, value, null));
+			return this;
+		}
+
+		Table addShort(int slot, int value) {
+			fields.add(new Field(slot, 2, value, null));
+			return this;
+		}
+
+		Table addInt(int slot, int value) {
+			fields.add(new Field(slot, 4, value, null));
+			return this;
+		}
+
+		Table addLong(int slot, long value) {
+			fields.add(new Field(slot, 8, value, null));
+			return this;
+		}
+
+		Table addBoolean(int slot, boolean value) {
+			return addByte(slot, value ? 1 : 0);
+		}
+
+		/**
+		 * @param child
+		 *            a {@link Table}, {@link String}, {@link TableVector} or
+		 *            {@link StructVector}
+		 */
+		Table addOffset(int slot, Object child) {
+			fields.add(new Field(slot, 4, 0, child));
+			return this;
+		}
+
+		/**
+		 * Adds a union as its type field in {@code slot} and its value in
+		 * {@code slot + 1}.
+		 */
+		Table addUnion(int slot, int type, Table value) {
+			addByte(slot, type);
+			return addOffset(slot + 1, value);
+		}
+
+	}
+
+	/**
+	 * A vector of tables.
+	 */
+	static final class TableVector {
+
+		private final List<Table> tables;
+
+		TableVector(List<Table> tables) {
+			this.tables = tables;
+		}
+
+	}
+
+	/**
+	 * A vector of structs, given as little-endian encoded bytes.
+	 */
+	static final class StructVector {
+
+		private final int count;
+		private final int alignment;
+		private final byte[] bytes;
+
+		StructVector(int count, int alignment, byte[] bytes) {
+			this.count = count;
+			this.alignment = alignment;
+			this.bytes = bytes;
+		}
+
+	}
+
+	private static final class Field {
+
+		private final int slot;
+		private final int size;
+		private final long value;
+		private final Object child;
+
+		private Field(int slot, int size, long value, Object child) {
+			this.slot = slot;
+			this.size = size;
+			this.value = value;
+			this.child = child;
+		}
+
+	}
+
+	private int write(Object object) {
+		if (object instanceof Table) {
+			return writeTable((Table) object);
+		}
+		if (object instanceof String) {
+			return writeString((String) object);
+		}
+		if (object instanceof TableVector) {
+			return writeTableVector((TableVector) object);
+		}
+		if (object instanceof StructVector) {
+			return writeStructVector((StructVector) object);
+		}
+		throw new IllegalArgumentException("unsupported object " + object);
+	}
+
+	private int writeTable(Table table) {
+		List<Field> fields = new ArrayList<>(table.fields);
+		fields.sort((a, b) -> Integer.compare(b.size, a.size));
+		int slots = 0;
+		int alignment = 4;
+		for (Field field : fields) {
+			slots = Math.max(slots, field.slot + 1);
+			alignment = Math.max(alignment, field.size);
+		}
+		int[] offsets = new int[fields.size()];
+		int size = 4;
+		for (int i = 0; i < offsets.length; i++) {
+			size = align(size, fields.get(i).size);
+			offsets[i] = size;
+			size += fields.get(i).size;
+		}
+		size = align(size, 4);
+
+		int vtableSize = 4 + 2 * slots;
+		int start = align(align(buffer.position(), 2) + vtableSize, alignment);
+		ensure(start - buffer.position() + size);
+		// the buffer is zero-filled ahead of its position, so padding needs no writes
+		buffer.position(start - vtableSize);
+		short[] vtable = new short[slots];
+		for (int i = 0; i < offsets.length; i++) {
+			vtable[fields.get(i).slot] = (short) offsets[i];
+		}
+		buffer.putShort((short) vtableSize);
+		buffer.putShort((short) size);
+		for (short offset : vtable) {
+			buffer.putShort(offset);
+		}
+		buffer.putInt(start, vtableSize);
+		for (int i = 0; i < offsets.length; i++) {
+			Field field = fields.get(i);
+			int position = start + offsets[i];
+			switch (field.size) {
+			case 1:
+				buffer.put(position, (byte) field.value);
+				break;
+			case 2:
+				buffer.putShort(position, (short) field.value);
+				break;
+			case 4:
+				buffer.putInt(position, (int) field.value);
+				break;
+			default:
+				buffer.putLong(position, field.value);
+				break;
+			}
+		}
+		buffer.position(start + size);
+		for (int i = 0; i < offsets.length; i++) {
+			Field field = fields.get(i);
+			if (field.child != null) {
+				int position = start + offsets[i];
+				int child = write(field.child);
+				buffer.putInt(position, child - position);
+			}
+		}
+		return start;
+	}
+
+	private int writeString(String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		pad(4);
+		ensure(5 + bytes.length);
+		int start = buffer.position();
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+		buffer.put((byte) 0);
+		return start;
+	}
+
+	private int writeTableVector(TableVector vector) {
+		pad(4);
+		int size = vector.tables.size();
+		ensure(4 + 4 * size);
+		int start = buffer.position();
+		buffer.putInt(size);
+		buffer.position(start + 4 + 4 * size);
+		for (int i = 0; i < size; i++) {
+			int position = start + 4 + 4 * i;
+			int child = write(vector.tables.get(i));
+			buffer.putInt(position, child - position);
+		}
+		return start;
+	}
+
+	private int writeStructVector(StructVector vector) {
+		int start = align(buffer.position() + 4, vector.alignment) - 4;
+		ensure(start - buffer.position() + 4 + vector.bytes.length);
+		while (buffer.position() < start) {
+			buffer.put((byte) 0);
+		}
+		buffer.putInt(vector.count);
+		buffer.put(vector.bytes);
+		return start;
+	}
+
+	private void pad(int alignment) {
+		int target = align(buffer.position(), alignment);
+		ensure(target - buffer.position());
+		while (buffer.position() < target) {
+			buffer.put((byte) 0);
+		}
+	}
+
+	private void ensure(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+
+	static int align(int value, int alignment) {
+		return (value + alignment - 1) & -alignment;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import be.ceau.kbobce.json.JsonOutput;
+
+/**
+ * Output formats of a bulk export, both encoded as UTF-8.
+ */
+public enum Format {
+
+	/**
+	 * RFC 4180 comma-separated values with a header line. Absent values are
+	 * written as empty fields.
+	 */
+	CSV {
+
+		@Override
+		RowEncoder encoder(List<Column> columns, ChunkBuffer buffer) {
+			return new RowEncoder() {
+
+				@Override
+				void header() {
+					for (int i = 0; i < columns.size(); i++) {
+						if (i > 0) {
+							buffer.write(',');
+						}
+						field(columns.get(i).getName());
+					}
+					buffer.write('\n');
+				}
+
+				@Override
+				void row(Row row) {
+					for (int i = 0; i < columns.size(); i++) {
+						if (i > 0) {
+							buffer.write(',');
+						}
+						field(columns.get(i).getValue(row));
+					}
+					buffer.write('\n');
+				}
+
+				private void field(String value) {
+					if (value == null || value.isEmpty()) {
+						return;
+					}
+					byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+					if (!needsQuotes(bytes)) {
+						buffer.write(bytes, 0, bytes.length);
+						return;
+					}
+					buffer.write('"');
+					for (byte b : bytes) {
+						if (b == '"') {
+							buffer.write('"');
+						}
+						buffer.write(b);
+					}
+					buffer.write('"');
+				}
+
+			};
+		}
+
+	},
+
+	/**
+	 * Newline-delimited JSON, one object per row. Absent values are written
+	 * as {@code null}.
+	 */
+	NDJSON {
+
+		@Override
+		RowEncoder encoder(List<Column> columns, ChunkBuffer buffer) {
+			byte[][] names = new byte[columns.size()][];
+			for (int i = 0; i < names.length; i++) {
+				byte[] name = JsonOutput.encode(columns.get(i).getName());
+				names[i] = new byte[name.length + 2];
+				names[i][0] = i == 0 ? (byte) '{' : (byte) ',';
+				System.arraycopy(name, 0, names[i], 1, name.length);
+				names[i][name.length + 1] = ':';
+			}
+			JsonOutput json = new JsonOutput(buffer, 8192);
+			return new RowEncoder() {
+
+				@Override
+				void row(Row row) throws IOException {
+					for (int i = 0; i < names.length; i++) {
+						json.raw(names[i]);
+						json.string(columns.get(i).getValue(row));
+					}
+					json.raw((byte) '}');
+					json.raw((byte) '\n');
+				}
+
+				@Override
+				void finish() throws IOException {
+					json.flush();
+				}
+
+			};
+		}
+
+	};
+
+	/**
+	 * @param columns
+	 *            the exported {@link Column} instances
+	 * @param buffer
+	 *            the {@link ChunkBuffer} to encode into
+	 * @return a new {@link RowEncoder} for a single chunk
+	 */
+	abstract RowEncoder encoder(List<Column> columns, ChunkBuffer buffer);
+
+	private static boolean needsQuotes(byte[] bytes) {
+		for (byte b : bytes) {
+			if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Encodes the rows of one chunk.
+	 */
+	abstract static class RowEncoder {
+
+		/**
+		 * Encodes the header, if the format has one.
+		 */
+		void header() throws IOException {
+		}
+
+		abstract void row(Row row) throws IOException;
+
+		/**
+		 * Flushes pending bytes to the {@link ChunkBuffer}.
+		 */
+		void finish() throws IOException {
+		}
+
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * One denormalized row of a bulk export: an {@link Enterprise}, optionally
+ * one of its {@link Establishment} instances, and one {@link Address} and one
+ * {@link Activity} of the enterprise or of that establishment.
+ * <p>
+ * Instances are reused from row to row and must not be retained.
+ */
+public final class Row {
+
+	Enterprise enterprise;
+	Establishment establishment;
+	Address address;
+	Activity activity;
+
+	Row() {
+	}
+
+	/**
+	 * @return the {@link Enterprise} of this row, never {@code null}
+	 */
+	public Enterprise getEnterprise() {
+		return enterprise;
+	}
+
+	/**
+	 * @return the {@link Establishment} of this row, or {@code null} if this
+	 *         row describes the enterprise itself
+	 */
+	public Establishment getEstablishment() {
+		return establishment;
+	}
+
+	/**
+	 * @return the {@link Address} of this row, or {@code null} if the
+	 *         enterprise or establishment has no addresses
+	 */
+	public Address getAddress() {
+		return address;
+	}
+
+	/**
+	 * @return the {@link Activity} of this row, or {@code null} if the
+	 *         enterprise or establishment has no activities
+	 */
+	public Activity getActivity() {
+		return activity;
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.Nace;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+
+/**
+ * The columns of a bulk export that map directly onto entity fields. Codes
+ * are exported as their code, dates in ISO-8601 format.
+ */
+public enum StandardColumn implements Column {
+
+	ENTERPRISE_NUMBER("enterpriseNumber", row -> row.getEnterprise().getEnterpriseNumber().getValue()),
+	STATUS("status", row -> code(row.getEnterprise().getStatus())),
+	JURIDICAL_SITUATION("juridicalSituation", row -> code(row.getEnterprise().getJuridicalSituation())),
+	TYPE_OF_ENTERPRISE("typeOfEnterprise", row -> code(row.getEnterprise().getTypeOfEnterprise())),
+	JURIDICAL_FORM("juridicalForm", row -> code(row.getEnterprise().getJuridicalForm())),
+	ENTERPRISE_START_DATE("enterpriseStartDate", row -> date(row.getEnterprise().getStartDate())),
+	ESTABLISHMENT_NUMBER("establishmentNumber", row -> row.getEstablishment() == null ? null : row.getEstablishment().getEstablishmentNumber().getValue()),
+	ESTABLISHMENT_START_DATE("establishmentStartDate", row -> row.getEstablishment() == null ? null : date(row.getEstablishment().getStartDate())),
+	TYPE_OF_ADDRESS("typeOfAddress", row -> row.getAddress() == null ? null : code(row.getAddress().getTypeOfAddress())),
+	COUNTRY_NL("countryNL", address(Address::getCountryNL)),
+	COUNTRY_FR("countryFR", address(Address::getCountryFR)),
+	ZIPCODE("zipcode", address(Address::getZipcode)),
+	MUNICIPALITY_NL("municipalityNL", address(Address::getMunicipalityNL)),
+	MUNICIPALITY_FR("municipalityFR", address(Address::getMunicipalityFR)),
+	STREET_NL("streetNL", address(Address::getStreetNL)),
+	STREET_FR("streetFR", address(Address::getStreetFR)),
+	HOUSE_NUMBER("houseNumber", address(Address::getHouseNumber)),
+	BOX("box", address(Address::getBox)),
+	EXTRA_ADDRESS_INFO("extraAddressInfo", address(Address::getExtraAddressInfo)),
+	DATE_STRIKING_OFF("dateStrikingOff", row -> row.getAddress() == null ? null : date(row.getAddress().getDateStrikingOff())),
+	ACTIVITY_GROUP("activityGroup", activity(Activity::getActivityGroup)),
+	NACE("nace", activity(Activity::getNace)),
+	NACE_VERSION("naceVersion", row -> row.getActivity() == null || row.getActivity().getNace() == null ? null : versionOf(row.getActivity().getNace())),
+	CLASSIFICATION("classification", activity(Activity::getClassification));
+
+	private final String name;
+	private final Function<Row, String> value;
+
+	private StandardColumn(String name, Function<Row, String> value) {
+		this.name = name;
+		this.value = value;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String getValue(Row row) {
+		return value.apply(row);
+	}
+
+	private static String code(Code code) {
+		return code == null ? null : code.getCode();
+	}
+
+	private static String date(LocalDate date) {
+		return date == null ? null : date.toString();
+	}
+
+	private static String versionOf(Nace nace) {
+		return Integer.toString(nace.getYear());
+	}
+
+	private static Function<Row, String> address(Function<Address, String> field) {
+		return row -> row.getAddress() == null ? null : field.apply(row.getAddress());
+	}
+
+	private static Function<Row, String> activity(Function<Activity, ? extends Code> field) {
+		return row -> row.getActivity() == null ? null : code(field.apply(row.getActivity()));
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.io.Serializable;
+
+/**
+ * A Bloom filter over {@code long} keys. A negative answer from
+ * {@link #mightContain(long)} is always correct, a positive answer is wrong
+ * with a probability close to the false positive rate the filter was sized
+ * for.
+ * <p>
+ * Instances are not thread-safe while keys are being added. Once fully
+ * populated and safely published, concurrent calls to
+ * {@link #mightContain(long)} are safe.
+ */
+public class BloomFilter implements Serializable {
+
+	private static final long serialVersionUID = 2591378802713560047L;
+
+	private final long[] bits;
+
+	private final long numBits;
+
+	private final int numHashes;
+
+	/**
+	 * Construct a new, empty {@link BloomFilter}.
+	 * 
+	 * @param expectedInsertions
+	 *            the number of keys that will be added, at least 1
+	 * @param falsePositiveRate
+	 *            the desired false positive rate, strictly between 0 and 1
+	 * @throws IllegalArgumentException
+	 *             if an argument is out of range
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		if (expectedInsertions < 1) {
+			throw new IllegalArgumentException("expectedInsertions must be at least 1");
+		}
+		if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+		long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (Math.max(64L, optimalBits) + 63) >>> 6);
+		this.bits = new long[words];
+		this.numBits = (long) words << 6;
+		this.numHashes = (int) Math.max(1, Math.min(30, Math.round((double) numBits / expectedInsertions * Math.log(2))));
+	}
+
+	/**
+	 * Add a key to this filter.
+	 * 
+	 * @param key
+	 *            any {@code long}
+	 */
+	public void put(long key) {
+		long h1 = mix(key);
+		long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+		for (int i = 0; i < numHashes; i++) {
+			long index = Long.remainderUnsigned(h1, numBits);
+			bits[(int) (index >>> 6)] |= 1L << index;
+			h1 += h2;
+		}
+	}
+
+	/**
+	 * Test whether a key may have been added to this filter.
+	 * 
+	 * @param key
+	 *            any {@code long}
+	 * @return {@code false} if the key was certainly never added, {@code true}
+	 *         if it probably was
+	 */
+	public boolean mightContain(long key) {
+		long h1 = mix(key);
+		long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+		for (int i = 0; i < numHashes; i++) {
+			long index = Long.remainderUnsigned(h1, numBits);
+			if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+				return false;
+			}
+			h1 += h2;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the size of this filter in bits
+	 */
+	public long getNumBits() {
+		return numBits;
+	}
+
+	/**
+	 * @return the number of bits set or tested per key
+	 */
+	public int getNumHashes() {
+		return numHashes;
+	}
+
+	/**
+	 * Estimates the false positive rate of this filter, given the number of
+	 * bits currently set.
+	 * 
+	 * @return a {@code double} between 0 and 1
+	 */
+	public double estimateFalsePositiveRate() {
+		long set = 0;
+		for (long word : bits) {
+			set += Long.bitCount(word);
+		}
+		return Math.pow((double) set / numBits, numHashes);
+	}
+
+	/**
+	 * Finalizer of the 64 bit MurmurHash3 hash, spreading the entropy of the
+	 * input over all bits of the output.
+	 */
+	private static long mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		key *= 0xC4CEB9FE1A85EC53L;
+		key ^= key >>> 33;
+		return key;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("BloomFilter [numBits=")
+				.append(numBits)
+				.append(", numHashes=")
+				.append(numHashes)
+				.append("]")
+				.toString();
+	}
+
+}
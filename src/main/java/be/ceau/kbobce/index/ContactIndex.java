@@ -0,0 +1,312 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import be.ceau.kbobce.entities.Contact;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * Reverse index from normalized {@link Contact} values to the ordinals, in a
+ * {@link RegisterGraph}, of the enterprises and establishments that list
+ * them.
+ * <p>
+ * Contacts of type {@code TEL} and {@code FAX} are indexed as
+ * {@link Kind#PHONE}, {@code EMAIL} as {@link Kind#EMAIL} and
+ * {@link Kind#DOMAIN}, and {@code WEB} as {@link Kind#DOMAIN}. Contacts of an
+ * establishment are indexed under the establishment only; use
+ * {@link RegisterGraph#parent(int)} to reach its enterprise.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class ContactIndex {
+
+	/**
+	 * The kinds of normalized contact values.
+	 */
+	public enum Kind {
+
+		/**
+		 * Phone and fax numbers in E.164 format, such as {@code +3292661111}.
+		 * Numbers without country code are taken to be Belgian.
+		 */
+		PHONE {
+			@Override
+			public String normalize(String value) {
+				return normalizePhone(value);
+			}
+		},
+
+		/**
+		 * Email addresses, lower-cased.
+		 */
+		EMAIL {
+			@Override
+			public String normalize(String value) {
+				return normalizeEmail(value);
+			}
+		},
+
+		/**
+		 * Registrable domains of websites and email addresses, such as
+		 * {@code example.be} for {@code https://www.shop.example.be/contact}.
+		 */
+		DOMAIN {
+			@Override
+			public String normalize(String value) {
+				return registrableDomain(value);
+			}
+		};
+
+		/**
+		 * @param value
+		 *            a raw contact value, can be {@code null}
+		 * @return the normalized value, or {@code null} if the value can not
+		 *         be normalized
+		 */
+		public abstract String normalize(String value);
+
+	}
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * Second-level public suffixes under which domains are registered one
+	 * level deeper. Not exhaustive; covers the suffixes common in the
+	 * dataset.
+	 */
+	private static final Set<String> PUBLIC_SUFFIXES = new HashSet<>(Arrays.asList(
+			"co.uk", "org.uk", "ac.uk", "gov.uk", "me.uk", "ltd.uk", "plc.uk",
+			"com.au", "net.au", "org.au", "co.nz", "co.za", "co.jp", "co.kr", "co.in",
+			"com.br", "com.cn", "com.tr", "com.pl", "com.mx", "com.ar", "com.sg", "com.hk"));
+
+	private final Map<String, int[]>[] enterprises;
+	private final Map<String, int[]>[] establishments;
+
+	private ContactIndex(Map<String, int[]>[] enterprises, Map<String, int[]>[] establishments) {
+		this.enterprises = enterprises;
+		this.establishments = establishments;
+	}
+
+	/**
+	 * @param graph
+	 *            the {@link RegisterGraph} whose contacts to index, not
+	 *            {@code null}
+	 * @return a new {@link ContactIndex}
+	 */
+	public static ContactIndex of(RegisterGraph graph) {
+		PostingLists[] enterprises = postings();
+		PostingLists[] establishments = postings();
+		for (int e = 0; e < graph.enterpriseCount(); e++) {
+			Enterprise enterprise = graph.enterprise(e);
+			for (Contact contact : enterprise.getContacts()) {
+				add(enterprises, contact, e);
+			}
+		}
+		for (int s = 0; s < graph.establishmentCount(); s++) {
+			Establishment establishment = graph.establishment(s);
+			for (Contact contact : establishment.getContacts()) {
+				add(establishments, contact, s);
+			}
+		}
+		return new ContactIndex(compact(enterprises), compact(establishments));
+	}
+
+	private static void add(PostingLists[] postings, Contact contact, int ordinal) {
+		String type = contact.getContactType() == null ? "" : contact.getContactType().getCode();
+		String value = contact.getValue();
+		switch (type) {
+		case "TEL":
+		case "FAX":
+			postings[Kind.PHONE.ordinal()].add(normalizePhone(value), ordinal);
+			break;
+		case "EMAIL":
+			postings[Kind.EMAIL.ordinal()].add(normalizeEmail(value), ordinal);
+			postings[Kind.DOMAIN.ordinal()].add(registrableDomain(value), ordinal);
+			break;
+		case "WEB":
+			postings[Kind.DOMAIN.ordinal()].add(registrableDomain(value), ordinal);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * @param kind
+	 *            the {@link Kind} of value, not {@code null}
+	 * @param value
+	 *            a raw value, normalized before lookup, can be {@code null}
+	 * @return the sorted ordinals of the enterprises listing the value, never
+	 *         {@code null}
+	 */
+	public int[] enterprises(Kind kind, String value) {
+		return lookup(enterprises, kind, value);
+	}
+
+	/**
+	 * @param kind
+	 *            the {@link Kind} of value, not {@code null}
+	 * @param value
+	 *            a raw value, normalized before lookup, can be {@code null}
+	 * @return the sorted ordinals of the establishments listing the value,
+	 *         never {@code null}
+	 */
+	public int[] establishments(Kind kind, String value) {
+		return lookup(establishments, kind, value);
+	}
+
+	private static int[] lookup(Map<String, int[]>[] maps, Kind kind, String value) {
+		String normalized = kind.normalize(value);
+		if (normalized == null) {
+			return EMPTY;
+		}
+		int[] ordinals = maps[kind.ordinal()].get(normalized);
+		return ordinals == null ? EMPTY : ordinals.clone();
+	}
+
+	/**
+	 * @param value
+	 *            a raw phone or fax number, can be {@code null}
+	 * @return the number in E.164 format, or {@code null} if it has too few or
+	 *         too many digits
+	 */
+	static String normalizePhone(String value) {
+		if (value == null) {
+			return null;
+		}
+		StringBuilder digits = new StringBuilder(16);
+		boolean international = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits.append(c);
+			} else if (c == '+' && digits.length() == 0) {
+				international = true;
+			}
+		}
+		if (!international && digits.length() > 2 && digits.charAt(0) == '0' && digits.charAt(1) == '0') {
+			digits.delete(0, 2);
+			international = true;
+		}
+		if (!international) {
+			if (digits.length() > 1 && digits.charAt(0) == '0') {
+				digits.replace(0, 1, "32");
+			} else if (digits.length() < 10 || digits.charAt(0) != '3' || digits.charAt(1) != '2') {
+				return null;
+			}
+		}
+		if (digits.length() >= 2 && digits.charAt(0) == '3' && digits.charAt(1) == '2') {
+			if (digits.length() > 2 && digits.charAt(2) == '0') {
+				digits.deleteCharAt(2);
+			}
+			if (digits.length() < 10 || digits.length() > 11) {
+				return null;
+			}
+		} else if (digits.length() < 8 || digits.length() > 15) {
+			return null;
+		}
+		return digits.insert(0, '+').toString();
+	}
+
+	/**
+	 * @param value
+	 *            a raw email address, can be {@code null}
+	 * @return the trimmed, lower-cased address, or {@code null} if it is not
+	 *         of the form {@code local@domain}
+	 */
+	static String normalizeEmail(String value) {
+		if (value == null) {
+			return null;
+		}
+		String email = value.trim().toLowerCase(Locale.ROOT);
+		if (email.startsWith("mailto:")) {
+			email = email.substring(7);
+		}
+		int at = email.indexOf('@');
+		if (at < 1 || at != email.lastIndexOf('@') || at == email.length() - 1 || email.indexOf(' ') >= 0) {
+			return null;
+		}
+		return email;
+	}
+
+	/**
+	 * @param value
+	 *            a raw website or email address, can be {@code null}
+	 * @return the registrable domain, or {@code null} if there is none
+	 */
+	static String registrableDomain(String value) {
+		if (value == null) {
+			return null;
+		}
+		String host = value.trim().toLowerCase(Locale.ROOT);
+		int at = host.lastIndexOf('@');
+		if (at >= 0) {
+			host = host.substring(at + 1);
+		} else {
+			int scheme = host.indexOf("://");
+			if (scheme >= 0) {
+				host = host.substring(scheme + 3);
+			}
+		}
+		for (int i = 0; i < host.length(); i++) {
+			char c = host.charAt(i);
+			if (c == '/' || c == ':' || c == '?' || c == '#') {
+				host = host.substring(0, i);
+				break;
+			}
+		}
+		while (host.endsWith(".")) {
+			host = host.substring(0, host.length() - 1);
+		}
+		int last = host.lastIndexOf('.');
+		if (last < 1 || last == host.length() - 1) {
+			return null;
+		}
+		int second = host.lastIndexOf('.', last - 1);
+		if (second > 0 && PUBLIC_SUFFIXES.contains(host.substring(second + 1))) {
+			second = host.lastIndexOf('.', second - 1);
+		} else if (PUBLIC_SUFFIXES.contains(host)) {
+			return null;
+		}
+		String domain = host.substring(second + 1);
+		return domain.charAt(0) == '.' ? null : domain;
+	}
+
+	private static PostingLists[] postings() {
+		PostingLists[] postings = new PostingLists[Kind.values().length];
+		for (int i = 0; i < postings.length; i++) {
+			postings[i] = new PostingLists();
+		}
+		return postings;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, int[]>[] compact(PostingLists[] postings) {
+		Map<String, int[]>[] maps = (Map<String, int[]>[]) new Map<?, ?>[postings.length];
+		for (int i = 0; i < postings.length; i++) {
+			maps[i] = postings[i].compact();
+		}
+		return maps;
+	}
+
+}
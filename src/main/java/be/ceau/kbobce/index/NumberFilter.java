@@ -0,0 +1,170 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.io.Serializable;
+
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+/**
+ * Compact existence check for {@link EnterpriseNumber} and
+ * {@link EstablishmentNumber} values. A {@code false} answer means the number
+ * is certainly not part of the data the filter was built from, so lookups for
+ * unknown numbers can be rejected without consulting the full dataset. A
+ * {@code true} answer is wrong with a probability close to the configured
+ * false positive rate. Create new instances by obtaining a {@link Builder}
+ * from {@link #builder(long, long, double)}.
+ */
+public class NumberFilter implements Serializable {
+
+	private static final long serialVersionUID = -1585960839270218370L;
+
+	/**
+	 * @param expectedEnterprises
+	 *            the number of {@link EnterpriseNumber} values that will be
+	 *            added, at least 1
+	 * @param expectedEstablishments
+	 *            the number of {@link EstablishmentNumber} values that will be
+	 *            added, at least 1
+	 * @param falsePositiveRate
+	 *            the desired false positive rate, strictly between 0 and 1
+	 * @return a new {@link Builder} instance for construction of a
+	 *         {@link NumberFilter}
+	 * @throws IllegalArgumentException
+	 *             if an argument is out of range
+	 */
+	public static Builder builder(long expectedEnterprises, long expectedEstablishments, double falsePositiveRate) {
+		return new Builder(expectedEnterprises, expectedEstablishments, falsePositiveRate);
+	}
+
+	private final BloomFilter enterpriseNumbers;
+
+	private final BloomFilter establishmentNumbers;
+
+	private NumberFilter(BloomFilter enterpriseNumbers, BloomFilter establishmentNumbers) {
+		this.enterpriseNumbers = enterpriseNumbers;
+		this.establishmentNumbers = establishmentNumbers;
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, can be {@code null}
+	 * @return {@code false} if the argument is {@code null} or was certainly
+	 *         not added to this filter, {@code true} if it probably was
+	 */
+	public boolean mightContain(EnterpriseNumber enterpriseNumber) {
+		return enterpriseNumber != null && enterpriseNumbers.mightContain(enterpriseNumber.toLong());
+	}
+
+	/**
+	 * @param establishmentNumber
+	 *            an {@link EstablishmentNumber}, can be {@code null}
+	 * @return {@code false} if the argument is {@code null} or was certainly
+	 *         not added to this filter, {@code true} if it probably was
+	 */
+	public boolean mightContain(EstablishmentNumber establishmentNumber) {
+		return establishmentNumber != null && establishmentNumbers.mightContain(establishmentNumber.toLong());
+	}
+
+	/**
+	 * @return the filter over {@link EnterpriseNumber} values, never
+	 *         {@code null}
+	 */
+	public BloomFilter getEnterpriseNumbers() {
+		return enterpriseNumbers;
+	}
+
+	/**
+	 * @return the filter over {@link EstablishmentNumber} values, never
+	 *         {@code null}
+	 */
+	public BloomFilter getEstablishmentNumbers() {
+		return establishmentNumbers;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("NumberFilter [enterpriseNumbers=")
+				.append(enterpriseNumbers)
+				.append(", establishmentNumbers=")
+				.append(establishmentNumbers)
+				.append("]")
+				.toString();
+	}
+
+	/**
+	 * Builder class for new {@link NumberFilter} instances. Not thread-safe:
+	 * populate from a single thread, then call {@link #build()}.
+	 */
+	public static class Builder {
+
+		private BloomFilter enterpriseNumbers;
+
+		private BloomFilter establishmentNumbers;
+
+		private Builder(long expectedEnterprises, long expectedEstablishments, double falsePositiveRate) {
+			this.enterpriseNumbers = new BloomFilter(expectedEnterprises, falsePositiveRate);
+			this.establishmentNumbers = new BloomFilter(expectedEstablishments, falsePositiveRate);
+		}
+
+		public Builder add(EnterpriseNumber enterpriseNumber) {
+			enterpriseNumbers.put(enterpriseNumber.toLong());
+			return this;
+		}
+
+		public Builder add(EstablishmentNumber establishmentNumber) {
+			establishmentNumbers.put(establishmentNumber.toLong());
+			return this;
+		}
+
+		/**
+		 * Adds the number of the given {@link Enterprise} and the numbers of
+		 * all of its {@link Establishment} instances.
+		 * 
+		 * @param enterprise
+		 *            an {@link Enterprise}, not {@code null}
+		 * @return this {@link Builder}
+		 */
+		public Builder add(Enterprise enterprise) {
+			add(enterprise.getEnterpriseNumber());
+			for (Establishment establishment : enterprise.getEstablishments()) {
+				add(establishment.getEstablishmentNumber());
+			}
+			return this;
+		}
+
+		/**
+		 * @return a new {@link NumberFilter}
+		 * @throws IllegalStateException
+		 *             if this {@link Builder} was already used
+		 */
+		public NumberFilter build() {
+			if (enterpriseNumbers == null) {
+				throw new IllegalStateException("build() can only be called once");
+			}
+			NumberFilter filter = new NumberFilter(enterpriseNumbers, establishmentNumbers);
+			this.enterpriseNumbers = null;
+			this.establishmentNumbers = null;
+			return filter;
+		}
+
+	}
+
+}
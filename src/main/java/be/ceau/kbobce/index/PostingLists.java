@@ -0,0 +1,96 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds posting lists: for each key, the ordinals it was added with, in the
+ * order they were added. Ordinals are expected in ascending order, and an
+ * ordinal repeated for the same key is added once, so the lists come out
+ * sorted and distinct.
+ * <p>
+ * While building, each list is an {@code int[]} whose first element holds
+ * its length, grown by doubling; {@link #compact()} trims them to exact
+ * size. Keys added with more than {@code maxSize} ordinals are dropped.
+ * Instances are not thread-safe.
+ */
+public final class PostingLists {
+
+	private final Map<String, int[]> lists = new HashMap<>();
+
+	private final int maxSize;
+
+	/**
+	 * Creates posting lists without a size limit.
+	 */
+	public PostingLists() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxSize
+	 *            the maximum number of ordinals of a key for that key to be
+	 *            kept, positive
+	 */
+	public PostingLists(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @param key
+	 *            a key, ignored if {@code null} or empty
+	 * @param ordinal
+	 *            an ordinal, not less than those added before for this key
+	 */
+	public void add(String key, int ordinal) {
+		if (key == null || key.isEmpty()) {
+			return;
+		}
+		int[] list = lists.get(key);
+		if (list == null) {
+			list = new int[4];
+			lists.put(key, list);
+		} else if (list[0] > maxSize || list[list[0]] == ordinal) {
+			return;
+		} else if (list[0] == list.length - 1) {
+			list = Arrays.copyOf(list, list.length * 2);
+			lists.put(key, list);
+		}
+		list[++list[0]] = ordinal;
+	}
+
+	/**
+	 * @return a new {@link Map} from each key with at most {@code maxSize}
+	 *         ordinals to its ordinals
+	 */
+	public Map<String, int[]> compact() {
+		Map<String, int[]> map = new HashMap<>(lists.size() * 4 / 3 + 1);
+		for (Map.Entry<String, int[]> entry : lists.entrySet()) {
+			int[] list = entry.getValue();
+			if (list[0] <= maxSize) {
+				map.put(entry.getKey(), Arrays.copyOfRange(list, 1, list[0] + 1));
+			}
+		}
+		return map;
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+/**
+ * Dense ordinal numbering of a set of enterprises and their establishments,
+ * with their relations as {@link Relation} arrays.
+ * <p>
+ * Enterprise ordinals follow the order of {@link EnterpriseNumber#toLong()}.
+ * Establishment ordinals follow the order of their enterprise and, within an
+ * enterprise, of {@link EstablishmentNumber#toLong()}, so the establishments
+ * of enterprise {@code e} are exactly the ordinals
+ * {@code establishments().start(e)} to {@code establishments().end(e)}.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class RegisterGraph {
+
+	private final long[] enterpriseKeys;
+	private final Enterprise[] enterprises;
+	private final long[] establishmentKeys;
+	private final int[] establishmentOrdinalsByKey;
+	private final int[] establishmentParents;
+	private final Relation<Establishment> establishments;
+	private final Relation<Address> enterpriseAddresses;
+	private final Relation<Activity> enterpriseActivities;
+	private final Relation<Address> establishmentAddresses;
+	private final Relation<Activity> establishmentActivities;
+
+	private RegisterGraph(Enterprise[] enterprises) {
+		this.enterprises = enterprises;
+		this.enterpriseKeys = new long[enterprises.length];
+		int[] establishmentOffsets = new int[enterprises.length + 1];
+		for (int e = 0; e < enterprises.length; e++) {
+			enterpriseKeys[e] = enterprises[e].getEnterpriseNumber().toLong();
+			if (e > 0 && enterpriseKeys[e] == enterpriseKeys[e - 1]) {
+				throw new IllegalArgumentException("duplicate enterprise " + enterprises[e].getEnterpriseNumber());
+			}
+			establishmentOffsets[e + 1] = establishmentOffsets[e] + enterprises[e].getEstablishments().size();
+		}
+
+		Establishment[] establishmentArray = new Establishment[establishmentOffsets[enterprises.length]];
+		this.establishmentParents = new int[establishmentArray.length];
+		for (int e = 0; e < enterprises.length; e++) {
+			int from = establishmentOffsets[e];
+			int i = from;
+			for (Establishment establishment : enterprises[e].getEstablishments()) {
+				establishmentArray[i++] = establishment;
+			}
+			Arrays.sort(establishmentArray, from, establishmentOffsets[e + 1], Comparator.comparingLong(establishment -> establishment.getEstablishmentNumber().toLong()));
+			Arrays.fill(establishmentParents, from, establishmentOffsets[e + 1], e);
+		}
+		this.establishments = new Relation<>(establishmentOffsets, establishmentArray);
+
+		Integer[] byKey = new Integer[establishmentArray.length];
+		for (int i = 0; i < byKey.length; i++) {
+			byKey[i] = i;
+		}
+		Arrays.sort(byKey, Comparator.comparingLong(i -> establishmentArray[i].getEstablishmentNumber().toLong()));
+		this.establishmentKeys = new long[byKey.length];
+		this.establishmentOrdinalsByKey = new int[byKey.length];
+		for (int i = 0; i < byKey.length; i++) {
+			establishmentOrdinalsByKey[i] = byKey[i];
+			establishmentKeys[i] = establishmentArray[byKey[i]].getEstablishmentNumber().toLong();
+			if (i > 0 && establishmentKeys[i] == establishmentKeys[i - 1]) {
+				throw new IllegalArgumentException("duplicate establishment " + establishmentArray[byKey[i]].getEstablishmentNumber());
+			}
+		}
+
+		this.enterpriseAddresses = relation(enterprises, Enterprise::getAddresses);
+		this.enterpriseActivities = relation(enterprises, Enterprise::getActivities);
+		this.establishmentAddresses = relation(establishmentArray, Establishment::getAddresses);
+		this.establishmentActivities = relation(establishmentArray, Establishment::getActivities);
+	}
+
+	private static <S, T> Relation<T> relation(S[] sources, Function<S, Collection<T>> children) {
+		int[] offsets = new int[sources.length + 1];
+		for (int s = 0; s < sources.length; s++) {
+			offsets[s + 1] = offsets[s] + children.apply(sources[s]).size();
+		}
+		Object[] targets = new Object[offsets[sources.length]];
+		for (int s = 0; s < sources.length; s++) {
+			int i = offsets[s];
+			for (T child : children.apply(sources[s])) {
+				targets[i++] = child;
+			}
+		}
+		return new Relation<>(offsets, targets);
+	}
+
+	/**
+	 * @param enterprises
+	 *            the {@link Enterprise} instances to number, not {@code null}
+	 * @return a new {@link RegisterGraph}
+	 * @throws IllegalArgumentException
+	 *             if an enterprise or establishment number occurs twice
+	 */
+	public static RegisterGraph of(Collection<Enterprise> enterprises) {
+		List<Enterprise> sorted = new ArrayList<>(enterprises);
+		sorted.sort(Comparator.comparingLong(enterprise -> enterprise.getEnterpriseNumber().toLong()));
+		return new RegisterGraph(sorted.toArray(new Enterprise[sorted.size()]));
+	}
+
+	/**
+	 * @return the number of enterprises
+	 */
+	public int enterpriseCount() {
+		return enterprises.length;
+	}
+
+	/**
+	 * @return the number of establishments
+	 */
+	public int establishmentCount() {
+		return establishmentParents.length;
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return the ordinal of the enterprise, or {@code -1} if it is not part
+	 *         of this graph
+	 */
+	public int ordinal(EnterpriseNumber enterpriseNumber) {
+		int index = Arrays.binarySearch(enterpriseKeys, enterpriseNumber.toLong());
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * @param establishmentNumber
+	 *            an {@link EstablishmentNumber}, not {@code null}
+	 * @return the ordinal of the establishment, or {@code -1} if it is not
+	 *         part of this graph
+	 */
+	public int ordinal(EstablishmentNumber establishmentNumber) {
+		int index = Arrays.binarySearch(establishmentKeys, establishmentNumber.toLong());
+		return index < 0 ? -1 : establishmentOrdinalsByKey[index];
+	}
+
+	/**
+	 * @param ordinal
+	 *            an enterprise ordinal
+	 * @return the {@link Enterprise} with the given ordinal
+	 */
+	public Enterprise enterprise(int ordinal) {
+		return enterprises[ordinal];
+	}
+
+	/**
+	 * @param ordinal
+	 *            an establishment ordinal
+	 * @return the {@link Establishment} with the given ordinal
+	 */
+	public Establishment establishment(int ordinal) {
+		return establishments.target(ordinal);
+	}
+
+	/**
+	 * @param establishment
+	 *            an establishment ordinal
+	 * @return the ordinal of the enterprise the establishment belongs to
+	 */
+	public int parent(int establishment) {
+		return establishmentParents[establishment];
+	}
+
+	/**
+	 * @return enterprise ordinals to their {@link Establishment} instances;
+	 *         target indices are establishment ordinals
+	 */
+	public Relation<Establishment> establishments() {
+		return establishments;
+	}
+
+	/**
+	 * @return enterprise ordinals to their own {@link Address} instances
+	 */
+	public Relation<Address> enterpriseAddresses() {
+		return enterpriseAddresses;
+	}
+
+	/**
+	 * @return enterprise ordinals to their own {@link Activity} instances
+	 */
+	public Relation<Activity> enterpriseActivities() {
+		return enterpriseActivities;
+	}
+
+	/**
+	 * @return establishment ordinals to their {@link Address} instances
+	 */
+	public Relation<Address> establishmentAddresses() {
+		return establishmentAddresses;
+	}
+
+	/**
+	 * @return establishment ordinals to their {@link Activity} instances
+	 */
+	public Relation<Activity> establishmentActivities() {
+		return establishmentActivities;
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+/**
+ * A one-to-many relation between dense ordinals in compressed sparse row
+ * layout. The targets of source {@code s} are at the indices from
+ * {@link #start(int) start(s)} inclusive to {@link #end(int) end(s)}
+ * exclusive, so visiting all targets of consecutive sources is a sequential
+ * scan:
+ * 
+ * <pre>
+ * for (int s = 0; s &lt; relation.sourceCount(); s++) {
+ * 	for (int i = relation.start(s); i &lt; relation.end(s); i++) {
+ * 		T target = relation.target(i);
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @param <T>
+ *            the type of the targets
+ */
+public final class Relation<T> {
+
+	private final int[] offsets;
+	private final Object[] targets;
+
+	/**
+	 * @param offsets
+	 *            offsets into {@code targets}, one more than there are
+	 *            sources, non-decreasing
+	 * @param targets
+	 *            the targets of all sources, grouped by source
+	 */
+	Relation(int[] offsets, Object[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	 * @return the number of sources of this relation
+	 */
+	public int sourceCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * @return the total number of targets of this relation
+	 */
+	public int size() {
+		return targets.length;
+	}
+
+	/**
+	 * @param source
+	 *            a source ordinal
+	 * @return the index of the first target of the given source
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such source
+	 */
+	public int start(int source) {
+		checkSource(source);
+		return offsets[source];
+	}
+
+	/**
+	 * @param source
+	 *            a source ordinal
+	 * @return the index following the last target of the given source
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such source
+	 */
+	public int end(int source) {
+		checkSource(source);
+		return offsets[source + 1];
+	}
+
+	/**
+	 * @param source
+	 *            a source ordinal
+	 * @return the number of targets of the given source
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such source
+	 */
+	public int count(int source) {
+		checkSource(source);
+		return offsets[source + 1] - offsets[source];
+	}
+
+	/**
+	 * @param index
+	 *            an index between {@code 0} and {@link #size()}
+	 * @return the target at the given index
+	 */
+	@SuppressWarnings("unchecked")
+	public T target(int index) {
+		return (T) targets[index];
+	}
+
+	private void checkSource(int source) {
+		if (source < 0 || source >= offsets.length - 1) {
+			throw new IndexOutOfBoundsException("source " + source + " not in [0, " + (offsets.length - 1) + ")");
+		}
+	}
+
+}
@@ -0,0 +1,382 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import be.ceau.kbobce.codes.Code;
+import be.ceau.kbobce.codes.Nace;
+import be.ceau.kbobce.codes.Translation;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Contact;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * Streams {@link Enterprise} and {@link Establishment} instances, with all of
+ * their children, as UTF-8 JSON to an {@link OutputStream}, either as single
+ * documents or as newline-delimited JSON.
+ * <p>
+ * Field names are written from pre-encoded bytes. Each {@link Code} is
+ * encoded once and its bytes reused for every following occurrence of the
+ * same instance. Absent values are omitted. A {@link Code} is written as an
+ * object with its code and either all of its descriptions or, if this writer
+ * has a {@link Translation}, a single {@code description}.
+ * <p>
+ * Not thread-safe.
+ */
+public final class EnterpriseJsonWriter implements Closeable, Flushable {
+
+	/**
+	 * Maximum number of {@link Code} instances to keep encoded bytes for
+	 */
+	private static final int MAX_CACHED_CODES = 8192;
+
+	private static final byte[] ENTERPRISE_NUMBER = name("enterpriseNumber");
+	private static final byte[] ESTABLISHMENT_NUMBER = name("establishmentNumber");
+	private static final byte[] STATUS = name("status");
+	private static final byte[] JURIDICAL_SITUATION = name("juridicalSituation");
+	private static final byte[] TYPE_OF_ENTERPRISE = name("typeOfEnterprise");
+	private static final byte[] JURIDICAL_FORM = name("juridicalForm");
+	private static final byte[] START_DATE = name("startDate");
+	private static final byte[] DENOMINATIONS = name("denominations");
+	private static final byte[] ADDRESSES = name("addresses");
+	private static final byte[] CONTACTS = name("contacts");
+	private static final byte[] ACTIVITIES = name("activities");
+	private static final byte[] ESTABLISHMENTS = name("establishments");
+	private static final byte[] LANGUAGE = name("language");
+	private static final byte[] TYPE_OF_DENOMINATION = name("typeOfDenomination");
+	private static final byte[] VALUE = name("value");
+	private static final byte[] TYPE_OF_ADDRESS = name("typeOfAddress");
+	private static final byte[] COUNTRY_NL = name("countryNL");
+	private static final byte[] COUNTRY_FR = name("countryFR");
+	private static final byte[] ZIPCODE = name("zipcode");
+	private static final byte[] MUNICIPALITY_NL = name("municipalityNL");
+	private static final byte[] MUNICIPALITY_FR = name("municipalityFR");
+	private static final byte[] STREET_NL = name("streetNL");
+	private static final byte[] STREET_FR = name("streetFR");
+	private static final byte[] HOUSE_NUMBER = name("houseNumber");
+	private static final byte[] BOX = name("box");
+	private static final byte[] EXTRA_ADDRESS_INFO = name("extraAddressInfo");
+	private static final byte[] DATE_STRIKING_OFF = name("dateStrikingOff");
+	private static final byte[] ENTITY_CONTACT = name("entityContact");
+	private static final byte[] CONTACT_TYPE = name("contactType");
+	private static final byte[] ACTIVITY_GROUP = name("activityGroup");
+	private static final byte[] NACE = name("nace");
+	private static final byte[] CLASSIFICATION = name("classification");
+	private static final byte[] CODE = name("code");
+	private static final byte[] DESCRIPTION = name("description");
+	private static final byte[] NL = name("nl");
+	private static final byte[] FR = name("fr");
+	private static final byte[] DE = name("de");
+	private static final byte[] VERSION = name("version");
+
+	private final JsonOutput out;
+	private final Translation translation;
+	private final Map<Code, byte[]> codes = new IdentityHashMap<>();
+
+	/**
+	 * Constructor for a writer that includes all descriptions of each
+	 * {@link Code}.
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to, not {@code null}
+	 */
+	public EnterpriseJsonWriter(OutputStream out) {
+		this(out, null);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to, not {@code null}
+	 * @param translation
+	 *            the {@link Translation} of {@link Code} descriptions to
+	 *            write, or {@code null} to write all descriptions
+	 */
+	public EnterpriseJsonWriter(OutputStream out, Translation translation) {
+		this.out = new JsonOutput(out);
+		this.translation = translation;
+	}
+
+	/**
+	 * Writes a single {@link Enterprise} as a JSON object.
+	 * 
+	 * @param enterprise
+	 *            {@link Enterprise} to write, not {@code null}
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void write(Enterprise enterprise) throws IOException {
+		out.raw((byte) '{');
+		boolean first = string(ENTERPRISE_NUMBER, enterprise.getEnterpriseNumber().getValue(), true);
+		first = code(STATUS, enterprise.getStatus(), first);
+		first = code(JURIDICAL_SITUATION, enterprise.getJuridicalSituation(), first);
+		first = code(TYPE_OF_ENTERPRISE, enterprise.getTypeOfEnterprise(), first);
+		first = code(JURIDICAL_FORM, enterprise.getJuridicalForm(), first);
+		first = date(START_DATE, enterprise.getStartDate(), first);
+		children(enterprise.getDenominations(), enterprise.getAddresses(), enterprise.getContacts(), enterprise.getActivities(), first);
+		out.raw((byte) ',');
+		out.raw(ESTABLISHMENTS);
+		out.raw((byte) '[');
+		boolean firstElement = true;
+		for (Establishment establishment : enterprise.getEstablishments()) {
+			if (!firstElement) {
+				out.raw((byte) ',');
+			}
+			write(establishment);
+			firstElement = false;
+		}
+		out.raw((byte) ']');
+		out.raw((byte) '}');
+	}
+
+	/**
+	 * Writes a single {@link Establishment} as a JSON object.
+	 * 
+	 * @param establishment
+	 *            {@link Establishment} to write, not {@code null}
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void write(Establishment establishment) throws IOException {
+		out.raw((byte) '{');
+		boolean first = string(ESTABLISHMENT_NUMBER, establishment.getEstablishmentNumber().getValue(), true);
+		first = date(START_DATE, establishment.getStartDate(), first);
+		children(establishment.getDenominations(), establishment.getAddresses(), establishment.getContacts(), establishment.getActivities(), first);
+		out.raw((byte) '}');
+	}
+
+	/**
+	 * Writes a single {@link Enterprise} as one line of newline-delimited
+	 * JSON.
+	 * 
+	 * @param enterprise
+	 *            {@link Enterprise} to write, not {@code null}
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void writeLine(Enterprise enterprise) throws IOException {
+		write(enterprise);
+		out.raw((byte) '\n');
+	}
+
+	/**
+	 * Writes every {@link Enterprise} as one line of newline-delimited JSON.
+	 * 
+	 * @param enterprises
+	 *            the {@link Enterprise} instances to write, not {@code null}
+	 * @return the number of lines written
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public long writeLines(Iterable<Enterprise> enterprises) throws IOException {
+		long lines = 0;
+		for (Enterprise enterprise : enterprises) {
+			writeLine(enterprise);
+			lines++;
+		}
+		return lines;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void children(Set<Denomination> denominations, Set<Address> addresses, Set<Contact> contacts, Set<Activity> activities, boolean first) throws IOException {
+		if (!first) {
+			out.raw((byte) ',');
+		}
+		out.raw(DENOMINATIONS);
+		out.raw((byte) '[');
+		boolean firstElement = true;
+		for (Denomination denomination : denominations) {
+			if (!firstElement) {
+				out.raw((byte) ',');
+			}
+			out.raw((byte) '{');
+			boolean firstField = code(LANGUAGE, denomination.getLanguage(), true);
+			firstField = code(TYPE_OF_DENOMINATION, denomination.getTypeOfDenomination(), firstField);
+			string(VALUE, denomination.getValue(), firstField);
+			out.raw((byte) '}');
+			firstElement = false;
+		}
+		out.raw((byte) ']');
+		out.raw((byte) ',');
+		out.raw(ADDRESSES);
+		out.raw((byte) '[');
+		firstElement = true;
+		for (Address address : addresses) {
+			if (!firstElement) {
+				out.raw((byte) ',');
+			}
+			out.raw((byte) '{');
+			boolean firstField = code(TYPE_OF_ADDRESS, address.getTypeOfAddress(), true);
+			firstField = string(COUNTRY_NL, address.getCountryNL(), firstField);
+			firstField = string(COUNTRY_FR, address.getCountryFR(), firstField);
+			firstField = string(ZIPCODE, address.getZipcode(), firstField);
+			firstField = string(MUNICIPALITY_NL, address.getMunicipalityNL(), firstField);
+			firstField = string(MUNICIPALITY_FR, address.getMunicipalityFR(), firstField);
+			firstField = string(STREET_NL, address.getStreetNL(), firstField);
+			firstField = string(STREET_FR, address.getStreetFR(), firstField);
+			firstField = string(HOUSE_NUMBER, address.getHouseNumber(), firstField);
+			firstField = string(BOX, address.getBox(), firstField);
+			firstField = string(EXTRA_ADDRESS_INFO, address.getExtraAddressInfo(), firstField);
+			date(DATE_STRIKING_OFF, address.getDateStrikingOff(), firstField);
+			out.raw((byte) '}');
+			firstElement = false;
+		}
+		out.raw((byte) ']');
+		out.raw((byte) ',');
+		out.raw(CONTACTS);
+		out.raw((byte) '[');
+		firstElement = true;
+		for (Contact contact : contacts) {
+			if (!firstElement) {
+				out.raw((byte) ',');
+			}
+			out.raw((byte) '{');
+			boolean firstField = code(ENTITY_CONTACT, contact.getEntityContact(), true);
+			firstField = code(CONTACT_TYPE, contact.getContactType(), firstField);
+			string(VALUE, contact.getValue(), firstField);
+			out.raw((byte) '}');
+			firstElement = false;
+		}
+		out.raw((byte) ']');
+		out.raw((byte) ',');
+		out.raw(ACTIVITIES);
+		out.raw((byte) '[');
+		firstElement = true;
+		for (Activity activity : activities) {
+			if (!firstElement) {
+				out.raw((byte) ',');
+			}
+			out.raw((byte) '{');
+			boolean firstField = code(ACTIVITY_GROUP, activity.getActivityGroup(), true);
+			firstField = code(NACE, activity.getNace(), firstField);
+			code(CLASSIFICATION, activity.getClassification(), firstField);
+			out.raw((byte) '}');
+			firstElement = false;
+		}
+		out.raw((byte) ']');
+	}
+
+	private boolean string(byte[] name, String value, boolean first) throws IOException {
+		if (value == null) {
+			return first;
+		}
+		if (!first) {
+			out.raw((byte) ',');
+		}
+		out.raw(name);
+		out.string(value);
+		return false;
+	}
+
+	private boolean date(byte[] name, LocalDate value, boolean first) throws IOException {
+		if (value == null) {
+			return first;
+		}
+		if (!first) {
+			out.raw((byte) ',');
+		}
+		out.raw(name);
+		out.date(value);
+		return false;
+	}
+
+	private boolean code(byte[] name, Code value, boolean first) throws IOException {
+		if (value == null) {
+			return first;
+		}
+		if (!first) {
+			out.raw((byte) ',');
+		}
+		out.raw(name);
+		byte[] bytes = codes.get(value);
+		if (bytes == null) {
+			bytes = encode(value);
+			if (codes.size() < MAX_CACHED_CODES) {
+				codes.put(value, bytes);
+			}
+		}
+		out.raw(bytes);
+		return false;
+	}
+
+	private byte[] encode(Code code) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		JsonOutput json = new JsonOutput(bytes, 256);
+		json.raw((byte) '{');
+		json.raw(CODE);
+		json.string(code.getCode());
+		if (code instanceof Nace) {
+			json.raw((byte) ',');
+			json.raw(VERSION);
+			json.number(((Nace) code).getYear());
+		}
+		if (translation != null) {
+			String description = code.getDescription(translation);
+			if (description != null) {
+				json.raw((byte) ',');
+				json.raw(DESCRIPTION);
+				json.string(description);
+			}
+		} else {
+			description(json, NL, code.getNl());
+			description(json, FR, code.getFr());
+			description(json, DE, code.getDe());
+		}
+		json.raw((byte) '}');
+		json.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void description(JsonOutput json, byte[] name, String description) throws IOException {
+		if (description != null) {
+			json.raw((byte) ',');
+			json.raw(name);
+			json.string(description);
+		}
+	}
+
+	private static byte[] name(String name) {
+		byte[] quoted = JsonOutput.encode(name);
+		byte[] bytes = new byte[quoted.length + 1];
+		System.arraycopy(quoted, 0, bytes, 0, quoted.length);
+		bytes[quoted.length] = ':';
+		return bytes;
+	}
+
+}
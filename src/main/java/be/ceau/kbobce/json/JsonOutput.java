@@ -0,0 +1,294 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Buffered writer of JSON tokens as UTF-8 bytes. Does not check that the
+ * tokens written form a well-formed document. Not thread-safe.
+ */
+public final class JsonOutput implements Closeable, Flushable {
+
+	private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Per ASCII character: 0 if written as is, the character following the
+	 * backslash for short escapes, or 'u' for unicode escapes.
+	 */
+	private static final byte[] ESCAPES = new byte[128];
+
+	static {
+		for (int i = 0; i < 0x20; i++) {
+			ESCAPES[i] = 'u';
+		}
+		ESCAPES['"'] = '"';
+		ESCAPES['\\'] = '\\';
+		ESCAPES['\n'] = 'n';
+		ESCAPES['\r'] = 'r';
+		ESCAPES['\t'] = 't';
+		ESCAPES['\b'] = 'b';
+		ESCAPES['\f'] = 'f';
+	}
+
+	private final OutputStream out;
+	private final byte[] buffer;
+	private int position;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to, not {@code null}
+	 */
+	public JsonOutput(OutputStream out) {
+		this(out, 1 << 16);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param out
+	 *            {@link OutputStream} to write to, not {@code null}
+	 * @param bufferSize
+	 *            size of the internal buffer in bytes, at least 16
+	 */
+	public JsonOutput(OutputStream out, int bufferSize) {
+		if (out == null) {
+			throw new IllegalArgumentException("out can not be null");
+		}
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("bufferSize must be at least 16");
+		}
+		this.out = out;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Writes a single ASCII byte, such as a brace, comma or newline.
+	 * 
+	 * @param b
+	 *            byte to write
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void raw(byte b) throws IOException {
+		if (position == buffer.length) {
+			drain();
+		}
+		buffer[position++] = b;
+	}
+
+	/**
+	 * Writes pre-encoded bytes, such as the result of {@link #encode(String)}.
+	 * 
+	 * @param bytes
+	 *            bytes to write, not {@code null}
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void raw(byte[] bytes) throws IOException {
+		if (bytes.length > buffer.length - position) {
+			drain();
+			if (bytes.length > buffer.length) {
+				out.write(bytes);
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 * Writes a JSON string, or {@code null}.
+	 * 
+	 * @param value
+	 *            {@link String} to write, can be {@code null}
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void string(String value) throws IOException {
+		if (value == null) {
+			raw(NULL);
+			return;
+		}
+		raw((byte) '"');
+		for (int i = 0, length = value.length(); i < length; i++) {
+			if (buffer.length - position < 12) {
+				drain();
+			}
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				byte escape = ESCAPES[c];
+				if (escape == 0) {
+					buffer[position++] = (byte) c;
+				} else {
+					buffer[position++] = '\\';
+					buffer[position++] = escape;
+					if (escape == 'u') {
+						buffer[position++] = '0';
+						buffer[position++] = '0';
+						buffer[position++] = HEX[c >> 4];
+						buffer[position++] = HEX[c & 0xF];
+					}
+				}
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | c >> 6);
+				buffer[position++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				buffer[position++] = (byte) (0xF0 | cp >> 18);
+				buffer[position++] = (byte) (0x80 | cp >> 12 & 0x3F);
+				buffer[position++] = (byte) (0x80 | cp >> 6 & 0x3F);
+				buffer[position++] = (byte) (0x80 | cp & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				buffer[position++] = '?';
+			} else {
+				buffer[position++] = (byte) (0xE0 | c >> 12);
+				buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+				buffer[position++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		raw((byte) '"');
+	}
+
+	/**
+	 * Writes a JSON number.
+	 * 
+	 * @param value
+	 *            number to write
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void number(long value) throws IOException {
+		if (buffer.length - position < 20) {
+			drain();
+		}
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				raw(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+				return;
+			}
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long v = value; v >= 10; v /= 10) {
+			digits++;
+		}
+		for (int i = position + digits - 1; i >= position; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		position += digits;
+	}
+
+	/**
+	 * Writes a {@link LocalDate} as an ISO-8601 JSON string, or {@code null}.
+	 * 
+	 * @param date
+	 *            {@link LocalDate} to write, can be {@code null}
+	 * @throws IOException
+	 *             if the underlying {@link OutputStream} throws
+	 */
+	public void date(LocalDate date) throws IOException {
+		if (date == null) {
+			raw(NULL);
+			return;
+		}
+		int year = date.getYear();
+		if (year < 0 || year > 9999) {
+			string(date.toString());
+			return;
+		}
+		if (buffer.length - position < 12) {
+			drain();
+		}
+		byte[] b = buffer;
+		int p = position;
+		int month = date.getMonthValue();
+		int day = date.getDayOfMonth();
+		b[p] = '"';
+		b[p + 1] = (byte) ('0' + year / 1000);
+		b[p + 2] = (byte) ('0' + year / 100 % 10);
+		b[p + 3] = (byte) ('0' + year / 10 % 10);
+		b[p + 4] = (byte) ('0' + year % 10);
+		b[p + 5] = '-';
+		b[p + 6] = (byte) ('0' + month / 10);
+		b[p + 7] = (byte) ('0' + month % 10);
+		b[p + 8] = '-';
+		b[p + 9] = (byte) ('0' + day / 10);
+		b[p + 10] = (byte) ('0' + day % 10);
+		b[p + 11] = '"';
+		position = p + 12;
+	}
+
+	/**
+	 * Writes buffered bytes to the underlying {@link OutputStream} and flushes
+	 * it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/**
+	 * Flushes and closes the underlying {@link OutputStream}.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void drain() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	/**
+	 * @param value
+	 *            a {@link String}, can be {@code null}
+	 * @return the UTF-8 bytes of the given value as a quoted, escaped JSON
+	 *         string, or of {@code null}
+	 */
+	public static byte[] encode(String value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JsonOutput output = new JsonOutput(bytes, 64);
+		try {
+			output.string(value);
+			output.drain();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of a histogram of non-negative {@code long} values.
+ * Values are counted in buckets per power of two, so percentiles are upper
+ * bounds accurate to within a factor of two.
+ */
+public class HistogramSnapshot {
+
+	private final long count;
+
+	private final long sum;
+
+	private final long max;
+
+	private final long[] buckets;
+
+	HistogramSnapshot(long count, long sum, long max, long[] buckets) {
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+		this.buckets = buckets;
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the sum of all recorded values
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return the largest recorded value, or {@code 0} if none were recorded
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the mean of all recorded values, or {@code 0.0} if none were
+	 *         recorded
+	 */
+	public double getMean() {
+		return count == 0 ? 0.0 : (double) sum / count;
+	}
+
+	/**
+	 * @param percentile
+	 *            a {@code double} between 0 and 100
+	 * @return an upper bound for the given percentile of the recorded values,
+	 *         or {@code 0} if none were recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		long rank = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank && seen > 0) {
+				long upper = i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+				return Math.min(upper, max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return a copy of the bucket counts, where bucket {@code i > 0} counts
+	 *         values from {@code 2^(i-1)} up to {@code 2^i - 1}, and bucket
+	 *         {@code 0} counts zeroes
+	 */
+	public long[] getBuckets() {
+		return Arrays.copyOf(buckets, buckets.length);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("HistogramSnapshot [count=")
+				.append(count)
+				.append(", mean=")
+				.append(getMean())
+				.append(", p50=")
+				.append(getPercentile(50))
+				.append(", p99=")
+				.append(getPercentile(99))
+				.append(", max=")
+				.append(max)
+				.append("]")
+				.toString();
+	}
+
+}
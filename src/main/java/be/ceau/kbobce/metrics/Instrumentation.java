@@ -0,0 +1,66 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Holder of the active {@link Metrics} implementation.
+ */
+public final class Instrumentation {
+
+	private static volatile Metrics metrics = discover(Thread.currentThread().getContextClassLoader());
+
+	private Instrumentation() {
+	}
+
+	/**
+	 * @return the first {@link Metrics} provider visible to the given
+	 *         {@link ClassLoader}, or {@link Metrics#NOOP} if there is none
+	 */
+	static Metrics discover(ClassLoader loader) {
+		try {
+			Iterator<Metrics> iterator = ServiceLoader.load(Metrics.class, loader).iterator();
+			if (iterator.hasNext()) {
+				return iterator.next();
+			}
+		} catch (ServiceConfigurationError e) {
+			// misconfigured provider, fall back to no instrumentation
+		}
+		return Metrics.NOOP;
+	}
+
+	/**
+	 * @return the active {@link Metrics}, never {@code null}
+	 */
+	public static Metrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Replace the active {@link Metrics}.
+	 * 
+	 * @param metrics
+	 *            a {@link Metrics} implementation, or {@code null} to disable
+	 *            instrumentation
+	 */
+	public static void install(Metrics metrics) {
+		Instrumentation.metrics = metrics == null ? Metrics.NOOP : metrics;
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Metrics} implementation emitting JDK Flight Recorder events for
+ * rejected input, processed rows and builds, in addition to recording all
+ * measurements in memory like {@link RecordingMetrics}. Successful parses
+ * are too frequent to emit individually and are only counted.
+ * <p>
+ * Flight Recorder is not part of the Java 8 API, so the events are defined
+ * at runtime through {@code jdk.jfr.EventFactory}, looked up reflectively.
+ * On a JVM without Flight Recorder (before JDK 8u262) this class behaves
+ * like {@link RecordingMetrics}; see {@link #isAvailable()}.
+ * <p>
+ * The events are named {@code be.ceau.kbobce.Reject},
+ * {@code be.ceau.kbobce.Rows} and {@code be.ceau.kbobce.Build}. They are
+ * enabled by default in every running recording, and can be disabled by name
+ * in its settings, for example with {@code be.ceau.kbobce.Build#enabled=false}.
+ */
+public class JfrMetrics extends RecordingMetrics {
+
+	private static final String CATEGORY = "KBO/BCE";
+
+	private static final Emitter REJECT;
+	private static final Emitter ROWS;
+	private static final Emitter BUILD;
+	static {
+		Emitter reject = null;
+		Emitter rows = null;
+		Emitter build = null;
+		try {
+			Class.forName("jdk.jfr.Event");
+			reject = new Emitter("be.ceau.kbobce.Reject", "Rejected Input", "Input rejected while parsing or constructing a model instance", true,
+					new Field(String.class, "type", "Type", false),
+					new Field(String.class, "reason", "Reason", false));
+			rows = new Emitter("be.ceau.kbobce.Rows", "Rows Processed", null, false,
+					new Field(String.class, "file", "File", false),
+					new Field(long.class, "rows", "Rows", false),
+					new Field(long.class, "nanos", "Time", true));
+			build = new Emitter("be.ceau.kbobce.Build", "Build", null, false,
+					new Field(String.class, "type", "Type", false),
+					new Field(long.class, "nanos", "Time", true));
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			// no Flight Recorder in this JVM, only record in memory
+			reject = null;
+			rows = null;
+			build = null;
+		}
+		REJECT = reject;
+		ROWS = rows;
+		BUILD = build;
+	}
+
+	/**
+	 * @return {@code true} if this JVM supports Flight Recorder, so that
+	 *         instances of this class emit events
+	 */
+	public static boolean isAvailable() {
+		return BUILD != null;
+	}
+
+	@Override
+	public void rejected(String type, String reason) {
+		super.rejected(type, reason);
+		if (REJECT != null) {
+			REJECT.emit(type, reason);
+		}
+	}
+
+	@Override
+	public void rows(String file, long rows, long nanos) {
+		super.rows(file, rows, nanos);
+		if (ROWS != null) {
+			ROWS.emit(file, rows, nanos);
+		}
+	}
+
+	@Override
+	public void built(String type, long nanos) {
+		super.built(type, nanos);
+		if (BUILD != null) {
+			BUILD.emit(type, nanos);
+		}
+	}
+
+	/**
+	 * A field of an event type.
+	 */
+	private static final class Field {
+
+		private final Class<?> type;
+		private final String name;
+		private final String label;
+		private final boolean nanos;
+
+		private Field(Class<?> type, String name, String label, boolean nanos) {
+			this.type = type;
+			this.name = name;
+			this.label = label;
+			this.nanos = nanos;
+		}
+
+	}
+
+	/**
+	 * An event type created with {@code jdk.jfr.EventFactory}, and the
+	 * reflective handles to create, fill and commit its events.
+	 */
+	private static final class Emitter {
+
+		private final Object factory;
+		private final Method newEvent;
+		private final Method isEnabled;
+		private final Method set;
+		private final Method commit;
+
+		private Emitter(String name, String label, String description, boolean stackTrace, Field... fields) throws ReflectiveOperationException {
+			Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+			Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+			Constructor<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+
+			List<Object> annotations = new ArrayList<>();
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Name"), name));
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Label"), label));
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[] { CATEGORY }));
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.StackTrace"), stackTrace));
+			if (description != null) {
+				annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Description"), description));
+			}
+			List<Object> values = new ArrayList<>();
+			for (Field field : fields) {
+				List<Object> fieldAnnotations = new ArrayList<>();
+				fieldAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.Label"), field.label));
+				if (field.nanos) {
+					fieldAnnotations.add(annotation.newInstance(Class.forName("jdk.jfr.Timespan"), "NANOSECONDS"));
+				}
+				values.add(valueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+			}
+
+			Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+			Class<?> event = Class.forName("jdk.jfr.Event");
+			this.factory = eventFactory.getMethod("create", List.class, List.class).invoke(null, annotations, values);
+			this.newEvent = eventFactory.getMethod("newEvent");
+			this.isEnabled = event.getMethod("isEnabled");
+			this.set = event.getMethod("set", int.class, Object.class);
+			this.commit = event.getMethod("commit");
+		}
+
+		private void emit(Object... values) {
+			try {
+				Object event = newEvent.invoke(factory);
+				if ((Boolean) isEnabled.invoke(event)) {
+					for (int i = 0; i < values.length; i++) {
+						set.invoke(event, i, values[i]);
+					}
+					commit.invoke(event);
+				}
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				// instrumentation must never fail the instrumented code
+			}
+		}
+
+	}
+
+}
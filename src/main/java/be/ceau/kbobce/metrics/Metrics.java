@@ -0,0 +1,127 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+/**
+ * Service provider interface for receiving measurements from this library.
+ * Implementations must be thread-safe and should return quickly, as they are
+ * called from parsing and construction code.
+ * <p>
+ * The active implementation is obtained from {@link Instrumentation}. It is
+ * either installed explicitly through {@link Instrumentation#install(Metrics)},
+ * or discovered with {@link java.util.ServiceLoader} by listing its class
+ * name in {@code META-INF/services/be.ceau.kbobce.metrics.Metrics}. Without
+ * either, {@link #NOOP} is used.
+ */
+public interface Metrics {
+
+	/**
+	 * Implementation discarding all measurements.
+	 */
+	Metrics NOOP = new Metrics() {
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void parsed(String type) {
+		}
+
+		@Override
+		public void rejected(String type, String reason) {
+		}
+
+		@Override
+		public void rows(String file, long rows, long nanos) {
+		}
+
+		@Override
+		public void built(String type, long nanos) {
+		}
+
+		@Override
+		public void collectionSize(String collection, int size) {
+		}
+
+		@Override
+		public String toString() {
+			return "Metrics.NOOP";
+		}
+
+	};
+
+	/**
+	 * Callers skip measurements that need extra work, such as reading the
+	 * clock, if this method returns {@code false}.
+	 * 
+	 * @return {@code true} if this implementation records measurements
+	 */
+	boolean isEnabled();
+
+	/**
+	 * A value of the given type was parsed successfully.
+	 * 
+	 * @param type
+	 *            name of the parsed type, such as {@code EnterpriseNumber}
+	 */
+	void parsed(String type);
+
+	/**
+	 * Input for a value of the given type was rejected.
+	 * 
+	 * @param type
+	 *            name of the rejected type, such as {@code Address}
+	 * @param reason
+	 *            short, constant description of the reason for rejection
+	 */
+	void rejected(String type, String reason);
+
+	/**
+	 * A number of rows of the given file was processed.
+	 * 
+	 * @param file
+	 *            name of the file, such as {@code enterprise.csv}
+	 * @param rows
+	 *            number of rows processed
+	 * @param nanos
+	 *            time taken, in nanoseconds
+	 */
+	void rows(String file, long rows, long nanos);
+
+	/**
+	 * An instance of the given type was built by its builder.
+	 * 
+	 * @param type
+	 *            name of the built type, such as {@code Enterprise}
+	 * @param nanos
+	 *            time taken by {@code build()}, in nanoseconds
+	 */
+	void built(String type, long nanos);
+
+	/**
+	 * A collection of the given name was built with the given size.
+	 * 
+	 * @param collection
+	 *            name of the collection, such as
+	 *            {@code Enterprise.establishments}
+	 * @param size
+	 *            number of elements
+	 */
+	void collectionSize(String collection, int size);
+
+}
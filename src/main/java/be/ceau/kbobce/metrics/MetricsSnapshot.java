@@ -0,0 +1,149 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the measurements of a {@link RecordingMetrics}.
+ */
+public class MetricsSnapshot {
+
+	private final Map<String, Long> parseCounts;
+
+	private final Map<String, Map<String, Long>> rejectCounts;
+
+	private final Map<String, FileRate> fileRates;
+
+	private final Map<String, HistogramSnapshot> buildLatencies;
+
+	private final Map<String, HistogramSnapshot> collectionSizes;
+
+	MetricsSnapshot(Map<String, Long> parseCounts, Map<String, Map<String, Long>> rejectCounts, Map<String, FileRate> fileRates, Map<String, HistogramSnapshot> buildLatencies, Map<String, HistogramSnapshot> collectionSizes) {
+		this.parseCounts = Collections.unmodifiableMap(parseCounts);
+		this.rejectCounts = Collections.unmodifiableMap(rejectCounts);
+		this.fileRates = Collections.unmodifiableMap(fileRates);
+		this.buildLatencies = Collections.unmodifiableMap(buildLatencies);
+		this.collectionSizes = Collections.unmodifiableMap(collectionSizes);
+	}
+
+	/**
+	 * @return number of successful parses per type, never {@code null}
+	 */
+	public Map<String, Long> getParseCounts() {
+		return parseCounts;
+	}
+
+	/**
+	 * @return number of rejections per type, then per reason, never
+	 *         {@code null}
+	 */
+	public Map<String, Map<String, Long>> getRejectCounts() {
+		return rejectCounts;
+	}
+
+	/**
+	 * @return processed rows and time taken per file, never {@code null}
+	 */
+	public Map<String, FileRate> getFileRates() {
+		return fileRates;
+	}
+
+	/**
+	 * @return histograms of build latencies in nanoseconds per type, never
+	 *         {@code null}
+	 */
+	public Map<String, HistogramSnapshot> getBuildLatencies() {
+		return buildLatencies;
+	}
+
+	/**
+	 * @return histograms of sizes per collection, never {@code null}
+	 */
+	public Map<String, HistogramSnapshot> getCollectionSizes() {
+		return collectionSizes;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("MetricsSnapshot [parseCounts=")
+				.append(parseCounts)
+				.append(", rejectCounts=")
+				.append(rejectCounts)
+				.append(", fileRates=")
+				.append(fileRates)
+				.append(", buildLatencies=")
+				.append(buildLatencies)
+				.append(", collectionSizes=")
+				.append(collectionSizes)
+				.append("]")
+				.toString();
+	}
+
+	/**
+	 * Number of rows processed for a file, and the time it took.
+	 */
+	public static class FileRate {
+
+		private final long rows;
+
+		private final long nanos;
+
+		FileRate(long rows, long nanos) {
+			this.rows = rows;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return number of rows processed
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return time taken, in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return rows processed per second, or {@code 0.0} if no time was
+		 *         recorded
+		 */
+		public double getRowsPerSecond() {
+			return nanos == 0 ? 0.0 : rows * 1_000_000_000.0 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder()
+					.append("FileRate [rows=")
+					.append(rows)
+					.append(", nanos=")
+					.append(nanos)
+					.append(", rowsPerSecond=")
+					.append(getRowsPerSecond())
+					.append("]")
+					.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Metrics} implementation keeping all measurements in memory. Call
+ * {@link #snapshot()} at any time to read them.
+ */
+public class RecordingMetrics implements Metrics {
+
+	private final ConcurrentHashMap<String, LongAdder> parseCounts = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, LongAdder>> rejectCounts = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, LongAdder[]> fileRates = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Histogram> buildLatencies = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Histogram> collectionSizes = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void parsed(String type) {
+		parseCounts.computeIfAbsent(type, k -> new LongAdder()).increment();
+	}
+
+	@Override
+	public void rejected(String type, String reason) {
+		rejectCounts.computeIfAbsent(type, k -> new ConcurrentHashMap<>())
+				.computeIfAbsent(reason, k -> new LongAdder())
+				.increment();
+	}
+
+	@Override
+	public void rows(String file, long rows, long nanos) {
+		LongAdder[] rate = fileRates.computeIfAbsent(file, k -> new LongAdder[] { new LongAdder(), new LongAdder() });
+		rate[0].add(rows);
+		rate[1].add(nanos);
+	}
+
+	@Override
+	public void built(String type, long nanos) {
+		buildLatencies.computeIfAbsent(type, k -> new Histogram()).record(nanos);
+	}
+
+	@Override
+	public void collectionSize(String collection, int size) {
+		collectionSizes.computeIfAbsent(collection, k -> new Histogram()).record(size);
+	}
+
+	/**
+	 * @return a snapshot of all measurements recorded so far
+	 */
+	public MetricsSnapshot snapshot() {
+		Map<String, Long> parses = new TreeMap<>();
+		parseCounts.forEach((type, count) -> parses.put(type, count.sum()));
+
+		Map<String, Map<String, Long>> rejects = new TreeMap<>();
+		rejectCounts.forEach((type, reasons) -> {
+			Map<String, Long> counts = new TreeMap<>();
+			reasons.forEach((reason, count) -> counts.put(reason, count.sum()));
+			rejects.put(type, counts);
+		});
+
+		Map<String, MetricsSnapshot.FileRate> rates = new TreeMap<>();
+		fileRates.forEach((file, rate) -> rates.put(file, new MetricsSnapshot.FileRate(rate[0].sum(), rate[1].sum())));
+
+		Map<String, HistogramSnapshot> latencies = new TreeMap<>();
+		buildLatencies.forEach((type, histogram) -> latencies.put(type, histogram.snapshot()));
+
+		Map<String, HistogramSnapshot> sizes = new TreeMap<>();
+		collectionSizes.forEach((collection, histogram) -> sizes.put(collection, histogram.snapshot()));
+
+		return new MetricsSnapshot(parses, rejects, rates, latencies, sizes);
+	}
+
+	/**
+	 * Discard all measurements recorded so far.
+	 */
+	public void reset() {
+		parseCounts.clear();
+		rejectCounts.clear();
+		fileRates.clear();
+		buildLatencies.clear();
+		collectionSizes.clear();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+}
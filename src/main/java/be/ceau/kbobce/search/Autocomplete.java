@@ -0,0 +1,419 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.index.RegisterGraph;
+
+/**
+ * Type-ahead completion of enterprise names. Maps every prefix of the
+ * normalized {@link Denomination} values of enterprises and their
+ * establishments to the top {@code k} enterprise ordinals of a
+ * {@link RegisterGraph}, ranked by a configurable score.
+ * <p>
+ * Names are stored in a compressed radix trie laid out in flat arrays: the
+ * children of a node are contiguous and sorted by the first character of
+ * their label, and each node holds its precomputed top-{@code k} list. A
+ * lookup walks one node per label and copies at most {@code k} ordinals.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class Autocomplete {
+
+	/**
+	 * The default score: active enterprises first, then enterprises with more
+	 * establishments.
+	 */
+	public static final ToLongFunction<Enterprise> DEFAULT_SCORE = enterprise -> ("AC".equals(enterprise.getStatus().getCode()) ? 1L << 32 : 0L)
+			+ enterprise.getEstablishments().size();
+
+	/**
+	 * @param graph
+	 *            the {@link RegisterGraph} whose names to index, not
+	 *            {@code null}
+	 * @return a new {@link Builder} instance for construction of an
+	 *         {@link Autocomplete}
+	 */
+	public static Builder builder(RegisterGraph graph) {
+		if (graph == null) {
+			throw new IllegalArgumentException("graph is null");
+		}
+		return new Builder(graph);
+	}
+
+	private final int k;
+	private final int[] ordinalsByRank;
+	private final char[] labels;
+	private final int[] labelStart;
+	private final int[] labelEnd;
+	private final int[] firstChild;
+	private final int[] childCount;
+	private final int[] topStart;
+	private final int[] topCount;
+	private final int[] tops;
+
+	private Autocomplete(int k, int[] ordinalsByRank, Trie trie) {
+		this.k = k;
+		this.ordinalsByRank = ordinalsByRank;
+		this.labels = Arrays.copyOf(trie.labels, trie.labelLength);
+		this.labelStart = trie.labelStart.toArray();
+		this.labelEnd = trie.labelEnd.toArray();
+		this.firstChild = trie.firstChild.toArray();
+		this.childCount = trie.childCount.toArray();
+		this.topStart = trie.topStart.toArray();
+		this.topCount = trie.topCount.toArray();
+		this.tops = trie.tops.toArray();
+	}
+
+	/**
+	 * @param prefix
+	 *            a typed prefix, normalized with
+	 *            {@link NameNormalizer#normalize(String)} before lookup, can
+	 *            be {@code null}
+	 * @return the ordinals of the best matching enterprises, best first, at
+	 *         most {@code k}; empty if the prefix normalizes to nothing
+	 */
+	public int[] complete(String prefix) {
+		return complete(prefix, k);
+	}
+
+	/**
+	 * @param prefix
+	 *            a typed prefix, normalized with
+	 *            {@link NameNormalizer#normalize(String)} before lookup, can
+	 *            be {@code null}
+	 * @param limit
+	 *            the maximum number of results, not negative, at most the
+	 *            {@code k} this instance was built with
+	 * @return the ordinals of the best matching enterprises, best first
+	 */
+	public int[] complete(String prefix, int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit must not be negative");
+		}
+		String normalized = NameNormalizer.normalize(prefix);
+		if (normalized == null || normalized.isEmpty()) {
+			return new int[0];
+		}
+		int node = 0;
+		int position = 0;
+		while (position < normalized.length()) {
+			node = child(node, normalized.charAt(position));
+			if (node < 0) {
+				return new int[0];
+			}
+			for (int i = labelStart[node]; i < labelEnd[node] && position < normalized.length(); i++, position++) {
+				if (labels[i] != normalized.charAt(position)) {
+					return new int[0];
+				}
+			}
+		}
+		int[] result = new int[Math.min(Math.min(limit, k), topCount[node])];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ordinalsByRank[tops[topStart[node] + i]];
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of nodes of the trie
+	 */
+	public int nodeCount() {
+		return labelStart.length;
+	}
+
+	private int child(int node, char c) {
+		int low = firstChild[node];
+		int high = low + childCount[node] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char first = labels[labelStart[mid]];
+			if (first < c) {
+				low = mid + 1;
+			} else if (first > c) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A name with the rank of its enterprise.
+	 */
+	private static final class Entry {
+
+		private final String key;
+		private final int rank;
+
+		private Entry(String key, int rank) {
+			this.key = key;
+			this.rank = rank;
+		}
+
+	}
+
+	/**
+	 * Growable {@code int} array.
+	 */
+	private static final class Ints {
+
+		private int[] values = new int[1024];
+		private int size;
+
+		private int add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size] = value;
+			return size++;
+		}
+
+		private void set(int index, int value) {
+			values[index] = value;
+		}
+
+		private int get(int index) {
+			return values[index];
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+	}
+
+	/**
+	 * Builds the flat trie from sorted entries, allocating the children of a
+	 * node consecutively before descending into them.
+	 */
+	private static final class Trie {
+
+		private final Entry[] entries;
+		private final int k;
+		private char[] labels = new char[1 << 16];
+		private int labelLength;
+		private final Ints labelStart = new Ints();
+		private final Ints labelEnd = new Ints();
+		private final Ints firstChild = new Ints();
+		private final Ints childCount = new Ints();
+		private final Ints topStart = new Ints();
+		private final Ints topCount = new Ints();
+		private final Ints tops = new Ints();
+
+		private Trie(Entry[] entries, int k) {
+			this.entries = entries;
+			this.k = k;
+			addNode(0, 0);
+			build(0, 0, entries.length, 0);
+		}
+
+		private int addNode(int start, int end) {
+			labelStart.add(start);
+			labelEnd.add(end);
+			firstChild.add(0);
+			childCount.add(0);
+			topStart.add(0);
+			return topCount.add(0);
+		}
+
+		private void build(int node, int low, int high, int depth) {
+			int i = low;
+			while (i < high && entries[i].key.length() == depth) {
+				i++;
+			}
+			int terminals = i;
+			List<int[]> groups = new ArrayList<>();
+			while (i < high) {
+				char c = entries[i].key.charAt(depth);
+				int j = i + 1;
+				while (j < high && entries[j].key.charAt(depth) == c) {
+					j++;
+				}
+				// entries are sorted, so the common prefix of a group is that of its first and last key
+				String a = entries[i].key;
+				String b = entries[j - 1].key;
+				int end = depth + 1;
+				while (end < a.length() && end < b.length() && a.charAt(end) == b.charAt(end)) {
+					end++;
+				}
+				groups.add(new int[] { i, j, end });
+				i = j;
+			}
+			int first = labelStart.size;
+			for (int[] group : groups) {
+				int start = labelLength;
+				appendLabel(entries[group[0]].key, depth, group[2]);
+				addNode(start, labelLength);
+			}
+			firstChild.set(node, first);
+			childCount.set(node, groups.size());
+			for (int g = 0; g < groups.size(); g++) {
+				int[] group = groups.get(g);
+				build(first + g, group[0], group[1], group[2]);
+			}
+
+			int[] candidates = new int[terminals - low + groups.size() * k];
+			int count = 0;
+			for (int t = low; t < terminals; t++) {
+				candidates[count++] = entries[t].rank;
+			}
+			for (int g = 0; g < groups.size(); g++) {
+				int child = first + g;
+				for (int t = 0; t < topCount.get(child); t++) {
+					candidates[count++] = tops.get(topStart.get(child) + t);
+				}
+			}
+			Arrays.sort(candidates, 0, count);
+			topStart.set(node, tops.size);
+			int kept = 0;
+			for (int c = 0; c < count && kept < k; c++) {
+				if (c == 0 || candidates[c] != candidates[c - 1]) {
+					tops.add(candidates[c]);
+					kept++;
+				}
+			}
+			topCount.set(node, kept);
+		}
+
+		private void appendLabel(String key, int start, int end) {
+			int length = end - start;
+			if (labelLength + length > labels.length) {
+				labels = Arrays.copyOf(labels, Math.max(labels.length * 2, labelLength + length));
+			}
+			key.getChars(start, end, labels, labelLength);
+			labelLength += length;
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link Autocomplete} instances.
+	 */
+	public static class Builder {
+
+		private final RegisterGraph graph;
+		private ToLongFunction<Enterprise> score = DEFAULT_SCORE;
+		private int k = 10;
+		private boolean wordPrefixes = true;
+
+		private Builder(RegisterGraph graph) {
+			this.graph = graph;
+		}
+
+		/**
+		 * @param score
+		 *            computes the score of an {@link Enterprise}, higher is
+		 *            better; ties are broken by ordinal. Defaults to
+		 *            {@link Autocomplete#DEFAULT_SCORE}
+		 * @return this {@link Builder}
+		 */
+		public Builder withScore(ToLongFunction<Enterprise> score) {
+			if (score == null) {
+				throw new IllegalArgumentException("score is null");
+			}
+			this.score = score;
+			return this;
+		}
+
+		/**
+		 * @param k
+		 *            the number of ordinals kept per prefix, positive,
+		 *            defaults to 10
+		 * @return this {@link Builder}
+		 */
+		public Builder withTopK(int k) {
+			if (k < 1) {
+				throw new IllegalArgumentException("k must be positive");
+			}
+			this.k = k;
+			return this;
+		}
+
+		/**
+		 * @param wordPrefixes
+		 *            whether names also complete from the start of each of
+		 *            their words, rather than only from their first
+		 *            character; defaults to {@code true}
+		 * @return this {@link Builder}
+		 */
+		public Builder withWordPrefixes(boolean wordPrefixes) {
+			this.wordPrefixes = wordPrefixes;
+			return this;
+		}
+
+		public Autocomplete build() {
+			int n = graph.enterpriseCount();
+			long[] scores = new long[n];
+			Integer[] order = new Integer[n];
+			for (int e = 0; e < n; e++) {
+				scores[e] = score.applyAsLong(graph.enterprise(e));
+				order[e] = e;
+			}
+			Arrays.sort(order, Comparator.<Integer> comparingLong(e -> -scores[e]).thenComparingInt(e -> e));
+			int[] ordinalsByRank = new int[n];
+			int[] ranks = new int[n];
+			for (int r = 0; r < n; r++) {
+				ordinalsByRank[r] = order[r];
+				ranks[order[r]] = r;
+			}
+
+			List<Entry> entries = new ArrayList<>();
+			for (int e = 0; e < n; e++) {
+				Enterprise enterprise = graph.enterprise(e);
+				for (Denomination denomination : enterprise.getDenominations()) {
+					add(entries, denomination, ranks[e]);
+				}
+				for (Establishment establishment : enterprise.getEstablishments()) {
+					for (Denomination denomination : establishment.getDenominations()) {
+						add(entries, denomination, ranks[e]);
+					}
+				}
+			}
+			Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+			Arrays.parallelSort(sorted, (a, b) -> a.key.compareTo(b.key));
+			return new Autocomplete(k, ordinalsByRank, new Trie(sorted, k));
+		}
+
+		private void add(List<Entry> entries, Denomination denomination, int rank) {
+			if (denomination.getValue() == null) {
+				return;
+			}
+			for (String variant : NameNormalizer.variants(denomination.getValue(), denomination.getLanguage())) {
+				if (variant.isEmpty()) {
+					continue;
+				}
+				entries.add(new Entry(variant, rank));
+				if (wordPrefixes) {
+					for (int i = variant.indexOf(' '); i >= 0; i = variant.indexOf(' ', i + 1)) {
+						entries.add(new Entry(variant.substring(i + 1), rank));
+					}
+				}
+			}
+		}
+
+	}
+
+}
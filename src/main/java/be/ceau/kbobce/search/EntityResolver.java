@@ -0,0 +1,607 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Contact;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.index.ContactIndex;
+import be.ceau.kbobce.index.PostingLists;
+
+/**
+ * Finds records that describe the same entity, either within one list, such
+ * as near-duplicate enterprises in the register, or between two lists, such
+ * as a third-party company list and the register.
+ * <p>
+ * Pairs are never compared exhaustively. Every {@link Record} yields
+ * blocking keys: its addresses (zip code, street and house number), the
+ * tokens of its normalized names and its normalized contact values. Only
+ * records sharing a key are scored, and keys shared by more than
+ * {@code maxBlockSize} records, such as legal form abbreviations, are not
+ * used for blocking. Candidates are scored in parallel by a weighted set of
+ * {@link MatchRule} instances and pairs reaching the threshold are streamed
+ * to a {@link Consumer}, each pair once.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public class EntityResolver {
+
+	/**
+	 * @return a new {@link Builder} instance for construction of an
+	 *         {@link EntityResolver}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private final MatchRule[] rules;
+	private final double[] weights;
+	private final double threshold;
+	private final int maxBlockSize;
+	private final Executor executor;
+	private final int parallelism;
+
+	private EntityResolver(Builder builder) {
+		if (builder.rules.isEmpty()) {
+			this.rules = new MatchRule[] { MatchRule.names(), MatchRule.addresses(), MatchRule.contacts() };
+			this.weights = new double[] { 2d, 1d, 1d };
+		} else {
+			this.rules = builder.rules.toArray(new MatchRule[builder.rules.size()]);
+			this.weights = new double[rules.length];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = builder.weights.get(i);
+			}
+		}
+		this.threshold = builder.threshold;
+		this.maxBlockSize = builder.maxBlockSize;
+		this.executor = builder.executor;
+		this.parallelism = builder.parallelism;
+	}
+
+	/**
+	 * Finds the matching pairs within one list of records. Each pair is
+	 * passed once, with the record that comes first in the list on the left.
+	 * 
+	 * @param records
+	 *            the records to deduplicate, not {@code null}
+	 * @param sink
+	 *            receives matching pairs as they are found, one at a time,
+	 *            not {@code null}
+	 * @return the number of matching pairs
+	 */
+	public long deduplicate(List<Record> records, Consumer<Pair> sink) {
+		return resolve(records, records, true, sink);
+	}
+
+	/**
+	 * Finds the matching pairs between two lists of records.
+	 * 
+	 * @param probes
+	 *            the records to match, such as a third-party list, not
+	 *            {@code null}
+	 * @param targets
+	 *            the records to match against, such as the register, not
+	 *            {@code null}
+	 * @param sink
+	 *            receives matching pairs as they are found, one at a time,
+	 *            with the probe on the left, not {@code null}
+	 * @return the number of matching pairs
+	 */
+	public long link(List<Record> probes, List<Record> targets, Consumer<Pair> sink) {
+		return resolve(probes, targets, false, sink);
+	}
+
+	private long resolve(List<Record> probes, List<Record> targets, boolean self, Consumer<Pair> sink) {
+		if (probes == null) {
+			throw new IllegalArgumentException("probes is null");
+		}
+		if (targets == null) {
+			throw new IllegalArgumentException("targets is null");
+		}
+		if (sink == null) {
+			throw new IllegalArgumentException("sink is null");
+		}
+		Record[] left = probes.toArray(new Record[probes.size()]);
+		Record[] right = self ? left : targets.toArray(new Record[targets.size()]);
+		Map<String, int[]> blocks = blocks(right);
+		AtomicLong count = new AtomicLong();
+		int partitions = Math.max(1, Math.min(parallelism * 4, left.length / 256));
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions];
+		for (int p = 0; p < partitions; p++) {
+			int from = (int) ((long) left.length * p / partitions);
+			int to = (int) ((long) left.length * (p + 1) / partitions);
+			futures[p] = CompletableFuture.runAsync(() -> count.addAndGet(score(left, right, blocks, self, from, to, sink)), executor);
+		}
+		try {
+			CompletableFuture.allOf(futures).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		return count.get();
+	}
+
+	private Map<String, int[]> blocks(Record[] records) {
+		PostingLists lists = new PostingLists(maxBlockSize);
+		for (int i = 0; i < records.length; i++) {
+			for (String key : records[i].keys) {
+				lists.add(key, i);
+			}
+		}
+		return lists.compact();
+	}
+
+	private long score(Record[] left, Record[] right, Map<String, int[]> blocks, boolean self, int from, int to, Consumer<Pair> sink) {
+		// marks[j] == i + 1 once target j was scored against probe i
+		int[] marks = new int[right.length];
+		List<Pair> buffer = new ArrayList<>();
+		long count = 0;
+		for (int i = from; i < to; i++) {
+			for (String key : left[i].keys) {
+				int[] block = blocks.get(key);
+				if (block == null) {
+					continue;
+				}
+				for (int j : block) {
+					if ((self && j <= i) || marks[j] == i + 1) {
+						continue;
+					}
+					marks[j] = i + 1;
+					double score = score(left[i], right[j]);
+					if (score >= threshold) {
+						buffer.add(new Pair(left[i], right[j], score));
+					}
+				}
+			}
+			if (buffer.size() >= 1024 || (i == to - 1 && !buffer.isEmpty())) {
+				count += buffer.size();
+				synchronized (sink) {
+					buffer.forEach(sink);
+				}
+				buffer.clear();
+			}
+		}
+		return count;
+	}
+
+	private double score(Record a, Record b) {
+		double total = 0d;
+		double weight = 0d;
+		for (int r = 0; r < rules.length; r++) {
+			total += weights[r] * rules[r].score(a, b);
+			weight += weights[r];
+		}
+		return total / weight;
+	}
+
+	/**
+	 * The blocking and scoring view of one entity: its normalized names,
+	 * addresses and contact values.
+	 */
+	public static final class Record {
+
+		/**
+		 * @param enterprise
+		 *            an {@link Enterprise}, not {@code null}
+		 * @return a {@link Record} with the names, addresses and contacts of
+		 *         the enterprise and its establishments
+		 */
+		public static Record of(Enterprise enterprise) {
+			if (enterprise == null) {
+				throw new IllegalArgumentException("enterprise is null");
+			}
+			Builder builder = builder(enterprise);
+			add(builder, enterprise.getDenominations(), enterprise.getAddresses(), enterprise.getContacts());
+			for (Establishment establishment : enterprise.getEstablishments()) {
+				add(builder, establishment.getDenominations(), establishment.getAddresses(), establishment.getContacts());
+			}
+			return builder.build();
+		}
+
+		private static void add(Builder builder, Iterable<Denomination> denominations, Iterable<Address> addresses, Iterable<Contact> contacts) {
+			for (Denomination denomination : denominations) {
+				builder.addName(denomination.getValue());
+			}
+			for (Address address : addresses) {
+				builder.addAddress(address);
+			}
+			for (Contact contact : contacts) {
+				String type = contact.getContactType() == null ? "" : contact.getContactType().getCode();
+				switch (type) {
+				case "TEL":
+				case "FAX":
+					builder.addContact(ContactIndex.Kind.PHONE, contact.getValue());
+					break;
+				case "EMAIL":
+					builder.addContact(ContactIndex.Kind.EMAIL, contact.getValue());
+					break;
+				case "WEB":
+					builder.addContact(ContactIndex.Kind.DOMAIN, contact.getValue());
+					break;
+				default:
+					break;
+				}
+			}
+		}
+
+		/**
+		 * @param source
+		 *            the object the record describes, such as a row of a
+		 *            third-party list, not {@code null}
+		 * @return a new {@link Builder} instance for construction of a
+		 *         {@link Record}
+		 */
+		public static Builder builder(Object source) {
+			if (source == null) {
+				throw new IllegalArgumentException("source is null");
+			}
+			return new Builder(source);
+		}
+
+		private final Object source;
+		final String[][] nameTokens;
+		final String[] addresses;
+		final String[] contacts;
+		final String[] keys;
+
+		private Record(Builder builder) {
+			this.source = builder.source;
+			this.nameTokens = builder.names.stream()
+					.map(name -> Arrays.stream(NameNormalizer.tokens(name)).distinct().sorted().toArray(String[]::new))
+					.toArray(String[][]::new);
+			this.addresses = builder.addresses.toArray(new String[builder.addresses.size()]);
+			this.contacts = builder.contacts.toArray(new String[builder.contacts.size()]);
+			Set<String> keys = new LinkedHashSet<>();
+			for (String address : addresses) {
+				keys.add("A" + address);
+			}
+			for (String[] tokens : nameTokens) {
+				for (String token : tokens) {
+					if (token.length() > 1) {
+						keys.add("N" + token);
+					}
+				}
+			}
+			for (String contact : contacts) {
+				keys.add("C" + contact);
+			}
+			this.keys = keys.toArray(new String[keys.size()]);
+		}
+
+		/**
+		 * @return the object this record describes, an {@link Enterprise}
+		 *         for records created with {@link #of(Enterprise)}
+		 */
+		public Object getSource() {
+			return source;
+		}
+
+		/**
+		 * @return the distinct tokens of each normalized name, sorted, never
+		 *         {@code null}
+		 */
+		public List<List<String>> getNameTokens() {
+			List<List<String>> list = new ArrayList<>(nameTokens.length);
+			for (String[] tokens : nameTokens) {
+				list.add(Collections.unmodifiableList(Arrays.asList(tokens)));
+			}
+			return Collections.unmodifiableList(list);
+		}
+
+		/**
+		 * @return the normalized addresses, as zip code, street and house
+		 *         number separated by {@code |}, never {@code null}
+		 */
+		public List<String> getAddresses() {
+			return Collections.unmodifiableList(Arrays.asList(addresses));
+		}
+
+		/**
+		 * @return the normalized contact values, prefixed with the name of
+		 *         their {@link ContactIndex.Kind} and {@code :}, never
+		 *         {@code null}
+		 */
+		public List<String> getContacts() {
+			return Collections.unmodifiableList(Arrays.asList(contacts));
+		}
+
+		/**
+		 * @return the Sørensen-Dice coefficient of two sorted arrays of
+		 *         distinct tokens
+		 */
+		static double dice(String[] a, String[] b) {
+			if (a.length == 0 || b.length == 0) {
+				return 0d;
+			}
+			int shared = 0;
+			for (int i = 0, j = 0; i < a.length && j < b.length;) {
+				int compare = a[i].compareTo(b[j]);
+				if (compare == 0) {
+					shared++;
+					i++;
+					j++;
+				} else if (compare < 0) {
+					i++;
+				} else {
+					j++;
+				}
+			}
+			return 2d * shared / (a.length + b.length);
+		}
+
+		/**
+		 * Builder class for new {@link Record} instances.
+		 */
+		public static class Builder {
+
+			private final Object source;
+			private final Set<String> names = new LinkedHashSet<>();
+			private final Set<String> addresses = new LinkedHashSet<>();
+			private final Set<String> contacts = new LinkedHashSet<>();
+
+			private Builder(Object source) {
+				this.source = source;
+			}
+
+			/**
+			 * @param name
+			 *            a name of the entity, ignored if {@code null} or
+			 *            blank
+			 * @return this {@link Builder}
+			 */
+			public Builder addName(String name) {
+				String normalized = NameNormalizer.normalize(name);
+				if (normalized != null && !normalized.isEmpty()) {
+					names.add(normalized);
+				}
+				return this;
+			}
+
+			/**
+			 * Adds the address in both languages of its street name.
+			 * 
+			 * @param address
+			 *            an {@link Address} of the entity, can be
+			 *            {@code null}
+			 * @return this {@link Builder}
+			 */
+			public Builder addAddress(Address address) {
+				if (address != null) {
+					addAddress(address.getZipcode(), address.getStreetNL(), address.getHouseNumber());
+					addAddress(address.getZipcode(), address.getStreetFR(), address.getHouseNumber());
+				}
+				return this;
+			}
+
+			/**
+			 * @param zipcode
+			 *            the zip code, ignored if {@code null} or blank
+			 * @param street
+			 *            the street name, ignored if {@code null} or blank
+			 * @param houseNumber
+			 *            the house number, can be {@code null}
+			 * @return this {@link Builder}
+			 */
+			public Builder addAddress(String zipcode, String street, String houseNumber) {
+				String zip = zipcode == null ? "" : zipcode.replaceAll("\\s", "");
+				String normalized = NameNormalizer.normalize(street);
+				if (zip.isEmpty() || normalized == null || normalized.isEmpty()) {
+					return this;
+				}
+				String number = houseNumber == null ? "" : houseNumber.replaceAll("[^0-9A-Za-z]", "").toLowerCase(Locale.ROOT);
+				addresses.add(zip + '|' + normalized + '|' + number);
+				return this;
+			}
+
+			/**
+			 * @param kind
+			 *            the {@link ContactIndex.Kind} of the value, not
+			 *            {@code null}
+			 * @param value
+			 *            a raw contact value, ignored if it can not be
+			 *            normalized
+			 * @return this {@link Builder}
+			 */
+			public Builder addContact(ContactIndex.Kind kind, String value) {
+				if (kind == null) {
+					throw new IllegalArgumentException("kind is null");
+				}
+				String normalized = kind.normalize(value);
+				if (normalized != null) {
+					contacts.add(kind.name() + ':' + normalized);
+				}
+				return this;
+			}
+
+			public Record build() {
+				return new Record(this);
+			}
+
+		}
+
+	}
+
+	/**
+	 * A pair of matching records.
+	 */
+	public static final class Pair {
+
+		private final Record left;
+		private final Record right;
+		private final double score;
+
+		private Pair(Record left, Record right, double score) {
+			this.left = left;
+			this.right = right;
+			this.score = score;
+		}
+
+		/**
+		 * @return the probe, or the first record in list order when
+		 *         deduplicating
+		 */
+		public Record getLeft() {
+			return left;
+		}
+
+		/**
+		 * @return the matching target
+		 */
+		public Record getRight() {
+			return right;
+		}
+
+		/**
+		 * @return the weighted score of the pair, between the threshold and 1
+		 */
+		public double getScore() {
+			return score;
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder()
+					.append("Pair [left=")
+					.append(left.getSource())
+					.append(", right=")
+					.append(right.getSource())
+					.append(", score=")
+					.append(score)
+					.append("]")
+					.toString();
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link EntityResolver} instances.
+	 */
+	public static class Builder {
+
+		private final List<MatchRule> rules = new ArrayList<>();
+		private final List<Double> weights = new ArrayList<>();
+		private double threshold = 0.6d;
+		private int maxBlockSize = 1000;
+		private Executor executor = ForkJoinPool.commonPool();
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds a weighted rule. Without rules, names weigh 2 and addresses
+		 * and contacts weigh 1 each.
+		 * 
+		 * @param rule
+		 *            a {@link MatchRule}, not {@code null}
+		 * @param weight
+		 *            the weight of the rule in the score, positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withRule(MatchRule rule, double weight) {
+			if (rule == null) {
+				throw new IllegalArgumentException("rule is null");
+			}
+			if (!(weight > 0d)) {
+				throw new IllegalArgumentException("weight must be positive");
+			}
+			this.rules.add(rule);
+			this.weights.add(weight);
+			return this;
+		}
+
+		/**
+		 * @param threshold
+		 *            the minimum weighted score of a matching pair, between 0
+		 *            exclusive and 1 inclusive, defaults to 0.6
+		 * @return this {@link Builder}
+		 */
+		public Builder withThreshold(double threshold) {
+			if (!(threshold > 0d && threshold <= 1d)) {
+				throw new IllegalArgumentException("threshold must be between 0 and 1");
+			}
+			this.threshold = threshold;
+			return this;
+		}
+
+		/**
+		 * @param maxBlockSize
+		 *            the maximum number of records sharing a blocking key for
+		 *            that key to be used, positive, defaults to 1000
+		 * @return this {@link Builder}
+		 */
+		public Builder withMaxBlockSize(int maxBlockSize) {
+			if (maxBlockSize < 1) {
+				throw new IllegalArgumentException("maxBlockSize must be positive");
+			}
+			this.maxBlockSize = maxBlockSize;
+			return this;
+		}
+
+		/**
+		 * @param executor
+		 *            the {@link Executor} to score candidates on, defaults to
+		 *            the common {@link ForkJoinPool}
+		 * @return this {@link Builder}
+		 */
+		public Builder withExecutor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("executor is null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param parallelism
+		 *            the number of threads expected to score candidates,
+		 *            positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withParallelism(int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("parallelism must be positive");
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		public EntityResolver build() {
+			return new EntityResolver(this);
+		}
+
+	}
+
+}
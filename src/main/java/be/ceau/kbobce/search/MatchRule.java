@@ -0,0 +1,90 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import be.ceau.kbobce.search.EntityResolver.Record;
+
+/**
+ * A rule scoring the similarity of two {@link Record} instances for the
+ * {@link EntityResolver}.
+ */
+@FunctionalInterface
+public interface MatchRule {
+
+	/**
+	 * @param a
+	 *            a {@link Record}, not {@code null}
+	 * @param b
+	 *            another {@link Record}, not {@code null}
+	 * @return the similarity of both records, between 0 and 1
+	 */
+	double score(Record a, Record b);
+
+	/**
+	 * @return a rule scoring the best Dice overlap of the tokens of any two
+	 *         normalized names
+	 */
+	static MatchRule names() {
+		return (a, b) -> {
+			double best = 0d;
+			for (String[] x : a.nameTokens) {
+				for (String[] y : b.nameTokens) {
+					best = Math.max(best, Record.dice(x, y));
+				}
+			}
+			return best;
+		};
+	}
+
+	/**
+	 * @return a rule scoring 1 if both records share an address, 0.5 if they
+	 *         only share a street, 0 otherwise
+	 */
+	static MatchRule addresses() {
+		return (a, b) -> {
+			double best = 0d;
+			for (String x : a.addresses) {
+				for (String y : b.addresses) {
+					if (x.equals(y)) {
+						return 1d;
+					}
+					if (x.regionMatches(0, y, 0, x.lastIndexOf('|') + 1) && x.lastIndexOf('|') == y.lastIndexOf('|')) {
+						best = 0.5d;
+					}
+				}
+			}
+			return best;
+		};
+	}
+
+	/**
+	 * @return a rule scoring 1 if both records share a normalized phone
+	 *         number, email address or website domain, 0 otherwise
+	 */
+	static MatchRule contacts() {
+		return (a, b) -> {
+			for (String x : a.contacts) {
+				for (String y : b.contacts) {
+					if (x.equals(y)) {
+						return 1d;
+					}
+				}
+			}
+			return 0d;
+		};
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.Translation;
+
+/**
+ * Normalizes denomination values for matching: letters are folded to
+ * lower-case ASCII without diacritics, ligatures are expanded, and every run
+ * of other characters becomes a single space.
+ */
+public final class NameNormalizer {
+
+	/**
+	 * Folded form of each character below this limit
+	 */
+	private static final int TABLE_SIZE = 0x250;
+
+	private static final String[] FOLDED = new String[TABLE_SIZE];
+
+	static {
+		for (char c = 0; c < TABLE_SIZE; c++) {
+			String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+			char base = Character.toLowerCase(decomposed.charAt(0));
+			if ((base >= 'a' && base <= 'z') || (base >= '0' && base <= '9')) {
+				FOLDED[c] = String.valueOf(base);
+			}
+		}
+		FOLDED['ß'] = "ss";
+		FOLDED['æ'] = "ae";
+		FOLDED['Æ'] = "ae";
+		FOLDED['œ'] = "oe";
+		FOLDED['Œ'] = "oe";
+		FOLDED['ø'] = "o";
+		FOLDED['Ø'] = "o";
+		FOLDED['ĳ'] = "ij";
+		FOLDED['Ĳ'] = "ij";
+		FOLDED['đ'] = "d";
+		FOLDED['Đ'] = "d";
+		FOLDED['ł'] = "l";
+		FOLDED['Ł'] = "l";
+	}
+
+	private NameNormalizer() {
+	}
+
+	/**
+	 * @param value
+	 *            a name, can be {@code null}
+	 * @return the normalized name, without leading or trailing spaces;
+	 *         {@code null} if the argument is {@code null}
+	 */
+	public static String normalize(String value) {
+		if (value == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder(value.length());
+		boolean space = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			String folded = c < TABLE_SIZE ? FOLDED[c] : null;
+			if (folded == null) {
+				space = sb.length() > 0;
+			} else {
+				if (space) {
+					sb.append(' ');
+					space = false;
+				}
+				sb.append(folded);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Normalizes a name in each spelling a user might type. German names
+	 * also yield the transliteration of umlauts, so that {@code Müller}
+	 * matches both {@code muller} and {@code mueller}.
+	 * 
+	 * @param value
+	 *            a name, not {@code null}
+	 * @param language
+	 *            the {@link Language} of the name, can be {@code null}
+	 * @return the distinct normalized variants, the plain normalization first
+	 */
+	public static List<String> variants(String value, Language language) {
+		String normalized = normalize(value);
+		if (Translation.of(language) != Translation.DE) {
+			return Collections.singletonList(normalized);
+		}
+		String transliterated = normalize(value
+				.replace("ä", "ae").replace("ö", "oe").replace("ü", "ue")
+				.replace("Ä", "Ae").replace("Ö", "Oe").replace("Ü", "Ue"));
+		if (transliterated.equals(normalized)) {
+			return Collections.singletonList(normalized);
+		}
+		List<String> variants = new ArrayList<>(2);
+		variants.add(normalized);
+		variants.add(transliterated);
+		return variants;
+	}
+
+	/**
+	 * @param normalized
+	 *            a name as returned by {@link #normalize(String)}, not
+	 *            {@code null}
+	 * @return the space-separated tokens of the name
+	 */
+	public static String[] tokens(String normalized) {
+		return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+	}
+
+}
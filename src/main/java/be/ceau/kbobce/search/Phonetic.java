@@ -0,0 +1,337 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.Translation;
+
+/**
+ * Phonetic encoders for the languages of the register. Each encoder maps a
+ * name token to a key shared by tokens that sound alike in its language, so
+ * that {@code Janssens} and {@code Jansens}, {@code Dupont} and
+ * {@code Dupond}, or {@code Meyer} and {@code Maier} collide.
+ * <p>
+ * Encoders operate on tokens as returned by
+ * {@link NameNormalizer#tokens(String)}: characters other than {@code a-z}
+ * are ignored. All encoders drop vowels after the first sound and collapse
+ * repeated codes.
+ */
+public enum Phonetic {
+
+	/**
+	 * Dutch spelling rules: {@code ch}, {@code g} and {@code gh} sound alike,
+	 * {@code ij}, {@code ei} and {@code y} are vowels, old spellings such as
+	 * {@code ae} and {@code uy} are vowels, {@code c} is {@code k} or
+	 * {@code s}, {@code v} is {@code f}, {@code z} is {@code s} and a final
+	 * {@code d} or {@code dt} is {@code t}.
+	 */
+	DUTCH {
+
+		@Override
+		void encode(String token, StringBuilder codes) {
+			int n = token.length();
+			int i = 0;
+			while (i < n) {
+				char c = token.charAt(i);
+				char next = at(token, i + 1);
+				if (token.startsWith("sch", i)) {
+					codes.append(i + 3 == n ? "s" : "sg");
+					i += 3;
+					continue;
+				}
+				if (next == 'h' && (c == 'c' || c == 'g' || c == 'p' || c == 't')) {
+					codes.append(c == 'p' ? 'f' : c == 't' ? 't' : 'g');
+					i += 2;
+					continue;
+				}
+				if (c == 'i' && next == 'j') {
+					codes.append(VOWEL);
+					i += 2;
+					continue;
+				}
+				switch (c) {
+				case 'a':
+				case 'e':
+				case 'i':
+				case 'o':
+				case 'u':
+				case 'y':
+					codes.append(VOWEL);
+					break;
+				case 'c':
+					codes.append(next == 'e' || next == 'i' || next == 'y' ? 's' : 'k');
+					break;
+				case 'q':
+					codes.append('k');
+					break;
+				case 'x':
+					codes.append("ks");
+					break;
+				case 'z':
+					codes.append('s');
+					break;
+				case 'v':
+					codes.append('f');
+					break;
+				case 'b':
+					codes.append(i + 1 == n ? 'p' : 'b');
+					break;
+				case 'd':
+					codes.append(i + 1 == n || (next == 't' && i + 2 == n) ? 't' : 'd');
+					break;
+				case 'h':
+					if (i == 0) {
+						codes.append('h');
+					}
+					break;
+				default:
+					if (c >= 'a' && c <= 'z') {
+						codes.append(c);
+					}
+				}
+				i++;
+			}
+		}
+
+	},
+
+	/**
+	 * French spelling rules: final {@code s}, {@code x}, {@code t},
+	 * {@code d} and {@code e} are silent, {@code er} and {@code ez} endings
+	 * sound alike, {@code h} is silent, {@code ch} is one sound, {@code c}
+	 * and {@code g} soften before {@code e}, {@code i} and {@code y},
+	 * {@code qu} and {@code gu} are {@code k} and {@code g}, {@code w} is
+	 * {@code v}.
+	 */
+	FRENCH {
+
+		@Override
+		void encode(String token, StringBuilder codes) {
+			int n = token.length();
+			if (n > 2 && (token.charAt(n - 1) == 's' || token.charAt(n - 1) == 'x')) {
+				n--;
+			}
+			if (n > 3 && token.charAt(n - 2) == 'e' && (token.charAt(n - 1) == 'r' || token.charAt(n - 1) == 'z')) {
+				n--;
+			} else if (n > 2 && (token.charAt(n - 1) == 't' || token.charAt(n - 1) == 'd')) {
+				n--;
+			}
+			if (n > 2 && token.charAt(n - 1) == 'e') {
+				n--;
+			}
+			token = token.substring(0, n);
+			int i = 0;
+			while (i < n) {
+				char c = token.charAt(i);
+				char next = at(token, i + 1);
+				char after = at(token, i + 2);
+				if (token.startsWith("sch", i)) {
+					codes.append('S');
+					i += 3;
+					continue;
+				}
+				if (next == 'h' && (c == 'c' || c == 'p' || c == 't')) {
+					codes.append(c == 'c' ? 'S' : c == 'p' ? 'f' : 't');
+					i += 2;
+					continue;
+				}
+				if ((c == 'q' && next == 'u') || (c == 'g' && next == 'u' && (after == 'e' || after == 'i' || after == 'y'))) {
+					codes.append(c == 'q' ? 'k' : 'g');
+					i += 2;
+					continue;
+				}
+				if (c == 'g' && next == 'n') {
+					codes.append('n');
+					i += 2;
+					continue;
+				}
+				switch (c) {
+				case 'a':
+				case 'e':
+				case 'i':
+				case 'o':
+				case 'u':
+				case 'y':
+					codes.append(VOWEL);
+					break;
+				case 'c':
+					codes.append(next == 'e' || next == 'i' || next == 'y' ? 's' : 'k');
+					break;
+				case 'g':
+					codes.append(next == 'e' || next == 'i' || next == 'y' ? 'j' : 'g');
+					break;
+				case 'q':
+					codes.append('k');
+					break;
+				case 'x':
+					codes.append("ks");
+					break;
+				case 'z':
+					codes.append('s');
+					break;
+				case 'w':
+					codes.append('v');
+					break;
+				case 'm':
+					codes.append(next == 'b' || next == 'p' ? 'n' : 'm');
+					break;
+				case 'h':
+					break;
+				default:
+					if (c >= 'a' && c <= 'z') {
+						codes.append(c);
+					}
+				}
+				i++;
+			}
+		}
+
+	},
+
+	/**
+	 * Kölner Phonetik, the standard phonetic code for German names, which
+	 * encodes each letter as a digit depending on its neighbours.
+	 */
+	COLOGNE {
+
+		@Override
+		void encode(String token, StringBuilder codes) {
+			int n = token.length();
+			for (int i = 0; i < n; i++) {
+				char c = token.charAt(i);
+				char previous = i == 0 ? 0 : token.charAt(i - 1);
+				char next = at(token, i + 1);
+				switch (c) {
+				case 'a':
+				case 'e':
+				case 'i':
+				case 'j':
+				case 'o':
+				case 'u':
+				case 'y':
+					codes.append(VOWEL);
+					break;
+				case 'b':
+					codes.append('1');
+					break;
+				case 'p':
+					codes.append(next == 'h' ? '3' : '1');
+					break;
+				case 'd':
+				case 't':
+					codes.append(next == 'c' || next == 's' || next == 'z' ? '8' : '2');
+					break;
+				case 'f':
+				case 'v':
+				case 'w':
+					codes.append('3');
+					break;
+				case 'g':
+				case 'k':
+				case 'q':
+					codes.append('4');
+					break;
+				case 'c':
+					if (i == 0) {
+						codes.append("ahkloqrux".indexOf(next) >= 0 ? '4' : '8');
+					} else {
+						codes.append(previous != 's' && previous != 'z' && "ahkoqux".indexOf(next) >= 0 ? '4' : '8');
+					}
+					break;
+				case 'x':
+					codes.append(previous == 'c' || previous == 'k' || previous == 'q' ? "8" : "48");
+					break;
+				case 'l':
+					codes.append('5');
+					break;
+				case 'm':
+				case 'n':
+					codes.append('6');
+					break;
+				case 'r':
+					codes.append('7');
+					break;
+				case 's':
+				case 'z':
+					codes.append('8');
+					break;
+				default:
+					break;
+				}
+			}
+		}
+
+	};
+
+	private static final char VOWEL = '0';
+
+	/**
+	 * @param language
+	 *            the {@link Language} of a name, can be {@code null}
+	 * @return the encoder for names in that language; {@link #DUTCH} if the
+	 *         language is unknown
+	 */
+	public static Phonetic of(Language language) {
+		Translation translation = Translation.of(language);
+		if (translation == null) {
+			return DUTCH;
+		}
+		switch (translation) {
+		case FR:
+			return FRENCH;
+		case DE:
+			return COLOGNE;
+		default:
+			return DUTCH;
+		}
+	}
+
+	/**
+	 * @param token
+	 *            a normalized name token, not {@code null}
+	 * @return the phonetic key of the token, empty if the token has no
+	 *         letters
+	 */
+	public String encode(String token) {
+		StringBuilder codes = new StringBuilder(token.length() + 2);
+		encode(token, codes);
+		// collapse repeated codes, then keep a vowel only as the first sound
+		int length = 0;
+		for (int i = 0; i < codes.length(); i++) {
+			char c = codes.charAt(i);
+			if (length > 0 && codes.charAt(length - 1) == c) {
+				continue;
+			}
+			codes.setCharAt(length++, c);
+		}
+		codes.setLength(length);
+		length = codes.length() > 0 ? 1 : 0;
+		for (int i = 1; i < codes.length(); i++) {
+			if (codes.charAt(i) != VOWEL) {
+				codes.setCharAt(length++, codes.charAt(i));
+			}
+		}
+		codes.setLength(length);
+		return codes.toString();
+	}
+
+	abstract void encode(String token, StringBuilder codes);
+
+	private static char at(String token, int index) {
+		return index < token.length() ? token.charAt(index) : 0;
+	}
+
+}
@@ -0,0 +1,346 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.index.PostingLists;
+import be.ceau.kbobce.index.RegisterGraph;
+
+/**
+ * Phonetic name matching over the {@link Denomination} values of the
+ * enterprises of a {@link RegisterGraph} and their establishments.
+ * <p>
+ * Every denomination is encoded once, with the {@link Phonetic} encoder for
+ * its {@link Language}, into the keys of its tokens and the key of the whole
+ * name without spaces. Both are stored in hash indexes. A query looks up its
+ * own keys to collect candidates and re-ranks only those by the share of
+ * phonetic tokens they have in common, so matching a batch of names never
+ * compares names pairwise. Token keys shared by more than
+ * {@code maxPostings} denominations, such as those of legal form
+ * abbreviations, are not indexed and do not yield candidates.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class PhoneticIndex {
+
+	/**
+	 * The number of rarest query tokens whose postings are used as
+	 * candidates, in addition to the whole-name key.
+	 */
+	private static final int CANDIDATE_TOKENS = 2;
+
+	private static final int DEFAULT_MAX_POSTINGS = 1000;
+
+	/**
+	 * Exact names first, then by descending score, then by ordinal.
+	 */
+	private static final Comparator<Match> ORDER = (a, b) -> {
+		if (a.exact != b.exact) {
+			return a.exact ? -1 : 1;
+		}
+		int compare = Double.compare(b.score, a.score);
+		return compare != 0 ? compare : Integer.compare(a.ordinal, b.ordinal);
+	};
+
+	/**
+	 * @param graph
+	 *            the {@link RegisterGraph} whose names to index, not
+	 *            {@code null}
+	 * @return a new {@link PhoneticIndex} that skips token keys shared by
+	 *         more than 1000 denominations
+	 */
+	public static PhoneticIndex of(RegisterGraph graph) {
+		return of(graph, DEFAULT_MAX_POSTINGS);
+	}
+
+	/**
+	 * @param graph
+	 *            the {@link RegisterGraph} whose names to index, not
+	 *            {@code null}
+	 * @param maxPostings
+	 *            the maximum number of denominations sharing a token key for
+	 *            that key to be used, positive
+	 * @return a new {@link PhoneticIndex}
+	 */
+	public static PhoneticIndex of(RegisterGraph graph, int maxPostings) {
+		if (graph == null) {
+			throw new IllegalArgumentException("graph is null");
+		}
+		if (maxPostings < 1) {
+			throw new IllegalArgumentException("maxPostings must be positive");
+		}
+		List<Denomination> denominations = new ArrayList<>();
+		List<Integer> ordinals = new ArrayList<>();
+		for (int e = 0; e < graph.enterpriseCount(); e++) {
+			Enterprise enterprise = graph.enterprise(e);
+			for (Denomination denomination : enterprise.getDenominations()) {
+				denominations.add(denomination);
+				ordinals.add(e);
+			}
+			for (Establishment establishment : enterprise.getEstablishments()) {
+				for (Denomination denomination : establishment.getDenominations()) {
+					denominations.add(denomination);
+					ordinals.add(e);
+				}
+			}
+		}
+		return new PhoneticIndex(denominations, ordinals, maxPostings);
+	}
+
+	private final Denomination[] denominations;
+	private final int[] ordinals;
+	private final Phonetic[] encoders;
+	private final String[] names;
+	private final String[] nameKeys;
+	private final String[][] keys;
+	private final Map<Phonetic, Map<String, int[]>> byName = new EnumMap<>(Phonetic.class);
+	private final Map<Phonetic, Map<String, int[]>> byToken = new EnumMap<>(Phonetic.class);
+
+	private PhoneticIndex(List<Denomination> denominations, List<Integer> ordinals, int maxPostings) {
+		int n = denominations.size();
+		this.denominations = denominations.toArray(new Denomination[n]);
+		this.ordinals = new int[n];
+		this.encoders = new Phonetic[n];
+		this.names = new String[n];
+		this.nameKeys = new String[n];
+		this.keys = new String[n][];
+		Map<Phonetic, PostingLists> namePostings = new EnumMap<>(Phonetic.class);
+		Map<Phonetic, PostingLists> tokenPostings = new EnumMap<>(Phonetic.class);
+		for (Phonetic encoder : Phonetic.values()) {
+			namePostings.put(encoder, new PostingLists());
+			tokenPostings.put(encoder, new PostingLists(maxPostings));
+		}
+		for (int i = 0; i < n; i++) {
+			Denomination denomination = this.denominations[i];
+			Phonetic encoder = Phonetic.of(denomination.getLanguage());
+			String normalized = NameNormalizer.normalize(denomination.getValue());
+			this.ordinals[i] = ordinals.get(i);
+			this.encoders[i] = encoder;
+			this.names[i] = normalized == null ? "" : normalized.replace(" ", "");
+			this.nameKeys[i] = encoder.encode(this.names[i]);
+			this.keys[i] = keys(encoder, normalized);
+			namePostings.get(encoder).add(this.nameKeys[i], i);
+			for (String key : this.keys[i]) {
+				tokenPostings.get(encoder).add(key, i);
+			}
+		}
+		for (Phonetic encoder : Phonetic.values()) {
+			byName.put(encoder, namePostings.get(encoder).compact());
+			byToken.put(encoder, tokenPostings.get(encoder).compact());
+		}
+	}
+
+	/**
+	 * @param name
+	 *            the name to match, can be {@code null}
+	 * @param language
+	 *            the {@link Language} of the name, or {@code null} to try
+	 *            every {@link Phonetic} encoder
+	 * @param limit
+	 *            the maximum number of matches, positive
+	 * @return the best {@link Match} per enterprise, best first
+	 */
+	public List<Match> match(String name, Language language, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be positive");
+		}
+		String normalized = NameNormalizer.normalize(name);
+		if (normalized == null || normalized.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String compact = normalized.replace(" ", "");
+		List<Phonetic> encoders = language == null ? Arrays.asList(Phonetic.values()) : Collections.singletonList(Phonetic.of(language));
+		Map<Integer, Match> best = new HashMap<>();
+		for (Phonetic encoder : encoders) {
+			String[] queryKeys = keys(encoder, normalized);
+			String nameKey = encoder.encode(compact);
+			for (int i : candidates(encoder, nameKey, queryKeys)) {
+				boolean exact = names[i].equals(compact);
+				double score = nameKey.equals(nameKeys[i]) ? 1d : dice(queryKeys, keys[i]);
+				Match match = new Match(ordinals[i], denominations[i], score, exact);
+				Match previous = best.get(ordinals[i]);
+				if (previous == null || ORDER.compare(match, previous) < 0) {
+					best.put(ordinals[i], match);
+				}
+			}
+		}
+		return best.values().stream()
+				.sorted(ORDER)
+				.limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Matches a batch of names in parallel.
+	 * 
+	 * @param names
+	 *            the names to match, not {@code null}
+	 * @param language
+	 *            the {@link Language} of the names, or {@code null} to try
+	 *            every {@link Phonetic} encoder
+	 * @param limit
+	 *            the maximum number of matches per name, positive
+	 * @return the matches of each name, in the order of the argument
+	 */
+	public List<List<Match>> match(List<String> names, Language language, int limit) {
+		if (names == null) {
+			throw new IllegalArgumentException("names is null");
+		}
+		return names.parallelStream()
+				.map(name -> match(name, language, limit))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the number of indexed denominations
+	 */
+	public int size() {
+		return denominations.length;
+	}
+
+	private Set<Integer> candidates(Phonetic encoder, String nameKey, String[] queryKeys) {
+		Set<Integer> candidates = new LinkedHashSet<>();
+		int[] sameName = byName.get(encoder).get(nameKey);
+		if (sameName != null) {
+			for (int i : sameName) {
+				candidates.add(i);
+			}
+		}
+		Map<String, int[]> tokens = byToken.get(encoder);
+		int[][] postings = Arrays.stream(queryKeys)
+				.map(tokens::get)
+				.filter(list -> list != null)
+				.sorted((a, b) -> Integer.compare(a.length, b.length))
+				.limit(CANDIDATE_TOKENS)
+				.toArray(int[][]::new);
+		for (int[] list : postings) {
+			for (int i : list) {
+				candidates.add(i);
+			}
+		}
+		return candidates;
+	}
+
+	private static String[] keys(Phonetic encoder, String normalized) {
+		if (normalized == null) {
+			return new String[0];
+		}
+		return Arrays.stream(NameNormalizer.tokens(normalized))
+				.map(encoder::encode)
+				.filter(key -> !key.isEmpty())
+				.distinct()
+				.toArray(String[]::new);
+	}
+
+	/**
+	 * @return the Sørensen-Dice coefficient of two sets of distinct keys
+	 */
+	private static double dice(String[] a, String[] b) {
+		if (a.length == 0 || b.length == 0) {
+			return 0d;
+		}
+		int shared = 0;
+		for (String x : a) {
+			for (String y : b) {
+				if (x.equals(y)) {
+					shared++;
+					break;
+				}
+			}
+		}
+		return 2d * shared / (a.length + b.length);
+	}
+
+	/**
+	 * A matching enterprise.
+	 */
+	public static final class Match {
+
+		private final int ordinal;
+		private final Denomination denomination;
+		private final double score;
+		private final boolean exact;
+
+		private Match(int ordinal, Denomination denomination, double score, boolean exact) {
+			this.ordinal = ordinal;
+			this.denomination = denomination;
+			this.score = score;
+			this.exact = exact;
+		}
+
+		/**
+		 * @return the ordinal of the matching enterprise in the
+		 *         {@link RegisterGraph}
+		 */
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		/**
+		 * @return the {@link Denomination} that matched
+		 */
+		public Denomination getDenomination() {
+			return denomination;
+		}
+
+		/**
+		 * @return the share of phonetic tokens in common, between 0 and 1; 1
+		 *         if the whole names sound alike
+		 */
+		public double getScore() {
+			return score;
+		}
+
+		/**
+		 * @return whether the normalized names are equal
+		 */
+		public boolean isExact() {
+			return exact;
+		}
+
+		@Override
+		public String toString() {
+			return new StringBuilder()
+					.append("Match [ordinal=")
+					.append(ordinal)
+					.append(", denomination=")
+					.append(denomination)
+					.append(", score=")
+					.append(score)
+					.append(", exact=")
+					.append(exact)
+					.append("]")
+					.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+/**
+ * Resolves batches of raw enterprise numbers against an
+ * {@link EnterpriseStore}.
+ * <p>
+ * Inputs are parsed with {@link EnterpriseNumber#parse(String)}, then sorted
+ * and deduplicated on their packed form, so every distinct enterprise is
+ * looked up once and in key order. Large batches are split into contiguous
+ * key ranges that are resolved in parallel on an {@link Executor}. Results
+ * are returned in input order.
+ * <p>
+ * This class holds no monitors while waiting, so callers running on
+ * lightweight threads are not pinned to their carrier; pass an executor
+ * backed by such threads to fan out blocking lookups cheaply. Instances are
+ * immutable and can be shared between threads.
+ */
+public class BatchLookup {
+
+	/**
+	 * @param store
+	 *            the {@link EnterpriseStore} to resolve numbers against, not
+	 *            {@code null}
+	 * @return a new {@link Builder} instance for construction of a
+	 *         {@link BatchLookup}
+	 */
+	public static Builder builder(EnterpriseStore store) {
+		if (store == null) {
+			throw new IllegalArgumentException("store is null");
+		}
+		return new Builder(store);
+	}
+
+	private final EnterpriseStore store;
+	private final Executor executor;
+	private final int partitionSize;
+	private final int parallelism;
+
+	private BatchLookup(Builder builder) {
+		this.store = builder.store;
+		this.executor = builder.executor;
+		this.partitionSize = builder.partitionSize;
+		this.parallelism = builder.parallelism;
+	}
+
+	/**
+	 * Resolves a batch, blocking until all lookups complete.
+	 * 
+	 * @param numbers
+	 *            raw enterprise numbers in any format accepted by
+	 *            {@link EnterpriseNumber#parse(String)}, not {@code null}
+	 * @return an unmodifiable {@link List} with, at the index of each input,
+	 *         the matching {@link Enterprise}, or {@code null} if the input is
+	 *         invalid or not found
+	 */
+	public List<Enterprise> lookup(List<String> numbers) {
+		try {
+			return lookupAsync(numbers).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Resolves a batch asynchronously. Small batches are resolved on the
+	 * calling thread.
+	 * 
+	 * @param numbers
+	 *            raw enterprise numbers in any format accepted by
+	 *            {@link EnterpriseNumber#parse(String)}, not {@code null}
+	 * @return a {@link CompletableFuture} of the result described in
+	 *         {@link #lookup(List)}
+	 */
+	public CompletableFuture<List<Enterprise>> lookupAsync(List<String> numbers) {
+		long[] keys = new long[numbers.size()];
+		long[] unique = new long[keys.length];
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			EnterpriseNumber parsed = EnterpriseNumber.parse(numbers.get(i));
+			keys[i] = parsed == null ? -1 : parsed.toLong();
+			if (parsed != null) {
+				unique[count++] = keys[i];
+			}
+		}
+		Arrays.sort(unique, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || unique[i] != unique[distinct - 1]) {
+				unique[distinct++] = unique[i];
+			}
+		}
+		long[] sorted = Arrays.copyOf(unique, distinct);
+		Enterprise[] resolved = new Enterprise[distinct];
+
+		int partitions = Math.min(parallelism, (distinct + partitionSize - 1) / partitionSize);
+		if (partitions <= 1) {
+			try {
+				resolve(sorted, resolved, 0, distinct);
+			} catch (RuntimeException e) {
+				CompletableFuture<List<Enterprise>> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+			return CompletableFuture.completedFuture(results(keys, sorted, resolved));
+		}
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions];
+		for (int p = 0; p < partitions; p++) {
+			int from = (int) ((long) distinct * p / partitions);
+			int to = (int) ((long) distinct * (p + 1) / partitions);
+			futures[p] = CompletableFuture.runAsync(() -> resolve(sorted, resolved, from, to), executor);
+		}
+		return CompletableFuture.allOf(futures).thenApply(done -> results(keys, sorted, resolved));
+	}
+
+	private void resolve(long[] sorted, Enterprise[] resolved, int from, int to) {
+		for (int i = from; i < to; i++) {
+			resolved[i] = store.get(EnterpriseNumber.fromLong(sorted[i]));
+		}
+	}
+
+	private static List<Enterprise> results(long[] keys, long[] sorted, Enterprise[] resolved) {
+		Enterprise[] results = new Enterprise[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] >= 0) {
+				results[i] = resolved[Arrays.binarySearch(sorted, keys[i])];
+			}
+		}
+		return Collections.unmodifiableList(Arrays.asList(results));
+	}
+
+	/**
+	 * Builder class for new {@link BatchLookup} instances.
+	 */
+	public static class Builder {
+
+		private final EnterpriseStore store;
+		private Executor executor = ForkJoinPool.commonPool();
+		private int partitionSize = 4096;
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+
+		private Builder(EnterpriseStore store) {
+			this.store = store;
+		}
+
+		/**
+		 * @param executor
+		 *            the {@link Executor} to resolve partitions on, defaults
+		 *            to the common {@link ForkJoinPool}
+		 * @return this {@link Builder}
+		 */
+		public Builder withExecutor(Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("executor is null");
+			}
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param partitionSize
+		 *            the minimum number of distinct numbers per parallel
+		 *            task, positive; smaller batches are resolved on the
+		 *            calling thread
+		 * @return this {@link Builder}
+		 */
+		public Builder withPartitionSize(int partitionSize) {
+			if (partitionSize < 1) {
+				throw new IllegalArgumentException("partitionSize must be positive");
+			}
+			this.partitionSize = partitionSize;
+			return this;
+		}
+
+		/**
+		 * @param parallelism
+		 *            the maximum number of parallel tasks per batch, positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withParallelism(int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("parallelism must be positive");
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		public BatchLookup build() {
+			return new BatchLookup(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+/**
+ * Immutable snapshot of the statistics of a {@link CachingEnterpriseStore}.
+ */
+public class CacheStats {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long loadCount;
+
+	private final long totalLoadTime;
+
+	private final long evictionCount;
+
+	private final long evictionWeight;
+
+	CacheStats(long hitCount, long missCount, long loadCount, long totalLoadTime, long evictionCount, long evictionWeight) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadCount = loadCount;
+		this.totalLoadTime = totalLoadTime;
+		this.evictionCount = evictionCount;
+		this.evictionWeight = evictionWeight;
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of lookups passed on to the underlying store
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of lookups for which the underlying store returned an
+	 *         {@code Enterprise}
+	 */
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * @return the total time spent in the underlying store, in nanoseconds
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * @return the number of entries evicted to stay within the maximum weight
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the sum of the weights of all evicted entries
+	 */
+	public long getEvictionWeight() {
+		return evictionWeight;
+	}
+
+	/**
+	 * @return the ratio of hits to lookups, or {@code 1.0} if there were no
+	 *         lookups
+	 */
+	public double hitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * @return the average time spent in the underlying store per miss, in
+	 *         nanoseconds
+	 */
+	public double averageLoadPenalty() {
+		return missCount == 0 ? 0.0 : (double) totalLoadTime / missCount;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("CacheStats [hitCount=")
+				.append(hitCount)
+				.append(", missCount=")
+				.append(missCount)
+				.append(", loadCount=")
+				.append(loadCount)
+				.append(", totalLoadTime=")
+				.append(totalLoadTime)
+				.append(", evictionCount=")
+				.append(evictionCount)
+				.append(", evictionWeight=")
+				.append(evictionWeight)
+				.append("]")
+				.toString();
+	}
+
+}
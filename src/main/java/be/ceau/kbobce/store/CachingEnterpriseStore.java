@@ -0,0 +1,459 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+
+/**
+ * Bounded read-through cache in front of another {@link EnterpriseStore}.
+ * <p>
+ * Entries are looked up without locking. Eviction follows a segmented LRU
+ * policy: new entries enter a probationary segment and are promoted to a
+ * protected segment when they are hit again, so a burst of one-off lookups
+ * can not flush the frequently requested entries. The policy is striped over
+ * a number of independently locked segments. Reordering on a hit is skipped
+ * when the lock of its stripe is contended, trading a little precision for
+ * never blocking a reader.
+ * <p>
+ * The size of the cache is bounded by the total weight of its entries, shared
+ * by all stripes: an entry that pushes the total over the maximum evicts the
+ * least recently used entries of the stripes in turn. An entry heavier than
+ * the maximum on its own is returned but not cached. By default the weight of
+ * an {@link Enterprise} is one plus the number of elements in its child
+ * collections, including those of its {@link Establishment} instances.
+ * <p>
+ * Two threads missing on the same key at the same time may both load it from
+ * the underlying store; only one of the results is cached.
+ */
+public class CachingEnterpriseStore implements EnterpriseStore {
+
+	/**
+	 * @param delegate
+	 *            the {@link EnterpriseStore} to cache, not {@code null}
+	 * @return a new {@link Builder} instance for construction of a
+	 *         {@link CachingEnterpriseStore}
+	 */
+	public static Builder builder(EnterpriseStore delegate) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("delegate is null");
+		}
+		return new Builder(delegate);
+	}
+
+	/**
+	 * Default weigher: one plus the sizes of all child collections.
+	 * 
+	 * @param enterprise
+	 *            an {@link Enterprise}, not {@code null}
+	 * @return a positive {@code int}
+	 */
+	public static int weigh(Enterprise enterprise) {
+		int weight = 1
+				+ enterprise.getDenominations().size()
+				+ enterprise.getAddresses().size()
+				+ enterprise.getContacts().size()
+				+ enterprise.getActivities().size();
+		for (Establishment establishment : enterprise.getEstablishments()) {
+			weight += 1
+					+ establishment.getDenominations().size()
+					+ establishment.getAddresses().size()
+					+ establishment.getContacts().size()
+					+ establishment.getActivities().size();
+		}
+		return weight;
+	}
+
+	private final EnterpriseStore delegate;
+
+	private final ToIntFunction<Enterprise> weigher;
+
+	private final ConcurrentHashMap<EnterpriseNumber, Node> map;
+
+	private final Stripe[] stripes;
+
+	private final long maximumWeight;
+
+	private final AtomicLong weight = new AtomicLong();
+
+	private final AtomicInteger evictionCursor = new AtomicInteger();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadTime = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder evictionWeight = new LongAdder();
+
+	private CachingEnterpriseStore(Builder builder) {
+		this.delegate = builder.delegate;
+		this.weigher = builder.weigher;
+		int stripeCount = Integer.highestOneBit(Math.max(1, builder.concurrencyLevel) * 2 - 1);
+		long protectedWeight = Math.max(1L, builder.maximumWeight * 4 / 5 / stripeCount);
+		this.maximumWeight = builder.maximumWeight;
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new Stripe(protectedWeight);
+		}
+		this.map = new ConcurrentHashMap<>(16, 0.75f, stripeCount);
+	}
+
+	@Override
+	public Enterprise get(EnterpriseNumber enterpriseNumber) {
+		Node node = map.get(enterpriseNumber);
+		if (node != null) {
+			hits.increment();
+			Stripe stripe = stripeFor(enterpriseNumber);
+			if (stripe.lock.tryLock()) {
+				try {
+					if (node.linked) {
+						stripe.onHit(node);
+					}
+				} finally {
+					stripe.lock.unlock();
+				}
+			}
+			return node.value;
+		}
+
+		misses.increment();
+		long start = System.nanoTime();
+		Enterprise enterprise = delegate.get(enterpriseNumber);
+		loadTime.add(System.nanoTime() - start);
+		if (enterprise == null) {
+			return null;
+		}
+		loads.increment();
+
+		Node created = new Node(enterpriseNumber, enterprise, Math.max(1, weigher.applyAsInt(enterprise)));
+		if (created.weight > maximumWeight) {
+			return enterprise;
+		}
+		Node existing = map.putIfAbsent(enterpriseNumber, created);
+		if (existing != null) {
+			return existing.value;
+		}
+		Stripe stripe = stripeFor(enterpriseNumber);
+		stripe.lock.lock();
+		try {
+			if (map.get(enterpriseNumber) == created) {
+				stripe.add(created);
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+		evict(created);
+		return enterprise;
+	}
+
+	/**
+	 * Evicts entries until the total weight is within bounds, taking the least
+	 * recently used entry of each stripe in turn, probationary entries first.
+	 * Locks one stripe at a time, so it must be called without holding any.
+	 * 
+	 * @param keep
+	 *            the {@link Node} just added, never evicted by this call
+	 */
+	private void evict(Node keep) {
+		boolean protect = false;
+		while (weight.get() > maximumWeight) {
+			boolean evicted = false;
+			for (int i = 0; i < stripes.length && weight.get() > maximumWeight; i++) {
+				Stripe stripe = stripes[evictionCursor.getAndIncrement() & (stripes.length - 1)];
+				stripe.lock.lock();
+				try {
+					evicted |= stripe.evictOne(protect, keep);
+				} finally {
+					stripe.lock.unlock();
+				}
+			}
+			if (!evicted) {
+				if (protect) {
+					return;
+				}
+				protect = true;
+			}
+		}
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return the cached {@link Enterprise}, or {@code null} if not cached,
+	 *         never consulting the underlying store
+	 */
+	public Enterprise getIfPresent(EnterpriseNumber enterpriseNumber) {
+		Node node = map.get(enterpriseNumber);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Discard the cached entry for the given key, if any.
+	 * 
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 */
+	public void invalidate(EnterpriseNumber enterpriseNumber) {
+		Stripe stripe = stripeFor(enterpriseNumber);
+		stripe.lock.lock();
+		try {
+			Node node = map.remove(enterpriseNumber);
+			if (node != null && node.linked) {
+				stripe.unlink(node);
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Discard all cached entries.
+	 */
+	public void invalidateAll() {
+		for (EnterpriseNumber enterpriseNumber : map.keySet()) {
+			invalidate(enterpriseNumber);
+		}
+	}
+
+	/**
+	 * @return the number of cached entries
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	/**
+	 * @return the sum of the weights of all cached entries
+	 */
+	public long weightedSize() {
+		return weight.get();
+	}
+
+	/**
+	 * @return a snapshot of the statistics of this cache
+	 */
+	public CacheStats stats() {
+		return new CacheStats(hits.sum(), misses.sum(), loads.sum(), loadTime.sum(), evictions.sum(), evictionWeight.sum());
+	}
+
+	private Stripe stripeFor(EnterpriseNumber enterpriseNumber) {
+		int h = enterpriseNumber.hashCode();
+		h ^= h >>> 16;
+		return stripes[h & (stripes.length - 1)];
+	}
+
+	private static final class Node {
+
+		final EnterpriseNumber key;
+		final Enterprise value;
+		final int weight;
+
+		Node prev;
+		Node next;
+		boolean linked;
+		boolean promoted;
+
+		Node(EnterpriseNumber key, Enterprise value, int weight) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+
+	}
+
+	/**
+	 * Doubly linked list of {@link Node} instances, least recently used first.
+	 */
+	private static final class Queue {
+
+		Node head;
+		Node tail;
+		long weight;
+
+		void append(Node node) {
+			node.prev = tail;
+			node.next = null;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			weight += node.weight;
+		}
+
+		void remove(Node node) {
+			if (node.prev == null) {
+				head = node.next;
+			} else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.prev;
+			} else {
+				node.next.prev = node.prev;
+			}
+			node.prev = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+
+	}
+
+	/**
+	 * Segmented LRU policy for one stripe of the key space. All methods must
+	 * be called while holding {@link #lock}.
+	 */
+	private final class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+		final Queue probation = new Queue();
+		final Queue protect = new Queue();
+		final long maximumProtectedWeight;
+
+		Stripe(long maximumProtectedWeight) {
+			this.maximumProtectedWeight = maximumProtectedWeight;
+		}
+
+		void add(Node node) {
+			node.linked = true;
+			node.promoted = false;
+			probation.append(node);
+			weight.addAndGet(node.weight);
+		}
+
+		/**
+		 * @param fromProtected
+		 *            whether to take the victim from the protected segment
+		 *            rather than the probationary one
+		 * @param keep
+		 *            a {@link Node} not to evict
+		 * @return whether an entry was evicted
+		 */
+		boolean evictOne(boolean fromProtected, Node keep) {
+			Node victim = fromProtected ? protect.head : probation.head;
+			if (victim == keep) {
+				victim = victim.next;
+			}
+			if (victim == null) {
+				return false;
+			}
+			unlink(victim);
+			map.remove(victim.key, victim);
+			evictions.increment();
+			evictionWeight.add(victim.weight);
+			return true;
+		}
+
+		void onHit(Node node) {
+			if (node.promoted) {
+				protect.remove(node);
+				protect.append(node);
+				return;
+			}
+			probation.remove(node);
+			node.promoted = true;
+			protect.append(node);
+			while (protect.weight > maximumProtectedWeight && protect.head != node) {
+				Node demoted = protect.head;
+				protect.remove(demoted);
+				demoted.promoted = false;
+				probation.append(demoted);
+			}
+		}
+
+		void unlink(Node node) {
+			if (node.promoted) {
+				protect.remove(node);
+			} else {
+				probation.remove(node);
+			}
+			node.linked = false;
+			weight.addAndGet(-node.weight);
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link CachingEnterpriseStore} instances.
+	 */
+	public static class Builder {
+
+		private final EnterpriseStore delegate;
+		private long maximumWeight = 100_000L;
+		private ToIntFunction<Enterprise> weigher = CachingEnterpriseStore::weigh;
+		private int concurrencyLevel = Runtime.getRuntime().availableProcessors() * 4;
+
+		private Builder(EnterpriseStore delegate) {
+			this.delegate = delegate;
+		}
+
+		/**
+		 * @param maximumWeight
+		 *            the maximum total weight of all cached entries, positive
+		 * @return this {@link Builder}
+		 */
+		public Builder withMaximumWeight(long maximumWeight) {
+			if (maximumWeight < 1) {
+				throw new IllegalArgumentException("maximumWeight must be positive");
+			}
+			this.maximumWeight = maximumWeight;
+			return this;
+		}
+
+		/**
+		 * @param weigher
+		 *            function computing the positive weight of an
+		 *            {@link Enterprise}, not {@code null}
+		 * @return this {@link Builder}
+		 */
+		public Builder withWeigher(ToIntFunction<Enterprise> weigher) {
+			if (weigher == null) {
+				throw new IllegalArgumentException("weigher is null");
+			}
+			this.weigher = weigher;
+			return this;
+		}
+
+		/**
+		 * @param concurrencyLevel
+		 *            the expected number of concurrent writers, rounded up to
+		 *            a power of two to get the number of stripes
+		 * @return this {@link Builder}
+		 */
+		public Builder withConcurrencyLevel(int concurrencyLevel) {
+			if (concurrencyLevel < 1) {
+				throw new IllegalArgumentException("concurrencyLevel must be positive");
+			}
+			this.concurrencyLevel = concurrencyLevel;
+			return this;
+		}
+
+		public CachingEnterpriseStore build() {
+			return new CachingEnterpriseStore(this);
+		}
+
+	}
+
+}
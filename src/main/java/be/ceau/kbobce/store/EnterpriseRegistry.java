@@ -0,0 +1,223 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+/**
+ * Mutable, concurrent registry of {@link Enterprise} instances, keyed by
+ * {@link EnterpriseNumber#toLong()}, for applying updates while serving
+ * reads.
+ * <p>
+ * Reads never lock. Every write to a key is atomic and linearizable with
+ * respect to other writes to that key; writes to different keys only contend
+ * when they hash to the same bin. Compare-and-set operations compare
+ * {@link Enterprise} instances by identity, as {@link Enterprise#equals}
+ * only considers the enterprise number.
+ * <p>
+ * A secondary index maps each {@link EstablishmentNumber} to its enterprise.
+ * It is maintained within the atomic write of the enterprise, so it is
+ * consistent once that write completes. Lookups through it are verified
+ * against the current enterprise, so even concurrently with a write they
+ * never return an enterprise that does not hold the establishment.
+ */
+public class EnterpriseRegistry implements EnterpriseStore {
+
+	private final ConcurrentHashMap<Long, Enterprise> enterprises;
+	private final ConcurrentHashMap<Long, Long> establishments;
+
+	/**
+	 * Constructor
+	 */
+	public EnterpriseRegistry() {
+		this(16);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param expectedEnterprises
+	 *            the expected number of enterprises, to size the tables
+	 */
+	public EnterpriseRegistry(int expectedEnterprises) {
+		if (expectedEnterprises < 0) {
+			throw new IllegalArgumentException("expectedEnterprises can not be negative");
+		}
+		this.enterprises = new ConcurrentHashMap<>(expectedEnterprises);
+		this.establishments = new ConcurrentHashMap<>(expectedEnterprises);
+	}
+
+	@Override
+	public Enterprise get(EnterpriseNumber enterpriseNumber) {
+		return enterprises.get(enterpriseNumber.toLong());
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            a packed enterprise number, as returned by
+	 *            {@link EnterpriseNumber#toLong()}
+	 * @return the current {@link Enterprise}, or {@code null}
+	 */
+	public Enterprise get(long enterpriseNumber) {
+		return enterprises.get(enterpriseNumber);
+	}
+
+	/**
+	 * @param establishmentNumber
+	 *            an {@link EstablishmentNumber}, not {@code null}
+	 * @return the current {@link Enterprise} holding the given establishment,
+	 *         or {@code null}
+	 */
+	public Enterprise getByEstablishment(EstablishmentNumber establishmentNumber) {
+		Long key = establishments.get(establishmentNumber.toLong());
+		if (key == null) {
+			return null;
+		}
+		Enterprise enterprise = enterprises.get(key);
+		return enterprise != null && holds(enterprise, establishmentNumber) ? enterprise : null;
+	}
+
+	/**
+	 * Adds or replaces an {@link Enterprise}.
+	 * 
+	 * @param enterprise
+	 *            the new {@link Enterprise}, not {@code null}
+	 * @return the replaced {@link Enterprise}, or {@code null}
+	 */
+	public Enterprise put(Enterprise enterprise) {
+		long key = enterprise.getEnterpriseNumber().toLong();
+		Enterprise[] previous = new Enterprise[1];
+		enterprises.compute(key, (k, current) -> {
+			previous[0] = current;
+			reindex(key, current, enterprise);
+			return enterprise;
+		});
+		return previous[0];
+	}
+
+	/**
+	 * Replaces an {@link Enterprise} only if the current value is the expected
+	 * instance.
+	 * 
+	 * @param expected
+	 *            the expected current {@link Enterprise}, not {@code null}
+	 * @param update
+	 *            the new {@link Enterprise}, with the same enterprise number,
+	 *            not {@code null}
+	 * @return {@code true} if the value was replaced
+	 * @throws IllegalArgumentException
+	 *             if the enterprise numbers differ
+	 */
+	public boolean replace(Enterprise expected, Enterprise update) {
+		long key = expected.getEnterpriseNumber().toLong();
+		if (update.getEnterpriseNumber().toLong() != key) {
+			throw new IllegalArgumentException("enterprise numbers differ");
+		}
+		boolean[] replaced = new boolean[1];
+		enterprises.computeIfPresent(key, (k, current) -> {
+			if (current != expected) {
+				return current;
+			}
+			replaced[0] = true;
+			reindex(key, current, update);
+			return update;
+		});
+		return replaced[0];
+	}
+
+	/**
+	 * Atomically applies a function to the current value of a key. Other
+	 * writers to the same bin wait while the function runs, so it should be
+	 * short and must not access this registry.
+	 * 
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @param function
+	 *            computes the new {@link Enterprise} from the current one,
+	 *            which may be {@code null}; returns {@code null} to remove
+	 * @return the new {@link Enterprise}, or {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the function returns an enterprise with another number
+	 */
+	public Enterprise update(EnterpriseNumber enterpriseNumber, UnaryOperator<Enterprise> function) {
+		long key = enterpriseNumber.toLong();
+		return enterprises.compute(key, (k, current) -> {
+			Enterprise result = function.apply(current);
+			if (result != null && result.getEnterpriseNumber().toLong() != key) {
+				throw new IllegalArgumentException("function changed the enterprise number");
+			}
+			if (result != current) {
+				reindex(key, current, result);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return the removed {@link Enterprise}, or {@code null}
+	 */
+	public Enterprise remove(EnterpriseNumber enterpriseNumber) {
+		long key = enterpriseNumber.toLong();
+		Enterprise[] removed = new Enterprise[1];
+		enterprises.computeIfPresent(key, (k, current) -> {
+			removed[0] = current;
+			reindex(key, current, null);
+			return null;
+		});
+		return removed[0];
+	}
+
+	/**
+	 * @return the number of enterprises
+	 */
+	public int size() {
+		return enterprises.size();
+	}
+
+	private void reindex(long key, Enterprise previous, Enterprise current) {
+		Long value = key;
+		if (current != null) {
+			for (Establishment establishment : current.getEstablishments()) {
+				establishments.put(establishment.getEstablishmentNumber().toLong(), value);
+			}
+		}
+		if (previous != null) {
+			for (Establishment establishment : previous.getEstablishments()) {
+				if (current == null || !holds(current, establishment.getEstablishmentNumber())) {
+					establishments.remove(establishment.getEstablishmentNumber().toLong(), value);
+				}
+			}
+		}
+	}
+
+	private static boolean holds(Enterprise enterprise, EstablishmentNumber establishmentNumber) {
+		for (Establishment establishment : enterprise.getEstablishments()) {
+			if (establishment.getEstablishmentNumber().equals(establishmentNumber)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
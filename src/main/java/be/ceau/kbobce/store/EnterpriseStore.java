@@ -0,0 +1,36 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+/**
+ * A source of {@link Enterprise} instances, keyed by {@link EnterpriseNumber}.
+ * Implementations must be safe for use by multiple concurrent threads.
+ */
+@FunctionalInterface
+public interface EnterpriseStore {
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return the matching {@link Enterprise}, or {@code null} if this store
+	 *         does not hold an {@link Enterprise} with the given number
+	 */
+	Enterprise get(EnterpriseNumber enterpriseNumber);
+
+}
@@ -0,0 +1,404 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+/**
+ * Read-only, single-file {@link EnterpriseStore} of {@link Enterprise}
+ * instances sorted by {@link EnterpriseNumber#toLong()}.
+ * <p>
+ * The file holds a sequence of deflate-compressed blocks of enterprises in
+ * the format of {@link Enterprise#write(java.io.DataOutput, Enterprise)}, followed by an index with the first key, position, lengths,
+ * record count and CRC-32 of each block, and a fixed-size footer with the
+ * position and CRC-32 of the index, a format version and a magic number. Only the index is kept in memory. A point
+ * lookup is one positional read and the decoding of one block; range scans
+ * read blocks sequentially. Checksums are verified on every read.
+ * <p>
+ * Files are written with a {@link Writer} obtained from
+ * {@link #writer(Path)}. Readers are safe for use by multiple concurrent
+ * threads.
+ */
+public class SortedEnterpriseFile implements EnterpriseStore, Closeable {
+
+	private static final long MAGIC = 0x4b424f5345463031L;
+	private static final int VERSION = 2;
+	private static final int INDEX_ENTRY_SIZE = 32;
+	private static final int FOOTER_SIZE = 28;
+
+	/**
+	 * @param path
+	 *            the file to write, replacing any existing file, not
+	 *            {@code null}
+	 * @return a new {@link Writer} with blocks of about 64 KiB uncompressed
+	 * @throws IOException
+	 *             if the file can not be created
+	 */
+	public static Writer writer(Path path) throws IOException {
+		return writer(path, 1 << 16);
+	}
+
+	/**
+	 * @param path
+	 *            the file to write, replacing any existing file, not
+	 *            {@code null}
+	 * @param blockSize
+	 *            the uncompressed size in bytes after which a block is
+	 *            completed, positive
+	 * @return a new {@link Writer}
+	 * @throws IOException
+	 *             if the file can not be created
+	 */
+	public static Writer writer(Path path, int blockSize) throws IOException {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("blockSize must be positive");
+		}
+		return new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), blockSize);
+	}
+
+	/**
+	 * @param path
+	 *            a file written by a {@link Writer}, not {@code null}
+	 * @return a new {@link SortedEnterpriseFile}
+	 * @throws IOException
+	 *             if the file can not be read, or its footer or index is
+	 *             corrupt
+	 */
+	public static SortedEnterpriseFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new SortedEnterpriseFile(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private final FileChannel channel;
+	private final long[] firstKeys;
+	private final long[] offsets;
+	private final int[] compressedLengths;
+	private final int[] lengths;
+	private final int[] crcs;
+	private final int[] counts;
+	private final long size;
+
+	private SortedEnterpriseFile(FileChannel channel) throws IOException {
+		this.channel = channel;
+		long fileSize = channel.size();
+		if (fileSize < FOOTER_SIZE) {
+			throw new IOException("file too short for a footer");
+		}
+		ByteBuffer footer = read(fileSize - FOOTER_SIZE, FOOTER_SIZE);
+		long indexOffset = footer.getLong();
+		int blocks = footer.getInt();
+		int indexCrc = footer.getInt();
+		int version = footer.getInt();
+		if (footer.getLong() != MAGIC) {
+			throw new IOException("not a sorted enterprise file");
+		}
+		if (version != VERSION) {
+			throw new IOException("unsupported version " + version);
+		}
+		if (blocks < 0 || indexOffset < 0 || indexOffset + (long) blocks * INDEX_ENTRY_SIZE != fileSize - FOOTER_SIZE) {
+			throw new IOException("corrupt footer");
+		}
+		ByteBuffer index = read(indexOffset, blocks * INDEX_ENTRY_SIZE);
+		CRC32 crc = new CRC32();
+		crc.update(index.array());
+		if ((int) crc.getValue() != indexCrc) {
+			throw new IOException("index checksum mismatch");
+		}
+		this.firstKeys = new long[blocks];
+		this.offsets = new long[blocks];
+		this.compressedLengths = new int[blocks];
+		this.lengths = new int[blocks];
+		this.crcs = new int[blocks];
+		this.counts = new int[blocks];
+		long total = 0;
+		for (int i = 0; i < blocks; i++) {
+			firstKeys[i] = index.getLong();
+			offsets[i] = index.getLong();
+			compressedLengths[i] = index.getInt();
+			lengths[i] = index.getInt();
+			crcs[i] = index.getInt();
+			counts[i] = index.getInt();
+			total += counts[i];
+		}
+		this.size = total;
+	}
+
+	/**
+	 * @throws UncheckedIOException
+	 *             if the file can not be read or a block is corrupt
+	 */
+	@Override
+	public Enterprise get(EnterpriseNumber enterpriseNumber) {
+		long key = enterpriseNumber.toLong();
+		int block = Arrays.binarySearch(firstKeys, key);
+		if (block < 0) {
+			block = -block - 2;
+			if (block < 0) {
+				return null;
+			}
+		}
+		try (DataInputStream in = block(block)) {
+			for (int i = 0; i < counts[block]; i++) {
+				long current = in.readLong();
+				if (current > key) {
+					return null;
+				}
+				Enterprise enterprise = Enterprise.read(in);
+				if (current == key) {
+					return enterprise;
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Passes the enterprises with numbers in the given range to the action,
+	 * in key order.
+	 * 
+	 * @param from
+	 *            the first {@link EnterpriseNumber} to include, or
+	 *            {@code null} to start at the first enterprise
+	 * @param to
+	 *            the first {@link EnterpriseNumber} to exclude, or
+	 *            {@code null} to end at the last enterprise
+	 * @param action
+	 *            receives each {@link Enterprise} in range, not {@code null}
+	 * @throws IOException
+	 *             if the file can not be read or a block is corrupt
+	 */
+	public void scan(EnterpriseNumber from, EnterpriseNumber to, Consumer<? super Enterprise> action) throws IOException {
+		long fromKey = from == null ? Long.MIN_VALUE : from.toLong();
+		long toKey = to == null ? Long.MAX_VALUE : to.toLong();
+		int block = Arrays.binarySearch(firstKeys, fromKey);
+		if (block < 0) {
+			block = Math.max(0, -block - 2);
+		}
+		for (; block < firstKeys.length && firstKeys[block] < toKey; block++) {
+			try (DataInputStream in = block(block)) {
+				for (int i = 0; i < counts[block]; i++) {
+					long key = in.readLong();
+					if (key >= toKey) {
+						return;
+					}
+					Enterprise enterprise = Enterprise.read(in);
+					if (key >= fromKey) {
+						action.accept(enterprise);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of enterprises in this file
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of blocks in this file
+	 */
+	public int blockCount() {
+		return firstKeys.length;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private DataInputStream block(int block) throws IOException {
+		ByteBuffer compressed = read(offsets[block], compressedLengths[block]);
+		CRC32 crc = new CRC32();
+		crc.update(compressed.array());
+		if ((int) crc.getValue() != crcs[block]) {
+			throw new IOException("checksum mismatch in block " + block);
+		}
+		byte[] bytes = new byte[lengths[block]];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed.array());
+			if (inflater.inflate(bytes) != bytes.length || !inflater.finished()) {
+				throw new IOException("length mismatch in block " + block);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("corrupt block " + block, e);
+		} finally {
+			inflater.end();
+		}
+		return new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Writes a {@link SortedEnterpriseFile}. Enterprises must be appended in
+	 * strictly increasing order of {@link EnterpriseNumber#toLong()}. Not
+	 * thread-safe.
+	 */
+	public static class Writer implements Closeable {
+
+		private final FileChannel channel;
+		private final int blockSize;
+		private final Deflater deflater = new Deflater();
+		private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream bytes;
+		private final DataOutputStream out;
+		private boolean open;
+		private boolean closed;
+		private long position;
+		private long lastKey = -1;
+		private long firstKey;
+		private int count;
+		private int blocks;
+
+		private Writer(FileChannel channel, int blockSize) {
+			this.channel = channel;
+			this.blockSize = blockSize;
+			this.bytes = new ByteArrayOutputStream(blockSize + (blockSize >> 2));
+			this.out = new DataOutputStream(bytes);
+		}
+
+		/**
+		 * @param enterprise
+		 *            the next {@link Enterprise}, not {@code null}
+		 * @throws IOException
+		 *             if the file can not be written
+		 * @throws IllegalArgumentException
+		 *             if the enterprise does not sort after the previous one
+		 * @throws IllegalStateException
+		 *             if this {@link Writer} is closed
+		 */
+		public void append(Enterprise enterprise) throws IOException {
+			if (closed) {
+				throw new IllegalStateException("writer is closed");
+			}
+			long key = enterprise.getEnterpriseNumber().toLong();
+			if (key <= lastKey) {
+				throw new IllegalArgumentException(enterprise.getEnterpriseNumber() + " is not greater than the previous enterprise");
+			}
+			if (!open) {
+				bytes.reset();
+				open = true;
+				firstKey = key;
+				count = 0;
+			}
+			out.writeLong(key);
+			Enterprise.write(out, enterprise);
+			lastKey = key;
+			count++;
+			if (bytes.size() >= blockSize) {
+				flushBlock();
+			}
+		}
+
+		private void flushBlock() throws IOException {
+			open = false;
+			byte[] uncompressed = bytes.toByteArray();
+			deflater.reset();
+			deflater.setInput(uncompressed);
+			deflater.finish();
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 2 + 64);
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				int n = deflater.deflate(buffer);
+				compressed.write(buffer, 0, n);
+			}
+			byte[] block = compressed.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(block);
+			ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+			entry.putLong(firstKey).putLong(position).putInt(block.length).putInt(uncompressed.length).putInt((int) crc.getValue()).putInt(count);
+			index.write(entry.array());
+			write(ByteBuffer.wrap(block));
+			blocks++;
+		}
+
+		private void write(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer);
+			}
+		}
+
+		/**
+		 * Completes the last block and writes the index and footer. Has no
+		 * effect if this {@link Writer} is already closed.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				if (open) {
+					flushBlock();
+				}
+				long indexOffset = position;
+				byte[] indexBytes = index.toByteArray();
+				CRC32 crc = new CRC32();
+				crc.update(indexBytes);
+				write(ByteBuffer.wrap(indexBytes));
+				ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+				footer.putLong(indexOffset).putInt(blocks).putInt((int) crc.getValue()).putInt(VERSION).putLong(MAGIC);
+				footer.flip();
+				write(footer);
+			} finally {
+				deflater.end();
+				channel.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,482 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.JuridicalSituation;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.codes.TypeOfEnterprise;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Contact;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+/**
+ * {@link EnterpriseStore} that keeps the history of every enterprise across
+ * successive full dumps and update files of the register, and answers
+ * point-in-time lookups with {@link #asOf(EnterpriseNumber, LocalDate)}.
+ * <p>
+ * Each {@link EnterpriseNumber} has a chain of versions, ordered by the date
+ * from which they are valid. A version holds the full {@link Enterprise}
+ * every {@code checkpointInterval} versions; the versions in between only
+ * hold what changed since the previous one: the changed fields, and the
+ * elements added to and removed from each collection. An enterprise that
+ * disappears from a full dump, or is deleted by an update, gets a tombstone
+ * version. Ingesting an unchanged enterprise adds no version.
+ * <p>
+ * The dates of a chain are kept in a sorted array, so the version valid on
+ * a date is found by binary search in {@code O(log versions)}, after which
+ * at most {@code checkpointInterval - 1} deltas are applied to the nearest
+ * preceding checkpoint.
+ * <p>
+ * Ingestion is serialized; lookups may run concurrently with ingestion.
+ */
+public class TemporalStore implements EnterpriseStore {
+
+	private static final Object TOMBSTONE = new Object();
+
+	/**
+	 * @return a new {@link Builder} instance for construction of a
+	 *         {@link TemporalStore}
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private final int checkpointInterval;
+	private final ConcurrentHashMap<Long, Chain> chains = new ConcurrentHashMap<>();
+	private LocalDate lastIngested;
+
+	private TemporalStore(Builder builder) {
+		this.checkpointInterval = builder.checkpointInterval;
+	}
+
+	/**
+	 * Ingests a full dump of the register. Enterprises held by this store
+	 * but missing from the dump are deleted as of the given date.
+	 * 
+	 * @param date
+	 *            the date from which the dump is valid, not before the date
+	 *            of any earlier ingestion, not {@code null}
+	 * @param enterprises
+	 *            all enterprises of the register, not {@code null}
+	 * @return the number of versions added
+	 */
+	public synchronized long ingestSnapshot(LocalDate date, Iterable<Enterprise> enterprises) {
+		int day = day(date);
+		if (enterprises == null) {
+			throw new IllegalArgumentException("enterprises is null");
+		}
+		Set<Long> seen = new HashSet<>();
+		long added = 0;
+		for (Enterprise enterprise : enterprises) {
+			long key = enterprise.getEnterpriseNumber().toLong();
+			seen.add(key);
+			if (chains.computeIfAbsent(key, k -> new Chain()).append(day, enterprise, checkpointInterval)) {
+				added++;
+			}
+		}
+		for (Map.Entry<Long, Chain> entry : chains.entrySet()) {
+			if (!seen.contains(entry.getKey()) && entry.getValue().append(day, null, checkpointInterval)) {
+				added++;
+			}
+		}
+		lastIngested = date;
+		return added;
+	}
+
+	/**
+	 * Ingests an update file of the register.
+	 * 
+	 * @param date
+	 *            the date from which the updates are valid, not before the
+	 *            date of any earlier ingestion, not {@code null}
+	 * @param upserts
+	 *            the new state of changed and new enterprises, not
+	 *            {@code null}
+	 * @param deletions
+	 *            the numbers of deleted enterprises, not {@code null}
+	 * @return the number of versions added
+	 */
+	public synchronized long ingestUpdates(LocalDate date, Iterable<Enterprise> upserts, Iterable<EnterpriseNumber> deletions) {
+		int day = day(date);
+		if (upserts == null) {
+			throw new IllegalArgumentException("upserts is null");
+		}
+		if (deletions == null) {
+			throw new IllegalArgumentException("deletions is null");
+		}
+		long added = 0;
+		for (EnterpriseNumber deletion : deletions) {
+			Chain chain = chains.get(deletion.toLong());
+			if (chain != null && chain.append(day, null, checkpointInterval)) {
+				added++;
+			}
+		}
+		for (Enterprise enterprise : upserts) {
+			if (chains.computeIfAbsent(enterprise.getEnterpriseNumber().toLong(), k -> new Chain()).append(day, enterprise, checkpointInterval)) {
+				added++;
+			}
+		}
+		lastIngested = date;
+		return added;
+	}
+
+	private int day(LocalDate date) {
+		if (date == null) {
+			throw new IllegalArgumentException("date is null");
+		}
+		if (lastIngested != null && date.isBefore(lastIngested)) {
+			throw new IllegalArgumentException("date is before the last ingested date " + lastIngested);
+		}
+		return Math.toIntExact(date.toEpochDay());
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return the current state of the enterprise, or {@code null} if it is
+	 *         unknown or deleted
+	 */
+	@Override
+	public Enterprise get(EnterpriseNumber enterpriseNumber) {
+		Chain chain = chains.get(enterpriseNumber.toLong());
+		return chain == null ? null : chain.head();
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @param date
+	 *            a date, not {@code null}
+	 * @return the state of the enterprise on the given date, or {@code null}
+	 *         if it was unknown or deleted on that date
+	 */
+	public Enterprise asOf(EnterpriseNumber enterpriseNumber, LocalDate date) {
+		if (date == null) {
+			throw new IllegalArgumentException("date is null");
+		}
+		Chain chain = chains.get(enterpriseNumber.toLong());
+		return chain == null ? null : chain.asOf(Math.toIntExact(date.toEpochDay()));
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return the dates from which the versions of the enterprise are valid,
+	 *         including deletions, in ascending order
+	 */
+	public List<LocalDate> versions(EnterpriseNumber enterpriseNumber) {
+		Chain chain = chains.get(enterpriseNumber.toLong());
+		return chain == null ? Collections.emptyList() : chain.dates();
+	}
+
+	/**
+	 * @return the number of enterprises with at least one version
+	 */
+	public int size() {
+		return chains.size();
+	}
+
+	/**
+	 * @return the total number of versions, including deletions
+	 */
+	public long versionCount() {
+		return chains.values().stream().mapToLong(Chain::size).sum();
+	}
+
+	/**
+	 * Versions of one enterprise. Appends happen under the lock of the
+	 * store; reads synchronize on the chain.
+	 */
+	private static final class Chain {
+
+		private int[] days = new int[2];
+		private Object[] versions = new Object[2];
+		private int size;
+		private int sinceCheckpoint;
+		private Enterprise head;
+
+		private synchronized boolean append(int day, Enterprise next, int checkpointInterval) {
+			Object version;
+			if (next == null) {
+				if (head == null) {
+					return false;
+				}
+				version = TOMBSTONE;
+			} else if (head == null || sinceCheckpoint + 1 >= checkpointInterval) {
+				if (head != null && Delta.of(head, next) == null) {
+					return false;
+				}
+				version = next;
+			} else {
+				version = Delta.of(head, next);
+				if (version == null) {
+					return false;
+				}
+			}
+			if (size == days.length) {
+				days = Arrays.copyOf(days, size * 2);
+				versions = Arrays.copyOf(versions, size * 2);
+			}
+			days[size] = day;
+			versions[size] = version;
+			size++;
+			sinceCheckpoint = version instanceof Delta ? sinceCheckpoint + 1 : 0;
+			head = next;
+			return true;
+		}
+
+		private synchronized Enterprise head() {
+			return head;
+		}
+
+		private synchronized int size() {
+			return size;
+		}
+
+		private synchronized List<LocalDate> dates() {
+			List<LocalDate> dates = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				dates.add(LocalDate.ofEpochDay(days[i]));
+			}
+			return dates;
+		}
+
+		private synchronized Enterprise asOf(int day) {
+			// index of the last version valid on the given day
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (days[mid] <= day) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			int index = high;
+			if (index < 0 || versions[index] == TOMBSTONE) {
+				return null;
+			}
+			int checkpoint = index;
+			while (!(versions[checkpoint] instanceof Enterprise)) {
+				checkpoint--;
+			}
+			Enterprise enterprise = (Enterprise) versions[checkpoint];
+			for (int i = checkpoint + 1; i <= index; i++) {
+				enterprise = ((Delta) versions[i]).apply(enterprise);
+			}
+			return enterprise;
+		}
+
+	}
+
+	/**
+	 * Changes between two states of an enterprise.
+	 */
+	private static final class Delta {
+
+		private final boolean juridicalFormChanged;
+		private final Status status;
+		private final JuridicalSituation juridicalSituation;
+		private final TypeOfEnterprise typeOfEnterprise;
+		private final JuridicalForm juridicalForm;
+		private final LocalDate startDate;
+		private final Change<Denomination> denominations;
+		private final Change<Address> addresses;
+		private final Change<Contact> contacts;
+		private final Change<Activity> activities;
+		private final Establishment[] establishments;
+		private final EstablishmentNumber[] removedEstablishments;
+
+		/**
+		 * @return the changes from one state to the next, or {@code null} if
+		 *         there are none
+		 */
+		private static Delta of(Enterprise previous, Enterprise next) {
+			Delta delta = new Delta(previous, next);
+			return delta.isEmpty() ? null : delta;
+		}
+
+		private Delta(Enterprise previous, Enterprise next) {
+			this.status = changed(previous.getStatus(), next.getStatus());
+			this.juridicalSituation = changed(previous.getJuridicalSituation(), next.getJuridicalSituation());
+			this.typeOfEnterprise = changed(previous.getTypeOfEnterprise(), next.getTypeOfEnterprise());
+			this.juridicalFormChanged = !Objects.equals(previous.getJuridicalForm(), next.getJuridicalForm());
+			this.juridicalForm = juridicalFormChanged ? next.getJuridicalForm() : null;
+			this.startDate = changed(previous.getStartDate(), next.getStartDate());
+			this.denominations = Change.of(previous.getDenominations(), next.getDenominations(), new Denomination[0]);
+			this.addresses = Change.of(previous.getAddresses(), next.getAddresses(), new Address[0]);
+			this.contacts = Change.of(previous.getContacts(), next.getContacts(), new Contact[0]);
+			this.activities = Change.of(previous.getActivities(), next.getActivities(), new Activity[0]);
+
+			Map<EstablishmentNumber, Establishment> before = new HashMap<>();
+			for (Establishment establishment : previous.getEstablishments()) {
+				before.put(establishment.getEstablishmentNumber(), establishment);
+			}
+			List<Establishment> upserted = new ArrayList<>();
+			for (Establishment establishment : next.getEstablishments()) {
+				Establishment old = before.remove(establishment.getEstablishmentNumber());
+				if (old == null || !sameContent(old, establishment)) {
+					upserted.add(establishment);
+				}
+			}
+			this.establishments = upserted.isEmpty() ? null : upserted.toArray(new Establishment[upserted.size()]);
+			this.removedEstablishments = before.isEmpty() ? null : before.keySet().toArray(new EstablishmentNumber[before.size()]);
+		}
+
+		private boolean isEmpty() {
+			return status == null && juridicalSituation == null && typeOfEnterprise == null && !juridicalFormChanged && startDate == null
+					&& denominations == null && addresses == null && contacts == null && activities == null
+					&& establishments == null && removedEstablishments == null;
+		}
+
+		private Enterprise apply(Enterprise previous) {
+			Enterprise.Builder builder = Enterprise.builder()
+					.withEnterpriseNumber(previous.getEnterpriseNumber())
+					.withStatus(status != null ? status : previous.getStatus())
+					.withJuridicalSituation(juridicalSituation != null ? juridicalSituation : previous.getJuridicalSituation())
+					.withTypeOfEnterprise(typeOfEnterprise != null ? typeOfEnterprise : previous.getTypeOfEnterprise())
+					.withJuridicalForm(juridicalFormChanged ? juridicalForm : previous.getJuridicalForm())
+					.withStartDate(startDate != null ? startDate : previous.getStartDate())
+					.addDenominations(Change.apply(denominations, previous.getDenominations()))
+					.addAddresses(Change.apply(addresses, previous.getAddresses()))
+					.addContacts(Change.apply(contacts, previous.getContacts()))
+					.addActivities(Change.apply(activities, previous.getActivities()));
+			Set<EstablishmentNumber> removed = removedEstablishments == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(removedEstablishments));
+			for (Establishment establishment : previous.getEstablishments()) {
+				if (!removed.contains(establishment.getEstablishmentNumber())) {
+					builder.addEstablishment(establishment);
+				}
+			}
+			if (establishments != null) {
+				// replaces earlier establishments with the same number
+				builder.addEstablishments(Arrays.asList(establishments));
+			}
+			return builder.build();
+		}
+
+		private static <T> T changed(T previous, T next) {
+			return previous.equals(next) ? null : next;
+		}
+
+		private static boolean sameContent(Establishment a, Establishment b) {
+			return a.equals(b)
+					&& a.getDenominations().equals(b.getDenominations())
+					&& a.getAddresses().equals(b.getAddresses())
+					&& a.getContacts().equals(b.getContacts())
+					&& a.getActivities().equals(b.getActivities());
+		}
+
+	}
+
+	/**
+	 * Elements added to and removed from a collection.
+	 */
+	private static final class Change<T> {
+
+		private final T[] added;
+		private final T[] removed;
+
+		private Change(T[] added, T[] removed) {
+			this.added = added;
+			this.removed = removed;
+		}
+
+		/**
+		 * @return the change from one set to the next, or {@code null} if
+		 *         they are equal
+		 */
+		private static <T> Change<T> of(Set<T> previous, Set<T> next, T[] type) {
+			if (previous.equals(next)) {
+				return null;
+			}
+			List<T> added = new ArrayList<>();
+			for (T element : next) {
+				if (!previous.contains(element)) {
+					added.add(element);
+				}
+			}
+			List<T> removed = new ArrayList<>();
+			for (T element : previous) {
+				if (!next.contains(element)) {
+					removed.add(element);
+				}
+			}
+			return new Change<>(added.toArray(type), removed.toArray(type));
+		}
+
+		private static <T> Collection<T> apply(Change<T> change, Set<T> previous) {
+			if (change == null) {
+				return previous;
+			}
+			Set<T> result = new HashSet<>(previous);
+			result.removeAll(Arrays.asList(change.removed));
+			result.addAll(Arrays.asList(change.added));
+			return result;
+		}
+
+	}
+
+	/**
+	 * Builder class for new {@link TemporalStore} instances.
+	 */
+	public static class Builder {
+
+		private int checkpointInterval = 16;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param checkpointInterval
+		 *            the number of versions from one full state to the next,
+		 *            positive, defaults to 16; 1 stores every version in full
+		 * @return this {@link Builder}
+		 */
+		public Builder withCheckpointInterval(int checkpointInterval) {
+			if (checkpointInterval < 1) {
+				throw new IllegalArgumentException("checkpointInterval must be positive");
+			}
+			this.checkpointInterval = checkpointInterval;
+			return this;
+		}
+
+		public TemporalStore build() {
+			return new TemporalStore(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.text;
+
+import java.time.LocalDate;
+
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.csv.DateCodec;
+import be.ceau.kbobce.entities.Address;
+
+/**
+ * Column-oriented table of {@link Address} rows. The type is held as a
+ * {@link CodeTable} ordinal, the date as an epoch day and every text field
+ * as a handle into a {@link StringArena}. Fields with few distinct values,
+ * such as zip codes, municipalities and streets, are stored once per
+ * distinct value.
+ * <p>
+ * Instances are not thread-safe while rows are added.
+ */
+public final class AddressTable {
+
+	/**
+	 * The text fields of an {@link Address}.
+	 */
+	public enum Field {
+
+		COUNTRY_NL(true),
+		COUNTRY_FR(true),
+		ZIPCODE(true),
+		MUNICIPALITY_NL(true),
+		MUNICIPALITY_FR(true),
+		STREET_NL(true),
+		STREET_FR(true),
+		HOUSE_NUMBER(true),
+		BOX(true),
+		EXTRA_ADDRESS_INFO(false);
+
+		private final boolean shared;
+
+		private Field(boolean shared) {
+			this.shared = shared;
+		}
+
+		/**
+		 * @param address
+		 *            an {@link Address}, not {@code null}
+		 * @return the value of this field of the given {@link Address}
+		 */
+		public String of(Address address) {
+			switch (this) {
+			case COUNTRY_NL:
+				return address.getCountryNL();
+			case COUNTRY_FR:
+				return address.getCountryFR();
+			case ZIPCODE:
+				return address.getZipcode();
+			case MUNICIPALITY_NL:
+				return address.getMunicipalityNL();
+			case MUNICIPALITY_FR:
+				return address.getMunicipalityFR();
+			case STREET_NL:
+				return address.getStreetNL();
+			case STREET_FR:
+				return address.getStreetFR();
+			case HOUSE_NUMBER:
+				return address.getHouseNumber();
+			case BOX:
+				return address.getBox();
+			default:
+				return address.getExtraAddressInfo();
+			}
+		}
+
+	}
+
+	private static final Field[] FIELDS = Field.values();
+
+	private static final int NO_DATE = Integer.MIN_VALUE;
+
+	private final StringArena arena;
+	private final IntColumn types = new IntColumn();
+	private final IntColumn texts = new IntColumn();
+	private final IntColumn datesStrikingOff = new IntColumn();
+
+	/**
+	 * Creates a table with its own {@link StringArena}.
+	 */
+	public AddressTable() {
+		this(new StringArena());
+	}
+
+	/**
+	 * @param arena
+	 *            the {@link StringArena} to store text fields in, possibly
+	 *            shared with other tables, not {@code null}
+	 */
+	public AddressTable(StringArena arena) {
+		if (arena == null) {
+			throw new IllegalArgumentException("arena is null");
+		}
+		this.arena = arena;
+	}
+
+	/**
+	 * @param address
+	 *            an {@link Address}, not {@code null}
+	 * @return the index of the new row
+	 */
+	public int add(Address address) {
+		if (address == null) {
+			throw new IllegalArgumentException("address is null");
+		}
+		types.add(CodeTable.of(TypeOfAddress.class).ordinal(address.getTypeOfAddress()));
+		for (Field field : FIELDS) {
+			String value = field.of(address);
+			texts.add(field.shared ? arena.addShared(value) : arena.add(value));
+		}
+		LocalDate dateStrikingOff = address.getDateStrikingOff();
+		datesStrikingOff.add(dateStrikingOff == null ? NO_DATE : (int) dateStrikingOff.toEpochDay());
+		return types.size() - 1;
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return the canonical {@link TypeOfAddress} of the row
+	 */
+	public TypeOfAddress getTypeOfAddress(int row) {
+		return CodeTable.of(TypeOfAddress.class).get(types.get(row));
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @param field
+	 *            the {@link Field} to read, not {@code null}
+	 * @return a view of the field of the row, empty if the field is not set
+	 */
+	public ArenaText getText(int row, Field field) {
+		if (row < 0 || row >= types.size()) {
+			throw new IndexOutOfBoundsException(String.valueOf(row));
+		}
+		return arena.get(texts.get(row * FIELDS.length + field.ordinal()));
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return the date the address was struck off, or {@code null}
+	 */
+	public LocalDate getDateStrikingOff(int row) {
+		int epochDay = datesStrikingOff.get(row);
+		return epochDay == NO_DATE ? null : DateCodec.ofEpochDay(epochDay);
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return a new {@link Address} with the content of the row
+	 */
+	public Address get(int row) {
+		String[] values = new String[FIELDS.length];
+		for (Field field : FIELDS) {
+			values[field.ordinal()] = getText(row, field).toString();
+		}
+		return new Address(getTypeOfAddress(row), values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7], values[8], values[9], getDateStrikingOff(row));
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int size() {
+		return types.size();
+	}
+
+}
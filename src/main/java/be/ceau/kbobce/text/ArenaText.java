@@ -0,0 +1,139 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.text;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of a text stored in a {@link StringArena}. Characters of
+ * ISO-8859-1 texts are read directly from the bytes of the arena; UTF-8
+ * texts are decoded on first access. A {@link String} is only created by
+ * {@link #toString()}.
+ * <p>
+ * Two views are equal if they hold the same characters; {@link #hashCode()}
+ * equals the hash code of the corresponding {@link String}.
+ */
+public final class ArenaText implements CharSequence, Comparable<ArenaText> {
+
+	private final byte[] bytes;
+	private final int offset;
+	private final int byteLength;
+	private final int length;
+	private final boolean latin1;
+	private char[] decoded;
+
+	ArenaText(byte[] bytes, int offset, int byteLength, int length, boolean latin1) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.byteLength = byteLength;
+		this.length = length;
+		this.latin1 = latin1;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		if (latin1) {
+			return (char) (bytes[offset + index] & 0xff);
+		}
+		return decoded()[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(start + ", " + end);
+		}
+		if (latin1) {
+			return new ArenaText(bytes, offset + start, end - start, end - start, true);
+		}
+		return new String(decoded(), start, end - start);
+	}
+
+	/**
+	 * @param other
+	 *            a {@link CharSequence}, can be {@code null}
+	 * @return {@code true} if the argument holds the same characters
+	 */
+	public boolean contentEquals(CharSequence other) {
+		if (other == null || other.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (charAt(i) != other.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int compareTo(ArenaText other) {
+		int common = Math.min(length, other.length);
+		for (int i = 0; i < common; i++) {
+			int compare = Character.compare(charAt(i), other.charAt(i));
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return Integer.compare(length, other.length);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + charAt(i);
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		return contentEquals((ArenaText) obj);
+	}
+
+	@Override
+	public String toString() {
+		if (latin1) {
+			return new String(bytes, offset, byteLength, StandardCharsets.ISO_8859_1);
+		}
+		return new String(bytes, offset, byteLength, StandardCharsets.UTF_8);
+	}
+
+	private char[] decoded() {
+		char[] chars = decoded;
+		if (chars == null) {
+			chars = toString().toCharArray();
+			decoded = chars;
+		}
+		return chars;
+	}
+
+}
@@ -0,0 +1,118 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.text;
+
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.TypeOfDenomination;
+import be.ceau.kbobce.entities.Denomination;
+
+/**
+ * Column-oriented table of {@link Denomination} rows. Codes are held as
+ * {@link CodeTable} ordinals and values as handles into a
+ * {@link StringArena}, so a row takes two {@code int}s plus its text,
+ * instead of a {@link Denomination} and a {@link String} object.
+ * <p>
+ * Instances are not thread-safe while rows are added.
+ */
+public final class DenominationTable {
+
+	private final StringArena arena;
+	private final IntColumn codes = new IntColumn();
+	private final IntColumn values = new IntColumn();
+
+	/**
+	 * Creates a table with its own {@link StringArena}.
+	 */
+	public DenominationTable() {
+		this(new StringArena());
+	}
+
+	/**
+	 * @param arena
+	 *            the {@link StringArena} to store values in, possibly shared
+	 *            with other tables, not {@code null}
+	 */
+	public DenominationTable(StringArena arena) {
+		if (arena == null) {
+			throw new IllegalArgumentException("arena is null");
+		}
+		this.arena = arena;
+	}
+
+	/**
+	 * @param denomination
+	 *            a {@link Denomination}, not {@code null}
+	 * @return the index of the new row
+	 */
+	public int add(Denomination denomination) {
+		if (denomination == null) {
+			throw new IllegalArgumentException("denomination is null");
+		}
+		int language = CodeTable.of(Language.class).ordinal(denomination.getLanguage());
+		int type = CodeTable.of(TypeOfDenomination.class).ordinal(denomination.getTypeOfDenomination());
+		if ((language | type) >>> 16 != 0) {
+			throw new IllegalArgumentException("too many codes to pack");
+		}
+		codes.add(type << 16 | language);
+		values.add(arena.add(denomination.getValue()));
+		return values.size() - 1;
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return the canonical {@link Language} of the row
+	 */
+	public Language getLanguage(int row) {
+		return CodeTable.of(Language.class).get(codes.get(row) & 0xffff);
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return the canonical {@link TypeOfDenomination} of the row
+	 */
+	public TypeOfDenomination getTypeOfDenomination(int row) {
+		return CodeTable.of(TypeOfDenomination.class).get(codes.get(row) >>> 16);
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return a view of the value of the row
+	 */
+	public ArenaText getValue(int row) {
+		return arena.get(values.get(row));
+	}
+
+	/**
+	 * @param row
+	 *            the index of a row
+	 * @return a new {@link Denomination} with the content of the row
+	 */
+	public Denomination get(int row) {
+		return new Denomination(getLanguage(row), getTypeOfDenomination(row), getValue(row).toString());
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int size() {
+		return values.size();
+	}
+
+}
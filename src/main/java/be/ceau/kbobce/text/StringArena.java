@@ -0,0 +1,220 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.text;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only storage for large numbers of short texts, held in chunks of 1
+ * MiB and addressed by {@code int} handles rather than by references to
+ * {@link String} objects.
+ * <p>
+ * Texts whose characters all fit in ISO-8859-1, which covers nearly all
+ * names and addresses in the register, are stored with one byte per
+ * character; other texts are stored as UTF-8. Each entry is preceded by a
+ * variable-length header holding its byte length and, for UTF-8 entries, its
+ * character length. Texts are read back as {@link ArenaText} views on the
+ * chunk, without creating a {@link String}.
+ * <p>
+ * Instances are not thread-safe while texts are added. Once filled, an
+ * arena can be read from multiple threads.
+ */
+public final class StringArena {
+
+	static final int CHUNK_BITS = 20;
+
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+
+	private byte[][] chunks = new byte[4][];
+	private int chunkCount;
+	private int position;
+	private int size;
+	private final Map<String, Integer> shared = new HashMap<>();
+
+	/**
+	 * Appends a text.
+	 * 
+	 * @param value
+	 *            a text, can be {@code null}
+	 * @return a handle for the text, or {@code -1} if the argument is
+	 *         {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the encoded text is larger than a chunk
+	 * @throws IllegalStateException
+	 *             if the arena is full
+	 */
+	public int add(CharSequence value) {
+		if (value == null) {
+			return -1;
+		}
+		int length = value.length();
+		boolean latin1 = true;
+		for (int i = 0; i < length && latin1; i++) {
+			latin1 = value.charAt(i) < 0x100;
+		}
+		byte[] utf8 = latin1 ? null : value.toString().getBytes(StandardCharsets.UTF_8);
+		int byteLength = latin1 ? length : utf8.length;
+		int header = byteLength << 1 | (latin1 ? 0 : 1);
+		int total = varIntSize(header) + (latin1 ? 0 : varIntSize(length)) + byteLength;
+		if (total > CHUNK_SIZE) {
+			throw new IllegalArgumentException("value is too long");
+		}
+		if (chunkCount == 0 || position + total > CHUNK_SIZE) {
+			if (chunkCount == MAX_CHUNKS) {
+				throw new IllegalStateException("arena is full");
+			}
+			if (chunkCount == chunks.length) {
+				byte[][] grown = new byte[chunks.length * 2][];
+				System.arraycopy(chunks, 0, grown, 0, chunkCount);
+				chunks = grown;
+			}
+			chunks[chunkCount++] = new byte[CHUNK_SIZE];
+			position = 0;
+		}
+		byte[] chunk = chunks[chunkCount - 1];
+		int handle = (chunkCount - 1) << CHUNK_BITS | position;
+		position = writeVarInt(chunk, position, header);
+		if (latin1) {
+			for (int i = 0; i < length; i++) {
+				chunk[position++] = (byte) value.charAt(i);
+			}
+		} else {
+			position = writeVarInt(chunk, position, length);
+			System.arraycopy(utf8, 0, chunk, position, byteLength);
+			position += byteLength;
+		}
+		size++;
+		return handle;
+	}
+
+	/**
+	 * Appends a text once. Later calls with an equal text return the handle
+	 * of the first. Meant for fields with few distinct values, such as zip
+	 * codes and municipalities; the arena keeps a {@link String} per distinct
+	 * shared text.
+	 * 
+	 * @param value
+	 *            a text, can be {@code null}
+	 * @return a handle for the text, or {@code -1} if the argument is
+	 *         {@code null}
+	 */
+	public int addShared(CharSequence value) {
+		if (value == null) {
+			return -1;
+		}
+		String key = value.toString();
+		Integer handle = shared.get(key);
+		if (handle == null) {
+			handle = add(key);
+			shared.put(key, handle);
+		}
+		return handle;
+	}
+
+	/**
+	 * @param handle
+	 *            a handle returned by this arena, or {@code -1}
+	 * @return a view of the text, or {@code null} if the handle is
+	 *         {@code -1}
+	 */
+	public ArenaText get(int handle) {
+		if (handle == -1) {
+			return null;
+		}
+		byte[] chunk = chunks[handle >>> CHUNK_BITS];
+		int offset = handle & CHUNK_SIZE - 1;
+		int header = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk[offset++];
+			header |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		int byteLength = header >>> 1;
+		if ((header & 1) == 0) {
+			return new ArenaText(chunk, offset, byteLength, byteLength, true);
+		}
+		int length = 0;
+		shift = 0;
+		do {
+			b = chunk[offset++];
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return new ArenaText(chunk, offset, byteLength, length, false);
+	}
+
+	/**
+	 * @param handle
+	 *            a handle returned by this arena, or {@code -1}
+	 * @return the text as a {@link String}, or {@code null} if the handle is
+	 *         {@code -1}
+	 */
+	public String getString(int handle) {
+		ArenaText text = get(handle);
+		return text == null ? null : text.toString();
+	}
+
+	/**
+	 * @return the number of texts stored, not counting repeated shared texts
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of bytes taken by stored texts, including headers
+	 */
+	public long usedBytes() {
+		return chunkCount == 0 ? 0L : (long) (chunkCount - 1) * CHUNK_SIZE + position;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("StringArena [size=")
+				.append(size)
+				.append(", chunks=")
+				.append(chunkCount)
+				.append(", usedBytes=")
+				.append(usedBytes())
+				.append("]")
+				.toString();
+	}
+
+	private static int varIntSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	private static int writeVarInt(byte[] chunk, int position, int value) {
+		while ((value & ~0x7f) != 0) {
+			chunk[position++] = (byte) (value & 0x7f | 0x80);
+			value >>>= 7;
+		}
+		chunk[position++] = (byte) value;
+		return position;
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+import be.ceau.kbobce.codes.JuridicalSituation;
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.codes.TypeOfDenomination;
+import be.ceau.kbobce.codes.TypeOfEnterprise;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+/**
+ * Codes, numbers and entities shared by the tests.
+ */
+public final class Fixtures {
+
+	public static final Status ACTIVE = new Status("AC", Collections.emptyMap());
+	public static final Status STOPPED = new Status("ST", Collections.emptyMap());
+	public static final JuridicalSituation NORMAL = new JuridicalSituation("000", Collections.emptyMap());
+	public static final TypeOfEnterprise LEGAL_PERSON = new TypeOfEnterprise("2", Collections.emptyMap());
+	public static final Language FR = new Language("1", Collections.emptyMap());
+	public static final Language NL = new Language("2", Collections.emptyMap());
+	public static final Language DE = new Language("3", Collections.emptyMap());
+	public static final TypeOfDenomination NAME = new TypeOfDenomination("001", Collections.emptyMap());
+	public static final LocalDate START_DATE = LocalDate.of(1960, 8, 9);
+
+	private Fixtures() {
+	}
+
+	/**
+	 * @param part
+	 *            the first eight digits of the number, without check digits
+	 * @return the valid {@link EnterpriseNumber} with the given digits
+	 */
+	public static EnterpriseNumber enterpriseNumber(long part) {
+		return EnterpriseNumber.fromLong(part * 100 + 97 - part % 97);
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return an {@link Enterprise.Builder} with all required fields set: an
+	 *         active legal person in a normal situation, started on
+	 *         {@link #START_DATE}
+	 */
+	public static Enterprise.Builder enterpriseBuilder(EnterpriseNumber enterpriseNumber) {
+		return Enterprise.builder()
+				.withEnterpriseNumber(enterpriseNumber)
+				.withStatus(ACTIVE)
+				.withJuridicalSituation(NORMAL)
+				.withTypeOfEnterprise(LEGAL_PERSON)
+				.withStartDate(START_DATE);
+	}
+
+	/**
+	 * @param enterpriseNumber
+	 *            an {@link EnterpriseNumber}, not {@code null}
+	 * @return an {@link Enterprise} with only its required fields, as set by
+	 *         {@link #enterpriseBuilder(EnterpriseNumber)}
+	 */
+	public static Enterprise enterprise(EnterpriseNumber enterpriseNumber) {
+		return enterpriseBuilder(enterpriseNumber).build();
+	}
+
+	/**
+	 * @param language
+	 *            a {@link Language}, not {@code null}
+	 * @param value
+	 *            a name, not blank
+	 * @return a {@link Denomination} of type {@link #NAME}
+	 */
+	public static Denomination denomination(Language language, String value) {
+		return new Denomination(language, NAME, value);
+	}
+
+}
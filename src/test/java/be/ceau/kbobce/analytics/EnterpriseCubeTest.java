@@ -0,0 +1,116 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+
+public class EnterpriseCubeTest {
+
+	private static int part = 3_000_000;
+
+	private static Enterprise enterprise(String status, String form, String nace, String zipcode, int year) {
+		part++;
+		Enterprise.Builder builder = Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(part))
+				.withStatus(new Status(status, Collections.emptyMap()))
+				.withStartDate(LocalDate.of(year, 1, 1));
+		if (form != null) {
+			builder.withJuridicalForm(new JuridicalForm(form, Collections.emptyMap()));
+		}
+		if (nace != null) {
+			builder.addActivity(new Activity(new ActivityGroup("001", Collections.emptyMap()), new Nace2008(nace, Collections.emptyMap()), new Classification("MAIN", Collections.emptyMap())));
+		}
+		if (zipcode != null) {
+			builder.addAddress(new Address(new TypeOfAddress("REGO", Collections.emptyMap()), "", "", zipcode, "", "", "Straat", "Rue", "1", "", "", null));
+		}
+		return builder.build();
+	}
+
+	private static Map<String, Long> map(Object... entries) {
+		Map<String, Long> map = new HashMap<>();
+		for (int i = 0; i < entries.length; i += 2) {
+			map.put((String) entries[i], ((Number) entries[i + 1]).longValue());
+		}
+		return map;
+	}
+
+	@Test
+	public void cubeTest() {
+		List<Enterprise> enterprises = new ArrayList<>();
+		enterprises.add(enterprise("AC", "014", "56101", "9000", 1995));
+		enterprises.add(enterprise("AC", "014", "56102", "9050", 2005));
+		enterprises.add(enterprise("AC", "610", "47110", "9000", 2015));
+		enterprises.add(enterprise("ST", "014", "56101", "2000", 2015));
+		enterprises.add(enterprise("AC", null, "01110", "2018", 2019));
+		enterprises.add(enterprise("AC", null, null, null, 2019));
+		EnterpriseCube cube = EnterpriseCube.of(enterprises);
+		Assert.assertEquals(6, cube.total());
+		Assert.assertEquals(6, cube.cellCount());
+
+		Assert.assertEquals(6, cube.query().count());
+		Assert.assertEquals(5, cube.query().withStatus("AC").count());
+		Assert.assertEquals(6, cube.query().withStatus("AC", "ST").count());
+		Assert.assertEquals(0, cube.query().withStatus("XX").count());
+		Assert.assertEquals(2, cube.query().withStatus("AC").withJuridicalForm("014").count());
+
+		// roll-up and drill-down along the NACE hierarchy
+		Assert.assertEquals(map("", 1, "A", 1, "G", 1, "I", 3), cube.query().groupBy(Dimension.NACE, 1));
+		Assert.assertEquals(map("561", 3), cube.query().withNace("I").groupBy(Dimension.NACE, 3));
+		Assert.assertEquals(map("56101", 2, "56102", 1), cube.query().withNace("56").groupBy(Dimension.NACE, 5));
+		Assert.assertEquals(map("56101", 1, "56102", 1), cube.query().withNace("561").withStatus("AC").groupBy(Dimension.NACE, 5));
+
+		// postcode prefixes
+		Assert.assertEquals(map("", 1, "2", 2, "9", 3), cube.query().groupBy(Dimension.POSTCODE, 1));
+		Assert.assertEquals(map("90", 3), cube.query().withPostcode("9").groupBy(Dimension.POSTCODE, 2));
+		Assert.assertEquals(map("9000", 2, "9050", 1), cube.query().withPostcode("9").groupBy(Dimension.POSTCODE, 4));
+		Assert.assertEquals(2, cube.query().withPostcode("90").withNace("56").count());
+
+		// start years
+		Assert.assertEquals(map("1995", 1, "2005", 1, "2015", 2, "2019", 2), cube.query().groupBy(Dimension.START_YEAR, 1));
+		Assert.assertEquals(3, cube.query().withStartYears(2010, 2019).withStatus("AC").count());
+		Assert.assertEquals(map("014", 1, "610", 1, "", 2), cube.query().withStartYears(2010, 2020).groupBy(Dimension.JURIDICAL_FORM, 1));
+		Assert.assertEquals(map("AC", 5, "ST", 1), cube.query().groupBy(Dimension.STATUS, 1));
+
+		// cached roll-ups and results
+		int rollUps = cube.rollUpCount();
+		Assert.assertSame(cube.query().withNace("I").groupBy(Dimension.NACE, 3), cube.query().withNace("I").groupBy(Dimension.NACE, 3));
+		Assert.assertEquals(rollUps, cube.rollUpCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidLevelTest() {
+		EnterpriseCube.of(Collections.emptyList()).query().groupBy(Dimension.POSTCODE, 5);
+	}
+
+}
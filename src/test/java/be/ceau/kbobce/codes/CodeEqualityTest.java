@@ -0,0 +1,99 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.codes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CodeEqualityTest {
+
+	private static final Map<String, String> NONE = Collections.emptyMap();
+
+	private static Map<String, String> descriptions() {
+		Map<String, String> descriptions = new HashMap<>();
+		descriptions.put("NL", "nl");
+		descriptions.put("FR", "fr");
+		return descriptions;
+	}
+
+	/**
+	 * A factory and two distinct valid codes for every {@link Code} type.
+	 */
+	private static final class Case {
+
+		private final BiFunction<String, Map<String, String>, Code> factory;
+		private final String a;
+		private final String b;
+
+		private Case(BiFunction<String, Map<String, String>, Code> factory, String a, String b) {
+			this.factory = factory;
+			this.a = a;
+			this.b = b;
+		}
+
+	}
+
+	private static final List<Case> CASES = Arrays.asList(
+			new Case(ActivityGroup::new, "001", "006"),
+			new Case(Classification::new, "MAIN", "SECO"),
+			new Case(ContactType::new, "TEL", "EMAIL"),
+			new Case(EntityContact::new, "ENT", "EST"),
+			new Case(JuridicalForm::new, "014", "015"),
+			new Case(JuridicalSituation::new, "000", "012"),
+			new Case(Language::new, "1", "2"),
+			new Case(Nace2003::new, "01110", "01120"),
+			new Case(Nace2008::new, "01110", "01120"),
+			new Case(Status::new, "AC", "ST"),
+			new Case(TypeOfAddress::new, "REGO", "BAET"),
+			new Case(TypeOfDenomination::new, "001", "002"),
+			new Case(TypeOfEnterprise::new, "1", "2"));
+
+	@Test
+	public void equalCodesTest() {
+		for (Case c : CASES) {
+			Code first = c.factory.apply(c.a, NONE);
+			Code second = c.factory.apply(c.a, descriptions());
+			Assert.assertEquals(first.getClass().getSimpleName(), first, second);
+			Assert.assertEquals(first.getClass().getSimpleName(), first.hashCode(), second.hashCode());
+			Assert.assertEquals(first.getClass().getSimpleName(), first, first);
+		}
+	}
+
+	@Test
+	public void differentCodesTest() {
+		for (Case c : CASES) {
+			Code first = c.factory.apply(c.a, NONE);
+			Code second = c.factory.apply(c.b, NONE);
+			Assert.assertNotEquals(first.getClass().getSimpleName(), first, second);
+			Assert.assertNotEquals(first.getClass().getSimpleName(), first, null);
+		}
+	}
+
+	@Test
+	public void differentTypesTest() {
+		Assert.assertNotEquals(new Nace2003("01110", NONE), new Nace2008("01110", NONE));
+		Assert.assertNotEquals(new JuridicalForm("014", NONE), new JuridicalSituation("014", NONE));
+		Assert.assertNotEquals(new Language("1", NONE), new TypeOfEnterprise("1", NONE));
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.codes;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TranslationTest {
+
+	@Test
+	public void fallbackTest() {
+		Map<String, String> descriptions = new HashMap<>();
+		descriptions.put("FR", "Société anonyme");
+		descriptions.put("NL", "Naamloze vennootschap");
+		JuridicalForm form = new JuridicalForm("014", descriptions);
+		Assert.assertEquals("Naamloze vennootschap", form.getDescription(Translation.NL));
+		Assert.assertEquals("Société anonyme", form.getDescription(Translation.FR));
+		Assert.assertEquals("Société anonyme", form.getDescription(Translation.DE));
+		Assert.assertNull(form.getExactDescription(Translation.DE));
+		Assert.assertNull(new JuridicalForm("999", Collections.emptyMap()).getDescription(Translation.NL));
+	}
+
+	@Test
+	public void resolveTest() {
+		Assert.assertEquals(Translation.FR, Translation.of(Locale.forLanguageTag("fr-BE")));
+		Assert.assertNull(Translation.of(Locale.ENGLISH));
+		Assert.assertEquals(Translation.NL, Translation.of(new Language("2", Collections.emptyMap())));
+		Assert.assertEquals(Translation.DE, Translation.resolve("en-GB,de;q=0.8,fr;q=0.5", Translation.NL));
+		Assert.assertEquals(Translation.NL, Translation.resolve("en", Translation.NL));
+		Assert.assertEquals(Translation.FR, Translation.resolve("nl;q=0,fr", Translation.DE));
+	}
+
+}
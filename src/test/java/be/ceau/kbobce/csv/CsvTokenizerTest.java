@@ -0,0 +1,114 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.Status;
+
+public class CsvTokenizerTest {
+
+	private static final String ENTERPRISES = "\"EnterpriseNumber\",\"Status\",\"JuridicalSituation\",\"TypeOfEnterprise\",\"JuridicalForm\",\"JuridicalFormCAC\",\"StartDate\"\n"
+			+ "\"0200.065.765\",\"AC\",\"000\",\"2\",\"417\",,\"09-08-1960\"\r\n"
+			+ "\"0200.068.636\",\"AC\",\"000\",\"2\",\"417\",\"\",\"29-02-1960\"\n"
+			+ "\"0201.065.765\",\"XX\",\"000\",\"2\",\"\",,\"31-02-1960\"\n";
+
+	@Test
+	public void decodeTest() throws IOException {
+		CodeTable<Status> statuses = CodeTable.of(Status.class);
+		Status active = statuses.intern(new Status("AC", Collections.emptyMap()));
+
+		CsvTokenizer csv = new CsvTokenizer(ByteBuffer.wrap(ENTERPRISES.getBytes(StandardCharsets.UTF_8)));
+		Assert.assertTrue(csv.nextRecord());
+		Assert.assertTrue(csv.nextRecord());
+		Assert.assertTrue(csv.nextField());
+		Assert.assertEquals(200065765L, csv.asPackedEnterpriseNumber());
+		Assert.assertTrue(csv.nextField());
+		Assert.assertSame(active, csv.asCode(statuses));
+		Assert.assertTrue(csv.skipFields(3));
+		Assert.assertTrue(csv.nextField());
+		Assert.assertTrue(csv.isEmpty());
+		Assert.assertNull(csv.asNullableString());
+		Assert.assertTrue(csv.nextField());
+		Assert.assertEquals(LocalDate.of(1960, 8, 9), csv.asLocalDate());
+		Assert.assertFalse(csv.nextField());
+
+		Assert.assertTrue(csv.nextRecord());
+		csv.nextField();
+		Assert.assertEquals("0200.068.636", csv.asEnterpriseNumber().getValue());
+		csv.skipFields(6);
+		Assert.assertEquals(LocalDate.of(1960, 2, 29), csv.asLocalDate());
+
+		Assert.assertTrue(csv.nextRecord());
+		csv.nextField();
+		Assert.assertEquals(-1L, csv.asPackedEnterpriseNumber());
+		csv.nextField();
+		Assert.assertNull(csv.asCode(statuses));
+		csv.skipFields(5);
+		Assert.assertNull(csv.asLocalDate());
+
+		Assert.assertFalse(csv.nextRecord());
+		Assert.assertEquals(4, csv.records());
+	}
+
+	@Test
+	public void quotedFieldTest() throws IOException {
+		String input = "\"2.000.000.339\",\"001\",\"Zeg \"\"Kaas\"\", bv\",x\n";
+		CsvTokenizer csv = new CsvTokenizer(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+		Assert.assertTrue(csv.nextRecord());
+		csv.nextField();
+		Assert.assertEquals(2000000339L, csv.asPackedEstablishmentNumber());
+		Assert.assertEquals("2.000.000.339", csv.asEstablishmentNumber().getValue());
+		csv.nextField();
+		Assert.assertEquals("001", csv.asString());
+		csv.nextField();
+		Assert.assertTrue(csv.isEscaped());
+		Assert.assertEquals("Zeg \"Kaas\", bv", csv.asString());
+		csv.nextField();
+		Assert.assertEquals("x", csv.asString());
+		Assert.assertFalse(csv.nextField());
+		Assert.assertFalse(csv.nextRecord());
+	}
+
+	@Test
+	public void windowTest() throws IOException {
+		Path file = Files.createTempFile("kbo", ".csv");
+		try {
+			Files.write(file, ENTERPRISES.getBytes(StandardCharsets.UTF_8));
+			int records = 0;
+			try (CsvTokenizer csv = CsvTokenizer.open(file, 128)) {
+				while (csv.nextRecord()) {
+					csv.nextField();
+					records++;
+				}
+			}
+			Assert.assertEquals(4, records);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
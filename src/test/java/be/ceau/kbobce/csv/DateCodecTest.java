@@ -0,0 +1,58 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.csv;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DateCodecTest {
+
+	@Test
+	public void parseTest() {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+		for (LocalDate date = LocalDate.of(1795, 1, 1); date.getYear() < 2205; date = date.plusDays(1)) {
+			String text = formatter.format(date);
+			Assert.assertEquals(date, DateCodec.parse(text));
+			Assert.assertEquals(text, DateCodec.format(date));
+		}
+	}
+
+	@Test
+	public void canonicalTest() {
+		LocalDate first = DateCodec.parse("09-08-1960");
+		Assert.assertSame(first, DateCodec.parse("09-08-1960"));
+		Assert.assertSame(first, DateCodec.canonical(LocalDate.of(1960, 8, 9)));
+		Assert.assertEquals(LocalDate.of(1960, 8, 9).toEpochDay(), DateCodec.parseEpochDay("09-08-1960"));
+	}
+
+	@Test
+	public void invalidTest() {
+		Assert.assertNull(DateCodec.parse(null));
+		Assert.assertNull(DateCodec.parse(""));
+		Assert.assertNull(DateCodec.parse("1960-08-09"));
+		Assert.assertNull(DateCodec.parse("29-02-1900"));
+		Assert.assertNull(DateCodec.parse("31-04-2019"));
+		Assert.assertNull(DateCodec.parse("00-01-2019"));
+		Assert.assertNull(DateCodec.parse("01-13-2019"));
+		Assert.assertNull(DateCodec.parse("0a-01-2019"));
+		Assert.assertNull(DateCodec.parse("01-01-20x9"));
+		Assert.assertEquals(LocalDate.of(2000, 2, 29), DateCodec.parse("29-02-2000"));
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.csv;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+public class ExternalSorterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static long key(String line) {
+		String field = line.substring(1, line.indexOf('"', 1));
+		return field.length() == 12 ? EnterpriseNumber.parse(field).toLong() : EstablishmentNumber.parse(field).toLong();
+	}
+
+	private List<String> input(int records) {
+		Random random = new Random(42);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < records; i++) {
+			String number = random.nextInt(4) == 0
+					? EstablishmentNumber.fromLong(2_000_000_000L + random.nextInt(500)).getValue()
+					: Fixtures.enterpriseNumber(2_000_000 + random.nextInt(500)).getValue();
+			lines.add("\"" + number + "\",\"" + i + "\",\"name, with comma\"");
+		}
+		return lines;
+	}
+
+	private List<String> sort(List<String> lines, ExternalSorter sorter) throws IOException {
+		Path input = folder.newFile().toPath();
+		Path output = folder.newFile().toPath();
+		List<String> content = new ArrayList<>();
+		content.add("\"EntityNumber\",\"Sequence\",\"Name\"");
+		content.addAll(lines);
+		Files.write(input, content, StandardCharsets.UTF_8);
+		Assert.assertEquals(lines.size(), sorter.sort(input, output));
+		List<String> sorted = Files.readAllLines(output, StandardCharsets.UTF_8);
+		Assert.assertEquals(content.get(0), sorted.get(0));
+		return sorted.subList(1, sorted.size());
+	}
+
+	@Test
+	public void spillingSortTest() throws IOException {
+		List<String> lines = input(20000);
+		Path runs = folder.newFolder().toPath();
+		ExternalSorter sorter = ExternalSorter.builder()
+				.withMaxMemory(16 * 1024)
+				.withParallelism(3)
+				.withTempDirectory(runs)
+				.build();
+		List<String> sorted = sort(lines, sorter);
+
+		// a stable sort on the key gives the expected order
+		List<String> expected = new ArrayList<>(lines);
+		Collections.sort(expected, Comparator.comparingLong(ExternalSorterTest::key));
+		Assert.assertEquals(expected, sorted);
+		Assert.assertTrue(key(sorted.get(0)) < 2_000_000_000L);
+		Assert.assertTrue(key(sorted.get(sorted.size() - 1)) >= 2_000_000_000L);
+		Assert.assertEquals("runs are deleted", 0, runs.toFile().list().length);
+	}
+
+	@Test
+	public void multiPassMergeTest() throws IOException {
+		List<String> lines = input(20000);
+		Path runs = folder.newFolder().toPath();
+		AtomicInteger spills = new AtomicInteger();
+		ExternalSorter sorter = ExternalSorter.builder()
+				.withMaxMemory(16 * 1024)
+				.withParallelism(1)
+				.withMaxFanIn(3)
+				.withTempDirectory(runs)
+				.withExecutor(command -> {
+					spills.incrementAndGet();
+					command.run();
+				})
+				.build();
+		List<String> sorted = sort(lines, sorter);
+
+		Assert.assertTrue(spills.get() > 9);
+		List<String> expected = new ArrayList<>(lines);
+		Collections.sort(expected, Comparator.comparingLong(ExternalSorterTest::key));
+		Assert.assertEquals(expected, sorted);
+		Assert.assertEquals("runs are deleted", 0, runs.toFile().list().length);
+	}
+
+	@Test
+	public void inMemorySortTest() throws IOException {
+		List<String> lines = input(500);
+		lines.add(2, "\"invalid\",\"x\",\"y\"");
+		List<String> sorted = sort(lines, ExternalSorter.builder().build());
+		Assert.assertEquals("\"invalid\",\"x\",\"y\"", sorted.get(sorted.size() - 1));
+		List<String> expected = new ArrayList<>(lines.subList(0, 2));
+		expected.addAll(lines.subList(3, lines.size()));
+		Collections.sort(expected, Comparator.comparingLong(ExternalSorterTest::key));
+		Assert.assertEquals(expected, sorted.subList(0, sorted.size() - 1));
+	}
+
+	@Test
+	public void keyFieldTest() throws IOException {
+		Path input = folder.newFile().toPath();
+		Path output = folder.newFile().toPath();
+		Files.write(input, ("x,\"" + Fixtures.enterpriseNumber(2000002).getValue() + "\"\r\ny,\"" + Fixtures.enterpriseNumber(2000001).getValue() + "\"\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+		ExternalSorter sorter = ExternalSorter.builder().withHeader(false).withKeyField(1).build();
+		Assert.assertEquals(2, sorter.sort(input, output));
+		List<String> sorted = Files.readAllLines(output, StandardCharsets.UTF_8);
+		Assert.assertEquals(2, sorted.size());
+		Assert.assertTrue(sorted.get(0).startsWith("y,"));
+		Assert.assertTrue(sorted.get(1).startsWith("x,"));
+	}
+
+	@Test
+	public void failedSortDeletesRunsTest() throws IOException {
+		Path runs = folder.newFolder().toPath();
+		AtomicInteger submitted = new AtomicInteger();
+		// runs the first spill late on its own thread and rejects the second, failing the sort before the first has run
+		Executor executor = task -> {
+			if (submitted.incrementAndGet() > 1) {
+				throw new RejectedExecutionException();
+			}
+			new Thread(() -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				task.run();
+			}).start();
+		};
+		ExternalSorter sorter = ExternalSorter.builder()
+				.withMaxMemory(16 * 1024)
+				.withExecutor(executor)
+				.withTempDirectory(runs)
+				.build();
+		Path input = folder.newFile().toPath();
+		Files.write(input, input(20000), StandardCharsets.UTF_8);
+		try {
+			sorter.sort(input, folder.newFile().toPath());
+			Assert.fail("the rejected spill fails the sort");
+		} catch (RejectedExecutionException e) {
+			Assert.assertEquals("runs are deleted", 0, runs.toFile().list().length);
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.ContactType;
+import be.ceau.kbobce.codes.EntityContact;
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.TypeOfAddress;
+
+public class BuilderTest {
+
+	private static final EnterpriseNumber NUMBER = EnterpriseNumber.parse("0403.170.701");
+	private static final EstablishmentNumber BRANCH = EstablishmentNumber.parse("2.000.000.339");
+
+	private static Address address(String zipcode) {
+		return new Address(new TypeOfAddress("REGO", Collections.emptyMap()), null, null, zipcode, null, null, "Straat", null, "1", null, null, null);
+	}
+
+	private static Contact contact(String value) {
+		return new Contact(new EntityContact("ENT", Collections.emptyMap()), new ContactType("EMAIL", Collections.emptyMap()), value);
+	}
+
+	private static Activity activity(String nace) {
+		return new Activity(new ActivityGroup("003", Collections.emptyMap()), new Nace2008(nace, Collections.emptyMap()), new Classification("MAIN", Collections.emptyMap()));
+	}
+
+	private static Establishment establishment(EstablishmentNumber number, String name) {
+		return Establishment.builder()
+				.withEstablishmentNumber(number)
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addDenomination(Fixtures.denomination(Fixtures.NL, name))
+				.build();
+	}
+
+	private static Enterprise.Builder fill(Enterprise.Builder builder) {
+		return builder.withEnterpriseNumber(NUMBER)
+				.withStatus(Fixtures.ACTIVE)
+				.withJuridicalSituation(Fixtures.NORMAL)
+				.withTypeOfEnterprise(Fixtures.LEGAL_PERSON)
+				.withJuridicalForm(new JuridicalForm("014", Collections.emptyMap()))
+				.withStartDate(Fixtures.START_DATE)
+				.addDenomination(Fixtures.denomination(Fixtures.NL, "Eerste"))
+				.addAddress(address("9000"))
+				.addContact(contact("info@example.be"))
+				.addActivity(activity("62010"))
+				.addEstablishment(establishment(BRANCH, "Filiaal"));
+	}
+
+	@Test
+	public void enterpriseResetTest() {
+		Enterprise.Builder builder = fill(Enterprise.localBuilder());
+		Assert.assertNotNull(builder.build());
+
+		Enterprise.Builder reset = Enterprise.localBuilder();
+		Assert.assertSame("one builder per thread", builder, reset);
+		Assert.assertNull(reset.getEnterpriseNumber());
+		try {
+			reset.build();
+			Assert.fail("required fields are cleared");
+		} catch (IllegalArgumentException expected) {
+			// no state carried over
+		}
+
+		Enterprise minimal = reset.withEnterpriseNumber(Fixtures.enterpriseNumber(3_000_000))
+				.withStatus(Fixtures.STOPPED)
+				.withJuridicalSituation(Fixtures.NORMAL)
+				.withTypeOfEnterprise(Fixtures.LEGAL_PERSON)
+				.withStartDate(LocalDate.of(2000, 1, 1))
+				.build();
+		Assert.assertNull(minimal.getJuridicalForm());
+		Assert.assertTrue(minimal.getDenominations().isEmpty());
+		Assert.assertTrue(minimal.getAddresses().isEmpty());
+		Assert.assertTrue(minimal.getContacts().isEmpty());
+		Assert.assertTrue(minimal.getActivities().isEmpty());
+		Assert.assertTrue(minimal.getEstablishments().isEmpty());
+	}
+
+	@Test
+	public void enterpriseCopiesTest() {
+		Enterprise.Builder builder = fill(Enterprise.builder());
+		Enterprise first = builder.build();
+
+		builder.addDenomination(Fixtures.denomination(Fixtures.NL, "Tweede"))
+				.addAddress(address("1000"))
+				.addContact(contact("sales@example.be"))
+				.addActivity(activity("62020"))
+				.addEstablishment(establishment(EstablishmentNumber.parse("2.000.000.240"), "Tweede filiaal"));
+		Enterprise second = builder.build();
+		Assert.assertEquals(1, first.getDenominations().size());
+		Assert.assertEquals(1, first.getAddresses().size());
+		Assert.assertEquals(1, first.getContacts().size());
+		Assert.assertEquals(1, first.getActivities().size());
+		Assert.assertEquals(1, first.getEstablishments().size());
+		Assert.assertEquals(2, second.getDenominations().size());
+		Assert.assertEquals(2, second.getEstablishments().size());
+
+		builder.reset();
+		Assert.assertEquals("reset leaves built instances intact", 2, second.getAddresses().size());
+		Assert.assertEquals(2, second.getContacts().size());
+		Assert.assertEquals(2, second.getActivities().size());
+
+		for (Set<?> set : Arrays.<Set<?>> asList(first.getDenominations(), first.getAddresses(), first.getContacts(), first.getActivities(), first.getEstablishments())) {
+			try {
+				set.clear();
+				Assert.fail("collections of built instances are unmodifiable");
+			} catch (UnsupportedOperationException expected) {
+				// immutable
+			}
+		}
+	}
+
+	@Test
+	public void establishmentResetTest() {
+		Establishment.Builder builder = Establishment.localBuilder()
+				.withEstablishmentNumber(BRANCH)
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addDenomination(Fixtures.denomination(Fixtures.NL, "Filiaal"))
+				.addAddress(address("9000"))
+				.addContact(contact("info@example.be"))
+				.addActivity(activity("62010"));
+		Establishment first = builder.build();
+
+		Establishment.Builder reset = Establishment.localBuilder();
+		Assert.assertSame(builder, reset);
+		Assert.assertNull(reset.getEstablishmentNumber());
+		Establishment second = reset.withEstablishmentNumber(BRANCH).withStartDate(LocalDate.of(2000, 1, 1)).build();
+		Assert.assertTrue(second.getDenominations().isEmpty());
+		Assert.assertTrue(second.getAddresses().isEmpty());
+		Assert.assertTrue(second.getContacts().isEmpty());
+		Assert.assertTrue(second.getActivities().isEmpty());
+
+		Assert.assertEquals(1, first.getDenominations().size());
+		Assert.assertEquals(1, first.getAddresses().size());
+		Assert.assertEquals(1, first.getContacts().size());
+		Assert.assertEquals(1, first.getActivities().size());
+	}
+
+	@Test
+	public void threadConfinementTest() throws InterruptedException {
+		Enterprise.Builder own = Enterprise.localBuilder();
+		AtomicReference<Enterprise.Builder> other = new AtomicReference<>();
+		Thread thread = new Thread(() -> other.set(Enterprise.localBuilder()));
+		thread.start();
+		thread.join();
+		Assert.assertNotNull(other.get());
+		Assert.assertNotSame(own, other.get());
+	}
+
+	@Test
+	public void copyOfTest() {
+		Assert.assertTrue(Sets.copyOf(null).isEmpty());
+		Assert.assertTrue(Sets.copyOf(Collections.emptyList()).isEmpty());
+		Assert.assertEquals(Collections.singleton("a"), Sets.copyOf(Collections.singletonList("a")));
+
+		List<String> source = Arrays.asList("a", "b", "a", "c");
+		Set<String> copy = Sets.copyOf(new HashSet<>(source));
+		Assert.assertEquals(new HashSet<>(source), copy);
+		try {
+			copy.add("d");
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+			// unmodifiable
+		}
+
+		Set<String> mutable = new HashSet<>(source);
+		Set<String> independent = Sets.copyOf(mutable);
+		mutable.add("d");
+		Assert.assertEquals(3, independent.size());
+	}
+
+}
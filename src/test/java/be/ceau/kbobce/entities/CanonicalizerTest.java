@@ -0,0 +1,152 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ContactType;
+import be.ceau.kbobce.codes.EntityContact;
+import be.ceau.kbobce.codes.TypeOfAddress;
+
+public class CanonicalizerTest {
+
+	private static Address address(String houseNumber, String box) {
+		return new Address(new TypeOfAddress("REGO", Collections.emptyMap()), "", "", "9000", "Gent", "Gand", "Veldstraat", "Veldstraat", houseNumber, box, "", null);
+	}
+
+	@Test
+	public void canonicalTest() {
+		Canonicalizer<Address> canonicalizer = new Canonicalizer<>(Canonicalizer::fingerprint);
+		Address first = address("12", "");
+		Address same = address("12", "");
+		Address box = address("12", "A");
+		Assert.assertNotSame(first, same);
+		Assert.assertSame(first, canonicalizer.canonical(first));
+		Assert.assertSame(first, canonicalizer.canonical(same));
+		Assert.assertSame(box, canonicalizer.canonical(box));
+		Assert.assertNull(canonicalizer.canonical(null));
+		Assert.assertEquals(2, canonicalizer.size());
+		Assert.assertEquals(3, canonicalizer.requests());
+		Assert.assertEquals(1d / 3, canonicalizer.dedupRatio(), 1e-9);
+
+		canonicalizer.clear();
+		Assert.assertSame(same, canonicalizer.canonical(same));
+		Assert.assertEquals(0d, canonicalizer.dedupRatio(), 0d);
+	}
+
+	@Test
+	public void collisionTest() {
+		Canonicalizer<String> canonicalizer = new Canonicalizer<>(value -> 42L);
+		String a = new String("a");
+		String b = new String("b");
+		Assert.assertSame(a, canonicalizer.canonical(a));
+		Assert.assertSame(b, canonicalizer.canonical(b));
+		Assert.assertSame(a, canonicalizer.canonical(new String("a")));
+		Assert.assertSame(b, canonicalizer.canonical(new String("b")));
+		Assert.assertEquals(2, canonicalizer.size());
+	}
+
+	@Test
+	public void fingerprintTest() {
+		Assert.assertEquals(Canonicalizer.fingerprint(address("12", "")), Canonicalizer.fingerprint(address("12", "")));
+		Assert.assertNotEquals(Canonicalizer.fingerprint(address("12", "")), Canonicalizer.fingerprint(address("1", "2")));
+		Assert.assertNotEquals(Canonicalizer.fingerprint(address("12", "")), Canonicalizer.fingerprint(address("12", "A")));
+		ContactType tel = new ContactType("TEL", Collections.emptyMap());
+		EntityContact ent = new EntityContact("ENT", Collections.emptyMap());
+		EntityContact est = new EntityContact("EST", Collections.emptyMap());
+		Assert.assertNotEquals(Canonicalizer.fingerprint(new Contact(ent, tel, "09 266 11 11")), Canonicalizer.fingerprint(new Contact(est, tel, "09 266 11 11")));
+	}
+
+	@Test
+	public void builderTest() {
+		Canonicalizer<Address> addresses = Canonicalizer.forAddresses();
+		Canonicalizer<Contact> contacts = Canonicalizer.forContacts();
+		Address address = address("99", "");
+		Contact contact = new Contact(new EntityContact("ENT", Collections.emptyMap()), new ContactType("EMAIL", Collections.emptyMap()), "canonical@example.be");
+		Establishment establishment = Establishment.builder()
+				.withAddressCanonicalizer(addresses)
+				.withContactCanonicalizer(contacts)
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addAddress(address)
+				.addContact(contact)
+				.build();
+		Enterprise enterprise = Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(200_065))
+				.withAddressCanonicalizer(addresses)
+				.withContactCanonicalizer(contacts)
+				.addAddress(address("99", ""))
+				.addContact(new Contact(new EntityContact("ENT", Collections.emptyMap()), new ContactType("EMAIL", Collections.emptyMap()), "canonical@example.be"))
+				.build();
+		Assert.assertSame(address, establishment.getAddresses().iterator().next());
+		Assert.assertSame(address, enterprise.getAddresses().iterator().next());
+		Assert.assertSame(contact, enterprise.getContacts().iterator().next());
+		Assert.assertEquals(1, addresses.size());
+		Assert.assertEquals(0.5d, addresses.dedupRatio(), 1e-9);
+	}
+
+	@Test
+	public void optInTest() {
+		Address address = address("99", "");
+		Address same = address("99", "");
+		Establishment first = Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addAddress(address)
+				.build();
+		Establishment second = Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addAddress(same)
+				.build();
+		Assert.assertSame(address, first.getAddresses().iterator().next());
+		Assert.assertSame(same, second.getAddresses().iterator().next());
+	}
+
+	@Test
+	public void localBuilderTest() {
+		Canonicalizer<Address> addresses = Canonicalizer.forAddresses();
+		Canonicalizer<Contact> contacts = Canonicalizer.forContacts();
+		Enterprise.localBuilder()
+				.withAddressCanonicalizer(addresses)
+				.withContactCanonicalizer(contacts);
+		Establishment.localBuilder()
+				.withAddressCanonicalizer(addresses)
+				.withContactCanonicalizer(contacts);
+		Enterprise enterprise = Enterprise.localBuilder()
+				.withEnterpriseNumber(Fixtures.enterpriseNumber(200_065))
+				.withStatus(Fixtures.ACTIVE)
+				.withJuridicalSituation(Fixtures.NORMAL)
+				.withTypeOfEnterprise(Fixtures.LEGAL_PERSON)
+				.withStartDate(Fixtures.START_DATE)
+				.addAddress(address("99", ""))
+				.build();
+		Establishment establishment = Establishment.localBuilder()
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addAddress(address("99", ""))
+				.build();
+		Assert.assertEquals(1, enterprise.getAddresses().size());
+		Assert.assertEquals(1, establishment.getAddresses().size());
+		Assert.assertEquals(0, addresses.size());
+		Assert.assertEquals(0, contacts.size());
+	}
+
+}
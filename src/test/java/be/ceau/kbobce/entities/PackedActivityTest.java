@@ -0,0 +1,106 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.Nace2003;
+import be.ceau.kbobce.codes.Nace2008;
+
+public class PackedActivityTest {
+
+	private static final ActivityGroup GROUP = new ActivityGroup("001", Collections.emptyMap());
+	private static final Classification MAIN = new Classification("MAIN", Collections.emptyMap());
+	private static final Classification SECO = new Classification("SECO", Collections.emptyMap());
+
+	@Test
+	public void packTest() {
+		Activity activity2008 = new Activity(GROUP, new Nace2008("56101", Collections.emptyMap()), MAIN);
+		Activity activity2003 = new Activity(GROUP, new Nace2003("56101", Collections.emptyMap()), MAIN);
+		int packed2008 = PackedActivity.pack(activity2008);
+		int packed2003 = PackedActivity.pack(activity2003);
+		Assert.assertNotEquals(packed2008, packed2003);
+		Assert.assertTrue(PackedActivity.isNace2008(packed2008));
+		Assert.assertFalse(PackedActivity.isNace2008(packed2003));
+		Assert.assertEquals(2008, PackedActivity.nace(packed2008).getYear());
+		Assert.assertEquals("56101", PackedActivity.nace(packed2003).getCode());
+		Assert.assertEquals("001", PackedActivity.activityGroup(packed2008).getCode());
+		Assert.assertEquals("MAIN", PackedActivity.classification(packed2008).getCode());
+		Assert.assertEquals(activity2008, PackedActivity.unpack(packed2008));
+		Assert.assertEquals(activity2003, PackedActivity.unpack(packed2003));
+		Assert.assertEquals(packed2008, PackedActivity.pack(PackedActivity.unpack(packed2008)));
+	}
+
+	@Test
+	public void arrayTest() {
+		Activity main = new Activity(GROUP, new Nace2008("47110", Collections.emptyMap()), MAIN);
+		Activity secondary = new Activity(GROUP, new Nace2008("47190", Collections.emptyMap()), SECO);
+		Activity other = new Activity(GROUP, new Nace2008("47110", Collections.emptyMap()), SECO);
+		ActivityArray array = ActivityArray.of(Arrays.asList(secondary, main, null, new Activity(GROUP, new Nace2008("47110", Collections.emptyMap()), MAIN)));
+		Assert.assertEquals(2, array.size());
+		Assert.assertTrue(array.contains(main));
+		Assert.assertTrue(array.contains(secondary));
+		Assert.assertFalse(array.contains(other));
+		Assert.assertFalse(array.contains("47110"));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(main, secondary)), array);
+		Assert.assertEquals(array, new HashSet<>(Arrays.asList(main, secondary)));
+		Assert.assertTrue(array.getPacked(0) < array.getPacked(1));
+		Assert.assertSame(array, ActivityArray.of(array));
+		Assert.assertTrue(ActivityArray.of(null).isEmpty());
+
+		Establishment establishment = Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addActivity(main)
+				.addActivity(secondary)
+				.build();
+		Set<Activity> activities = establishment.getActivities();
+		Assert.assertTrue(activities instanceof ActivityArray);
+		Assert.assertEquals(array, activities);
+	}
+
+	@Test
+	public void descriptionsTest() {
+		CodeTable.of(Nace2008.class).intern(new Nace2008("62020", Collections.emptyMap()));
+		Nace2008 described = new Nace2008("62020", Collections.singletonMap("NL", "Computerconsultancy"));
+		Activity activity = new Activity(GROUP, described, MAIN);
+		ActivityArray array = ActivityArray.of(Collections.singletonList(activity));
+		Assert.assertSame(activity, array.iterator().next());
+		Assert.assertEquals("Computerconsultancy", array.iterator().next().getNace().getNl());
+		Assert.assertTrue(array.contains(new Activity(GROUP, new Nace2008("62020", Collections.emptyMap()), MAIN)));
+	}
+
+	@Test
+	public void containsDoesNotInternTest() {
+		ActivityArray array = ActivityArray.of(Collections.singletonList(new Activity(GROUP, new Nace2008("47110", Collections.emptyMap()), MAIN)));
+		int size = CodeTable.of(Nace2008.class).size();
+		Assert.assertFalse(array.contains(new Activity(GROUP, new Nace2008("99998", Collections.emptyMap()), MAIN)));
+		Assert.assertFalse(array.contains(new Activity(new ActivityGroup("ZZZ", Collections.emptyMap()), new Nace2008("47110", Collections.emptyMap()), MAIN)));
+		Assert.assertEquals(size, CodeTable.of(Nace2008.class).size());
+		Assert.assertNull(CodeTable.of(ActivityGroup.class).get("ZZZ"));
+	}
+
+}
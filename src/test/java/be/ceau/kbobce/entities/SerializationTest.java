@@ -0,0 +1,173 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.entities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.CodeTable;
+import be.ceau.kbobce.codes.ContactType;
+import be.ceau.kbobce.codes.EntityContact;
+import be.ceau.kbobce.codes.JuridicalForm;
+import be.ceau.kbobce.codes.JuridicalSituation;
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.codes.TypeOfDenomination;
+import be.ceau.kbobce.codes.TypeOfEnterprise;
+
+public class SerializationTest {
+
+	private static Map<String, String> descriptions(String nl, String fr) {
+		Map<String, String> descriptions = new HashMap<>();
+		descriptions.put("NL", nl);
+		descriptions.put("FR", fr);
+		return descriptions;
+	}
+
+	private static Enterprise enterprise() {
+		Address address = new Address(new TypeOfAddress("REGO", descriptions("Zetel", "Siège")), null, null, "9000", "Gent", "Gand", "Korenmarkt", "Marché aux Grains", "1", null, null, LocalDate.of(2019, 3, 4));
+		Activity activity = new Activity(new ActivityGroup("003", Collections.emptyMap()), new Nace2008("62010", descriptions("Ontwerpen en programmeren van computerprogramma's", "Programmation informatique")), new Classification("MAIN", Collections.emptyMap()));
+		Denomination denomination = new Denomination(new Language("2", descriptions("Nederlands", "Néerlandais")), new TypeOfDenomination("001", Collections.emptyMap()), "Voorbeeld");
+		Contact contact = new Contact(new EntityContact("ENT", Collections.emptyMap()), new ContactType("EMAIL", Collections.emptyMap()), "info@example.be");
+		Establishment establishment = Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addAddress(address)
+				.addActivity(activity)
+				.build();
+		return Enterprise.builder()
+				.withEnterpriseNumber(EnterpriseNumber.parse("0200.065.765"))
+				.withStatus(new Status("AC", descriptions("Actief", "Actif")))
+				.withJuridicalSituation(new JuridicalSituation("000", descriptions("Normale toestand", "Situation normale")))
+				.withTypeOfEnterprise(new TypeOfEnterprise("2", descriptions("Rechtspersoon", "Personne morale")))
+				.withJuridicalForm(new JuridicalForm("610", descriptions("Vennootschap met beperkte aansprakelijkheid", "Société à responsabilité limitée")))
+				.withStartDate(LocalDate.of(1960, 8, 9))
+				.addDenomination(denomination)
+				.addAddress(address)
+				.addContact(contact)
+				.addActivity(activity)
+				.addEstablishment(establishment)
+				.build();
+	}
+
+	private static Object roundTrip(Object object) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+
+	@Test
+	public void enterpriseRoundTripTest() throws IOException, ClassNotFoundException {
+		Enterprise original = enterprise();
+		Enterprise copy = (Enterprise) roundTrip(original);
+
+		Assert.assertEquals(original.getEnterpriseNumber(), copy.getEnterpriseNumber());
+		Assert.assertEquals(original.getStartDate(), copy.getStartDate());
+		Assert.assertEquals(original.getStatus().getCode(), copy.getStatus().getCode());
+		Assert.assertEquals("Actif", copy.getStatus().getFr());
+		Assert.assertNull(copy.getStatus().getDe());
+		Assert.assertEquals("610", copy.getJuridicalForm().getCode());
+		Assert.assertEquals("Société à responsabilité limitée", copy.getJuridicalForm().getFr());
+		Assert.assertNull(copy.getJuridicalForm().getDe());
+
+		Address address = copy.getAddresses().iterator().next();
+		Assert.assertEquals("9000", address.getZipcode());
+		Assert.assertEquals("Marché aux Grains", address.getStreetFR());
+		Assert.assertEquals("", address.getBox());
+		Assert.assertEquals(LocalDate.of(2019, 3, 4), address.getDateStrikingOff());
+
+		Establishment establishment = copy.getEstablishments().iterator().next();
+		Assert.assertEquals("2.000.000.339", establishment.getEstablishmentNumber().getValue());
+		Assert.assertEquals("62010", establishment.getActivities().iterator().next().getNace().getCode());
+		Assert.assertEquals("info@example.be", copy.getContacts().iterator().next().getValue());
+		Assert.assertEquals("Voorbeeld", copy.getDenominations().iterator().next().getValue());
+	}
+
+	@Test
+	public void canonicalCodeTest() throws IOException, ClassNotFoundException {
+		Status canonical = CodeTable.of(Status.class).intern(new Status("AC", Collections.emptyMap()));
+		Map<String, String> descriptions = new HashMap<>();
+		descriptions.put("NL", canonical.getNl());
+		descriptions.put("FR", canonical.getFr());
+		descriptions.put("DE", canonical.getDe());
+		Assert.assertSame(canonical, roundTrip(new Status("AC", descriptions)));
+
+		Enterprise copy = (Enterprise) roundTrip(enterprise());
+		Assert.assertSame(copy.getActivities().iterator().next().getNace(), copy.getEstablishments().iterator().next().getActivities().iterator().next().getNace());
+	}
+
+	@Test
+	public void descriptionsSurviveInterningTest() throws IOException, ClassNotFoundException {
+		CodeTable.of(Status.class).intern(new Status("AC", Collections.emptyMap()));
+		Status status = (Status) roundTrip(new Status("AC", descriptions("Actief", "Actif")));
+		Assert.assertEquals("Actief", status.getNl());
+		Assert.assertEquals("Actif", status.getFr());
+		Assert.assertNull(status.getDe());
+		Status again = (Status) roundTrip(new Status("AC", descriptions("Actief", "Actif")));
+		Assert.assertEquals(status, again);
+		Assert.assertEquals("Actif", again.getFr());
+		Assert.assertNull(((Status) roundTrip(new Status("AC", Collections.emptyMap()))).getFr());
+	}
+
+	@Test
+	public void dataStreamRoundTripTest() throws IOException {
+		Enterprise original = enterprise();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			Enterprise.write(out, original);
+			Enterprise.write(out, original);
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Enterprise copy = Enterprise.read(in);
+			Assert.assertEquals(original.getEnterpriseNumber(), copy.getEnterpriseNumber());
+			Assert.assertEquals("Actif", copy.getStatus().getFr());
+			Assert.assertEquals("Société à responsabilité limitée", copy.getJuridicalForm().getFr());
+			Assert.assertEquals("Marché aux Grains", copy.getAddresses().iterator().next().getStreetFR());
+			Assert.assertEquals("62010", copy.getEstablishments().iterator().next().getActivities().iterator().next().getNace().getCode());
+			Assert.assertEquals(copy.getStatus(), Enterprise.read(in).getStatus());
+			Assert.assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void numberRoundTripTest() throws IOException, ClassNotFoundException {
+		EnterpriseNumber enterpriseNumber = EnterpriseNumber.parse("0200.065.765");
+		Assert.assertEquals(enterpriseNumber, roundTrip(enterpriseNumber));
+		EstablishmentNumber establishmentNumber = EstablishmentNumber.parse("2.000.000.339");
+		Assert.assertEquals(establishmentNumber, roundTrip(establishmentNumber));
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+
+public class ArrowExporterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static List<Enterprise> enterprises(int count) {
+		Address address = new Address(new TypeOfAddress("REGO", Collections.emptyMap()), null, null, "9000", "Gent", "Gand", "Korenmarkt", "Marché aux Grains", "1", null, null, null);
+		Activity activity = new Activity(new ActivityGroup("003", Collections.emptyMap()), new Nace2008("62010", Collections.emptyMap()), new Classification("MAIN", Collections.emptyMap()));
+		List<Enterprise> enterprises = new ArrayList<>();
+		for (long part = 3_000_000; enterprises.size() < count; part++) {
+			Enterprise.Builder builder = Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(part))
+					.withStatus(part % 3 == 0 ? Fixtures.ACTIVE : Fixtures.STOPPED);
+			if (part % 2 == 0) {
+				builder.addAddress(address).addActivity(activity);
+			}
+			enterprises.add(builder.build());
+		}
+		return enterprises;
+	}
+
+	@Test
+	public void exportTest() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		Map<String, Long> rows = ArrowExporter.builder()
+				.withBatchSize(64)
+				.build()
+				.export(enterprises(1000), directory);
+		Assert.assertEquals(Long.valueOf(1000), rows.get(ArrowExporter.ENTERPRISE));
+		Assert.assertEquals(Long.valueOf(0), rows.get(ArrowExporter.ESTABLISHMENT));
+		Assert.assertEquals(Long.valueOf(500), rows.get(ArrowExporter.ADDRESS));
+		Assert.assertEquals(Long.valueOf(500), rows.get(ArrowExporter.ACTIVITY));
+
+		for (String table : rows.keySet()) {
+			byte[] bytes = Files.readAllBytes(directory.resolve(table + ArrowExporter.EXTENSION));
+			Assert.assertEquals("ARROW1", new String(bytes, 0, 6, StandardCharsets.US_ASCII));
+			Assert.assertEquals("ARROW1", new String(bytes, bytes.length - 6, 6, StandardCharsets.US_ASCII));
+			ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+			Assert.assertEquals(-1, buffer.getInt(8));
+			int footerLength = buffer.getInt(bytes.length - 10);
+			Assert.assertTrue(footerLength > 0 && footerLength % 8 == 0);
+			Assert.assertEquals(0, buffer.getInt(bytes.length - 10 - footerLength - 4));
+		}
+	}
+
+	@Test
+	public void contentTest() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		ArrowExporter.builder()
+				.withBatchSize(64)
+				.build()
+				.export(enterprises(100), directory);
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(ArrowExporter.ENTERPRISE + ArrowExporter.EXTENSION))).order(ByteOrder.LITTLE_ENDIAN);
+		int footerStart = buffer.capacity() - 10 - buffer.getInt(buffer.capacity() - 10);
+		int footer = indirect(buffer, footerStart);
+
+		// schema: one field per column, codes dictionary-encoded, dates as date32 in days
+		List<String> names = new ArrayList<>();
+		List<Integer> fields = tables(buffer, field(buffer, indirect(buffer, field(buffer, footer, 1)), 1));
+		for (int field : fields) {
+			names.add(string(buffer, field(buffer, field, 0)));
+		}
+		Assert.assertEquals(Arrays.asList("enterpriseNumber", "status", "juridicalSituation", "typeOfEnterprise", "juridicalForm", "startDate"), names);
+		Assert.assertEquals(-1, field(buffer, fields.get(0), 4));
+		int statusDictionary = indirect(buffer, field(buffer, fields.get(1), 4));
+		Assert.assertEquals(0L, longField(buffer, statusDictionary, 0));
+		Assert.assertEquals(8, buffer.get(field(buffer, fields.get(5), 2)));
+
+		// the dictionary batch of the status column holds both codes
+		int dictionaryBlocks = field(buffer, footer, 2);
+		Assert.assertEquals(4, buffer.getInt(indirect(buffer, dictionaryBlocks)));
+		int statusBatch = message(buffer, indirect(buffer, dictionaryBlocks) + 4);
+		Assert.assertEquals(0L, longField(buffer, statusBatch, 0));
+		List<String> statuses = strings(buffer, indirect(buffer, dictionaryBlocks) + 4, indirect(buffer, field(buffer, statusBatch, 1)), 0);
+		Assert.assertEquals(2, statuses.size());
+
+		// the first record batch: 64 rows, starting with an active enterprise started on the fixture date
+		int recordBlock = indirect(buffer, field(buffer, footer, 3)) + 4;
+		int batch = message(buffer, recordBlock);
+		Assert.assertEquals(64L, longField(buffer, batch, 0));
+		ByteBuffer status = body(buffer, recordBlock, batch, 4);
+		Assert.assertEquals("AC", statuses.get(status.getInt(0)));
+		Assert.assertEquals("ST", statuses.get(status.getInt(4)));
+		ByteBuffer startDate = body(buffer, recordBlock, batch, 12);
+		Assert.assertEquals(Fixtures.START_DATE.toEpochDay(), startDate.getInt(0));
+		Assert.assertEquals(Fixtures.START_DATE.toEpochDay(), startDate.getInt(63 * 4));
+	}
+
+	/**
+	 * @return the absolute position a flatbuffer offset at the given position
+	 *         points to
+	 */
+	private static int indirect(ByteBuffer buffer, int position) {
+		return position + buffer.getInt(position);
+	}
+
+	/**
+	 * @return the absolute position of a field of a flatbuffer table, or -1
+	 *         if it is absent
+	 */
+	private static int field(ByteBuffer buffer, int table, int slot) {
+		int vtable = table - buffer.getInt(table);
+		int entry = 4 + 2 * slot;
+		if (entry >= buffer.getShort(vtable)) {
+			return -1;
+		}
+		int offset = buffer.getShort(vtable + entry);
+		return offset == 0 ? -1 : table + offset;
+	}
+
+	private static long longField(ByteBuffer buffer, int table, int slot) {
+		int field = field(buffer, table, slot);
+		return field < 0 ? 0L : buffer.getLong(field);
+	}
+
+	private static String string(ByteBuffer buffer, int position) {
+		int start = indirect(buffer, position);
+		return new String(buffer.array(), start + 4, buffer.getInt(start), StandardCharsets.UTF_8);
+	}
+
+	private static List<Integer> tables(ByteBuffer buffer, int position) {
+		int vector = indirect(buffer, position);
+		List<Integer> tables = new ArrayList<>();
+		for (int i = 0; i < buffer.getInt(vector); i++) {
+			tables.add(indirect(buffer, vector + 4 + 4 * i));
+		}
+		return tables;
+	}
+
+	/**
+	 * @return the position of the {@code RecordBatch} of the message in the
+	 *         given {@code Block}, or of the {@code DictionaryBatch} for a
+	 *         dictionary block
+	 */
+	private static int message(ByteBuffer buffer, int block) {
+		int metadata = (int) buffer.getLong(block) + 8;
+		Assert.assertEquals(-1, buffer.getInt(metadata - 8));
+		return indirect(buffer, field(buffer, indirect(buffer, metadata), 2));
+	}
+
+	/**
+	 * @return the body buffer with the given index of a record batch
+	 */
+	private static ByteBuffer body(ByteBuffer buffer, int block, int batch, int index) {
+		int body = (int) buffer.getLong(block) + buffer.getInt(block + 8);
+		int layout = indirect(buffer, field(buffer, batch, 2)) + 4 + 16 * index;
+		ByteBuffer slice = ByteBuffer.wrap(buffer.array(), body + (int) buffer.getLong(layout), (int) buffer.getLong(layout + 8)).slice();
+		return slice.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return the values of the non-null {@code utf8} column whose buffers
+	 *         start at the given index
+	 */
+	private static List<String> strings(ByteBuffer buffer, int block, int batch, int index) {
+		ByteBuffer offsets = body(buffer, block, batch, index + 1);
+		ByteBuffer data = body(buffer, block, batch, index + 2);
+		List<String> strings = new ArrayList<>();
+		for (int i = 4; i < offsets.limit(); i += 4) {
+			byte[] bytes = new byte[offsets.getInt(i) - offsets.getInt(i - 4)];
+			for (int j = 0; j < bytes.length; j++) {
+				bytes[j] = data.get(offsets.getInt(i - 4) + j);
+			}
+			strings.add(new String(bytes, StandardCharsets.UTF_8));
+		}
+		return strings;
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ActivityGroup;
+import be.ceau.kbobce.codes.Classification;
+import be.ceau.kbobce.codes.Nace2008;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.entities.Activity;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+
+public class BulkExporterTest {
+
+	private static List<Enterprise> enterprises(int count) {
+		Address address = new Address(new TypeOfAddress("REGO", Collections.emptyMap()), null, null, "9000", "Gent", "Gand", "Korenmarkt", "Marché aux Grains", "1", null, null, null);
+		Activity first = new Activity(new ActivityGroup("003", Collections.emptyMap()), new Nace2008("62010", Collections.emptyMap()), new Classification("MAIN", Collections.emptyMap()));
+		Activity second = new Activity(new ActivityGroup("003", Collections.emptyMap()), new Nace2008("62020", Collections.emptyMap()), new Classification("SECO", Collections.emptyMap()));
+		List<Enterprise> enterprises = new ArrayList<>();
+		for (long part = 3_000_000; enterprises.size() < count; part++) {
+			Enterprise.Builder builder = Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(part));
+			if (part % 2 == 0) {
+				builder.addAddress(address).addActivity(first).addActivity(second);
+			}
+			enterprises.add(builder.build());
+		}
+		return enterprises;
+	}
+
+	private static String export(BulkExporter exporter, List<Enterprise> enterprises, long expectedRows) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Assert.assertEquals(expectedRows, exporter.export(enterprises.iterator(), Channels.newChannel(bytes)));
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int n; (n = in.read(buffer)) > 0;) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void csvTest() throws IOException {
+		BulkExporter exporter = BulkExporter.builder()
+				.withColumns(StandardColumn.ENTERPRISE_NUMBER, StandardColumn.STREET_FR, StandardColumn.NACE, StandardColumn.NACE_VERSION)
+				.withChunkSize(3)
+				.withMaxPendingChunks(2)
+				.build();
+		List<Enterprise> enterprises = enterprises(100);
+		String[] lines = export(exporter, enterprises, 150).split("\n");
+		Assert.assertEquals(151, lines.length);
+		Assert.assertEquals("enterpriseNumber,streetFR,nace,naceVersion", lines[0]);
+		Assert.assertTrue(lines[1].startsWith("0300.000.016,Marché aux Grains,620"));
+		Assert.assertTrue(lines[2].endsWith("0,2008"));
+		Assert.assertEquals("0300.000.115,,,", lines[3]);
+		Assert.assertEquals(enterprises.get(99).getEnterpriseNumber().getValue() + ",,,", lines[150]);
+	}
+
+	@Test
+	public void gzipNdjsonTest() throws IOException {
+		BulkExporter exporter = BulkExporter.builder()
+				.withColumns(StandardColumn.ENTERPRISE_NUMBER, StandardColumn.ZIPCODE)
+				.withFormat(Format.NDJSON)
+				.withGzip(true)
+				.withChunkSize(7)
+				.build();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Assert.assertEquals(15, exporter.export(enterprises(10).iterator(), Channels.newChannel(bytes)));
+		String[] lines = new String(readAll(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))), StandardCharsets.UTF_8).split("\n");
+		Assert.assertEquals(15, lines.length);
+		Assert.assertEquals("{\"enterpriseNumber\":\"0300.000.016\",\"zipcode\":\"9000\"}", lines[0]);
+		Assert.assertEquals("{\"enterpriseNumber\":\"0300.000.115\",\"zipcode\":null}", lines[2]);
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ContactType;
+import be.ceau.kbobce.codes.EntityContact;
+import be.ceau.kbobce.entities.Contact;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+public class ContactIndexTest {
+
+	private static Contact contact(String type, String value) {
+		return new Contact(new EntityContact("ENT", Collections.emptyMap()), new ContactType(type, Collections.emptyMap()), value);
+	}
+
+	private static Enterprise enterprise(String number, Establishment establishment, Contact... contacts) {
+		Enterprise.Builder builder = Fixtures.enterpriseBuilder(EnterpriseNumber.parse(number));
+		if (establishment != null) {
+			builder.addEstablishment(establishment);
+		}
+		for (Contact contact : contacts) {
+			builder.addContact(contact);
+		}
+		return builder.build();
+	}
+
+	@Test
+	public void normalizeTest() {
+		Assert.assertEquals("+3292661111", ContactIndex.Kind.PHONE.normalize("09 266 11 11"));
+		Assert.assertEquals("+3292661111", ContactIndex.Kind.PHONE.normalize("+32 (0)9/266.11.11"));
+		Assert.assertEquals("+32475123456", ContactIndex.Kind.PHONE.normalize("0032 475 12 34 56"));
+		Assert.assertEquals("+33123456789", ContactIndex.Kind.PHONE.normalize("+33 1 23 45 67 89"));
+		Assert.assertNull(ContactIndex.Kind.PHONE.normalize("1234"));
+		Assert.assertEquals("info@example.be", ContactIndex.Kind.EMAIL.normalize(" Info@Example.BE "));
+		Assert.assertNull(ContactIndex.Kind.EMAIL.normalize("info.example.be"));
+		Assert.assertEquals("example.be", ContactIndex.Kind.DOMAIN.normalize("https://www.shop.example.be:8080/contact"));
+		Assert.assertEquals("example.be", ContactIndex.Kind.DOMAIN.normalize("info@mail.example.be"));
+		Assert.assertEquals("example.co.uk", ContactIndex.Kind.DOMAIN.normalize("www.example.co.uk"));
+		Assert.assertNull(ContactIndex.Kind.DOMAIN.normalize("localhost"));
+	}
+
+	@Test
+	public void lookupTest() {
+		Establishment establishment = Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse("2.000.000.339"))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addContact(contact("TEL", "09 266 11 11"))
+				.build();
+		RegisterGraph graph = RegisterGraph.of(Arrays.asList(
+				enterprise("0403.170.701", establishment, contact("EMAIL", "info@example.be"), contact("WEB", "www.example.be")),
+				enterprise("0200.065.765", null, contact("EMAIL", "sales@example.be"), contact("TEL", "+32 9 266 11 11")),
+				enterprise("0200.068.636", null, contact("WEB", "other.be"))));
+		ContactIndex index = ContactIndex.of(graph);
+
+		Assert.assertArrayEquals(new int[] { 0, 2 }, index.enterprises(ContactIndex.Kind.DOMAIN, "https://example.be"));
+		Assert.assertArrayEquals(new int[] { 2 }, index.enterprises(ContactIndex.Kind.EMAIL, "INFO@example.be"));
+		Assert.assertArrayEquals(new int[] { 0 }, index.enterprises(ContactIndex.Kind.PHONE, "092661111"));
+		Assert.assertArrayEquals(new int[] { 0 }, index.establishments(ContactIndex.Kind.PHONE, "092661111"));
+		Assert.assertArrayEquals(new int[0], index.enterprises(ContactIndex.Kind.DOMAIN, "unknown.be"));
+		Assert.assertArrayEquals(new int[0], index.enterprises(ContactIndex.Kind.PHONE, null));
+	}
+
+}
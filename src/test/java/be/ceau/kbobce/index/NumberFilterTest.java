@@ -0,0 +1,70 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+public class NumberFilterTest {
+
+	@Test
+	public void mightContainTest() throws IOException, URISyntaxException {
+		List<EnterpriseNumber> numbers = Files.lines(Paths.get(getClass().getClassLoader().getResource("numbers.txt").toURI()))
+				.map(EnterpriseNumber::parse)
+				.collect(Collectors.toList());
+		NumberFilter.Builder builder = NumberFilter.builder(numbers.size(), 1, 0.01);
+		numbers.forEach(builder::add);
+		NumberFilter filter = builder.build();
+
+		numbers.forEach(number -> Assert.assertTrue(filter.mightContain(number)));
+
+		int falsePositives = 0;
+		int probes = 0;
+		for (long part = 3_000_000L; part < 3_100_000L; part += 10) {
+			EnterpriseNumber candidate = Fixtures.enterpriseNumber(part);
+			if (!numbers.contains(candidate)) {
+				probes++;
+				if (filter.mightContain(candidate)) {
+					falsePositives++;
+				}
+			}
+		}
+		Assert.assertTrue(String.format("%s false positives in %s probes", falsePositives, probes), falsePositives < probes * 0.03);
+		Assert.assertFalse(filter.mightContain(EstablishmentNumber.parse("2.000.000.339")));
+	}
+
+	@Test
+	public void packedNumberTest() {
+		EnterpriseNumber enterpriseNumber = EnterpriseNumber.parse("0200.065.765");
+		Assert.assertEquals(200065765L, enterpriseNumber.toLong());
+		Assert.assertEquals(enterpriseNumber, EnterpriseNumber.fromLong(enterpriseNumber.toLong()));
+		EstablishmentNumber establishmentNumber = EstablishmentNumber.parse("2.000.000.339");
+		Assert.assertEquals(2000000339L, establishmentNumber.toLong());
+		Assert.assertEquals(establishmentNumber, EstablishmentNumber.fromLong(establishmentNumber.toLong()));
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PostingListsTest {
+
+	@Test
+	public void compactTest() {
+		PostingLists lists = new PostingLists();
+		for (int i = 0; i < 10; i++) {
+			lists.add("all", i);
+			lists.add("all", i);
+			lists.add(i % 2 == 0 ? "even" : "odd", i);
+		}
+		lists.add(null, 11);
+		lists.add("", 11);
+		Map<String, int[]> map = lists.compact();
+		Assert.assertEquals(3, map.size());
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, map.get("all"));
+		Assert.assertArrayEquals(new int[] { 0, 2, 4, 6, 8 }, map.get("even"));
+		Assert.assertArrayEquals(new int[] { 1, 3, 5, 7, 9 }, map.get("odd"));
+	}
+
+	@Test
+	public void maxSizeTest() {
+		PostingLists lists = new PostingLists(5);
+		for (int i = 0; i < 10; i++) {
+			lists.add("all", i);
+			lists.add(i < 5 ? "low" : "high", i);
+		}
+		Map<String, int[]> map = lists.compact();
+		Assert.assertFalse(map.containsKey("all"));
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, map.get("low"));
+		Assert.assertArrayEquals(new int[] { 5, 6, 7, 8, 9 }, map.get("high"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidMaxSizeTest() {
+		new PostingLists(0);
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.index;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+public class RegisterGraphTest {
+
+	private static Enterprise enterprise(String number, Address address, Establishment... establishments) {
+		Enterprise.Builder builder = Fixtures.enterpriseBuilder(EnterpriseNumber.parse(number));
+		if (address != null) {
+			builder.addAddress(address);
+		}
+		for (Establishment establishment : establishments) {
+			builder.addEstablishment(establishment);
+		}
+		return builder.build();
+	}
+
+	private static Establishment establishment(String number, Address address) {
+		return Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse(number))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addAddress(address)
+				.build();
+	}
+
+	@Test
+	public void relationTest() {
+		Address ghent = new Address(new TypeOfAddress("BAET", Collections.emptyMap()), null, null, "9000", "Gent", "Gand", "Korenmarkt", null, "1", null, null, null);
+		Address brussels = new Address(new TypeOfAddress("BAET", Collections.emptyMap()), null, null, "1000", "Brussel", "Bruxelles", "Grote Markt", null, "1", null, null, null);
+		RegisterGraph graph = RegisterGraph.of(Arrays.asList(
+				enterprise("0403.170.701", ghent, establishment("2.000.000.339", brussels), establishment("2.000.000.240", ghent)),
+				enterprise("0200.065.765", null),
+				enterprise("0200.068.636", brussels, establishment("2.000.000.438", ghent))));
+
+		Assert.assertEquals(3, graph.enterpriseCount());
+		Assert.assertEquals(3, graph.establishmentCount());
+		Assert.assertEquals(0, graph.ordinal(EnterpriseNumber.parse("0200.065.765")));
+		Assert.assertEquals(2, graph.ordinal(EnterpriseNumber.parse("0403.170.701")));
+		Assert.assertEquals(-1, graph.ordinal(EnterpriseNumber.parse("0403.199.702")));
+
+		Relation<Establishment> establishments = graph.establishments();
+		Assert.assertEquals(0, establishments.count(0));
+		Assert.assertEquals(1, establishments.count(1));
+		Assert.assertEquals(2, establishments.count(2));
+		Assert.assertEquals("2.000.000.240", establishments.target(establishments.start(2)).getEstablishmentNumber().getValue());
+		int ordinal = graph.ordinal(EstablishmentNumber.parse("2.000.000.339"));
+		Assert.assertEquals(2, ordinal);
+		Assert.assertEquals(2, graph.parent(ordinal));
+		Assert.assertEquals("1000", graph.establishmentAddresses().target(graph.establishmentAddresses().start(ordinal)).getZipcode());
+		Assert.assertEquals(0, graph.enterpriseAddresses().count(0));
+		Assert.assertEquals(3, graph.establishmentAddresses().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicateTest() {
+		RegisterGraph.of(Arrays.asList(enterprise("0200.065.765", null), enterprise("0200.065.765", null)));
+	}
+
+}
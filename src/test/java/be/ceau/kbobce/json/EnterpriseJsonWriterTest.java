@@ -0,0 +1,75 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.codes.Translation;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+public class EnterpriseJsonWriterTest {
+
+	private static Enterprise enterprise(String number, String nl, String fr) {
+		Map<String, String> descriptions = new HashMap<>();
+		descriptions.put("NL", nl);
+		descriptions.put("FR", fr);
+		return Fixtures.enterpriseBuilder(EnterpriseNumber.parse(number))
+				.withStatus(new Status("AC", descriptions))
+				.build();
+	}
+
+	@Test
+	public void writeTest() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (EnterpriseJsonWriter writer = new EnterpriseJsonWriter(bytes)) {
+			writer.write(enterprise("0200.065.765", "Actief \"A\"", "Actif\tà"));
+		}
+		Assert.assertEquals("{\"enterpriseNumber\":\"0200.065.765\",\"status\":{\"code\":\"AC\",\"nl\":\"Actief \\\"A\\\"\",\"fr\":\"Actif\\tà\"},"
+				+ "\"juridicalSituation\":{\"code\":\"000\"},\"typeOfEnterprise\":{\"code\":\"2\"},"
+				+ "\"startDate\":\"1960-08-09\",\"denominations\":[],\"addresses\":[],\"contacts\":[],\"activities\":[],\"establishments\":[]}",
+				new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void writeLinesTest() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (EnterpriseJsonWriter writer = new EnterpriseJsonWriter(bytes, Translation.FR)) {
+			Assert.assertEquals(2, writer.writeLines(Arrays.asList(enterprise("0200.065.765", "Actief", "Actif"), enterprise("0403.170.701", "Actief", null))));
+		}
+		String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		Assert.assertEquals(2, lines.length);
+		Assert.assertTrue(lines[0].contains("\"status\":{\"code\":\"AC\",\"description\":\"Actif\"}"));
+		Assert.assertTrue(lines[1].contains("\"status\":{\"code\":\"AC\",\"description\":\"Actief\"}"));
+	}
+
+	@Test
+	public void encodeTest() {
+		Assert.assertEquals("\"\\u0001€😀\"", new String(JsonOutput.encode("\u0001€😀"), StandardCharsets.UTF_8));
+		Assert.assertEquals("null", new String(JsonOutput.encode(null), StandardCharsets.UTF_8));
+	}
+
+}
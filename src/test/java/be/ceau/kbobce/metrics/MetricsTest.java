@@ -0,0 +1,161 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+public class MetricsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Metrics discover(String provider) throws IOException {
+		File root = folder.newFolder();
+		if (provider != null) {
+			Path services = root.toPath().resolve("META-INF/services");
+			Files.createDirectories(services);
+			Files.write(services.resolve(Metrics.class.getName()), Collections.singletonList(provider), StandardCharsets.UTF_8);
+		}
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { root.toURI().toURL() }, getClass().getClassLoader())) {
+			return Instrumentation.discover(loader);
+		}
+	}
+
+	@Test
+	public void discoveryTest() throws IOException {
+		Assert.assertTrue(discover(RecordingMetrics.class.getName()) instanceof RecordingMetrics);
+		Assert.assertSame(Metrics.NOOP, discover(null));
+		Assert.assertSame("misconfigured provider", Metrics.NOOP, discover("be.ceau.kbobce.metrics.Missing"));
+	}
+
+	@Test
+	public void installTest() {
+		RecordingMetrics metrics = new RecordingMetrics();
+		Instrumentation.install(metrics);
+		try {
+			Assert.assertSame(metrics, Instrumentation.metrics());
+		} finally {
+			Instrumentation.install(null);
+		}
+		Assert.assertSame(Metrics.NOOP, Instrumentation.metrics());
+		Assert.assertFalse(Instrumentation.metrics().isEnabled());
+	}
+
+	@Test
+	public void countsTest() {
+		RecordingMetrics metrics = new RecordingMetrics();
+		Instrumentation.install(metrics);
+		try {
+			EnterpriseNumber.parse("0200.065.765");
+			EnterpriseNumber.parse("0200.065.765");
+			EnterpriseNumber.parse("0200.065.766");
+			EnterpriseNumber.parse(null);
+			EstablishmentNumber.parse("2.000.000.339");
+			try {
+				new Address(new TypeOfAddress("REGO", Collections.emptyMap()), null, null, "9000", null, null, null, null, "1", "0123456789012345678901", null, null);
+				Assert.fail("box exceeds its maximum length");
+			} catch (IllegalArgumentException expected) {
+				// rejected after being counted
+			}
+			Fixtures.enterprise(EnterpriseNumber.fromLong(200065765L));
+		} finally {
+			Instrumentation.install(null);
+		}
+
+		MetricsSnapshot snapshot = metrics.snapshot();
+		Assert.assertEquals(Long.valueOf(2), snapshot.getParseCounts().get("EnterpriseNumber"));
+		Assert.assertEquals(Long.valueOf(1), snapshot.getParseCounts().get("EstablishmentNumber"));
+		Assert.assertEquals(Long.valueOf(1), snapshot.getRejectCounts().get("EnterpriseNumber").get("parse"));
+		Assert.assertEquals(Long.valueOf(1), snapshot.getRejectCounts().get("EnterpriseNumber").get("null"));
+		Assert.assertEquals(Long.valueOf(1), snapshot.getRejectCounts().get("Address").get("box"));
+		Assert.assertEquals(1, snapshot.getBuildLatencies().get("Enterprise").getCount());
+		Assert.assertEquals(0, snapshot.getCollectionSizes().get("Enterprise.denominations").getMax());
+
+		metrics.reset();
+		Assert.assertTrue(metrics.snapshot().getParseCounts().isEmpty());
+	}
+
+	@Test
+	public void histogramTest() {
+		Histogram histogram = new Histogram();
+		for (long value : new long[] { 0, 1, 2, 3, 4, 1000, -5 }) {
+			histogram.record(value);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(7, snapshot.getCount());
+		Assert.assertEquals(1010, snapshot.getSum());
+		Assert.assertEquals(1000, snapshot.getMax());
+		Assert.assertEquals(1010 / 7.0, snapshot.getMean(), 1e-9);
+
+		long[] buckets = snapshot.getBuckets();
+		Assert.assertEquals(2, buckets[0]);
+		Assert.assertEquals(1, buckets[1]);
+		Assert.assertEquals(2, buckets[2]);
+		Assert.assertEquals(1, buckets[3]);
+		Assert.assertEquals(1, buckets[10]);
+
+		Assert.assertEquals(0, snapshot.getPercentile(0));
+		Assert.assertEquals(0, snapshot.getPercentile(25));
+		Assert.assertEquals(3, snapshot.getPercentile(50));
+		Assert.assertEquals(7, snapshot.getPercentile(80));
+		Assert.assertEquals("upper bound is capped at the maximum", 1000, snapshot.getPercentile(100));
+	}
+
+	@Test
+	public void emptyHistogramTest() {
+		HistogramSnapshot snapshot = new Histogram().snapshot();
+		Assert.assertEquals(0, snapshot.getCount());
+		Assert.assertEquals(0.0, snapshot.getMean(), 0.0);
+		Assert.assertEquals(0, snapshot.getPercentile(50));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void percentileOutOfRangeTest() {
+		new Histogram().snapshot().getPercentile(101);
+	}
+
+	@Test
+	public void jfrTest() {
+		JfrMetrics metrics = new JfrMetrics();
+		metrics.rejected("Address", "box");
+		metrics.rows("enterprise.csv", 10, 1000);
+		metrics.built("Enterprise", 50);
+		MetricsSnapshot snapshot = metrics.snapshot();
+		Assert.assertEquals(Long.valueOf(1), snapshot.getRejectCounts().get("Address").get("box"));
+		Assert.assertEquals(10, snapshot.getFileRates().get("enterprise.csv").getRows());
+		Assert.assertEquals(1, snapshot.getBuildLatencies().get("Enterprise").getCount());
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.entities.Denomination;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+import be.ceau.kbobce.index.RegisterGraph;
+
+public class AutocompleteTest {
+
+	private static Enterprise enterprise(int part, String status, Denomination denomination, Establishment... establishments) {
+		return Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(part))
+				.withStatus(new Status(status, Collections.emptyMap()))
+				.addDenomination(denomination)
+				.addEstablishments(Arrays.asList(establishments))
+				.build();
+	}
+
+	private static Establishment establishment(String number, Denomination denomination) {
+		return Establishment.builder()
+				.withEstablishmentNumber(EstablishmentNumber.parse(number))
+				.withStartDate(LocalDate.of(1999, 12, 31))
+				.addDenomination(denomination)
+				.build();
+	}
+
+	@Test
+	public void normalizeTest() {
+		Assert.assertEquals("cafe de l ecole", NameNormalizer.normalize("  Café de l'École  "));
+		Assert.assertEquals("strasse", NameNormalizer.normalize("STRAßE"));
+		Assert.assertEquals("muller co", NameNormalizer.normalize("Müller & Co."));
+		Assert.assertEquals(Arrays.asList("muller co", "mueller co"), NameNormalizer.variants("Müller & Co.", Fixtures.DE));
+		Assert.assertEquals(Arrays.asList("muller co"), NameNormalizer.variants("Müller & Co.", Fixtures.NL));
+		Assert.assertNull(NameNormalizer.normalize(null));
+	}
+
+	@Test
+	public void completeTest() {
+		RegisterGraph graph = RegisterGraph.of(Arrays.asList(
+				enterprise(3_000_000, "ST", Fixtures.denomination(Fixtures.NL, "Bakkerij Janssens")),
+				enterprise(3_000_001, "AC", Fixtures.denomination(Fixtures.NL, "Bakkerij Peeters")),
+				enterprise(3_000_002, "AC", Fixtures.denomination(Fixtures.NL, "Bank van Brussel"),
+						establishment("2.000.000.339", Fixtures.denomination(Fixtures.NL, "Bakkerij Centrum"))),
+				enterprise(3_000_003, "AC", Fixtures.denomination(Fixtures.DE, "Müller Bäckerei"))));
+		int stopped = graph.ordinal(EnterpriseNumber.fromLong(3_000_000 * 100L + 97 - 3_000_000 % 97));
+		int active = graph.ordinal(EnterpriseNumber.fromLong(3_000_001 * 100L + 97 - 3_000_001 % 97));
+		int bank = graph.ordinal(EnterpriseNumber.fromLong(3_000_002 * 100L + 97 - 3_000_002 % 97));
+		int muller = graph.ordinal(EnterpriseNumber.fromLong(3_000_003 * 100L + 97 - 3_000_003 % 97));
+
+		Autocomplete autocomplete = Autocomplete.builder(graph).build();
+
+		// active with an establishment, then active, then stopped
+		Assert.assertArrayEquals(new int[] { bank, active, stopped }, autocomplete.complete("bakk"));
+		Assert.assertArrayEquals(new int[] { bank, active, muller, stopped }, autocomplete.complete("BA"));
+		Assert.assertArrayEquals(new int[] { bank, active }, autocomplete.complete("ba", 2));
+		Assert.assertArrayEquals(new int[0], autocomplete.complete("ba", 0));
+		Assert.assertArrayEquals(new int[] { active }, autocomplete.complete("bakkerij p"));
+		Assert.assertArrayEquals(new int[] { active }, autocomplete.complete("Bakkerij Peeters"));
+		Assert.assertArrayEquals(new int[0], autocomplete.complete("bakkerij peetersen"));
+		Assert.assertArrayEquals(new int[0], autocomplete.complete("bakx"));
+		Assert.assertArrayEquals(new int[0], autocomplete.complete("  "));
+
+		// word prefixes and umlaut variants
+		Assert.assertArrayEquals(new int[] { stopped }, autocomplete.complete("jans"));
+		Assert.assertArrayEquals(new int[] { muller }, autocomplete.complete("mueller"));
+		Assert.assertArrayEquals(new int[] { muller }, autocomplete.complete("Müll"));
+		Assert.assertArrayEquals(new int[] { muller }, autocomplete.complete("back"));
+
+		Autocomplete plain = Autocomplete.builder(graph)
+				.withWordPrefixes(false)
+				.withTopK(1)
+				.withScore(enterprise -> -enterprise.getEnterpriseNumber().toLong())
+				.build();
+		Assert.assertArrayEquals(new int[] { stopped }, plain.complete("bakk"));
+		Assert.assertArrayEquals(new int[0], plain.complete("jans"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeLimitTest() {
+		RegisterGraph graph = RegisterGraph.of(Arrays.asList(enterprise(3_000_000, "AC", Fixtures.denomination(Fixtures.NL, "Bakkerij Janssens"))));
+		Autocomplete.builder(graph).build().complete("bakk", -1);
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.ContactType;
+import be.ceau.kbobce.codes.EntityContact;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Contact;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.index.ContactIndex;
+import be.ceau.kbobce.search.EntityResolver.Pair;
+import be.ceau.kbobce.search.EntityResolver.Record;
+
+public class EntityResolverTest {
+
+	private static Record record(String id, String name, String zipcode, String street, String houseNumber, String phone) {
+		return Record.builder(id)
+				.addName(name)
+				.addAddress(zipcode, street, houseNumber)
+				.addContact(ContactIndex.Kind.PHONE, phone)
+				.build();
+	}
+
+	private static List<String> ids(List<Pair> pairs) {
+		return pairs.stream()
+				.map(pair -> pair.getLeft().getSource() + "-" + pair.getRight().getSource())
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void deduplicateTest() {
+		List<Record> records = Arrays.asList(
+				record("a", "Bakkerij Janssens BV", "9000", "Veldstraat", "12", "09 266 11 11"),
+				record("b", "Bakkerij Janssens", "9000", "Veldstraat", "12 ", null),
+				record("c", "Janssens Bakkerij", "2000", "Meir", "1", null),
+				record("d", "Slagerij Peeters", "9000", "Veldstraat", "14", "+32 9 266 11 11"),
+				record("e", "Bakkerij Peeters", "3000", "Bondgenotenlaan", "5", null));
+		List<Pair> pairs = new ArrayList<>();
+		long count = EntityResolver.builder()
+				.withParallelism(2)
+				.build()
+				.deduplicate(records, pairs::add);
+		Assert.assertEquals(pairs.size(), count);
+		// a-b: similar name and same address; equal names or a shared phone alone do not reach the threshold
+		Assert.assertEquals(Arrays.asList("a-b"), ids(pairs));
+
+		pairs.clear();
+		EntityResolver.builder()
+				.withRule(MatchRule.names(), 1d)
+				.withThreshold(1d)
+				.build()
+				.deduplicate(records, pairs::add);
+		Assert.assertEquals(Arrays.asList("b-c"), ids(pairs));
+
+		pairs.clear();
+		EntityResolver.builder()
+				.withRule(MatchRule.contacts(), 1d)
+				.withRule(MatchRule.addresses(), 1d)
+				.withThreshold(0.75d)
+				.build()
+				.deduplicate(records, pairs::add);
+		Assert.assertEquals(Arrays.asList("a-d"), ids(pairs));
+
+		// with blocks of one record, no candidates share a key
+		pairs.clear();
+		EntityResolver.builder()
+				.withMaxBlockSize(1)
+				.build()
+				.deduplicate(records, pairs::add);
+		Assert.assertTrue(pairs.isEmpty());
+	}
+
+	@Test
+	public void linkTest() {
+		Enterprise enterprise = Fixtures.enterpriseBuilder(EnterpriseNumber.parse("0403.170.701"))
+				.addDenomination(Fixtures.denomination(Fixtures.NL, "Brouwerij Van Steenberge"))
+				.addAddress(new Address(new TypeOfAddress("REGO", Collections.emptyMap()), "", "", "9968", "Ertvelde", "Ertvelde", "Lindenlaan", "Lindenlaan", "25", "", "", null))
+				.addContact(new Contact(new EntityContact("ENT", Collections.emptyMap()), new ContactType("WEB", Collections.emptyMap()), "https://www.vansteenberge.com"))
+				.build();
+		List<Record> register = Arrays.asList(Record.of(enterprise), record("other", "Brouwerij Het Anker", "2800", "Guido Gezellelaan", "49", null));
+		List<Record> list = Arrays.asList(
+				Record.builder("row 1")
+						.addName("BROUWERIJ VAN STEENBERGE NV")
+						.addContact(ContactIndex.Kind.DOMAIN, "info@vansteenberge.com")
+						.build(),
+				Record.builder("row 2")
+						.addName("Van Steenberge")
+						.addAddress("9968", "Lindenlaan", "25")
+						.build(),
+				record("row 3", "Brasserie Dupont", "7904", "Rue Basse", "5", null));
+		List<Pair> pairs = new ArrayList<>();
+		EntityResolver.builder()
+				.withThreshold(0.5d)
+				.build()
+				.link(list, register, pairs::add);
+		Assert.assertEquals(2, pairs.size());
+		for (Pair pair : pairs) {
+			Assert.assertSame(enterprise, pair.getRight().getSource());
+		}
+	}
+
+	@Test
+	public void recordTest() {
+		Record record = record("1", "Janssens & Janssens Bouw", "9000", "Korenmarkt", "1 A", "09 266 11 11");
+		Assert.assertEquals(1, record.getNameTokens().size());
+		Assert.assertEquals(Arrays.asList("bouw", "janssens"), record.getNameTokens().get(0));
+		Assert.assertEquals(Arrays.asList("9000|korenmarkt|1a"), record.getAddresses());
+		Assert.assertEquals(Arrays.asList("PHONE:+3292661111"), record.getContacts());
+
+		Record other = record("2", "Bouw Janssens", null, null, null, null);
+		Assert.assertEquals(1d, Record.dice(record.nameTokens[0], other.nameTokens[0]), 0d);
+		Assert.assertEquals(2d / 3, Record.dice(record.nameTokens[0], new String[] { "janssens" }), 1e-9);
+		Assert.assertEquals(0d, Record.dice(record.nameTokens[0], new String[0]), 0d);
+		Assert.assertTrue(other.getAddresses().isEmpty());
+	}
+
+	@Test
+	public void houseNumberLocaleTest() {
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("tr", "TR"));
+			Record record = record("1", "Bakkerij Janssens", "9000", "Korenmarkt", "12I", null);
+			Assert.assertEquals(Arrays.asList("9000|korenmarkt|12i"), record.getAddresses());
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.index.RegisterGraph;
+
+public class PhoneticIndexTest {
+
+	private static Enterprise enterprise(int part, Language language, String name) {
+		return Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(part))
+				.addDenomination(Fixtures.denomination(language, name))
+				.build();
+	}
+
+	@Test
+	public void encodeTest() {
+		Assert.assertEquals("65752682", Phonetic.COLOGNE.encode("mullerludenscheidt"));
+		Assert.assertEquals("3412", Phonetic.COLOGNE.encode("wikipedia"));
+		Assert.assertEquals(Phonetic.COLOGNE.encode("meyer"), Phonetic.COLOGNE.encode("maier"));
+		Assert.assertEquals(Phonetic.COLOGNE.encode("schmidt"), Phonetic.COLOGNE.encode("schmitt"));
+
+		Assert.assertEquals(Phonetic.DUTCH.encode("janssens"), Phonetic.DUTCH.encode("jansens"));
+		Assert.assertEquals(Phonetic.DUTCH.encode("claes"), Phonetic.DUTCH.encode("klaas"));
+		Assert.assertEquals(Phonetic.DUTCH.encode("smedt"), Phonetic.DUTCH.encode("smet"));
+		Assert.assertEquals(Phonetic.DUTCH.encode("huyghe"), Phonetic.DUTCH.encode("huige"));
+		Assert.assertEquals(Phonetic.DUTCH.encode("peeters"), Phonetic.DUTCH.encode("pieters"));
+		Assert.assertNotEquals(Phonetic.DUTCH.encode("peeters"), Phonetic.DUTCH.encode("pauwels"));
+
+		Assert.assertEquals(Phonetic.FRENCH.encode("dupont"), Phonetic.FRENCH.encode("dupond"));
+		Assert.assertEquals(Phonetic.FRENCH.encode("boulanger"), Phonetic.FRENCH.encode("boulange"));
+		Assert.assertEquals(Phonetic.FRENCH.encode("lefevre"), Phonetic.FRENCH.encode("lefeuvre"));
+		Assert.assertEquals(Phonetic.FRENCH.encode("philippe"), Phonetic.FRENCH.encode("filip"));
+		Assert.assertNotEquals(Phonetic.FRENCH.encode("dupont"), Phonetic.FRENCH.encode("durand"));
+
+		Assert.assertEquals("", Phonetic.DUTCH.encode("2000"));
+		Assert.assertEquals(Phonetic.FRENCH, Phonetic.of(Fixtures.FR));
+		Assert.assertEquals(Phonetic.COLOGNE, Phonetic.of(Fixtures.DE));
+		Assert.assertEquals(Phonetic.DUTCH, Phonetic.of(null));
+	}
+
+	@Test
+	public void matchTest() {
+		RegisterGraph graph = RegisterGraph.of(Arrays.asList(
+				enterprise(3_000_000, Fixtures.NL, "Bakkerij Janssens"),
+				enterprise(3_000_001, Fixtures.NL, "Van de Velde & Zonen"),
+				enterprise(3_000_002, Fixtures.FR, "Boulangerie Dupont"),
+				enterprise(3_000_003, Fixtures.DE, "Schmidt Bäckerei")));
+		int janssens = graph.ordinal(EnterpriseNumber.fromLong(3_000_000 * 100L + 97 - 3_000_000 % 97));
+		int velde = graph.ordinal(EnterpriseNumber.fromLong(3_000_001 * 100L + 97 - 3_000_001 % 97));
+		int dupont = graph.ordinal(EnterpriseNumber.fromLong(3_000_002 * 100L + 97 - 3_000_002 % 97));
+		int schmidt = graph.ordinal(EnterpriseNumber.fromLong(3_000_003 * 100L + 97 - 3_000_003 % 97));
+		PhoneticIndex index = PhoneticIndex.of(graph);
+		Assert.assertEquals(4, index.size());
+
+		List<PhoneticIndex.Match> matches = index.match("Bakkerij Jansens", Fixtures.NL, 5);
+		Assert.assertEquals(1, matches.size());
+		Assert.assertEquals(janssens, matches.get(0).getOrdinal());
+		Assert.assertEquals(1d, matches.get(0).getScore(), 0d);
+		Assert.assertFalse(matches.get(0).isExact());
+
+		matches = index.match("BAKKERIJ JANSSENS", null, 5);
+		Assert.assertEquals(janssens, matches.get(0).getOrdinal());
+		Assert.assertTrue(matches.get(0).isExact());
+
+		matches = index.match("Vandevelde & Zonen", Fixtures.NL, 5);
+		Assert.assertEquals(velde, matches.get(0).getOrdinal());
+
+		matches = index.match("Dupond", Fixtures.FR, 5);
+		Assert.assertEquals(dupont, matches.get(0).getOrdinal());
+		Assert.assertEquals(2d / 3, matches.get(0).getScore(), 1e-9);
+
+		matches = index.match("Schmitt", Fixtures.DE, 5);
+		Assert.assertEquals(schmidt, matches.get(0).getOrdinal());
+		Assert.assertTrue(index.match("Schmitt", Fixtures.FR, 5).isEmpty());
+
+		List<List<PhoneticIndex.Match>> batch = index.match(Arrays.asList("Dupont", "Peeters", null), null, 5);
+		Assert.assertEquals(3, batch.size());
+		Assert.assertEquals(dupont, batch.get(0).get(0).getOrdinal());
+		Assert.assertTrue(batch.get(1).isEmpty());
+		Assert.assertTrue(batch.get(2).isEmpty());
+	}
+
+	@Test
+	public void maxPostingsTest() {
+		RegisterGraph graph = RegisterGraph.of(Arrays.asList(
+				enterprise(3_000_000, Fixtures.NL, "Bakkerij Janssens"),
+				enterprise(3_000_001, Fixtures.NL, "Bakkerij Peeters"),
+				enterprise(3_000_002, Fixtures.NL, "Bakkerij Claes")));
+		Assert.assertEquals(3, PhoneticIndex.of(graph).match("Bakkerij Wouters", Fixtures.NL, 5).size());
+		PhoneticIndex index = PhoneticIndex.of(graph, 2);
+		Assert.assertTrue(index.match("Bakkerij Wouters", Fixtures.NL, 5).isEmpty());
+		List<PhoneticIndex.Match> matches = index.match("Bakkerij Klaas", Fixtures.NL, 5);
+		Assert.assertEquals(1, matches.size());
+		Assert.assertEquals(graph.ordinal(Fixtures.enterpriseNumber(3_000_002)), matches.get(0).getOrdinal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidMaxPostingsTest() {
+		PhoneticIndex.of(RegisterGraph.of(Arrays.asList(enterprise(3_000_000, Fixtures.NL, "Bakkerij Janssens"))), 0);
+	}
+
+}
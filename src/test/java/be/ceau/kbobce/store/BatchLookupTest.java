@@ -0,0 +1,83 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+public class BatchLookupTest {
+
+	@Test
+	public void inputOrderTest() {
+		EnterpriseRegistry registry = new EnterpriseRegistry();
+		registry.put(Fixtures.enterprise(EnterpriseNumber.parse("0403.170.701")));
+		registry.put(Fixtures.enterprise(EnterpriseNumber.parse("0200.065.765")));
+		BatchLookup lookup = BatchLookup.builder(registry).build();
+		List<Enterprise> results = lookup.lookup(Arrays.asList("BE 0403.170.701", "invalid", null, "0200065765", "0403170701", "0200.068.636"));
+		Assert.assertEquals(6, results.size());
+		Assert.assertEquals("0403.170.701", results.get(0).getEnterpriseNumber().getValue());
+		Assert.assertNull(results.get(1));
+		Assert.assertNull(results.get(2));
+		Assert.assertEquals("0200.065.765", results.get(3).getEnterpriseNumber().getValue());
+		Assert.assertSame(results.get(0), results.get(4));
+		Assert.assertNull(results.get(5));
+	}
+
+	@Test
+	public void parallelTest() {
+		EnterpriseRegistry registry = new EnterpriseRegistry();
+		List<String> numbers = new ArrayList<>();
+		for (long part = 3_000_000; part < 3_010_000; part++) {
+			EnterpriseNumber number = Fixtures.enterpriseNumber(part);
+			if (part % 2 == 0) {
+				registry.put(Fixtures.enterprise(number));
+			}
+			numbers.add(number.getValue());
+		}
+		Collections.reverse(numbers);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Enterprise> results = BatchLookup.builder(registry)
+					.withExecutor(executor)
+					.withPartitionSize(100)
+					.withParallelism(8)
+					.build()
+					.lookup(numbers);
+			for (int i = 0; i < numbers.size(); i++) {
+				Enterprise enterprise = results.get(i);
+				if (EnterpriseNumber.parse(numbers.get(i)).toLong() / 100 % 2 == 0) {
+					Assert.assertEquals(numbers.get(i), enterprise.getEnterpriseNumber().getValue());
+				} else {
+					Assert.assertNull(enterprise);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
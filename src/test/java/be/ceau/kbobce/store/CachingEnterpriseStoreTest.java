@@ -0,0 +1,104 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+public class CachingEnterpriseStoreTest {
+
+	@Test
+	public void readThroughTest() {
+		AtomicInteger calls = new AtomicInteger();
+		CachingEnterpriseStore cache = CachingEnterpriseStore.builder(n -> {
+			calls.incrementAndGet();
+			return Fixtures.enterprise(n);
+		}).withMaximumWeight(1000).withConcurrencyLevel(1).build();
+
+		EnterpriseNumber number = Fixtures.enterpriseNumber(2000000);
+		Enterprise first = cache.get(number);
+		Assert.assertSame(first, cache.get(number));
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(1, cache.stats().getHitCount());
+		Assert.assertEquals(1, cache.stats().getMissCount());
+
+		cache.invalidate(number);
+		Assert.assertNull(cache.getIfPresent(number));
+		cache.get(number);
+		Assert.assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void evictionTest() {
+		CachingEnterpriseStore cache = CachingEnterpriseStore.builder(Fixtures::enterprise)
+				.withMaximumWeight(10)
+				.withConcurrencyLevel(1)
+				.build();
+
+		EnterpriseNumber hot = Fixtures.enterpriseNumber(2000000);
+		cache.get(hot);
+		cache.get(hot);
+		for (long part = 2000001; part < 2000100; part++) {
+			cache.get(Fixtures.enterpriseNumber(part));
+		}
+		Assert.assertEquals(10, cache.size());
+		Assert.assertEquals(10, cache.weightedSize());
+		Assert.assertEquals(90, cache.stats().getEvictionCount());
+		Assert.assertNotNull("protected entry survives a scan", cache.getIfPresent(hot));
+	}
+
+	@Test
+	public void heavyEntryTest() {
+		CachingEnterpriseStore cache = CachingEnterpriseStore.builder(Fixtures::enterprise)
+				.withMaximumWeight(100_000)
+				.withConcurrencyLevel(16)
+				.withWeigher(enterprise -> 7_000)
+				.build();
+
+		for (long part = 2000000; part < 2000100; part++) {
+			EnterpriseNumber number = Fixtures.enterpriseNumber(part);
+			cache.get(number);
+			Assert.assertNotNull(cache.getIfPresent(number));
+			Assert.assertTrue(cache.weightedSize() <= 100_000);
+		}
+		Assert.assertEquals(14, cache.size());
+		Assert.assertEquals(86, cache.stats().getEvictionCount());
+	}
+
+	@Test
+	public void overweightEntryTest() {
+		CachingEnterpriseStore cache = CachingEnterpriseStore.builder(Fixtures::enterprise)
+				.withMaximumWeight(10)
+				.withConcurrencyLevel(1)
+				.withWeigher(enterprise -> enterprise.getEnterpriseNumber().equals(Fixtures.enterpriseNumber(2000000)) ? 11 : 1)
+				.build();
+
+		EnterpriseNumber light = Fixtures.enterpriseNumber(2000001);
+		cache.get(light);
+		EnterpriseNumber heavy = Fixtures.enterpriseNumber(2000000);
+		Assert.assertNotNull(cache.get(heavy));
+		Assert.assertNull(cache.getIfPresent(heavy));
+		Assert.assertNotNull(cache.getIfPresent(light));
+		Assert.assertEquals(1, cache.weightedSize());
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+import be.ceau.kbobce.entities.Establishment;
+import be.ceau.kbobce.entities.EstablishmentNumber;
+
+public class EnterpriseRegistryTest {
+
+	private static final EnterpriseNumber NUMBER = EnterpriseNumber.parse("0403.170.701");
+	private static final EstablishmentNumber BRANCH = EstablishmentNumber.parse("2.000.000.339");
+
+	private static Enterprise enterprise(LocalDate startDate, boolean withBranch) {
+		Enterprise.Builder builder = Fixtures.enterpriseBuilder(NUMBER).withStartDate(startDate);
+		if (withBranch) {
+			builder.addEstablishment(Establishment.builder().withEstablishmentNumber(BRANCH).withStartDate(startDate).build());
+		}
+		return builder.build();
+	}
+
+	@Test
+	public void writeTest() {
+		EnterpriseRegistry registry = new EnterpriseRegistry();
+		Enterprise first = enterprise(LocalDate.of(2000, 1, 1), true);
+		Assert.assertNull(registry.put(first));
+		Assert.assertSame(first, registry.get(NUMBER));
+		Assert.assertSame(first, registry.getByEstablishment(BRANCH));
+
+		Enterprise second = enterprise(LocalDate.of(2001, 1, 1), false);
+		Assert.assertFalse(registry.replace(enterprise(LocalDate.of(2000, 1, 1), true), second));
+		Assert.assertTrue(registry.replace(first, second));
+		Assert.assertSame(second, registry.get(NUMBER.toLong()));
+		Assert.assertNull(registry.getByEstablishment(BRANCH));
+
+		Assert.assertSame(second, registry.remove(NUMBER));
+		Assert.assertNull(registry.get(NUMBER));
+		Assert.assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void concurrentUpdateTest() throws InterruptedException {
+		EnterpriseRegistry registry = new EnterpriseRegistry();
+		LocalDate start = LocalDate.of(2000, 1, 1);
+		registry.put(enterprise(start, true));
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					registry.update(NUMBER, current -> enterprise(current.getStartDate().plusDays(1), current.getStartDate().getDayOfMonth() % 2 == 0));
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(start.plusDays(8000), registry.get(NUMBER).getStartDate());
+	}
+
+}
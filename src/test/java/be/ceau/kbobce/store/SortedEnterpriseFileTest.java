@@ -0,0 +1,131 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.entities.Enterprise;
+
+public class SortedEnterpriseFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path write(int count) throws IOException {
+		Path path = folder.newFile().toPath();
+		try (SortedEnterpriseFile.Writer writer = SortedEnterpriseFile.writer(path, 1024)) {
+			for (long part = 3_000_000; part < 3_000_000 + 2 * count; part += 2) {
+				writer.append(Fixtures.enterpriseBuilder(Fixtures.enterpriseNumber(part))
+						.withStartDate(LocalDate.ofEpochDay(part % 20000))
+						.build());
+			}
+		}
+		return path;
+	}
+
+	@Test
+	public void lookupTest() throws IOException {
+		try (SortedEnterpriseFile file = SortedEnterpriseFile.open(write(1000))) {
+			Assert.assertEquals(1000, file.size());
+			Assert.assertTrue(file.blockCount() > 1);
+			for (long part = 2_999_990; part < 3_002_010; part++) {
+				Enterprise enterprise = file.get(Fixtures.enterpriseNumber(part));
+				if (part >= 3_000_000 && part < 3_002_000 && part % 2 == 0) {
+					Assert.assertEquals(Fixtures.enterpriseNumber(part), enterprise.getEnterpriseNumber());
+					Assert.assertEquals(LocalDate.ofEpochDay(part % 20000), enterprise.getStartDate());
+				} else {
+					Assert.assertNull(enterprise);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void scanTest() throws IOException {
+		try (SortedEnterpriseFile file = SortedEnterpriseFile.open(write(1000))) {
+			List<Enterprise> scanned = new ArrayList<>();
+			file.scan(Fixtures.enterpriseNumber(3_000_101), Fixtures.enterpriseNumber(3_001_500), scanned::add);
+			Assert.assertEquals(699, scanned.size());
+			Assert.assertEquals(Fixtures.enterpriseNumber(3_000_102), scanned.get(0).getEnterpriseNumber());
+			Assert.assertEquals(Fixtures.enterpriseNumber(3_001_498), scanned.get(698).getEnterpriseNumber());
+			scanned.clear();
+			file.scan(null, null, scanned::add);
+			Assert.assertEquals(1000, scanned.size());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void orderTest() throws IOException {
+		try (SortedEnterpriseFile.Writer writer = SortedEnterpriseFile.writer(folder.newFile().toPath())) {
+			Enterprise enterprise = Fixtures.enterprise(Fixtures.enterpriseNumber(3_000_000));
+			writer.append(enterprise);
+			writer.append(enterprise);
+		}
+	}
+
+	@Test
+	public void closeTest() throws IOException {
+		Path path = folder.newFile().toPath();
+		try (SortedEnterpriseFile.Writer writer = SortedEnterpriseFile.writer(path)) {
+			writer.append(Fixtures.enterprise(Fixtures.enterpriseNumber(3_000_000)));
+			writer.close();
+			try {
+				writer.append(Fixtures.enterprise(Fixtures.enterpriseNumber(3_000_001)));
+				Assert.fail("append after close");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		}
+		try (SortedEnterpriseFile file = SortedEnterpriseFile.open(path)) {
+			Assert.assertEquals(1, file.size());
+		}
+	}
+
+	@Test
+	public void corruptionTest() throws IOException {
+		Path path = write(100);
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[10] ^= 1;
+		Files.write(path, bytes);
+		try (SortedEnterpriseFile file = SortedEnterpriseFile.open(path)) {
+			file.get(Fixtures.enterpriseNumber(3_000_000));
+			Assert.fail();
+		} catch (UncheckedIOException e) {
+			Assert.assertTrue(e.getCause().getMessage().contains("checksum"));
+		}
+		bytes[bytes.length - 30] ^= 1;
+		Files.write(path, bytes);
+		try {
+			SortedEnterpriseFile.open(path).close();
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage().contains("checksum"));
+		}
+	}
+
+}
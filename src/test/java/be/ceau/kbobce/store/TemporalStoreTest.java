@@ -0,0 +1,97 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.store;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.Fixtures;
+import be.ceau.kbobce.codes.Status;
+import be.ceau.kbobce.entities.Enterprise;
+import be.ceau.kbobce.entities.EnterpriseNumber;
+
+public class TemporalStoreTest {
+
+	private static final LocalDate JAN = LocalDate.of(2020, 1, 1);
+	private static final LocalDate FEB = LocalDate.of(2020, 2, 1);
+	private static final LocalDate MAR = LocalDate.of(2020, 3, 1);
+
+	private static Enterprise enterprise(EnterpriseNumber enterpriseNumber, Status status, String name) {
+		return Fixtures.enterpriseBuilder(enterpriseNumber)
+				.withStatus(status)
+				.addDenomination(Fixtures.denomination(Fixtures.NL, name))
+				.build();
+	}
+
+	@Test
+	public void asOfTest() {
+		EnterpriseNumber a = Fixtures.enterpriseNumber(2000000);
+		EnterpriseNumber b = Fixtures.enterpriseNumber(2000001);
+		TemporalStore store = TemporalStore.builder().build();
+
+		Assert.assertEquals(2, store.ingestSnapshot(JAN, Arrays.asList(enterprise(a, Fixtures.ACTIVE, "Alpha"), enterprise(b, Fixtures.ACTIVE, "Beta"))));
+		Assert.assertEquals(1, store.ingestSnapshot(FEB, Arrays.asList(enterprise(a, Fixtures.ACTIVE, "Alpha"), enterprise(b, Fixtures.ACTIVE, "Beta Bis"))));
+		Assert.assertEquals(2, store.ingestSnapshot(MAR, Collections.singletonList(enterprise(a, Fixtures.STOPPED, "Alpha"))));
+
+		Assert.assertNull(store.asOf(a, JAN.minusDays(1)));
+		Assert.assertEquals("AC", store.asOf(a, FEB.plusDays(10)).getStatus().getCode());
+		Assert.assertEquals("ST", store.asOf(a, MAR).getStatus().getCode());
+		Assert.assertEquals("ST", store.get(a).getStatus().getCode());
+
+		Assert.assertEquals("Beta", store.asOf(b, JAN.plusDays(30)).getDenominations().iterator().next().getValue());
+		Assert.assertEquals("Beta Bis", store.asOf(b, FEB).getDenominations().iterator().next().getValue());
+		Assert.assertNull(store.asOf(b, MAR));
+		Assert.assertNull(store.get(b));
+
+		Assert.assertEquals(Arrays.asList(JAN, MAR), store.versions(a));
+		Assert.assertEquals(Arrays.asList(JAN, FEB, MAR), store.versions(b));
+		Assert.assertEquals(2, store.size());
+		Assert.assertEquals(5, store.versionCount());
+	}
+
+	@Test
+	public void checkpointTest() {
+		EnterpriseNumber a = Fixtures.enterpriseNumber(2000000);
+		TemporalStore store = TemporalStore.builder().withCheckpointInterval(3).build();
+		for (int i = 0; i < 20; i++) {
+			store.ingestUpdates(JAN.plusDays(i), Collections.singletonList(enterprise(a, i % 2 == 0 ? Fixtures.ACTIVE : Fixtures.STOPPED, "Name " + i)), Collections.emptyList());
+		}
+		for (int i = 0; i < 20; i++) {
+			Enterprise enterprise = store.asOf(a, JAN.plusDays(i));
+			Assert.assertEquals(i % 2 == 0 ? "AC" : "ST", enterprise.getStatus().getCode());
+			Assert.assertEquals(1, enterprise.getDenominations().size());
+			Assert.assertEquals("Name " + i, enterprise.getDenominations().iterator().next().getValue());
+		}
+
+		store.ingestUpdates(FEB, Collections.emptyList(), Collections.singletonList(a));
+		Assert.assertNull(store.asOf(a, FEB));
+		store.ingestUpdates(MAR, Collections.singletonList(enterprise(a, Fixtures.ACTIVE, "Reborn")), Collections.emptyList());
+		Assert.assertEquals("Reborn", store.asOf(a, MAR).getDenominations().iterator().next().getValue());
+		Assert.assertEquals(22, store.versionCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void outOfOrderTest() {
+		TemporalStore store = TemporalStore.builder().build();
+		store.ingestSnapshot(FEB, Collections.emptyList());
+		store.ingestSnapshot(JAN, Collections.emptyList());
+	}
+
+}
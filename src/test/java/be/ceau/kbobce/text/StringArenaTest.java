@@ -0,0 +1,111 @@
+/*
+	Copyright 2019 Marceau Dewilde <m@ceau.be>
+	
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+	
+		https://www.apache.org/licenses/LICENSE-2.0
+	
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.kbobce.text;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.kbobce.codes.Language;
+import be.ceau.kbobce.codes.TypeOfAddress;
+import be.ceau.kbobce.codes.TypeOfDenomination;
+import be.ceau.kbobce.entities.Address;
+import be.ceau.kbobce.entities.Denomination;
+
+public class StringArenaTest {
+
+	@Test
+	public void arenaTest() {
+		StringArena arena = new StringArena();
+		int latin1 = arena.add("Brasserie de l'Abbaye à Orval");
+		int utf8 = arena.add("Ελληνικά 🍺");
+		int empty = arena.add("");
+		Assert.assertEquals(-1, arena.add(null));
+		Assert.assertNull(arena.get(-1));
+		Assert.assertNull(arena.getString(-1));
+
+		ArenaText text = arena.get(latin1);
+		Assert.assertEquals("Brasserie de l'Abbaye à Orval", text.toString());
+		Assert.assertEquals(29, text.length());
+		Assert.assertEquals('à', text.charAt(22));
+		Assert.assertEquals("Abbaye", text.subSequence(15, 21).toString());
+		Assert.assertEquals("Brasserie de l'Abbaye à Orval".hashCode(), text.hashCode());
+		Assert.assertTrue(text.contentEquals("Brasserie de l'Abbaye à Orval"));
+		Assert.assertEquals(text, arena.get(latin1));
+
+		ArenaText unicode = arena.get(utf8);
+		Assert.assertEquals("Ελληνικά 🍺", unicode.toString());
+		Assert.assertEquals(11, unicode.length());
+		Assert.assertEquals('λ', unicode.charAt(2));
+		Assert.assertEquals("🍺", unicode.subSequence(9, 11).toString());
+		Assert.assertEquals("", arena.getString(empty));
+		Assert.assertTrue(arena.get(empty).compareTo(text) < 0);
+
+		Assert.assertEquals(arena.addShared("9000"), arena.addShared(new StringBuilder("9000")));
+		Assert.assertEquals(4, arena.size());
+	}
+
+	@Test
+	public void chunkTest() {
+		StringArena arena = new StringArena();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			sb.append("0123456789");
+		}
+		List<Integer> handles = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			handles.add(arena.add(i + sb.toString()));
+		}
+		Assert.assertTrue(arena.usedBytes() > 1 << StringArena.CHUNK_BITS);
+		for (int i = 0; i < handles.size(); i++) {
+			Assert.assertEquals(i + sb.toString(), arena.getString(handles.get(i)));
+		}
+	}
+
+	@Test
+	public void tableTest() {
+		StringArena arena = new StringArena();
+		DenominationTable denominations = new DenominationTable(arena);
+		Denomination denomination = new Denomination(new Language("2", Collections.emptyMap()), new TypeOfDenomination("001", Collections.emptyMap()), "Brouwerij Van Steenberge");
+		int row = denominations.add(denomination);
+		Assert.assertEquals(0, row);
+		Assert.assertEquals("2", denominations.getLanguage(row).getCode());
+		Assert.assertEquals("001", denominations.getTypeOfDenomination(row).getCode());
+		Assert.assertTrue(denominations.getValue(row).contentEquals("Brouwerij Van Steenberge"));
+		Assert.assertEquals(denomination, denominations.get(row));
+
+		AddressTable addresses = new AddressTable(arena);
+		TypeOfAddress rego = new TypeOfAddress("REGO", Collections.emptyMap());
+		Address first = new Address(rego, "", "", "9968", "Ertvelde", "Ertvelde", "Lindenlaan", "Lindenlaan", "25", "", "", null);
+		Address second = new Address(rego, "", "", "9968", "Ertvelde", "Ertvelde", "Lindenlaan", "Lindenlaan", "27", "", "achteringang", LocalDate.of(2015, 6, 30));
+		addresses.add(first);
+		int size = arena.size();
+		addresses.add(second);
+		// only the new house number and the extra info are stored
+		Assert.assertEquals(size + 2, arena.size());
+		Assert.assertEquals(2, addresses.size());
+		Assert.assertEquals(first, addresses.get(0));
+		Assert.assertEquals(second, addresses.get(1));
+		Assert.assertTrue(addresses.getText(1, AddressTable.Field.STREET_NL).contentEquals("Lindenlaan"));
+		Assert.assertEquals(LocalDate.of(2015, 6, 30), addresses.getDateStrikingOff(1));
+		Assert.assertNull(addresses.getDateStrikingOff(0));
+	}
+
+}